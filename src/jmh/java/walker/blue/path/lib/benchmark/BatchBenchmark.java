@@ -0,0 +1,84 @@
+package walker.blue.path.lib.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import walker.blue.path.lib.base.BatchPathfinder;
+import walker.blue.path.lib.base.PathQuery;
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Measures how the throughput of a batch of queries against one shared
+ * floor scales with the number of pool workers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+    /**
+     * Number of queries in each batch.
+     */
+    private static final int QUERIES = 512;
+
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    @Param({"256"})
+    public int size;
+
+    private List<List<GridNode>> searchArea;
+
+    private List<PathQuery<GridNode>> queries;
+
+    private BatchPathfinder<GridNode, List<List<GridNode>>> batch;
+
+    @Setup
+    public void setup() {
+        char[][] grid = MapFactory.generate(MapFactory.Layout.ROOMS, size, 0.05, 42L);
+        this.searchArea = GridGenerator.gen2D(grid);
+        this.queries = new ArrayList<>();
+        Random random = new Random(7L);
+        while(queries.size() < QUERIES) {
+            GridNode start = searchArea.get(random.nextInt(size)).get(random.nextInt(size));
+            GridNode dest = searchArea.get(random.nextInt(size)).get(random.nextInt(size));
+            if(start.isTraversable() && dest.isTraversable()) {
+                queries.add(new PathQuery<>(start, dest));
+            }
+        }
+        this.batch = new BatchPathfinder<>(new GridAStar(), new ForkJoinPool(workers));
+    }
+
+    @TearDown
+    public void tearDown() {
+        batch.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public List<List<GridNode>> findPaths() {
+        return batch.findPaths(searchArea, queries);
+    }
+}
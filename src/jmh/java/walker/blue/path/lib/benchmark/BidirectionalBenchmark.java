@@ -0,0 +1,140 @@
+package walker.blue.path.lib.benchmark;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import walker.blue.path.lib.finder.BidirectionalAStar;
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.SearchGrid;
+import walker.blue.path.lib.util.GridGenerator;
+import walker.blue.path.lib.util.SearchState;
+
+/**
+ * Benchmarks a long corner-to-corner query with GridAStar against
+ * BidirectionalAStar, alternating both frontiers on one thread or running
+ * them on two. Besides latency, the expanded cells per query are reported
+ * as the "expanded" secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BidirectionalBenchmark {
+
+    @Param({"256", "1024"})
+    public int size;
+
+    @Param({"OPEN", "MAZE", "ROOMS"})
+    public MapFactory.Layout layout;
+
+    private GridMap map;
+
+    private int startId;
+
+    private int destId;
+
+    private ExecutorService executor;
+
+    private CountingAStar gridAStar;
+
+    private CountingBidirectional bidirectional;
+
+    private CountingBidirectional twoThreads;
+
+    @Setup
+    public void setup() {
+        this.map = GridGenerator.genMap(MapFactory.generate(layout, size, 0.1, 42L));
+        this.startId = map.getId(1, 1);
+        this.destId = map.getId(size - 2, size - 2);
+        this.executor = Executors.newSingleThreadExecutor();
+        this.gridAStar = new CountingAStar();
+        this.bidirectional = new CountingBidirectional(null);
+        this.twoThreads = new CountingBidirectional(executor);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public int[] gridAStar(Expansions expansions) {
+        int[] path = gridAStar.findPath(map, startId, destId);
+        expansions.expanded += gridAStar.expanded.getAndSet(0);
+        return path;
+    }
+
+    @Benchmark
+    public int[] bidirectionalAStar(Expansions expansions) {
+        int[] path = bidirectional.findPath(map, startId, destId);
+        expansions.expanded += bidirectional.expanded.getAndSet(0);
+        return path;
+    }
+
+    @Benchmark
+    public int[] bidirectionalAStarTwoThreads(Expansions expansions) {
+        int[] path = twoThreads.findPath(map, startId, destId);
+        expansions.expanded += twoThreads.expanded.getAndSet(0);
+        return path;
+    }
+
+    /**
+     * Cells expanded per benchmark invocation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Expansions {
+
+        public long expanded;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            expanded = 0;
+        }
+    }
+
+    private static class CountingAStar extends GridAStar {
+
+        private final AtomicLong expanded = new AtomicLong();
+
+        @Override
+        protected void prepareNode(SearchGrid grid, SearchState state, int node) {
+            expanded.incrementAndGet();
+        }
+    }
+
+    private static class CountingBidirectional extends BidirectionalAStar {
+
+        private final AtomicLong expanded = new AtomicLong();
+
+        CountingBidirectional(ExecutorService executor) {
+            super(Connectivity.EIGHT, executor);
+        }
+
+        @Override
+        protected void prepareNode(SearchGrid grid, SearchState state, int node) {
+            expanded.incrementAndGet();
+        }
+    }
+}
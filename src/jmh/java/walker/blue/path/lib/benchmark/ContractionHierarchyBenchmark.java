@@ -0,0 +1,115 @@
+package walker.blue.path.lib.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import walker.blue.path.lib.finder.GraphAStar;
+import walker.blue.path.lib.finder.GraphDijkstra;
+import walker.blue.path.lib.graph.ContractionHierarchy;
+import walker.blue.path.lib.graph.ContractionHierarchyBuilder;
+import walker.blue.path.lib.graph.CsrGraph;
+import walker.blue.path.lib.node.GraphNode;
+
+/**
+ * Benchmarks point-to-point queries on a ContractionHierarchy against
+ * GraphDijkstra and GraphAStar on the same graph. The graph is a square
+ * lattice with random edge weights, built and contracted once in setup;
+ * each invocation answers the next query of a fixed random sequence.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContractionHierarchyBenchmark {
+
+    @Param({"50", "100", "200"})
+    public int side;
+
+    private CsrGraph graph;
+
+    private ContractionHierarchy hierarchy;
+
+    private final GraphDijkstra graphDijkstra = new GraphDijkstra();
+
+    private final GraphAStar graphAStar = new GraphAStar();
+
+    private int[] starts;
+
+    private int[] dests;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        List<GraphNode> nodes = new ArrayList<GraphNode>();
+        for(int i = 0; i < side * side; i++) {
+            nodes.add(new GraphNode(10 * (i % side), 10 * (i / side), 0, i));
+        }
+        CsrGraph.Builder builder = new CsrGraph.Builder(nodes);
+        for(int i = 0; i < side * side; i++) {
+            // Weights never go below the straight-line distance, so A* stays admissible.
+            if(i % side < side - 1) {
+                builder.addUndirectedEdge(i, i + 1, 10 + random.nextInt(10));
+            }
+            if(i / side < side - 1) {
+                builder.addUndirectedEdge(i, i + side, 10 + random.nextInt(10));
+            }
+        }
+        this.graph = builder.build();
+        this.hierarchy = new ContractionHierarchyBuilder().build(graph);
+        this.starts = new int[256];
+        this.dests = new int[256];
+        for(int i = 0; i < starts.length; i++) {
+            starts[i] = random.nextInt(graph.getNodeCount());
+            dests[i] = random.nextInt(graph.getNodeCount());
+        }
+        this.next = 0;
+    }
+
+    @Benchmark
+    public double contractionHierarchyDistance() {
+        int query = nextQuery();
+        return hierarchy.findDistance(starts[query], dests[query]);
+    }
+
+    @Benchmark
+    public int[] contractionHierarchyPath() {
+        int query = nextQuery();
+        return hierarchy.findPath(starts[query], dests[query]);
+    }
+
+    @Benchmark
+    public double graphDijkstraDistance() {
+        int query = nextQuery();
+        return graphDijkstra.findDistance(graph, starts[query], dests[query]);
+    }
+
+    @Benchmark
+    public double graphAStarDistance() {
+        int query = nextQuery();
+        return graphAStar.findDistance(graph, starts[query], dests[query]);
+    }
+
+    private int nextQuery() {
+        int query = next;
+        next = (next + 1) % starts.length;
+        return query;
+    }
+}
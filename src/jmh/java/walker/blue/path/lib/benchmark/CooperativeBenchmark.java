@@ -0,0 +1,120 @@
+package walker.blue.path.lib.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import walker.blue.path.lib.cooperative.CooperativeAStar;
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Measures how many times per second every agent of a floor can be
+ * planned, which bounds the tick rate of a simulation. CooperativeAStar
+ * plans all agents against its reservation table on the given number of
+ * pool workers, 0 planning them on the calling thread. The independent
+ * GridAStar searches per agent, which ignore each other, are the
+ * baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CooperativeBenchmark {
+
+    /**
+     * Number of timesteps every plan looks ahead.
+     */
+    private static final int WINDOW = 16;
+
+    @Param({"100", "300"})
+    public int agents;
+
+    @Param({"64", "256"})
+    public int size;
+
+    @Param({"0", "4"})
+    public int workers;
+
+    private GridMap map;
+
+    private CooperativeAStar planner;
+
+    private ForkJoinPool pool;
+
+    private final GridAStar gridAStar = new GridAStar();
+
+    private int[] starts;
+
+    private int[] goals;
+
+    @Setup
+    public void setup() {
+        this.map = GridGenerator.genMap(MapFactory.generate(MapFactory.Layout.ROOMS, size, 0.05, 42L));
+        this.planner = new CooperativeAStar(map, WINDOW);
+        if(workers > 0) {
+            this.pool = new ForkJoinPool(workers);
+            planner.setPool(pool);
+        }
+        this.starts = new int[agents];
+        this.goals = new int[agents];
+        boolean[] taken = new boolean[map.size()];
+        boolean[] targeted = new boolean[map.size()];
+        Random random = new Random(7L);
+        for(int agent = 0; agent < agents; agent++) {
+            int start;
+            int goal;
+            do {
+                start = random.nextInt(map.size());
+            } while(taken[start] || !map.isTraversable(start));
+            do {
+                goal = random.nextInt(map.size());
+            } while(targeted[goal] || !map.isTraversable(goal));
+            taken[start] = true;
+            targeted[goal] = true;
+            starts[agent] = start;
+            goals[agent] = goal;
+            planner.addAgent(start, goal);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if(pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int cooperativeReplan() {
+        return planner.replan();
+    }
+
+    @Benchmark
+    public int independentGridAStar() {
+        int cells = 0;
+        for(int agent = 0; agent < agents; agent++) {
+            int[] path = gridAStar.findPath(map, starts[agent], goals[agent]);
+            if(path != null) {
+                cells += path.length;
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,132 @@
+package walker.blue.path.lib.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import walker.blue.path.lib.base.StatisticsAggregator;
+import walker.blue.path.lib.finder.AnytimeAStar;
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.finder.JumpPointSearch;
+import walker.blue.path.lib.finder.SearchBudget;
+import walker.blue.path.lib.finder.SearchResult;
+import walker.blue.path.lib.finder.ThetaStar;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Benchmarks a corner-to-corner query of each grid finder over both kinds
+ * of search area. SampleTime mode reports latency percentiles. GridAStar is
+ * also run with statistics recorded, to show what they cost when enabled,
+ * and AnytimeAStar within a fixed budget of expansions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FinderBenchmark {
+
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    @Param({"0.05", "0.2"})
+    public double density;
+
+    @Param({"OPEN", "MAZE", "ROOMS"})
+    public MapFactory.Layout layout;
+
+    private List<List<GridNode>> searchArea;
+
+    private GridMap map;
+
+    private GridNode start;
+
+    private GridNode dest;
+
+    private int startId;
+
+    private int destId;
+
+    private final GridAStar gridAStar = new GridAStar();
+
+    private final ThetaStar thetaStar = new ThetaStar();
+
+    private final ThetaStar lazyThetaStar = new ThetaStar();
+
+    private final JumpPointSearch jumpPointSearch = new JumpPointSearch();
+
+    private final GridAStar recordingAStar = new GridAStar();
+
+    private final AnytimeAStar anytimeAStar = new AnytimeAStar();
+
+    private final SearchBudget budget = SearchBudget.expansions(10000);
+
+    private final StatisticsAggregator statistics = new StatisticsAggregator();
+
+    @Setup
+    public void setup() {
+        lazyThetaStar.setLazy(true);
+        recordingAStar.setStatisticsListener(statistics);
+        char[][] grid = MapFactory.generate(layout, size, density, 42L);
+        this.searchArea = GridGenerator.gen2D(grid);
+        this.map = GridGenerator.genMap(grid);
+        this.start = searchArea.get(1).get(1);
+        this.dest = searchArea.get(size - 2).get(size - 2);
+        this.startId = map.getId(1, 1);
+        this.destId = map.getId(size - 2, size - 2);
+    }
+
+    @Benchmark
+    public List<GridNode> gridAStarNodes() {
+        return gridAStar.findPath(searchArea, start, dest);
+    }
+
+    @Benchmark
+    public int[] gridAStarMap() {
+        return gridAStar.findPath(map, startId, destId);
+    }
+
+    @Benchmark
+    public int[] gridAStarMapWithStatistics() {
+        return recordingAStar.findPath(map, startId, destId);
+    }
+
+    @Benchmark
+    public List<GridNode> thetaStarNodes() {
+        return thetaStar.findPath(searchArea, start, dest);
+    }
+
+    @Benchmark
+    public int[] thetaStarMap() {
+        return thetaStar.findPath(map, startId, destId);
+    }
+
+    @Benchmark
+    public int[] lazyThetaStarMap() {
+        return lazyThetaStar.findPath(map, startId, destId);
+    }
+
+    @Benchmark
+    public int[] jumpPointSearchMap() {
+        return jumpPointSearch.findPath(map, startId, destId);
+    }
+
+    @Benchmark
+    public SearchResult anytimeAStarBudgeted() {
+        return anytimeAStar.findPath(map, startId, destId, budget);
+    }
+}
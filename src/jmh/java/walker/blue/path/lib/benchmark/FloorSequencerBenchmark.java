@@ -0,0 +1,120 @@
+package walker.blue.path.lib.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.floor.FloorConnector;
+import walker.blue.path.lib.floor.FloorSequencer;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Benchmarks a bottom-floor to top-floor query through FloorSequencer in a
+ * building with staircases running through every floor, up to dozens of
+ * floors and hundreds of connectors, searching the whole building or
+ * using precomputed connector distances, with and without an executor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FloorSequencerBenchmark {
+
+    @Param({"64", "256"})
+    public int size;
+
+    @Param({"2", "8", "32"})
+    public int floors;
+
+    @Param({"3", "12"})
+    public int staircases;
+
+    @Param({"OPEN", "ROOMS"})
+    public MapFactory.Layout layout;
+
+    private FloorSequencer sequencer;
+
+    private FloorSequencer tableSequencer;
+
+    private FloorSequencer parallelSequencer;
+
+    private ExecutorService executor;
+
+    private GridNode start;
+
+    private GridNode dest;
+
+    @Setup
+    public void setup() {
+        List<List<List<GridNode>>> building = new ArrayList<>();
+        for(int z = 0; z < floors; z++) {
+            building.add(GridGenerator.gen2D(MapFactory.generate(layout, size, 0.1, z), z));
+        }
+        List<FloorConnector> connectors = new ArrayList<>();
+        for(int s = 0; s < staircases; s++) {
+            int x = 2 + s * (size - 4) / staircases;
+            int y = size - 3 - s * (size - 4) / staircases;
+            FloorConnector below = null;
+            for(int z = 0; z < floors; z++) {
+                FloorConnector connector =
+                        new FloorConnector(x, y, z, true, FloorConnector.Type.STAIRS);
+                connector.setIndex(connectors.size());
+                building.get(z).get(y).set(x, connector);
+                if(below != null) {
+                    below.addConnection(connector);
+                    connector.addConnection(below);
+                }
+                connectors.add(connector);
+                below = connector;
+            }
+        }
+        this.sequencer = new FloorSequencer(new GridAStar(), building, connectors);
+        this.tableSequencer = new FloorSequencer(new GridAStar(), building, connectors);
+        this.tableSequencer.precompute(false);
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.parallelSequencer = new FloorSequencer(new GridAStar(), building, connectors);
+        this.parallelSequencer.setExecutor(executor);
+        this.parallelSequencer.precompute(false);
+        this.start = building.get(0).get(1).get(1);
+        this.dest = building.get(floors - 1).get(size - 2).get(size - 2);
+    }
+
+    @Benchmark
+    public List<GridNode> findPath() {
+        return sequencer.findPath(start, dest);
+    }
+
+    @Benchmark
+    public List<GridNode> findPathWithConnectorTable() {
+        return tableSequencer.findPath(start, dest);
+    }
+
+    @Benchmark
+    public List<GridNode> findPathWithConnectorTableParallel() {
+        return parallelSequencer.findPath(start, dest);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,97 @@
+package walker.blue.path.lib.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import walker.blue.path.lib.floor.BuildingFile;
+import walker.blue.path.lib.floor.FloorConnector;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Benchmarks building search areas from char maps, and opening the same
+ * floors from a memory-mapped building file. Run with the gc profiler to
+ * compare the allocation rate of GridNode lists and GridMaps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridGeneratorBenchmark {
+
+    /**
+     * Number of floors generated by the 3D benchmarks.
+     */
+    private static final int FLOORS = 4;
+
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    private char[][] grid;
+
+    private char[][][] grid3D;
+
+    private Path buildingFile;
+
+    @Setup
+    public void setup() throws IOException {
+        this.grid = MapFactory.generate(MapFactory.Layout.ROOMS, size, 0.1, 42L);
+        this.grid3D = new char[FLOORS][][];
+        for(int z = 0; z < FLOORS; z++) {
+            grid3D[z] = MapFactory.generate(MapFactory.Layout.ROOMS, size, 0.1, z);
+        }
+        this.buildingFile = Files.createTempFile("building", ".bin");
+        BuildingFile.write(buildingFile, GridGenerator.genMap3D(grid3D),
+                new ArrayList<FloorConnector>());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(buildingFile);
+    }
+
+    @Benchmark
+    public List<List<GridNode>> gen2D() {
+        return GridGenerator.gen2D(grid);
+    }
+
+    @Benchmark
+    public List<List<List<GridNode>>> gen3D() {
+        return GridGenerator.gen3D(grid3D);
+    }
+
+    @Benchmark
+    public GridMap genMap() {
+        return GridGenerator.genMap(grid);
+    }
+
+    @Benchmark
+    public List<GridMap> genMap3D() {
+        return GridGenerator.genMap3D(grid3D);
+    }
+
+    @Benchmark
+    public BuildingFile openBuildingFile() throws IOException {
+        return BuildingFile.open(buildingFile);
+    }
+}
@@ -0,0 +1,113 @@
+package walker.blue.path.lib.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.GridPath;
+import walker.blue.path.lib.grid.Heuristic;
+import walker.blue.path.lib.grid.SearchGrid;
+import walker.blue.path.lib.util.GridGenerator;
+import walker.blue.path.lib.util.SearchState;
+
+/**
+ * Benchmarks a corner-to-corner GridAStar query with each heuristic, with
+ * and without preferring larger g values among equal f values, and with
+ * weighted A*. Besides latency, the expanded cells and the cost of the
+ * path found are reported as the "expanded" and "cost" secondary results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeuristicBenchmark {
+
+    @Param({"256", "1024"})
+    public int size;
+
+    @Param({"OPEN", "MAZE", "ROOMS"})
+    public MapFactory.Layout layout;
+
+    @Param({"MANHATTAN", "OCTILE", "EUCLIDEAN", "CHEBYSHEV"})
+    public Heuristic heuristic;
+
+    @Param({"false", "true"})
+    public boolean preferLargerG;
+
+    @Param({"1.0", "1.5"})
+    public double weight;
+
+    private GridMap map;
+
+    private int startId;
+
+    private int destId;
+
+    private CountingAStar gridAStar;
+
+    @Setup
+    public void setup() {
+        this.map = GridGenerator.genMap(MapFactory.generate(layout, size, 0.1, 42L));
+        this.startId = map.getId(1, 1);
+        this.destId = map.getId(size - 2, size - 2);
+        this.gridAStar = new CountingAStar();
+        gridAStar.setHeuristic(heuristic);
+        gridAStar.setHeuristicWeight(weight);
+        gridAStar.setPreferLargerG(preferLargerG);
+    }
+
+    @Benchmark
+    public GridPath gridAStar(Expansions expansions) {
+        gridAStar.expanded = 0;
+        GridPath path = gridAStar.findGridPath(map, startId, destId);
+        expansions.expanded += gridAStar.expanded;
+        if(path != null) {
+            expansions.cost += (long) path.getCost();
+        }
+        return path;
+    }
+
+    /**
+     * Cells expanded and path cost per benchmark invocation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Expansions {
+
+        public long expanded;
+
+        public long cost;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            expanded = 0;
+            cost = 0;
+        }
+    }
+
+    private static class CountingAStar extends GridAStar {
+
+        private long expanded;
+
+        @Override
+        protected void prepareNode(SearchGrid grid, SearchState state, int node) {
+            expanded++;
+        }
+    }
+}
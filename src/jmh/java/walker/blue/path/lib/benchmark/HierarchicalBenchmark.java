@@ -0,0 +1,89 @@
+package walker.blue.path.lib.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.hierarchy.ClusterMap;
+import walker.blue.path.lib.hierarchy.HierarchicalAStar;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Benchmarks a corner-to-corner query on large floors with HierarchicalAStar
+ * (abstract search only, and fully refined) against GridAStar, and the
+ * cost of rebuilding one cluster after a cell changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchicalBenchmark {
+
+    @Param({"1024", "2048"})
+    public int size;
+
+    @Param({"16", "32", "64"})
+    public int clusterSize;
+
+    @Param({"OPEN", "ROOMS"})
+    public MapFactory.Layout layout;
+
+    private GridMap map;
+
+    private ClusterMap clusterMap;
+
+    private HierarchicalAStar hierarchicalAStar;
+
+    private final GridAStar gridAStar = new GridAStar();
+
+    private int startId;
+
+    private int destId;
+
+    @Setup
+    public void setup() {
+        char[][] grid = MapFactory.generate(layout, size, 0.05, 42L);
+        this.map = GridGenerator.genMap(grid);
+        this.clusterMap = new ClusterMap(map, clusterSize, Connectivity.EIGHT);
+        this.hierarchicalAStar = new HierarchicalAStar(clusterMap);
+        this.startId = map.getId(1, 1);
+        this.destId = map.getId(size - 2, size - 2);
+    }
+
+    @Benchmark
+    public int[] hierarchicalAbstract() {
+        return hierarchicalAStar.findAbstractPath(startId, destId);
+    }
+
+    @Benchmark
+    public int[] hierarchicalRefined() {
+        return hierarchicalAStar.findPath(startId, destId);
+    }
+
+    @Benchmark
+    public int[] gridAStar() {
+        return gridAStar.findPath(map, startId, destId);
+    }
+
+    @Benchmark
+    public int clusterRebuild() {
+        clusterMap.cellChanged(size / 2, size / 2);
+        clusterMap.update();
+        return clusterMap.getNodeCount();
+    }
+}
@@ -0,0 +1,98 @@
+package walker.blue.path.lib.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import walker.blue.path.lib.finder.ThetaStar;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.NodeGrid;
+import walker.blue.path.lib.grid.SearchGrid;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Benchmarks ThetaStar line of sight checks between random cell pairs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineOfSightBenchmark {
+
+    /**
+     * Number of cell pairs checked per invocation.
+     */
+    private static final int PAIRS = 1024;
+
+    @Param({"256", "1024"})
+    public int size;
+
+    @Param({"0.01", "0.1"})
+    public double density;
+
+    private SearchGrid nodeGrid;
+
+    private SearchGrid map;
+
+    private int[] pairs;
+
+    private final ExposedThetaStar thetaStar = new ExposedThetaStar();
+
+    @Setup
+    public void setup() {
+        char[][] grid = MapFactory.generate(MapFactory.Layout.OPEN, size, density, 42L);
+        this.nodeGrid = new NodeGrid(GridGenerator.gen2D(grid));
+        this.map = GridGenerator.genMap(grid);
+        Random random = new Random(7L);
+        this.pairs = new int[PAIRS * 4];
+        for(int i = 0; i < pairs.length; i++) {
+            pairs[i] = random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int lineOfSightNodes() {
+        return countVisible(nodeGrid);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int lineOfSightMap() {
+        return countVisible(map);
+    }
+
+    private int countVisible(SearchGrid grid) {
+        int visible = 0;
+        for(int i = 0; i < pairs.length; i += 4) {
+            if(thetaStar.lineOfSight(grid, pairs[i], pairs[i + 1], pairs[i + 2], pairs[i + 3])) {
+                visible++;
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * Gives the benchmark access to the protected line of sight check.
+     */
+    private static class ExposedThetaStar extends ThetaStar {
+        @Override
+        public boolean lineOfSight(SearchGrid grid, int xA, int yA, int xB, int yB) {
+            return super.lineOfSight(grid, xA, yA, xB, yB);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package walker.blue.path.lib.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+/**
+ * Generates deterministic char maps in the format read by GridGenerator
+ * ('O' traversable, 'X' blocked) for the benchmarks. The cells (1, 1) and
+ * (size - 2, size - 2) are always traversable and are used as the start
+ * and destination of the benchmarked queries.
+ */
+public final class MapFactory {
+
+    /**
+     * Enum holding the supported map layouts.
+     */
+    public enum Layout {
+        /**
+         * Open floor with obstacles scattered at the given density.
+         */
+        OPEN,
+        /**
+         * Corridor maze one cell wide. The density is the fraction of maze
+         * walls that are knocked out to add loops.
+         */
+        MAZE,
+        /**
+         * Square rooms joined by doorways, cluttered with obstacles at the
+         * given density.
+         */
+        ROOMS
+    }
+
+    /**
+     * Side length of a room in the ROOMS layout, including its wall.
+     */
+    private static final int ROOM_SIZE = 16;
+
+    /**
+     * Private constructor
+     */
+    private MapFactory() {}
+
+    /**
+     * Generates a square map.
+     *
+     * @param layout the layout of the map
+     * @param size the number of rows and columns
+     * @param density layout-specific obstacle density between 0 and 1
+     * @param seed seed of the random generator
+     * @return the generated map
+     */
+    public static char[][] generate(Layout layout, int size, double density, long seed) {
+        Random random = new Random(seed);
+        char[][] grid;
+        switch(layout) {
+            case MAZE:
+                grid = maze(size, density, random);
+                break;
+            case ROOMS:
+                grid = rooms(size, density, random);
+                break;
+            default:
+                grid = scatter(filled(size, 'O'), density, random);
+                break;
+        }
+        grid[1][1] = 'O';
+        grid[size - 2][size - 2] = 'O';
+        return grid;
+    }
+
+    /**
+     * Creates a map with every cell set to the given value.
+     *
+     * @param size the number of rows and columns
+     * @param value the cell value
+     * @return the map
+     */
+    private static char[][] filled(int size, char value) {
+        char[][] grid = new char[size][size];
+        for(char[] row : grid) {
+            java.util.Arrays.fill(row, value);
+        }
+        return grid;
+    }
+
+    /**
+     * Blocks traversable cells at random.
+     *
+     * @param grid the map to modify
+     * @param density probability of blocking a cell
+     * @param random the random generator
+     * @return the modified map
+     */
+    private static char[][] scatter(char[][] grid, double density, Random random) {
+        for(char[] row : grid) {
+            for(int x = 0; x < row.length; x++) {
+                if(row[x] == 'O' && random.nextDouble() < density) {
+                    row[x] = 'X';
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Carves a maze with an iterative depth-first backtracker over the odd
+     * cells, then knocks out some of the remaining walls.
+     *
+     * @param size the number of rows and columns
+     * @param density fraction of walls to knock out
+     * @param random the random generator
+     * @return the maze
+     */
+    private static char[][] maze(int size, double density, Random random) {
+        char[][] grid = filled(size, 'X');
+        int cells = (size - 1) / 2;
+        boolean[][] carved = new boolean[cells][cells];
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[] {0, 0});
+        carved[0][0] = true;
+        grid[1][1] = 'O';
+        int[][] steps = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        while(!stack.isEmpty()) {
+            int[] cell = stack.peek();
+            int[] order = {0, 1, 2, 3};
+            for(int i = order.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int temp = order[i];
+                order[i] = order[j];
+                order[j] = temp;
+            }
+            boolean moved = false;
+            for(int k : order) {
+                int nx = cell[0] + steps[k][0];
+                int ny = cell[1] + steps[k][1];
+                if(nx >= 0 && ny >= 0 && nx < cells && ny < cells && !carved[ny][nx]) {
+                    carved[ny][nx] = true;
+                    grid[2 * cell[1] + 1 + steps[k][1]][2 * cell[0] + 1 + steps[k][0]] = 'O';
+                    grid[2 * ny + 1][2 * nx + 1] = 'O';
+                    stack.push(new int[] {nx, ny});
+                    moved = true;
+                    break;
+                }
+            }
+            if(!moved) {
+                stack.pop();
+            }
+        }
+        for(int y = 1; y < size - 1; y++) {
+            for(int x = 1; x < size - 1; x++) {
+                if(grid[y][x] == 'X' && (x % 2 == 1 || y % 2 == 1) && random.nextDouble() < density) {
+                    grid[y][x] = 'O';
+                }
+            }
+        }
+        grid[size - 2][size - 3] = 'O';
+        grid[size - 3][size - 2] = 'O';
+        return grid;
+    }
+
+    /**
+     * Lays out square rooms with a doorway in each wall and clutters them.
+     *
+     * @param size the number of rows and columns
+     * @param density probability of blocking a cell inside a room
+     * @param random the random generator
+     * @return the map
+     */
+    private static char[][] rooms(int size, double density, Random random) {
+        char[][] grid = scatter(filled(size, 'O'), density, random);
+        for(int wall = 0; wall < size; wall += ROOM_SIZE) {
+            for(int i = 0; i < size; i++) {
+                grid[wall][i] = 'X';
+                grid[i][wall] = 'X';
+            }
+        }
+        for(int wall = 0; wall < size; wall += ROOM_SIZE) {
+            for(int room = 0; room < size; room += ROOM_SIZE) {
+                int span = Math.min(ROOM_SIZE, size - room) - 3;
+                if(span <= 0 || wall == 0) {
+                    continue;
+                }
+                int door = room + 1 + random.nextInt(span);
+                grid[wall][door] = 'O';
+                grid[wall][door + 1] = 'O';
+                grid[door][wall] = 'O';
+                grid[door + 1][wall] = 'O';
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,113 @@
+package walker.blue.path.lib.benchmark;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import walker.blue.path.lib.util.IndexedMinHeap;
+
+/**
+ * Compares the open set used by the finders against the PriorityQueue it
+ * replaced, on a workload of inserts and decrease-keys like the one A*
+ * produces on a large open grid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenSetBenchmark {
+
+    @Param({"1000", "10000"})
+    public int openSize;
+
+    private int[] ids;
+
+    private double[] keys;
+
+    private double[] lowerKeys;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42L);
+        this.ids = new int[openSize];
+        this.keys = new double[openSize];
+        this.lowerKeys = new double[openSize];
+        for(int i = 0; i < openSize; i++) {
+            ids[i] = i;
+            keys[i] = 1000 + random.nextInt(100000);
+            lowerKeys[i] = keys[i] - random.nextInt(1000);
+        }
+    }
+
+    @Benchmark
+    public int indexedMinHeap() {
+        IndexedMinHeap heap = new IndexedMinHeap(openSize);
+        for(int i = 0; i < openSize; i++) {
+            heap.add(ids[i], keys[i]);
+        }
+        for(int i = 0; i < openSize; i += 4) {
+            if(heap.contains(ids[i])) {
+                heap.decreaseKey(ids[i], lowerKeys[i]);
+            }
+        }
+        int sum = 0;
+        while(!heap.isEmpty()) {
+            sum += heap.remove();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int priorityQueue() {
+        Entry[] entries = new Entry[openSize];
+        PriorityQueue<Entry> queue = new PriorityQueue<>();
+        for(int i = 0; i < openSize; i++) {
+            entries[i] = new Entry(ids[i], keys[i]);
+            queue.add(entries[i]);
+        }
+        for(int i = 0; i < openSize; i += 4) {
+            if(queue.contains(entries[i])) {
+                queue.remove(entries[i]);
+                entries[i].key = lowerKeys[i];
+                queue.add(entries[i]);
+            }
+        }
+        int sum = 0;
+        while(!queue.isEmpty()) {
+            sum += queue.remove().id;
+        }
+        return sum;
+    }
+
+    /**
+     * Queue entry with a mutable key, standing in for a GridNode.
+     */
+    private static class Entry implements Comparable<Entry> {
+        private final int id;
+        private double key;
+
+        Entry(int id, double key) {
+            this.id = id;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Entry another) {
+            return Double.compare(this.key, another.key);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package walker.blue.path.lib.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import walker.blue.path.lib.finder.DStarLite;
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Benchmarks replanning after one cell changes traversability, comparing
+ * the incremental repair of DStarLite against a full GridAStar search.
+ * Each invocation flips the next cell of a fixed random sequence, so the
+ * map returns to its original state after every two passes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplanBenchmark {
+
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    @Param({"OPEN", "MAZE", "ROOMS"})
+    public MapFactory.Layout layout;
+
+    private GridMap incrementalMap;
+
+    private GridMap fullMap;
+
+    private DStarLite dStarLite;
+
+    private final GridAStar gridAStar = new GridAStar();
+
+    private int startId;
+
+    private int destId;
+
+    private int[] flips;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        char[][] grid = MapFactory.generate(layout, size, 0.05, 42L);
+        this.incrementalMap = GridGenerator.genMap(grid);
+        this.fullMap = GridGenerator.genMap(grid);
+        this.startId = incrementalMap.getId(1, 1);
+        this.destId = incrementalMap.getId(size - 2, size - 2);
+        this.dStarLite = new DStarLite(incrementalMap, startId, destId);
+        this.dStarLite.findPath();
+        Random random = new Random(7);
+        this.flips = new int[256];
+        for(int i = 0; i < flips.length; i++) {
+            int cell;
+            do {
+                cell = random.nextInt(incrementalMap.size());
+            } while(cell == startId || cell == destId);
+            flips[i] = cell;
+        }
+        this.next = 0;
+    }
+
+    @Benchmark
+    public int[] dStarLiteReplan() {
+        int cell = nextFlip();
+        int x = incrementalMap.getX(cell);
+        int y = incrementalMap.getY(cell);
+        dStarLite.setTraversable(x, y, !incrementalMap.isTraversable(x, y));
+        return dStarLite.findPath();
+    }
+
+    @Benchmark
+    public int[] gridAStarFullSearch() {
+        int cell = nextFlip();
+        int x = fullMap.getX(cell);
+        int y = fullMap.getY(cell);
+        fullMap.setTraversable(x, y, !fullMap.isTraversable(x, y));
+        return gridAStar.findPath(fullMap, startId, destId);
+    }
+
+    private int nextFlip() {
+        int cell = flips[next];
+        next = (next + 1) % flips.length;
+        return cell;
+    }
+}
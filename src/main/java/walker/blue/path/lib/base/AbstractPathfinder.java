@@ -2,13 +2,27 @@ package walker.blue.path.lib.base;
 
 import java.util.List;
 
+import walker.blue.path.lib.util.SearchState;
+import walker.blue.path.lib.util.SearchStatistics;
+
 /**
  * Abstract class that implements the Pathfinder interface.
+ *
+ * <p>While a StatisticsListener is set, every search records its counters
+ * in the SearchStatistics of its SearchState and hands them to the
+ * listener once done. Without one, the statistics of the state stay null
+ * and the search only pays for a null check where a counter would change.
+ *
  * @param <E> the node type used in the searchArea
  * @param <T> the type used to hold all the nodes
  */
 public abstract class AbstractPathfinder<E, T> implements Pathfinder<E, T> {
 
+    /**
+     * Receives the statistics of every search, or null to record none.
+     */
+    private volatile StatisticsListener statisticsListener;
+
     /**
      * Generates a list of nodes of type E holding the path.
      *
@@ -18,4 +32,55 @@ public abstract class AbstractPathfinder<E, T> implements Pathfinder<E, T> {
      * @return List containing the calculated path
      */
     public abstract List<E> findPath(T searchArea, E start, E dest);
+
+    /**
+     * Access method to get the statistics listener.
+     *
+     * @return the listener receiving the statistics of every search, or null
+     */
+    public StatisticsListener getStatisticsListener() {
+        return this.statisticsListener;
+    }
+
+    /**
+     * Sets the listener receiving the statistics of every search.
+     *
+     * @param listener the new listener, or null to stop recording statistics
+     */
+    public void setStatisticsListener(StatisticsListener listener) {
+        this.statisticsListener = listener;
+    }
+
+    /**
+     * Starts recording the statistics of a search into its state, if a
+     * listener is set.
+     *
+     * @param state the state of the search, acquired for it
+     * @return the statistics being recorded, or null if there is no listener
+     */
+    protected SearchStatistics startStatistics(SearchState state) {
+        if(this.statisticsListener == null) {
+            return null;
+        }
+        SearchStatistics statistics = state.recordStatistics();
+        statistics.start();
+        return statistics;
+    }
+
+    /**
+     * Finishes recording the statistics of a search and hands them to the
+     * listener. Does nothing if no statistics were recorded.
+     *
+     * @param statistics the statistics returned by startStatistics, or null
+     */
+    protected void finishStatistics(SearchStatistics statistics) {
+        if(statistics == null) {
+            return;
+        }
+        statistics.finish();
+        StatisticsListener listener = this.statisticsListener;
+        if(listener != null) {
+            listener.searchFinished(statistics);
+        }
+    }
 }
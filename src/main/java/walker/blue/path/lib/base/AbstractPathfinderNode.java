@@ -5,6 +5,10 @@ import walker.blue.path.lib.node.RectCoordinates;
 /**
  * This abstract class holds basic node information needed to find a
  * path between two nodes in a group of nodes.
+ *
+ * <p>The finders in this library keep their g, h and parent values in a
+ * per-query SearchState and never modify these fields, so a search area
+ * made of these nodes can be shared between concurrent searches.
  */
 public abstract class AbstractPathfinderNode implements Comparable<AbstractPathfinderNode> {
 
@@ -121,12 +125,13 @@ public abstract class AbstractPathfinderNode implements Comparable<AbstractPathf
      * Calculates the f values of both nodes, which is just the addition
      * of the g and h values, to determine whether the other node
      * is farther or closer to the destination while following the current
-     * path.
+     * path. Of two nodes with the same f value, the one with the greater
+     * g value, which is further along its path, comes first.
      *
      * @param another the other AbstractPathfinderNode being compared to this one
-     * @return  -1 if this node has a smaller f value,
-     *          0 if both nodes have the same f value,
-     *          1 if this node has a greater f value
+     * @return  -1 if this node has a smaller f value, or the same f value and a greater g value,
+     *          0 if both nodes have the same f and g values,
+     *          1 otherwise
      */
     @Override
     public int compareTo(AbstractPathfinderNode another) {
@@ -138,6 +143,12 @@ public abstract class AbstractPathfinderNode implements Comparable<AbstractPathf
         else if(f > anotherF) {
             return 1;
         }
+        else if(this.g > another.g) {
+            return -1;
+        }
+        else if(this.g < another.g) {
+            return 1;
+        }
         else {
             return 0;
         }
@@ -0,0 +1,170 @@
+package walker.blue.path.lib.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs many path searches over the same search area in parallel on a
+ * ForkJoinPool. The queries are split into chunks that are stolen by the
+ * workers of the pool; the finders of this library keep their search
+ * values in a SearchState pooled per thread, so every worker reuses its
+ * own state across the queries it runs and the search area is shared
+ * without copies.
+ *
+ * @param <E> the node type used in the searchArea
+ * @param <T> the type used to hold all the nodes
+ */
+public class BatchPathfinder<E, T> {
+
+    /**
+     * Number of chunks per worker that a batch is split into, so that
+     * workers finishing early can steal more work.
+     */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /**
+     * The pathfinder that runs each query. It must be safe to call from
+     * several threads at once.
+     */
+    private final Pathfinder<E, T> pathfinder;
+
+    /**
+     * The pool the queries run on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Class constructor running the queries on a new pool with one worker
+     * per available processor.
+     *
+     * @param pathfinder the pathfinder that runs each query
+     */
+    public BatchPathfinder(Pathfinder<E, T> pathfinder) {
+        this(pathfinder, new ForkJoinPool());
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param pathfinder the pathfinder that runs each query
+     * @param pool the pool the queries run on
+     */
+    public BatchPathfinder(Pathfinder<E, T> pathfinder, ForkJoinPool pool) {
+        this.pathfinder = pathfinder;
+        this.pool = pool;
+    }
+
+    /**
+     * Access method to get the pathfinder.
+     *
+     * @return the pathfinder that runs each query
+     */
+    public Pathfinder<E, T> getPathfinder() {
+        return this.pathfinder;
+    }
+
+    /**
+     * Access method to get the pool.
+     *
+     * @return the pool the queries run on
+     */
+    public ForkJoinPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * Finds the path of every query in the search area.
+     *
+     * @param searchArea the space that is used in every path search
+     * @param queries the start and destination nodes of each search
+     * @return the paths in the same order as the queries, with null for
+     *         queries that have no path
+     */
+    public List<List<E>> findPaths(T searchArea, List<PathQuery<E>> queries) {
+        List<List<E>> paths = new ArrayList<List<E>>(Arrays.asList(newPathArray(queries.size())));
+        if(queries.isEmpty()) {
+            return paths;
+        }
+        int chunkSize = Math.max(1,
+                queries.size() / (this.pool.getParallelism() * CHUNKS_PER_WORKER));
+        this.pool.invoke(new QueryTask(searchArea, queries, paths, 0, queries.size(), chunkSize));
+        return paths;
+    }
+
+    /**
+     * Shuts down the pool once the running batches are done.
+     */
+    public void shutdown() {
+        this.pool.shutdown();
+    }
+
+    /**
+     * Creates an array of empty path slots.
+     *
+     * @param size the number of slots
+     * @return an array of null paths
+     */
+    @SuppressWarnings("unchecked")
+    private List<E>[] newPathArray(int size) {
+        return (List<E>[]) new List<?>[size];
+    }
+
+    /**
+     * Task that runs a range of queries, splitting it in half until it is
+     * no larger than the chunk size.
+     */
+    private class QueryTask extends RecursiveAction {
+
+        /**
+         * Version of the serialized form, which is never used.
+         */
+        private static final long serialVersionUID = 1L;
+
+        private final T searchArea;
+
+        private final List<PathQuery<E>> queries;
+
+        private final List<List<E>> paths;
+
+        private final int from;
+
+        private final int to;
+
+        private final int chunkSize;
+
+        QueryTask(T searchArea,
+                  List<PathQuery<E>> queries,
+                  List<List<E>> paths,
+                  int from,
+                  int to,
+                  int chunkSize) {
+            this.searchArea = searchArea;
+            this.queries = queries;
+            this.paths = paths;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if(this.to - this.from <= this.chunkSize) {
+                for(int i = this.from; i < this.to; i++) {
+                    PathQuery<E> query = this.queries.get(i);
+                    this.paths.set(i,
+                            pathfinder.findPath(this.searchArea, query.getStart(), query.getDest()));
+                }
+            }
+            else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new QueryTask(this.searchArea, this.queries, this.paths,
+                                this.from, middle, this.chunkSize),
+                        new QueryTask(this.searchArea, this.queries, this.paths,
+                                middle, this.to, this.chunkSize));
+            }
+        }
+    }
+}
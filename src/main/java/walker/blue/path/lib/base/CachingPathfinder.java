@@ -0,0 +1,225 @@
+package walker.blue.path.lib.base;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bounded cache of path results in front of another Pathfinder. Results
+ * are keyed by the search area, start and destination, and are shared by
+ * every thread calling the cache. The results are held in a PathCache and
+ * the searches themselves run outside of any lock.
+ *
+ * <p>Each result remembers the version of the search area it was computed
+ * on when the area implements Versioned, and is discarded once the area
+ * has been modified since. Search areas that are not Versioned must be
+ * followed by a call to invalidate whenever they change. Searches that
+ * find no path are cached as well.
+ *
+ * <p>The returned paths are unmodifiable copies shared between callers.
+ * GridPathCache does the same for the GridPath of a GridAStar, keyed by
+ * cell ids.
+ *
+ * @param <E> the node type used in the searchArea
+ * @param <T> the type used to hold all the nodes
+ */
+public class CachingPathfinder<E, T> implements Pathfinder<E, T> {
+
+    /**
+     * Default maximum number of cached paths.
+     */
+    public static final int DEFAULT_CAPACITY = PathCache.DEFAULT_CAPACITY;
+
+    /**
+     * Default number of segments the cache is split into.
+     */
+    public static final int DEFAULT_SEGMENTS = PathCache.DEFAULT_SEGMENTS;
+
+    /**
+     * The pathfinder that runs the searches missing from the cache.
+     */
+    private final Pathfinder<E, T> pathfinder;
+
+    /**
+     * The cached paths.
+     */
+    private final PathCache<List<E>> cache;
+
+    /**
+     * Class constructor using the default capacity and segment count.
+     *
+     * @param pathfinder the pathfinder that runs the searches missing from the cache
+     */
+    public CachingPathfinder(Pathfinder<E, T> pathfinder) {
+        this(pathfinder, DEFAULT_CAPACITY, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Class constructor using the default segment count.
+     *
+     * @param pathfinder the pathfinder that runs the searches missing from the cache
+     * @param capacity the maximum number of cached paths
+     */
+    public CachingPathfinder(Pathfinder<E, T> pathfinder, int capacity) {
+        this(pathfinder, capacity, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param pathfinder the pathfinder that runs the searches missing from the cache
+     * @param capacity the maximum number of cached paths
+     * @param segmentCount the number of segments the cache is split into
+     */
+    public CachingPathfinder(Pathfinder<E, T> pathfinder, int capacity, int segmentCount) {
+        this.pathfinder = pathfinder;
+        this.cache = new PathCache<List<E>>(capacity, segmentCount);
+    }
+
+    /**
+     * Returns the cached path between two nodes, searching for it with the
+     * wrapped pathfinder when it is not cached or has gone stale.
+     *
+     * @param searchArea the space that is used in the path search
+     * @param start the start node
+     * @param dest the end node
+     * @return unmodifiable List containing the calculated path, or null if there is none
+     */
+    @Override
+    public List<E> findPath(T searchArea, E start, E dest) {
+        long version = PathCache.getVersion(searchArea);
+        Key key = new Key(searchArea, start, dest);
+        PathCache.Entry<List<E>> entry = this.cache.get(key, version);
+        if(entry != null) {
+            return entry.getPath();
+        }
+        List<E> path = this.pathfinder.findPath(searchArea, start, dest);
+        List<E> result = path == null
+                ? null
+                : Collections.unmodifiableList(new ArrayList<E>(path));
+        this.cache.put(key, version, result);
+        return result;
+    }
+
+    /**
+     * Removes every cached path. Needed after modifying a search area that
+     * does not implement Versioned.
+     */
+    public void invalidate() {
+        this.cache.invalidate();
+    }
+
+    /**
+     * Access method to get the pathfinder.
+     *
+     * @return the pathfinder that runs the searches missing from the cache
+     */
+    public Pathfinder<E, T> getPathfinder() {
+        return this.pathfinder;
+    }
+
+    /**
+     * Access method to get the capacity.
+     *
+     * @return the maximum number of cached paths
+     */
+    public int capacity() {
+        return this.cache.capacity();
+    }
+
+    /**
+     * Returns the number of cached paths, including stale ones not yet replaced.
+     *
+     * @return the number of cached paths
+     */
+    public int size() {
+        return this.cache.size();
+    }
+
+    /**
+     * Access method to get the hit count.
+     *
+     * @return the number of queries answered from the cache
+     */
+    public long getHitCount() {
+        return this.cache.getHitCount();
+    }
+
+    /**
+     * Access method to get the miss count.
+     *
+     * @return the number of queries that ran a search
+     */
+    public long getMissCount() {
+        return this.cache.getMissCount();
+    }
+
+    /**
+     * Access method to get the eviction count.
+     *
+     * @return the number of paths removed to stay within the capacity
+     */
+    public long getEvictionCount() {
+        return this.cache.getEvictionCount();
+    }
+
+    /**
+     * Returns the fraction of queries answered from the cache.
+     *
+     * @return the hit rate, or 0 if no query was made
+     */
+    public double getHitRate() {
+        return this.cache.getHitRate();
+    }
+
+    /**
+     * Resets the hit, miss and eviction counts to zero.
+     */
+    public void resetStatistics() {
+        this.cache.resetStatistics();
+    }
+
+    /**
+     * Identifies a query by its search area, compared by identity, and its
+     * start and destination nodes, compared with equals.
+     */
+    private static final class Key {
+
+        private final Object searchArea;
+
+        private final Object start;
+
+        private final Object dest;
+
+        private final int hash;
+
+        Key(Object searchArea, Object start, Object dest) {
+            this.searchArea = searchArea;
+            this.start = start;
+            this.dest = dest;
+            int hash = System.identityHashCode(searchArea);
+            hash = 31 * hash + (start == null ? 0 : start.hashCode());
+            hash = 31 * hash + (dest == null ? 0 : dest.hashCode());
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return this.searchArea == other.searchArea
+                    && (this.start == null ? other.start == null : this.start.equals(other.start))
+                    && (this.dest == null ? other.dest == null : this.dest.equals(other.dest));
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
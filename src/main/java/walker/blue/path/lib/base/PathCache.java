@@ -0,0 +1,297 @@
+package walker.blue.path.lib.base;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded store of path results shared by every thread using it. To keep
+ * contention low the entries are spread over several segments, each a
+ * least-recently-used map guarded by its own lock. Each result is stored
+ * with the version of the search area it was computed on and is only
+ * returned while the area is at that version.
+ *
+ * <p>Keys are supplied by the caller and only need equals and hashCode,
+ * so the same store backs CachingPathfinder, keyed by nodes, and caches
+ * keyed by cell ids.
+ *
+ * @param <V> the type of the cached paths
+ */
+public class PathCache<V> {
+
+    /**
+     * Default maximum number of cached paths.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Default number of segments the cache is split into.
+     */
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    /**
+     * The segments holding the cached paths.
+     */
+    private final Segment<V>[] segments;
+
+    /**
+     * The maximum number of cached paths.
+     */
+    private final int capacity;
+
+    /**
+     * Number of lookups answered from the cache.
+     */
+    private final AtomicLong hits;
+
+    /**
+     * Number of lookups that found no current path.
+     */
+    private final AtomicLong misses;
+
+    /**
+     * Number of paths removed to stay within the capacity.
+     */
+    private final AtomicLong evictions;
+
+    /**
+     * Class constructor
+     *
+     * @param capacity the maximum number of cached paths
+     * @param segmentCount the number of segments the cache is split into
+     */
+    @SuppressWarnings("unchecked")
+    public PathCache(int capacity, int segmentCount) {
+        if(capacity < 1 || segmentCount < 1) {
+            throw new IllegalArgumentException("Capacity and segment count must be positive");
+        }
+        segmentCount = Math.min(segmentCount, capacity);
+        this.capacity = capacity;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+        this.segments = (Segment<V>[]) new Segment<?>[segmentCount];
+        for(int i = 0; i < segmentCount; i++) {
+            // Spread the capacity so the segments add up to exactly capacity.
+            int segmentCapacity = capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0);
+            this.segments[i] = new Segment<V>(segmentCapacity, this.evictions);
+        }
+    }
+
+    /**
+     * Returns the entry cached under a key if it was computed at the given
+     * version, counting the lookup as a hit or a miss.
+     *
+     * @param key the key of the query
+     * @param version the current version of the search area
+     * @return the entry, or null if there is none or it has gone stale
+     */
+    public Entry<V> get(Object key, long version) {
+        Entry<V> entry = segmentFor(key).get(key);
+        if(entry != null && entry.version == version) {
+            this.hits.incrementAndGet();
+            return entry;
+        }
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Caches a path under a key, replacing any older entry. The version
+     * should be read before the search, so that a modification made while
+     * searching leaves the entry stale rather than wrong.
+     *
+     * @param key the key of the query
+     * @param version the version of the search area the path was computed on
+     * @param path the path, which may be null if there is none
+     */
+    public void put(Object key, long version, V path) {
+        segmentFor(key).put(key, new Entry<V>(version, path));
+    }
+
+    /**
+     * Removes every cached path.
+     */
+    public void invalidate() {
+        for(Segment<V> segment : this.segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Access method to get the capacity.
+     *
+     * @return the maximum number of cached paths
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns the number of cached paths, including stale ones not yet replaced.
+     *
+     * @return the number of cached paths
+     */
+    public int size() {
+        int size = 0;
+        for(Segment<V> segment : this.segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Access method to get the hit count.
+     *
+     * @return the number of lookups answered from the cache
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * Access method to get the miss count.
+     *
+     * @return the number of lookups that found no current path
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * Access method to get the eviction count.
+     *
+     * @return the number of paths removed to stay within the capacity
+     */
+    public long getEvictionCount() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache.
+     *
+     * @return the hit rate, or 0 if no lookup was made
+     */
+    public double getHitRate() {
+        long hits = this.hits.get();
+        long total = hits + this.misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Resets the hit, miss and eviction counts to zero.
+     */
+    public void resetStatistics() {
+        this.hits.set(0);
+        this.misses.set(0);
+        this.evictions.set(0);
+    }
+
+    /**
+     * Returns the version of a search area.
+     *
+     * @param searchArea the search area
+     * @return the version of the area if it is Versioned, 0 otherwise
+     */
+    public static long getVersion(Object searchArea) {
+        return searchArea instanceof Versioned ? ((Versioned) searchArea).getVersion() : 0;
+    }
+
+    /**
+     * Returns the segment a key is stored in.
+     *
+     * @param key the key
+     * @return the segment of the key
+     */
+    private Segment<V> segmentFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return this.segments[(hash & Integer.MAX_VALUE) % this.segments.length];
+    }
+
+    /**
+     * A cached path and the version of the search area it was computed on.
+     *
+     * @param <V> the type of the path
+     */
+    public static final class Entry<V> {
+
+        /**
+         * The version of the search area the path was computed on.
+         */
+        private final long version;
+
+        /**
+         * The path, or null if there is none.
+         */
+        private final V path;
+
+        /**
+         * Class constructor
+         *
+         * @param version the version of the search area the path was computed on
+         * @param path the path, or null if there is none
+         */
+        Entry(long version, V path) {
+            this.version = version;
+            this.path = path;
+        }
+
+        /**
+         * Access method to get the path.
+         *
+         * @return the cached path, or null if the search found none
+         */
+        public V getPath() {
+            return this.path;
+        }
+    }
+
+    /**
+     * Least-recently-used map holding part of the cached paths.
+     *
+     * @param <V> the type of the paths
+     */
+    private static final class Segment<V> {
+
+        /**
+         * The cached paths, in access order.
+         */
+        private final LinkedHashMap<Object, Entry<V>> entries;
+
+        /**
+         * Class constructor
+         *
+         * @param capacity the maximum number of paths in the segment
+         * @param evictions the counter of paths removed to stay within the capacity
+         */
+        Segment(final int capacity, final AtomicLong evictions) {
+            this.entries = new LinkedHashMap<Object, Entry<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, PathCache.Entry<V>> eldest) {
+                    if(size() > capacity) {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized Entry<V> get(Object key) {
+            return this.entries.get(key);
+        }
+
+        synchronized void put(Object key, Entry<V> entry) {
+            this.entries.put(key, entry);
+        }
+
+        synchronized void clear() {
+            this.entries.clear();
+        }
+
+        synchronized int size() {
+            return this.entries.size();
+        }
+    }
+}
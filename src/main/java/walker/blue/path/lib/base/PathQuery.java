@@ -0,0 +1,54 @@
+package walker.blue.path.lib.base;
+
+/**
+ * Holds the start and destination nodes of one path search in a batch.
+ *
+ * @param <E> the node type used in the searchArea
+ */
+public class PathQuery<E> {
+
+    /**
+     * The start node
+     */
+    private final E start;
+
+    /**
+     * The destination node
+     */
+    private final E dest;
+
+    /**
+     * Class constructor
+     *
+     * @param start the start node
+     * @param dest the end node
+     */
+    public PathQuery(E start, E dest) {
+        this.start = start;
+        this.dest = dest;
+    }
+
+    /**
+     * Access method to get the start node.
+     *
+     * @return the start node
+     */
+    public E getStart() {
+        return this.start;
+    }
+
+    /**
+     * Access method to get the destination node.
+     *
+     * @return the end node
+     */
+    public E getDest() {
+        return this.dest;
+    }
+
+    @Override
+    public String toString() {
+        return "Start: " + this.start + "\n" +
+                "Dest: " + this.dest;
+    }
+}
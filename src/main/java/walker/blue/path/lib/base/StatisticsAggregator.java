@@ -0,0 +1,105 @@
+package walker.blue.path.lib.base;
+
+import walker.blue.path.lib.util.LogHistogram;
+import walker.blue.path.lib.util.SearchStatistics;
+import walker.blue.path.lib.util.SearchStatistics.Metric;
+
+/**
+ * StatisticsListener adding every search to one histogram per metric, and
+ * keeping a copy of the statistics of the slowest search seen, so that
+ * pathological queries can be found without logging every one. It may be
+ * shared by several pathfinders and threads.
+ */
+public class StatisticsAggregator implements StatisticsListener {
+
+    /**
+     * Histogram of each metric, by ordinal.
+     */
+    private final LogHistogram[] histograms;
+
+    /**
+     * Statistics of the slowest search seen, or null.
+     */
+    private SearchStatistics slowest;
+
+    /**
+     * Class constructor
+     */
+    public StatisticsAggregator() {
+        this.histograms = new LogHistogram[Metric.values().length];
+        for(int i = 0; i < this.histograms.length; i++) {
+            this.histograms[i] = new LogHistogram();
+        }
+    }
+
+    /**
+     * Records every metric of a finished search.
+     *
+     * @param statistics the counters of the finished search
+     */
+    @Override
+    public void searchFinished(SearchStatistics statistics) {
+        for(Metric metric : Metric.values()) {
+            this.histograms[metric.ordinal()].record(statistics.get(metric));
+        }
+        synchronized(this) {
+            if(this.slowest == null || statistics.getElapsedNanos() > this.slowest.getElapsedNanos()) {
+                this.slowest = statistics.copy();
+            }
+        }
+    }
+
+    /**
+     * Returns the histogram of one metric.
+     *
+     * @param metric the metric
+     * @return the histogram of its values over every search recorded
+     */
+    public LogHistogram getHistogram(Metric metric) {
+        return this.histograms[metric.ordinal()];
+    }
+
+    /**
+     * Returns the number of searches recorded.
+     *
+     * @return the search count
+     */
+    public long getSearchCount() {
+        return getHistogram(Metric.ELAPSED_NANOS).getCount();
+    }
+
+    /**
+     * Returns the statistics of the slowest search recorded.
+     *
+     * @return a copy of its statistics, or null if no search was recorded
+     */
+    public synchronized SearchStatistics getSlowest() {
+        return this.slowest;
+    }
+
+    /**
+     * Forgets every search recorded.
+     */
+    public void reset() {
+        for(LogHistogram histogram : this.histograms) {
+            histogram.reset();
+        }
+        synchronized(this) {
+            this.slowest = null;
+        }
+    }
+
+    /**
+     * Returns a formatted String holding the histogram of every metric.
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for(Metric metric : Metric.values()) {
+            builder.append(metric).append(": ").append(getHistogram(metric)).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,18 @@
+package walker.blue.path.lib.base;
+
+import walker.blue.path.lib.util.SearchStatistics;
+
+/**
+ * Interface for receiving the statistics of every search a pathfinder runs.
+ */
+public interface StatisticsListener {
+
+    /**
+     * Called on the searching thread once a search has finished. The
+     * statistics are reused by the next search of that thread, so they
+     * must be copied to be kept.
+     *
+     * @param statistics the counters of the finished search
+     */
+    void searchFinished(SearchStatistics statistics);
+}
@@ -0,0 +1,17 @@
+package walker.blue.path.lib.base;
+
+/**
+ * Interface for a search area that counts its modifications. The version
+ * changes every time the area is modified, so results computed on it can
+ * be checked for staleness by comparing the version they were computed at
+ * with the current one.
+ */
+public interface Versioned {
+
+    /**
+     * Returns the current version of the search area.
+     *
+     * @return a number that changes whenever the search area is modified
+     */
+    long getVersion();
+}
@@ -0,0 +1,842 @@
+package walker.blue.path.lib.cooperative;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import walker.blue.path.lib.base.Versioned;
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.GridNeighbors;
+import walker.blue.path.lib.grid.SearchGrid;
+import walker.blue.path.lib.util.IndexedMinHeap;
+import walker.blue.path.lib.util.SearchState;
+
+/**
+ * This class implements windowed hierarchical cooperative A* (WHCA*) for
+ * many agents moving over one grid. Every agent is planned in space and
+ * time, over (x, y, t), for a window of timesteps ahead. The plans of
+ * earlier agents are held in a ReservationTable that later agents route
+ * around. Beyond the window, agents are guided by their true distance to
+ * the goal, which ignores the other agents. Each cell and each edge is
+ * held by at most one agent per timestep, so agents never share a cell
+ * or swap places.
+ *
+ * <p>Time advances one timestep per {@link #step()}. Every agent is
+ * replanned once the given number of steps of the window has been used,
+ * and the order agents are planned in rotates each time so that no agent
+ * always yields. With a ForkJoinPool set, the agents of a replan are
+ * searched in parallel. Each one commits its plan to the table with
+ * compare and set, and searches again if another agent took one of its
+ * cells first.
+ *
+ * <p>Uses the moves and costs of GridAStar (10 for an orthogonal move, 14
+ * for a diagonal one, times the cost of the cell entered). Waiting costs
+ * 10, except at the goal, where it is free. An agent that finds no plan
+ * waits in place, and every agent that planned to pass through its cell
+ * is planned again around it, so waiting keeps the same guarantee.
+ * Each agent keeps the distances to its goal from every cell, 4 bytes per
+ * cell, shared by the agents with the same goal.
+ */
+public class CooperativeAStar {
+
+    /**
+     * Cost of a move to an orthogonal neighbor, and of waiting in a cell.
+     */
+    private static final int ORTHOGONAL_COST = 10;
+
+    /**
+     * Cost of a move to a diagonal neighbor.
+     */
+    private static final int DIAGONAL_COST = 14;
+
+    /**
+     * Number of times an agent searches again after other agents took
+     * cells of its plan before it could commit it.
+     */
+    private static final int MAX_ATTEMPTS = 8;
+
+    /**
+     * Number of agents planned by one task of a parallel replan.
+     */
+    private static final int AGENTS_PER_TASK = 8;
+
+    /**
+     * Distance marking a cell from which the goal cannot be reached.
+     */
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * The grid the agents move on.
+     */
+    private final SearchGrid grid;
+
+    /**
+     * Generates the neighbors of a cell.
+     */
+    private final GridNeighbors neighbors;
+
+    /**
+     * Number of timesteps every plan looks ahead.
+     */
+    private final int window;
+
+    /**
+     * Number of columns of the local search area, which spans the window
+     * in every direction around the start.
+     */
+    private final int span;
+
+    /**
+     * Cells and edges held by the planned agents.
+     */
+    private final ReservationTable reservations;
+
+    /**
+     * Distances to each goal from every cell, keyed by the goal.
+     */
+    private final ConcurrentHashMap<Integer, int[]> goalDistances;
+
+    /**
+     * Version of the grid the goal distances were computed at.
+     */
+    private long gridVersion;
+
+    /**
+     * Number of timesteps after which every agent is planned again.
+     */
+    private int replanInterval;
+
+    /**
+     * Pool the agents of a replan are searched on, or null to plan them
+     * one after the other.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Number of agents.
+     */
+    private int agentCount;
+
+    /**
+     * Current cell of each agent.
+     */
+    private int[] positions;
+
+    /**
+     * Goal cell of each agent.
+     */
+    private int[] goals;
+
+    /**
+     * Planned cell of each agent for every timestep of the window,
+     * starting with its cell at the time of the last replan.
+     */
+    private int[][] plans;
+
+    /**
+     * Current timestep.
+     */
+    private int time;
+
+    /**
+     * Timestep of the last replan, or -1 if the plans must be computed
+     * before the next step.
+     */
+    private int planTime;
+
+    /**
+     * Number of replans so far, used to rotate the planning order.
+     */
+    private int replanCount;
+
+    /**
+     * Class constructor using eight-way moves
+     *
+     * @param grid the grid the agents move on
+     * @param window the number of timesteps every plan looks ahead
+     */
+    public CooperativeAStar(SearchGrid grid, int window) {
+        this(grid, window, Connectivity.EIGHT);
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param grid the grid the agents move on
+     * @param window the number of timesteps every plan looks ahead, at least 1
+     * @param connectivity the moves allowed from a cell
+     */
+    public CooperativeAStar(SearchGrid grid, int window, Connectivity connectivity) {
+        if(window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1: " + window);
+        }
+        this.grid = grid;
+        this.neighbors = new GridNeighbors(connectivity);
+        this.window = window;
+        this.span = 2 * window + 1;
+        this.reservations = new ReservationTable(grid.getWidth(), 16);
+        this.goalDistances = new ConcurrentHashMap<Integer, int[]>();
+        this.gridVersion = grid instanceof Versioned ? ((Versioned) grid).getVersion() : 0;
+        this.replanInterval = Math.max(1, window / 2);
+        this.positions = new int[16];
+        this.goals = new int[16];
+        this.plans = new int[16][];
+        this.time = 0;
+        this.planTime = -1;
+    }
+
+    /**
+     * Access method to get the grid.
+     *
+     * @return the grid the agents move on
+     */
+    public SearchGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Access method to get the window.
+     *
+     * @return the number of timesteps every plan looks ahead
+     */
+    public int getWindow() {
+        return this.window;
+    }
+
+    /**
+     * Access method to get the replan interval.
+     *
+     * @return the number of timesteps after which every agent is planned again
+     */
+    public int getReplanInterval() {
+        return this.replanInterval;
+    }
+
+    /**
+     * Sets the number of timesteps after which every agent is planned
+     * again. Shorter intervals react sooner to other agents at the cost of
+     * more searches.
+     *
+     * @param replanInterval the new interval, between 1 and the window
+     */
+    public void setReplanInterval(int replanInterval) {
+        if(replanInterval < 1 || replanInterval > this.window) {
+            throw new IllegalArgumentException("Replan interval must be between 1 and " + this.window
+                    + ": " + replanInterval);
+        }
+        this.replanInterval = replanInterval;
+    }
+
+    /**
+     * Access method to get the pool.
+     *
+     * @return the pool agents are searched on, or null if they are planned
+     *         one after the other
+     */
+    public ForkJoinPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * Sets the pool the agents of a replan are searched on.
+     *
+     * @param pool the new pool, or null to plan agents one after the other
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Access method to get the reservation table.
+     *
+     * @return the cells and edges held by the planned agents
+     */
+    public ReservationTable getReservationTable() {
+        return this.reservations;
+    }
+
+    /**
+     * Access method to get the current timestep.
+     *
+     * @return the number of steps taken so far
+     */
+    public int getTime() {
+        return this.time;
+    }
+
+    /**
+     * Returns the number of agents.
+     *
+     * @return the agent count
+     */
+    public int getAgentCount() {
+        return this.agentCount;
+    }
+
+    /**
+     * Adds an agent. Its plan is computed by the next replan.
+     *
+     * @param start the id of the cell the agent starts in
+     * @param goal the id of the cell the agent moves to
+     * @return the id of the new agent
+     */
+    public int addAgent(int start, int goal) {
+        checkCell(start);
+        checkCell(goal);
+        if(this.agentCount == this.positions.length) {
+            int capacity = this.agentCount * 2;
+            this.positions = Arrays.copyOf(this.positions, capacity);
+            this.goals = Arrays.copyOf(this.goals, capacity);
+            this.plans = Arrays.copyOf(this.plans, capacity);
+        }
+        int agent = this.agentCount++;
+        this.positions[agent] = start;
+        this.goals[agent] = goal;
+        this.plans[agent] = null;
+        this.planTime = -1;
+        return agent;
+    }
+
+    /**
+     * Returns the cell an agent is in.
+     *
+     * @param agent the id of the agent
+     * @return the id of the cell
+     */
+    public int getPosition(int agent) {
+        return this.positions[agent];
+    }
+
+    /**
+     * Returns the goal of an agent.
+     *
+     * @param agent the id of the agent
+     * @return the id of the goal cell
+     */
+    public int getGoal(int agent) {
+        return this.goals[agent];
+    }
+
+    /**
+     * Gives an agent a new goal. Every agent is replanned before the next step.
+     *
+     * @param agent the id of the agent
+     * @param goal the id of the new goal cell
+     */
+    public void setGoal(int agent, int goal) {
+        checkCell(goal);
+        this.goals[agent] = goal;
+        this.planTime = -1;
+    }
+
+    /**
+     * Checks whether an agent is in its goal cell.
+     *
+     * @param agent the id of the agent
+     * @return true if the agent reached its goal, false otherwise
+     */
+    public boolean isAtGoal(int agent) {
+        return this.positions[agent] == this.goals[agent];
+    }
+
+    /**
+     * Checks whether every agent is in its goal cell.
+     *
+     * @return true if every agent reached its goal, false otherwise
+     */
+    public boolean isAllAtGoal() {
+        for(int agent = 0; agent < this.agentCount; agent++) {
+            if(this.positions[agent] != this.goals[agent]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the planned cells of an agent from the current timestep to
+     * the end of its window.
+     *
+     * @param agent the id of the agent
+     * @return the ids of the cells, one per timestep starting with the
+     *         current one, or null if the agent was not planned yet
+     */
+    public int[] getPlan(int agent) {
+        int[] plan = this.plans[agent];
+        if(plan == null || this.planTime < 0) {
+            return null;
+        }
+        return Arrays.copyOfRange(plan, this.time - this.planTime, plan.length);
+    }
+
+    /**
+     * Moves every agent one timestep along its plan, replanning every agent
+     * first if the plans are used up or an agent or goal changed.
+     */
+    public void step() {
+        if(this.planTime < 0 || this.time - this.planTime >= this.replanInterval) {
+            replan();
+        }
+        int offset = this.time - this.planTime + 1;
+        for(int agent = 0; agent < this.agentCount; agent++) {
+            this.positions[agent] = this.plans[agent][offset];
+        }
+        this.time++;
+    }
+
+    /**
+     * Plans every agent for the window starting at the current timestep,
+     * dropping the previous plans.
+     *
+     * @return the number of agents that found no plan clear of the other
+     *         agents and wait in place instead
+     */
+    public int replan() {
+        if(this.grid instanceof Versioned) {
+            long version = ((Versioned) this.grid).getVersion();
+            if(version != this.gridVersion) {
+                this.goalDistances.clear();
+                this.gridVersion = version;
+            }
+        }
+        // Each attempt of an agent may claim a cell per timestep and an edge
+        // between two, and released entries are only reclaimed here, so
+        // leave room for every attempt and for the plan waiting in place.
+        int perAgent = MAX_ATTEMPTS * (2 * this.window + 1) + this.window + 1;
+        this.reservations.ensureCapacity(this.agentCount * perAgent);
+        this.reservations.clear();
+        int count = this.agentCount;
+        int[] order = new int[count];
+        for(int k = 0; k < count; k++) {
+            order[k] = (k + this.replanCount) % count;
+        }
+        this.replanCount++;
+        int failed;
+        if(this.pool == null || count <= AGENTS_PER_TASK) {
+            failed = planAgents(order, 0, count);
+        }
+        else {
+            PlanTask task = new PlanTask(order, 0, count);
+            this.pool.invoke(task);
+            failed = task.failed;
+        }
+        if(failed > 0) {
+            failed = planWaits(order);
+        }
+        this.planTime = this.time;
+        return failed;
+    }
+
+    /**
+     * Plans a range of agents in order.
+     *
+     * @param order the ids of the agents in planning order
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @return the number of agents that found no plan
+     */
+    private int planAgents(int[] order, int from, int to) {
+        int failed = 0;
+        for(int k = from; k < to; k++) {
+            if(!planAgent(order[k])) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Plans one agent and commits its plan to the reservation table,
+     * searching again if another agent committed a conflicting plan in
+     * the meantime.
+     *
+     * @param agent the id of the agent
+     * @return true if the agent holds every cell and edge of its plan,
+     *         false if it has no plan and must wait in place instead
+     */
+    private boolean planAgent(int agent) {
+        int startTime = this.time;
+        for(int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            int[] plan = search(agent, this.positions[agent], this.goals[agent], startTime);
+            if(plan == null) {
+                break;
+            }
+            if(commit(agent, plan, startTime)) {
+                this.plans[agent] = plan;
+                return true;
+            }
+        }
+        this.plans[agent] = null;
+        return false;
+    }
+
+    /**
+     * Makes every agent without a plan wait in place. An agent that planned
+     * to pass through the cell of a waiting agent gives up its plan and is
+     * planned again around it, and waits as well if it finds no other
+     * plan. No agent ever waits twice, so this ends. Runs on the calling
+     * thread once every agent was planned, so the table may grow.
+     *
+     * @param order the ids of the agents in planning order
+     * @return the number of agents that wait in place
+     */
+    private int planWaits(int[] order) {
+        ReservationTable reservations = this.reservations;
+        int startTime = this.time;
+        boolean[] waiting = new boolean[this.agentCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+        for(int agent : order) {
+            if(this.plans[agent] == null) {
+                queue.add(agent);
+            }
+        }
+        List<Integer> yielding = new ArrayList<Integer>();
+        int failed = 0;
+        while(!queue.isEmpty()) {
+            int agent = queue.poll();
+            waiting[agent] = true;
+            failed++;
+            int[] plan = new int[this.window + 1];
+            Arrays.fill(plan, this.positions[agent]);
+            reservations.ensureCapacity(reservations.size() + plan.length);
+            for(int t = 0; t < plan.length; t++) {
+                int owner = reservations.getOwner(plan[t], startTime + t);
+                // Waiting agents are all in different cells, so the owner has a plan.
+                if(owner != ReservationTable.NONE && owner != agent && !waiting[owner]) {
+                    release(owner, this.plans[owner], startTime, this.plans[owner].length);
+                    yielding.add(owner);
+                }
+                reservations.reserve(plan[t], startTime + t, agent);
+            }
+            this.plans[agent] = plan;
+            for(int owner : yielding) {
+                reservations.ensureCapacity(reservations.size() + 2 * this.window + 1);
+                if(!planAgent(owner)) {
+                    queue.add(owner);
+                }
+            }
+            yielding.clear();
+        }
+        return failed;
+    }
+
+    /**
+     * Reserves every cell and edge of a plan, or none of them.
+     *
+     * @param agent the id of the agent
+     * @param plan the cell of the agent at each timestep of the window
+     * @param startTime the timestep of the first cell
+     * @return true if the agent holds the whole plan, false if another
+     *         agent held part of it
+     */
+    private boolean commit(int agent, int[] plan, int startTime) {
+        ReservationTable reservations = this.reservations;
+        for(int t = 0; t < plan.length; t++) {
+            boolean reserved = reservations.reserve(plan[t], startTime + t, agent);
+            if(reserved && t > 0 && plan[t] != plan[t - 1]) {
+                reserved = reservations.reserveMove(plan[t - 1], plan[t], startTime + t - 1, agent);
+                if(!reserved) {
+                    reservations.release(plan[t], startTime + t, agent);
+                }
+            }
+            if(!reserved) {
+                release(agent, plan, startTime, t);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Releases the first cells of a plan and the edges between them.
+     *
+     * @param agent the id of the agent
+     * @param plan the cell of the agent at each timestep of the window
+     * @param startTime the timestep of the first cell
+     * @param length the number of cells to release
+     */
+    private void release(int agent, int[] plan, int startTime, int length) {
+        ReservationTable reservations = this.reservations;
+        for(int u = length - 1; u >= 0; u--) {
+            reservations.release(plan[u], startTime + u, agent);
+            if(u > 0 && plan[u] != plan[u - 1]) {
+                reservations.releaseMove(plan[u - 1], plan[u], startTime + u - 1, agent);
+            }
+        }
+    }
+
+    /**
+     * Runs A* over (x, y, t) from the start cell at the start time until a
+     * state at the end of the window is expanded, skipping the cells and
+     * edges held by other agents. States are numbered by their offset from
+     * the start and their depth in the window, so the search needs no more
+     * than (window + 1) * (2 * window + 1)^2 of them whatever the size of
+     * the grid.
+     *
+     * @param agent the id of the agent
+     * @param start the id of the cell the agent is in
+     * @param goal the id of the goal cell
+     * @param startTime the current timestep
+     * @return the cell of the agent at each timestep of the window, or null
+     *         if every plan runs into another agent
+     */
+    private int[] search(int agent, int start, int goal, int startTime) {
+        int[] distances = getGoalDistances(goal);
+        if(distances[start] == UNREACHABLE) {
+            // The goal cannot be reached, so the agent keeps its cell as
+            // its goal and only leaves it to make way for other agents.
+            goal = start;
+            distances = getGoalDistances(start);
+        }
+        SearchGrid grid = this.grid;
+        ReservationTable reservations = this.reservations;
+        int width = grid.getWidth();
+        int window = this.window;
+        int span = this.span;
+        int area = span * span;
+        int startX = start % width;
+        int startY = start / width;
+        int[] neighborIds = new int[GridNeighbors.DIRECTIONS];
+        SearchState state = SearchState.acquire((window + 1) * area);
+        try {
+            IndexedMinHeap openQueue = state.getOpenQueue();
+            int origin = window * span + window;
+            state.visit(origin, distances[start]);
+            state.setG(origin, 0);
+            openQueue.add(origin, state.getF(origin), 0);
+            while(!openQueue.isEmpty()) {
+                int current = openQueue.remove();
+                state.close(current);
+                int depth = current / area;
+                int offset = current % area;
+                int x = startX + offset % span - window;
+                int y = startY + offset / span - window;
+                int cell = y * width + x;
+                if(depth == window) {
+                    return toPlan(state, current, startX, startY);
+                }
+                int t = startTime + depth + 1;
+                int count = this.neighbors.getNeighbors(grid, cell, neighborIds);
+                // The first move is waiting in the cell.
+                for(int k = -1; k < count; k++) {
+                    int next = k < 0 ? cell : neighborIds[k];
+                    if(!reservations.isFree(next, t, agent)) {
+                        continue;
+                    }
+                    if(next != cell && !reservations.isMoveFree(cell, next, t - 1, agent)) {
+                        continue;
+                    }
+                    int h = distances[next];
+                    if(h == UNREACHABLE) {
+                        continue;
+                    }
+                    int nextX = next % width;
+                    int nextY = next / width;
+                    int id = (depth + 1) * area + (nextY - startY + window) * span + (nextX - startX + window);
+                    if(state.isClosed(id)) {
+                        continue;
+                    }
+                    double g = state.getG(current) + moveCost(cell, next, goal, x, y, nextX, nextY);
+                    if(!state.isVisited(id)) {
+                        state.visit(id, h);
+                    }
+                    else if(g >= state.getG(id)) {
+                        continue;
+                    }
+                    state.setG(id, g);
+                    state.setParent(id, current);
+                    // Prefer the state furthest along when f values tie.
+                    if(openQueue.contains(id)) {
+                        openQueue.update(id, state.getF(id), -g);
+                    }
+                    else {
+                        openQueue.add(id, state.getF(id), -g);
+                    }
+                }
+            }
+            return null;
+        }
+        finally {
+            state.release();
+        }
+    }
+
+    /**
+     * Returns the cost of one timestep of a plan.
+     *
+     * @param from the id of the cell the agent is in
+     * @param to the id of the cell the agent is in one timestep later
+     * @param goal the id of the goal cell
+     * @param fromX the column of the first cell
+     * @param fromY the row of the first cell
+     * @param toX the column of the second cell
+     * @param toY the row of the second cell
+     * @return the cost of the move or wait
+     */
+    private int moveCost(int from, int to, int goal, int fromX, int fromY, int toX, int toY) {
+        if(from == to) {
+            return from == goal ? 0 : ORTHOGONAL_COST;
+        }
+        int length = fromX != toX && fromY != toY ? DIAGONAL_COST : ORTHOGONAL_COST;
+        return length * this.grid.getCost(toX, toY);
+    }
+
+    /**
+     * Follows the parents of a state at the end of the window back to the start.
+     *
+     * @param state the state of the search
+     * @param last the id of the last state
+     * @param startX the column of the start cell
+     * @param startY the row of the start cell
+     * @return the cell at each timestep of the window
+     */
+    private int[] toPlan(SearchState state, int last, int startX, int startY) {
+        int width = this.grid.getWidth();
+        int area = this.span * this.span;
+        int[] plan = new int[this.window + 1];
+        for(int id = last; id != -1; id = state.getParent(id)) {
+            int offset = id % area;
+            int x = startX + offset % this.span - this.window;
+            int y = startY + offset / this.span - this.window;
+            plan[id / area] = y * width + x;
+        }
+        return plan;
+    }
+
+    /**
+     * Returns the distance from every cell to a goal, computing it on first use.
+     *
+     * @param goal the id of the goal cell
+     * @return the distances indexed by cell id, UNREACHABLE for cells the
+     *         goal cannot be reached from
+     */
+    private int[] getGoalDistances(int goal) {
+        int[] distances = this.goalDistances.get(goal);
+        if(distances == null) {
+            distances = computeGoalDistances(goal);
+            int[] existing = this.goalDistances.putIfAbsent(goal, distances);
+            if(existing != null) {
+                distances = existing;
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm backwards from a goal. Moving from a cell
+     * to the next costs the length of the move times the cost of the next
+     * cell, so the distance of a cell grows by the cost of the cell it
+     * was reached from.
+     *
+     * @param goal the id of the goal cell
+     * @return the distance from every cell to the goal
+     */
+    private int[] computeGoalDistances(int goal) {
+        SearchGrid grid = this.grid;
+        int width = grid.getWidth();
+        int size = width * grid.getHeight();
+        int[] distances = new int[size];
+        Arrays.fill(distances, UNREACHABLE);
+        int[] neighborIds = new int[GridNeighbors.DIRECTIONS];
+        IndexedMinHeap openQueue = new IndexedMinHeap(size);
+        distances[goal] = 0;
+        openQueue.add(goal, 0);
+        while(!openQueue.isEmpty()) {
+            int current = openQueue.remove();
+            int x = current % width;
+            int y = current / width;
+            int cost = grid.getCost(x, y);
+            // The allowed moves are symmetric, so the neighbors of a cell
+            // are also the cells that can move into it.
+            int count = this.neighbors.getNeighbors(grid, current, neighborIds);
+            for(int k = 0; k < count; k++) {
+                int neighbor = neighborIds[k];
+                boolean diagonal = neighbor % width != x && neighbor / width != y;
+                int distance = distances[current] + (diagonal ? DIAGONAL_COST : ORTHOGONAL_COST) * cost;
+                if(distance < distances[neighbor]) {
+                    distances[neighbor] = distance;
+                    openQueue.addOrDecrease(neighbor, distance);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Checks that a cell is inside the grid and traversable.
+     *
+     * @param cell the id of the cell
+     */
+    private void checkCell(int cell) {
+        int width = this.grid.getWidth();
+        if(cell < 0 || cell >= width * this.grid.getHeight()
+                || !this.grid.isTraversable(cell % width, cell / width)) {
+            throw new IllegalArgumentException("Cell is not traversable: " + cell);
+        }
+    }
+
+    /**
+     * Task planning a range of agents, split in halves until the ranges
+     * are small.
+     */
+    private class PlanTask extends RecursiveAction {
+
+        /**
+         * Version of the serialized form, which is never used.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The ids of the agents in planning order.
+         */
+        private final int[] order;
+
+        /**
+         * The first index of the range, inclusive.
+         */
+        private final int from;
+
+        /**
+         * The last index of the range, exclusive.
+         */
+        private final int to;
+
+        /**
+         * Number of agents of the range that found no plan.
+         */
+        private int failed;
+
+        /**
+         * Class constructor
+         *
+         * @param order the ids of the agents in planning order
+         * @param from the first index of the range, inclusive
+         * @param to the last index of the range, exclusive
+         */
+        PlanTask(int[] order, int from, int to) {
+            this.order = order;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Plans the range, or splits it in two.
+         */
+        @Override
+        protected void compute() {
+            if(this.to - this.from <= AGENTS_PER_TASK) {
+                this.failed = planAgents(this.order, this.from, this.to);
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            PlanTask first = new PlanTask(this.order, this.from, middle);
+            PlanTask second = new PlanTask(this.order, middle, this.to);
+            invokeAll(first, second);
+            this.failed = first.failed + second.failed;
+        }
+    }
+}
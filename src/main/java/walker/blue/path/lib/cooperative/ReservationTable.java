@@ -0,0 +1,416 @@
+package walker.blue.path.lib.cooperative;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records which agent holds each cell of a grid at each timestep, and
+ * which agent crosses each edge between two timesteps, so that agents
+ * planning one after the other, or at the same time, never collide or
+ * swap places.
+ *
+ * <p>The table is an open addressing hash table over two primitive
+ * arrays. A slot is claimed for a cell and time once with a compare and
+ * set on its key, and is then reserved and released by compare and set
+ * on its owner, so reserve, release and lookups are lock-free and may be
+ * called from any number of threads. Slots are only reclaimed by
+ * {@link #clear()}, which like {@link #ensureCapacity(int)} must not run
+ * while other threads use the table, so a released entry still counts
+ * towards the capacity. Once the capacity is reached, reserving an entry
+ * that was never claimed fails as if another agent held it.
+ */
+public class ReservationTable {
+
+    /**
+     * Owner reported for an entry that nobody holds.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * Key of a slot that was never claimed. Valid keys have a time of at
+     * least 0 and so are never negative.
+     */
+    private static final long EMPTY = -1L;
+
+    /**
+     * Number of entries a cell has in the id space: one for the cell and
+     * one per edge to a neighbor with a larger id.
+     */
+    private static final int ENTRIES_PER_CELL = 5;
+
+    /**
+     * Number of columns in the grid.
+     */
+    private final int width;
+
+    /**
+     * Number of slots claimed since the last clear.
+     */
+    private final AtomicInteger used;
+
+    /**
+     * Key of each slot, combining the time and the entry id.
+     */
+    private AtomicLongArray keys;
+
+    /**
+     * Owner of each slot plus 1, or 0 while the entry is free.
+     */
+    private AtomicIntegerArray owners;
+
+    /**
+     * Number of slots minus 1. The number of slots is a power of two.
+     */
+    private int mask;
+
+    /**
+     * Largest number of slots that may be claimed, keeping probe chains short.
+     */
+    private int limit;
+
+    /**
+     * Class constructor
+     *
+     * @param width the number of columns in the grid
+     * @param capacity the number of cell and edge reservations the table
+     *                 must hold at once
+     */
+    public ReservationTable(int width, int capacity) {
+        this.width = width;
+        this.used = new AtomicInteger();
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the number of cell and edge reservations the table can hold.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return this.limit;
+    }
+
+    /**
+     * Returns the number of cells and edges that were reserved since the
+     * last clear, including those released since.
+     *
+     * @return the number of claimed slots
+     */
+    public int size() {
+        return this.used.get();
+    }
+
+    /**
+     * Grows the table so that it can hold the given number of reservations,
+     * keeping the ones it holds. Must not run while other threads use the table.
+     *
+     * @param capacity the number of cell and edge reservations to hold at once
+     */
+    public void ensureCapacity(int capacity) {
+        if(capacity <= this.limit) {
+            return;
+        }
+        AtomicLongArray oldKeys = this.keys;
+        AtomicIntegerArray oldOwners = this.owners;
+        allocate(capacity);
+        this.used.set(0);
+        for(int slot = 0; slot < oldKeys.length(); slot++) {
+            long key = oldKeys.get(slot);
+            if(key != EMPTY) {
+                this.owners.set(claim(key), oldOwners.get(slot));
+            }
+        }
+    }
+
+    /**
+     * Forgets every reservation. Must not run while other threads use the table.
+     */
+    public void clear() {
+        for(int slot = 0; slot < this.keys.length(); slot++) {
+            this.keys.set(slot, EMPTY);
+            this.owners.set(slot, 0);
+        }
+        this.used.set(0);
+    }
+
+    /**
+     * Returns the agent holding a cell at a time.
+     *
+     * @param cell the id of the cell
+     * @param time the timestep
+     * @return the id of the agent, or NONE if the cell is free
+     */
+    public int getOwner(int cell, int time) {
+        return ownerOf(key(cell * ENTRIES_PER_CELL, time));
+    }
+
+    /**
+     * Returns the agent moving along the edge between two neighboring
+     * cells, in either direction, from one timestep to the next.
+     *
+     * @param from the id of the cell the move starts in
+     * @param to the id of a neighboring cell
+     * @param time the timestep the move starts at
+     * @return the id of the agent, or NONE if the edge is free
+     */
+    public int getMoveOwner(int from, int to, int time) {
+        return ownerOf(key(edgeId(from, to), time));
+    }
+
+    /**
+     * Checks whether an agent may be in a cell at a time.
+     *
+     * @param cell the id of the cell
+     * @param time the timestep
+     * @param agent the id of the agent
+     * @return true if the cell is free or held by the agent, false otherwise
+     */
+    public boolean isFree(int cell, int time, int agent) {
+        int owner = getOwner(cell, time);
+        return owner == NONE || owner == agent;
+    }
+
+    /**
+     * Checks whether an agent may move between two neighboring cells from
+     * one timestep to the next, without swapping places with another agent.
+     *
+     * @param from the id of the cell the move starts in
+     * @param to the id of a neighboring cell
+     * @param time the timestep the move starts at
+     * @param agent the id of the agent
+     * @return true if the edge is free or held by the agent, false otherwise
+     */
+    public boolean isMoveFree(int from, int to, int time, int agent) {
+        int owner = getMoveOwner(from, to, time);
+        return owner == NONE || owner == agent;
+    }
+
+    /**
+     * Reserves a cell at a time for an agent.
+     *
+     * @param cell the id of the cell
+     * @param time the timestep, at least 0
+     * @param agent the id of the agent, at least 0
+     * @return true if the agent holds the cell, false if another agent
+     *         does or the table is full
+     */
+    public boolean reserve(int cell, int time, int agent) {
+        return acquire(key(cell * ENTRIES_PER_CELL, time), agent);
+    }
+
+    /**
+     * Reserves the edge between two neighboring cells from one timestep to
+     * the next for an agent. The edge is shared by both directions, so no
+     * other agent can cross it the other way at the same time.
+     *
+     * @param from the id of the cell the move starts in
+     * @param to the id of a neighboring cell
+     * @param time the timestep the move starts at, at least 0
+     * @param agent the id of the agent, at least 0
+     * @return true if the agent holds the edge, false if another agent
+     *         does or the table is full
+     */
+    public boolean reserveMove(int from, int to, int time, int agent) {
+        return acquire(key(edgeId(from, to), time), agent);
+    }
+
+    /**
+     * Releases a cell held by an agent at a time. Does nothing if the
+     * agent does not hold it.
+     *
+     * @param cell the id of the cell
+     * @param time the timestep
+     * @param agent the id of the agent
+     */
+    public void release(int cell, int time, int agent) {
+        releaseKey(key(cell * ENTRIES_PER_CELL, time), agent);
+    }
+
+    /**
+     * Releases an edge held by an agent from a timestep to the next. Does
+     * nothing if the agent does not hold it.
+     *
+     * @param from the id of the cell the move starts in
+     * @param to the id of a neighboring cell
+     * @param time the timestep the move starts at
+     * @param agent the id of the agent
+     */
+    public void releaseMove(int from, int to, int time, int agent) {
+        releaseKey(key(edgeId(from, to), time), agent);
+    }
+
+    /**
+     * Creates empty arrays holding at least the given number of reservations.
+     *
+     * @param capacity the number of reservations to hold
+     */
+    private void allocate(int capacity) {
+        // Keep the load below one half so that probe chains stay short.
+        int slots = Integer.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1;
+        this.keys = new AtomicLongArray(slots);
+        for(int slot = 0; slot < slots; slot++) {
+            this.keys.set(slot, EMPTY);
+        }
+        this.owners = new AtomicIntegerArray(slots);
+        this.mask = slots - 1;
+        this.limit = slots / 2;
+    }
+
+    /**
+     * Returns the owner of an entry.
+     *
+     * @param key the key of the entry
+     * @return the id of the agent holding it, or NONE
+     */
+    private int ownerOf(long key) {
+        int slot = find(key);
+        return slot < 0 ? NONE : this.owners.get(slot) - 1;
+    }
+
+    /**
+     * Makes an agent the owner of an entry if nobody holds it.
+     *
+     * @param key the key of the entry
+     * @param agent the id of the agent
+     * @return true if the agent holds the entry, false if another agent
+     *         does or the table is full
+     */
+    private boolean acquire(long key, int agent) {
+        int slot = claim(key);
+        if(slot < 0) {
+            return false;
+        }
+        int owner = agent + 1;
+        while(true) {
+            int current = this.owners.get(slot);
+            if(current == owner) {
+                return true;
+            }
+            if(current != 0) {
+                return false;
+            }
+            if(this.owners.compareAndSet(slot, 0, owner)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees an entry if the agent holds it.
+     *
+     * @param key the key of the entry
+     * @param agent the id of the agent
+     */
+    private void releaseKey(long key, int agent) {
+        int slot = find(key);
+        if(slot >= 0) {
+            this.owners.compareAndSet(slot, agent + 1, 0);
+        }
+    }
+
+    /**
+     * Returns the slot holding a key.
+     *
+     * @param key the key to look for
+     * @return the slot, or -1 if the key was never claimed
+     */
+    private int find(long key) {
+        int slot = hash(key) & this.mask;
+        // Stop after one full cycle in case no empty slot ends the chain.
+        for(int probe = 0; probe <= this.mask; probe++) {
+            long current = this.keys.get(slot);
+            if(current == key) {
+                return slot;
+            }
+            if(current == EMPTY) {
+                return -1;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the slot holding a key, claiming an empty one if no thread
+     * has claimed the key yet.
+     *
+     * @param key the key to look for
+     * @return the slot, or -1 if the key is new and the table is full
+     */
+    private int claim(long key) {
+        int slot = hash(key) & this.mask;
+        for(int probe = 0; probe <= this.mask; probe++) {
+            long current = this.keys.get(slot);
+            if(current == key) {
+                return slot;
+            }
+            if(current == EMPTY) {
+                // Count the slot before taking it, so that no more than
+                // limit slots are ever claimed and some always stay empty.
+                if(this.used.incrementAndGet() > this.limit) {
+                    this.used.decrementAndGet();
+                    return -1;
+                }
+                if(this.keys.compareAndSet(slot, EMPTY, key)) {
+                    return slot;
+                }
+                // Another thread claimed the slot first, maybe for the same key.
+                this.used.decrementAndGet();
+                probe--;
+                continue;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the entry id of the edge between two neighboring cells,
+     * which is the same for both directions.
+     *
+     * @param from the id of one cell
+     * @param to the id of a neighboring cell
+     * @return the entry id
+     */
+    private int edgeId(int from, int to) {
+        int low = Math.min(from, to);
+        int step = Math.max(from, to) - low;
+        int direction;
+        if(step == 1) {
+            direction = 1;
+        }
+        else if(step == this.width - 1) {
+            direction = 2;
+        }
+        else if(step == this.width) {
+            direction = 3;
+        }
+        else {
+            direction = 4;
+        }
+        return low * ENTRIES_PER_CELL + direction;
+    }
+
+    /**
+     * Combines an entry id and a time into a key.
+     *
+     * @param entry the entry id of a cell or edge
+     * @param time the timestep
+     * @return the key
+     */
+    private static long key(int entry, int time) {
+        return ((long) time << 32) | (entry & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Spreads the bits of a key over the slots.
+     *
+     * @param key the key
+     * @return the hash of the key
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,519 @@
+package walker.blue.path.lib.finder;
+
+import java.util.Arrays;
+
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.GridNeighbors;
+import walker.blue.path.lib.grid.GridPath;
+import walker.blue.path.lib.grid.Heuristic;
+import walker.blue.path.lib.grid.SearchGrid;
+import walker.blue.path.lib.util.IndexedMinHeap;
+import walker.blue.path.lib.util.SearchState;
+import walker.blue.path.lib.util.SearchStatistics;
+
+/**
+ * This class finds paths with Anytime Repairing A* (ARA*). A first pass of
+ * weighted A* with a large weight finds a path quickly. Each following
+ * pass lowers the weight and repairs the previous search instead of
+ * starting over: it keeps the G values found so far and only expands
+ * again the cells whose G value was lowered after they were expanded. The
+ * passes end once the weight reaches 1, which proves the path shortest,
+ * or once the budget of the query is spent.
+ *
+ * <p>Every path found comes with a bound: it costs at most that many times
+ * the shortest path. The bounds only hold for a heuristic that never
+ * overestimates, so the octile distance is used by default. The heuristic
+ * weight of GridAStar is not used; the weights of the passes are set with
+ * setInitialWeight and setWeightStep.
+ *
+ * <p>Between the passes, G values only ever decrease, so the parents of the
+ * destination always lead back to the start along a path no longer than
+ * the G value of the destination, and a search can be stopped at any time.
+ */
+public class AnytimeAStar extends GridAStar {
+
+    /**
+     * Weight of the first pass unless another is set.
+     */
+    public static final double DEFAULT_INITIAL_WEIGHT = 3.0;
+
+    /**
+     * Amount the weight is lowered by after each pass unless another is set.
+     */
+    public static final double DEFAULT_WEIGHT_STEP = 0.5;
+
+    /**
+     * Interface for receiving each better path as soon as a pass finds it.
+     */
+    public interface ImprovementListener {
+
+        /**
+         * Called on the searching thread after every pass that found a
+         * path, while the search goes on.
+         *
+         * @param result the complete path found so far and its bound
+         */
+        void pathImproved(SearchResult result);
+    }
+
+    /**
+     * Weight of the first pass.
+     */
+    private double initialWeight;
+
+    /**
+     * Amount the weight is lowered by after each pass.
+     */
+    private double weightStep;
+
+    /**
+     * Pass stamps and inconsistent cells, pooled per thread.
+     */
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>();
+
+    /**
+     * Class constructor using eight-way movement with corner cutting.
+     */
+    public AnytimeAStar() {
+        this(Connectivity.EIGHT);
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param connectivity the moves allowed from each cell
+     */
+    public AnytimeAStar(Connectivity connectivity) {
+        super(connectivity);
+        this.heuristic = Heuristic.OCTILE;
+        this.initialWeight = DEFAULT_INITIAL_WEIGHT;
+        this.weightStep = DEFAULT_WEIGHT_STEP;
+    }
+
+    /**
+     * Access method to get the initial weight.
+     *
+     * @return the weight of the first pass
+     */
+    public double getInitialWeight() {
+        return this.initialWeight;
+    }
+
+    /**
+     * Sets the weight of the first pass. Larger weights find the first
+     * path sooner, but it may be longer.
+     *
+     * @param weight the new weight, at least 1
+     */
+    public void setInitialWeight(double weight) {
+        if(weight < 1.0) {
+            throw new IllegalArgumentException("Initial weight must be at least 1: " + weight);
+        }
+        this.initialWeight = weight;
+    }
+
+    /**
+     * Access method to get the weight step.
+     *
+     * @return the amount the weight is lowered by after each pass
+     */
+    public double getWeightStep() {
+        return this.weightStep;
+    }
+
+    /**
+     * Sets the amount the weight is lowered by after each pass.
+     *
+     * @param step the new step, greater than 0
+     */
+    public void setWeightStep(double step) {
+        if(!(step > 0.0)) {
+            throw new IllegalArgumentException("Weight step must be greater than 0: " + step);
+        }
+        this.weightStep = step;
+    }
+
+    /**
+     * Returns the best path between two cells found before the budget is
+     * spent. If the budget runs out before the destination is reached,
+     * the result is a partial path to the cell chosen by the fallback of
+     * the budget. If it runs out after the destination was reached but
+     * before the first pass finished, the path is complete but its bound
+     * is infinite.
+     *
+     * @param grid   the search area
+     * @param start  the id of the start cell
+     * @param dest   the id of the destination cell
+     * @param budget the limit on the work of all passes together
+     * @return       the complete or partial path, or the proof there is no path
+     */
+    @Override
+    public SearchResult findPath(SearchGrid grid, int start, int dest, SearchBudget budget) {
+        return findPath(grid, start, dest, budget, null);
+    }
+
+    /**
+     * Returns the best path between two cells found before the budget is
+     * spent, handing every better path to the listener as it is found.
+     *
+     * @param grid     the search area
+     * @param start    the id of the start cell
+     * @param dest     the id of the destination cell
+     * @param budget   the limit on the work of all passes together
+     * @param listener receives each better path, or null
+     * @return         the complete or partial path, or the proof there is no path
+     */
+    public SearchResult findPath(SearchGrid grid, int start, int dest, SearchBudget budget,
+                                 ImprovementListener listener) {
+        SearchState state = SearchState.acquire(grid.getWidth() * grid.getHeight());
+        SearchStatistics statistics = startStatistics(state);
+        Workspace workspace = acquireWorkspace(grid.getWidth() * grid.getHeight());
+        try {
+            int end = improve(grid, state, workspace, start, dest, budget, listener);
+            if(end == -1) {
+                return SearchResult.noPath();
+            }
+            GridPath path = toGridPath(grid, reconstructCellPath(grid, state, end));
+            if(end != dest) {
+                return new SearchResult(SearchResult.Status.PARTIAL, path, Double.POSITIVE_INFINITY);
+            }
+            return new SearchResult(SearchResult.Status.COMPLETE, path, reportedBound(workspace));
+        }
+        finally {
+            workspace.inUse = false;
+            finishStatistics(statistics);
+            state.release();
+        }
+    }
+
+    /**
+     * Runs the passes between two cells until the path is proven shortest
+     * or the budget is spent, leaving the parents of the reached cells in
+     * the given state.
+     *
+     * @param grid      the search area
+     * @param state     an empty state holding at least width * height cells
+     * @param startId   the id of the start cell
+     * @param destId    the id of the destination cell
+     * @param budget    the limit on the work of all passes together
+     * @return          destId if a path was found, the cell chosen by the
+     *                  fallback of the budget if it was spent before any
+     *                  pass finished, or -1 if there is no path
+     */
+    @Override
+    protected int search(SearchGrid grid, SearchState state, int startId, int destId, SearchBudget budget) {
+        Workspace workspace = acquireWorkspace(grid.getWidth() * grid.getHeight());
+        try {
+            return improve(grid, state, workspace, startId, destId, budget, null);
+        }
+        finally {
+            workspace.inUse = false;
+        }
+    }
+
+    /**
+     * Runs the passes of ARA*.
+     *
+     * @param grid      the search area
+     * @param state     an empty state holding at least width * height cells
+     * @param workspace the pass stamps of the query, whose bound is set to that of the last path found
+     * @param startId   the id of the start cell
+     * @param destId    the id of the destination cell
+     * @param budget    the limit on the work of all passes together
+     * @param listener  receives each better path, or null
+     * @return          destId if a path was found, the cell chosen by the
+     *                  fallback of the budget if it was spent before any
+     *                  pass finished, or -1 if there is no path
+     */
+    private int improve(SearchGrid grid, SearchState state, Workspace workspace, int startId, int destId,
+                        SearchBudget budget, ImprovementListener listener) {
+        IndexedMinHeap openQueue = state.getOpenQueue();
+        SearchStatistics statistics = state.getStatistics();
+        GridNeighbors neighbors = this.neighbors;
+        Heuristic heuristic = this.heuristic;
+        int[] neighborIds = new int[GridNeighbors.DIRECTIONS];
+        int[] closed = workspace.closed;
+        int width = grid.getWidth();
+        int destX = destId % width;
+        int destY = destId / width;
+        boolean lowestH = budget.getFallback() == SearchBudget.Fallback.LOWEST_H;
+        long startNanos = budget.getTimeoutNanos() == 0 ? 0 : System.nanoTime();
+        long expansions = 0;
+        int closest = startId;
+        double weight = this.initialWeight;
+
+        state.visit(startId, heuristic.estimate(startId % width, startId / width, destX, destY));
+        state.setG(startId, 0);
+        push(openQueue, state, startId, weight);
+
+        while(true) {
+            int pass = workspace.nextPass();
+
+            // Expand while some cell could still lead to a shorter path than the one found.
+            while(!openQueue.isEmpty() && openQueue.peekKey() < state.getG(destId)) {
+                int current = openQueue.remove();
+                if(statistics != null) {
+                    statistics.recordExpansion();
+                }
+                prepareNode(grid, state, current);
+                if(lowestH && state.getH(current) < state.getH(closest)) {
+                    closest = current;
+                }
+                if(budget.isExhausted(++expansions, startNanos)) {
+                    if(state.getG(destId) < Double.POSITIVE_INFINITY) {
+                        return destId;
+                    }
+                    return lowestH ? closest : current;
+                }
+                closed[current] = pass;
+
+                int count = neighbors.getNeighbors(grid, current, neighborIds);
+                for(int k = 0; k < count; k++) {
+                    int neighborId = neighborIds[k];
+                    if(!state.isVisited(neighborId)) {
+                        state.visit(neighborId, heuristic.estimate(neighborId % width,
+                                neighborId / width, destX, destY));
+                    }
+                    double g = state.getG(current) + moveCost(grid, current, neighborId);
+                    if(g < state.getG(neighborId)) {
+                        state.setG(neighborId, g);
+                        state.setParent(neighborId, current);
+                        // A cell expanded in this pass waits for the next one.
+                        if(closed[neighborId] != pass) {
+                            push(openQueue, state, neighborId, weight);
+                        }
+                        else {
+                            workspace.markInconsistent(neighborId, pass);
+                        }
+                    }
+                }
+            }
+
+            double destG = state.getG(destId);
+            if(destG == Double.POSITIVE_INFINITY) {
+                // Every reachable cell was expanded.
+                return -1;
+            }
+            workspace.bound = bound(state, workspace, weight, destG);
+            if(listener != null) {
+                GridPath path = toGridPath(grid, reconstructCellPath(grid, state, destId));
+                listener.pathImproved(new SearchResult(SearchResult.Status.COMPLETE, path, reportedBound(workspace)));
+            }
+            if(workspace.bound <= 1.0) {
+                return destId;
+            }
+            weight = Math.max(1.0, Math.min(weight, workspace.bound) - this.weightStep);
+            reopen(openQueue, state, workspace, weight);
+        }
+    }
+
+    /**
+     * Returns the bound of the last path found as handed out in results,
+     * which is infinite with a heuristic that may overestimate.
+     *
+     * @param workspace the pass stamps of the query
+     * @return          the bound of the last path found
+     */
+    private double reportedBound(Workspace workspace) {
+        return isAdmissible() ? workspace.bound : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns how many times longer than the shortest path the path found
+     * may be: the weight of the pass, or less if no cell left to expand
+     * could lead to a path much shorter.
+     *
+     * @param state     the values of the current path search
+     * @param workspace the inconsistent cells of the pass
+     * @param weight    the weight of the pass
+     * @param destG     the G value of the destination
+     * @return          the bound, at least 1
+     */
+    private static double bound(SearchState state, Workspace workspace, double weight, double destG) {
+        IndexedMinHeap openQueue = state.getOpenQueue();
+        double lowest = destG;
+        for(int i = 0; i < openQueue.size(); i++) {
+            lowest = Math.min(lowest, state.getF(openQueue.idAt(i)));
+        }
+        for(int k = 0; k < workspace.inconsistentCount; k++) {
+            lowest = Math.min(lowest, state.getF(workspace.inconsistent[k]));
+        }
+        if(destG <= lowest) {
+            return 1.0;
+        }
+        return Math.min(weight, destG / lowest);
+    }
+
+    /**
+     * Moves the inconsistent cells into the open queue and keys every cell
+     * of the open queue by the weight of the next pass.
+     *
+     * @param openQueue the open queue of the current path search
+     * @param state     the values of the current path search
+     * @param workspace the inconsistent cells of the pass just finished
+     * @param weight    the weight of the next pass
+     */
+    private void reopen(IndexedMinHeap openQueue, SearchState state, Workspace workspace, double weight) {
+        int[] open = workspace.buffer;
+        int count = openQueue.size();
+        for(int i = 0; i < count; i++) {
+            open[i] = openQueue.idAt(i);
+        }
+        for(int i = 0; i < count; i++) {
+            int id = open[i];
+            openQueue.update(id, state.getG(id) + weight * state.getH(id), tie(state, id));
+        }
+        for(int k = 0; k < workspace.inconsistentCount; k++) {
+            push(openQueue, state, workspace.inconsistent[k], weight);
+        }
+        workspace.inconsistentCount = 0;
+    }
+
+    /**
+     * Adds a cell to the open queue or lowers its key, keyed by its G value
+     * plus its weighted estimate, and counts it if statistics are being
+     * recorded.
+     *
+     * @param openQueue the open queue of the current path search
+     * @param state     the values of the current path search
+     * @param id        the id of the cell
+     * @param weight    the weight of the current pass
+     */
+    private void push(IndexedMinHeap openQueue, SearchState state, int id, double weight) {
+        double key = state.getG(id) + weight * state.getH(id);
+        SearchStatistics statistics = state.getStatistics();
+        if(openQueue.contains(id)) {
+            if(statistics != null) {
+                statistics.recordDecreaseKey();
+            }
+            openQueue.update(id, key, tie(state, id));
+        }
+        else {
+            openQueue.add(id, key, tie(state, id));
+            if(statistics != null) {
+                statistics.recordGeneration(openQueue.size());
+            }
+        }
+    }
+
+    /**
+     * Returns the second key of a cell in the open queue.
+     *
+     * @param state the values of the current path search
+     * @param id    the id of the cell
+     * @return      the negated G value when preferring larger G values, 0 otherwise
+     */
+    private double tie(SearchState state, int id) {
+        return this.preferLargerG ? -state.getG(id) : 0;
+    }
+
+    /**
+     * Returns the workspace of the current thread, ready for a new query.
+     *
+     * @param capacity the number of cells in the grid
+     * @return the workspace
+     */
+    private Workspace acquireWorkspace(int capacity) {
+        Workspace workspace = this.workspaces.get();
+        if(workspace != null && workspace.inUse) {
+            // A listener searching again from within a search.
+            workspace = new Workspace(capacity);
+        }
+        else if(workspace == null || workspace.closed.length < capacity) {
+            workspace = new Workspace(capacity);
+            this.workspaces.set(workspace);
+        }
+        workspace.inUse = true;
+        workspace.inconsistentCount = 0;
+        workspace.bound = Double.POSITIVE_INFINITY;
+        return workspace;
+    }
+
+    /**
+     * Per-thread arrays marking the pass in which each cell was expanded
+     * and collecting the cells lowered after their expansion.
+     */
+    private static class Workspace {
+
+        /**
+         * Pass in which each cell was last expanded.
+         */
+        private final int[] closed;
+
+        /**
+         * Pass in which each cell was last marked inconsistent.
+         */
+        private final int[] marked;
+
+        /**
+         * Cells whose G value was lowered after they were expanded in this pass.
+         */
+        private final int[] inconsistent;
+
+        /**
+         * Scratch space for the ids of the open queue.
+         */
+        private final int[] buffer;
+
+        /**
+         * Number of inconsistent cells.
+         */
+        private int inconsistentCount;
+
+        /**
+         * Current pass, increasing across queries.
+         */
+        private int pass;
+
+        /**
+         * Bound of the last path found by the query.
+         */
+        private double bound;
+
+        /**
+         * Whether a query is using the workspace.
+         */
+        private boolean inUse;
+
+        /**
+         * Class constructor
+         *
+         * @param capacity the number of cells in the grid
+         */
+        public Workspace(int capacity) {
+            this.closed = new int[capacity];
+            this.marked = new int[capacity];
+            this.inconsistent = new int[capacity];
+            this.buffer = new int[capacity];
+            this.inconsistentCount = 0;
+            this.pass = 0;
+        }
+
+        /**
+         * Starts a new pass, in which no cell has been expanded yet.
+         *
+         * @return the stamp of the pass
+         */
+        public int nextPass() {
+            if(this.pass == Integer.MAX_VALUE) {
+                Arrays.fill(this.closed, 0);
+                Arrays.fill(this.marked, 0);
+                this.pass = 0;
+            }
+            return ++this.pass;
+        }
+
+        /**
+         * Adds a cell to the inconsistent cells unless it is already there.
+         *
+         * @param id   the id of the cell
+         * @param pass the stamp of the current pass
+         */
+        public void markInconsistent(int id, int pass) {
+            if(this.marked[id] != pass) {
+                this.marked[id] = pass;
+                this.inconsistent[this.inconsistentCount++] = id;
+            }
+        }
+    }
+}
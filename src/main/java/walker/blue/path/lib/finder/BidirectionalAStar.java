@@ -0,0 +1,569 @@
+package walker.blue.path.lib.finder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.GridNeighbors;
+import walker.blue.path.lib.grid.Heuristic;
+import walker.blue.path.lib.grid.NodeGrid;
+import walker.blue.path.lib.grid.SearchGrid;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.IndexedMinHeap;
+import walker.blue.path.lib.util.SearchState;
+import walker.blue.path.lib.util.SearchStatistics;
+
+/**
+ * This class finds paths with two A* searches at once, one from the start
+ * towards the destination and one from the destination towards the start.
+ * Every time either search lowers the G value of a cell the other one has
+ * reached, the sum of both G values is the length of a path through that
+ * cell, and the shortest such path is kept. The searches stop as soon as
+ * the smallest F value of either open set is no less than the shortest
+ * path found, which proves that path optimal. On long paths the two
+ * frontiers meet after exploring far fewer cells than a single search.
+ *
+ * <p>Uses the moves and costs of GridAStar (10 for an orthogonal move, 14
+ * for a diagonal one, times the cost of the cell entered) and the octile
+ * distance as the estimate, so paths are optimal. The heuristic and its
+ * weight cannot be changed, since the stopping rule needs an estimate
+ * that never overestimates; preferring larger G values is honored. Given
+ * an executor, the backward search runs on it while the forward search
+ * runs on the calling thread; the searches then share their G values
+ * through atomic arrays.
+ *
+ * <p>Searches given a SearchBudget run in one direction only, like
+ * GridAStar, so that a partial path always starts at the start cell.
+ */
+public class BidirectionalAStar extends GridAStar {
+
+    /**
+     * Executor running the backward search, or null to alternate both
+     * searches on the calling thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Search states and shared G values, pooled per thread.
+     */
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>();
+
+    /**
+     * Class constructor using eight-way movement with corner cutting.
+     */
+    public BidirectionalAStar() {
+        this(Connectivity.EIGHT);
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param connectivity the moves allowed from each cell
+     */
+    public BidirectionalAStar(Connectivity connectivity) {
+        this(connectivity, null);
+    }
+
+    /**
+     * Class constructor. The executor is not shut down by this class, and
+     * queries must not run on a bounded executor they share with the
+     * backward searches, since they wait for them.
+     *
+     * @param connectivity the moves allowed from each cell
+     * @param executor the executor running the backward search, or null
+     *                 to run both searches on the calling thread
+     */
+    public BidirectionalAStar(Connectivity connectivity, ExecutorService executor) {
+        super(connectivity);
+        this.executor = executor;
+    }
+
+    /**
+     * Access method to get the executor.
+     *
+     * @return the executor running the backward search, or null
+     */
+    public ExecutorService getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Returns a List representing the path between two nodes in a two-dimensional search space.
+     *
+     * @param searchArea a 2D list holding all of the GridNodes that describe the space
+     * @param start      the start node for the path search
+     * @param dest       the destination node for the path search
+     * @return           the List of nodes in the path starting from the start node and
+     *                   ending with the dest node, or null if there is no path
+     */
+    @Override
+    public List<GridNode> findPath(List<List<GridNode>> searchArea, GridNode start, GridNode dest) {
+        NodeGrid grid = new NodeGrid(searchArea);
+        int[] cells = findPath(grid, grid.getId(start), grid.getId(dest));
+        if(cells == null) {
+            return null;
+        }
+        List<GridNode> path = new ArrayList<GridNode>(cells.length);
+        for(int cell : cells) {
+            path.add(grid.getNode(cell));
+        }
+        return path;
+    }
+
+    /**
+     * Returns the ids of the cells on the path between two cells of a GridMap or
+     * any other SearchGrid.
+     *
+     * @param grid  the search area
+     * @param start the id of the start cell
+     * @param dest  the id of the destination cell
+     * @return      the cell ids of the path starting with start and ending with dest,
+     *              or null if there is no path or either cell is blocked
+     */
+    @Override
+    public int[] findPath(SearchGrid grid, int start, int dest) {
+        int width = grid.getWidth();
+        // The backward search would otherwise walk out of a blocked destination.
+        if(!grid.isTraversable(start % width, start / width)
+                || !grid.isTraversable(dest % width, dest / width)) {
+            return null;
+        }
+        if(start == dest) {
+            return new int[] {start};
+        }
+        Workspace workspace = acquireWorkspace(grid.getWidth() * grid.getHeight());
+        // Each search counts into its own state, since they may run on two threads.
+        SearchStatistics statistics = startStatistics(workspace.forward);
+        SearchStatistics backwardStatistics = statistics == null ? null : workspace.backward.recordStatistics();
+        try {
+            Meeting meeting = new Meeting();
+            Frontier forward = new Frontier(grid, meeting, workspace.forward, workspace.forwardCosts,
+                    workspace.backwardCosts, workspace.stamp, start, dest, false);
+            Frontier backward = new Frontier(grid, meeting, workspace.backward, workspace.backwardCosts,
+                    workspace.forwardCosts, workspace.stamp, dest, start, true);
+
+            if(this.executor == null) {
+                // Expand the side with the smaller open set, which keeps the
+                // frontiers balanced when one side is boxed in.
+                while(!meeting.finished) {
+                    if(forward.getOpenCount() <= backward.getOpenCount()) {
+                        forward.step();
+                    }
+                    else {
+                        backward.step();
+                    }
+                }
+            }
+            else {
+                Future<?> task = this.executor.submit(backward);
+                forward.run();
+                // Claiming the backward search keeps it from starting late;
+                // once it has started, its state may only be read after it ends.
+                if(backward.claim()) {
+                    task.cancel(false);
+                }
+                else {
+                    await(task);
+                }
+            }
+            if(meeting.node == -1) {
+                return null;
+            }
+            return buildPath(workspace.forward, workspace.backward, meeting.node);
+        }
+        finally {
+            if(statistics != null) {
+                statistics.add(backwardStatistics);
+            }
+            finishStatistics(statistics);
+        }
+    }
+
+    /**
+     * Returns the octile distance between two cells, or the Manhattan
+     * distance without diagonal moves, which never overestimate the
+     * length of a path.
+     *
+     * @param ax                column of the cell
+     * @param ay                row of the cell
+     * @param bx                column of the destination
+     * @param by                row of the destination
+     * @return                  the estimated distance between the two cells
+     */
+    @Override
+    protected int estimateDistance(int ax, int ay, int bx, int by) {
+        if(getConnectivity() == Connectivity.FOUR) {
+            return Heuristic.MANHATTAN.estimate(ax, ay, bx, by);
+        }
+        return Heuristic.OCTILE.estimate(ax, ay, bx, by);
+    }
+
+    /**
+     * The distance estimated by this class never overestimates, whatever
+     * the heuristic.
+     *
+     * @return always true
+     */
+    @Override
+    protected boolean isAdmissible() {
+        return true;
+    }
+
+    /**
+     * Returns the workspace of the current thread, ready for a new query.
+     *
+     * @param capacity the number of cells in the grid
+     * @return the workspace
+     */
+    private Workspace acquireWorkspace(int capacity) {
+        Workspace workspace = this.workspaces.get();
+        if(workspace == null || workspace.forward.capacity() < capacity
+                || workspace.stamp == Integer.MAX_VALUE) {
+            workspace = new Workspace(capacity);
+            this.workspaces.set(workspace);
+        }
+        workspace.forward.reset();
+        workspace.backward.reset();
+        workspace.stamp++;
+        return workspace;
+    }
+
+    /**
+     * Joins the parents of both searches at the meeting cell into a path.
+     *
+     * @param forward the state of the search from the start
+     * @param backward the state of the search from the destination
+     * @param node the cell where the searches met
+     * @return the cell ids of the path from start to dest
+     */
+    private static int[] buildPath(SearchState forward, SearchState backward, int node) {
+        int forwardLength = 0;
+        for(int id = node; id != -1; id = forward.getParent(id)) {
+            forwardLength++;
+        }
+        int length = forwardLength;
+        for(int id = backward.getParent(node); id != -1; id = backward.getParent(id)) {
+            length++;
+        }
+        int[] path = new int[length];
+        int position = forwardLength;
+        for(int id = node; id != -1; id = forward.getParent(id)) {
+            path[--position] = id;
+        }
+        position = forwardLength;
+        for(int id = backward.getParent(node); id != -1; id = backward.getParent(id)) {
+            path[position++] = id;
+        }
+        return path;
+    }
+
+    /**
+     * Waits for the backward search, rethrowing what it threw.
+     *
+     * @param task the pending backward search
+     */
+    private static void await(Future<?> task) {
+        try {
+            task.get();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the backward search", e);
+        }
+        catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Packs a query stamp and a G value into one entry of a shared array.
+     *
+     * @param stamp the stamp of the query
+     * @param g the G value
+     * @return the packed entry
+     */
+    private static long pack(int stamp, int g) {
+        return ((long) stamp << 32) | (g & 0xffffffffL);
+    }
+
+    /**
+     * The best path found so far by a pair of searches, and whether they are done.
+     */
+    private static class Meeting {
+
+        /**
+         * Length of the shortest path found so far.
+         */
+        private volatile double cost = Double.POSITIVE_INFINITY;
+
+        /**
+         * Cell where the shortest path found so far passes from one search
+         * to the other, or -1 if none was found.
+         */
+        private int node = -1;
+
+        /**
+         * Whether the searches should stop.
+         */
+        private volatile boolean finished;
+
+        /**
+         * Keeps a path if it is shorter than the best one so far.
+         *
+         * @param length the length of the path
+         * @param through the cell where the path passes from one search to the other
+         */
+        public synchronized void offer(double length, int through) {
+            if(length < this.cost) {
+                this.cost = length;
+                this.node = through;
+            }
+        }
+    }
+
+    /**
+     * One of the two searches. Each search is a plain A* towards the
+     * source of the other one that also publishes its G values, and
+     * checks those of the other search, in a pair of shared arrays. The
+     * entries carry the stamp of the query so values left from earlier
+     * queries are ignored.
+     */
+    private class Frontier implements Runnable {
+
+        /**
+         * The search area.
+         */
+        private final SearchGrid grid;
+
+        /**
+         * The best path shared with the other search.
+         */
+        private final Meeting meeting;
+
+        /**
+         * The values of this search.
+         */
+        private final SearchState state;
+
+        /**
+         * G values published by this search.
+         */
+        private final AtomicLongArray costs;
+
+        /**
+         * G values published by the other search.
+         */
+        private final AtomicLongArray otherCosts;
+
+        /**
+         * Stamp of the current query.
+         */
+        private final int stamp;
+
+        /**
+         * Cell this search starts from.
+         */
+        private final int source;
+
+        /**
+         * Column of the cell this search heads for.
+         */
+        private final int targetX;
+
+        /**
+         * Row of the cell this search heads for.
+         */
+        private final int targetY;
+
+        /**
+         * Whether this search runs from the destination, so that each of its
+         * moves is costed in the opposite direction.
+         */
+        private final boolean reverse;
+
+        /**
+         * Ids of the neighbors of the expanded cell.
+         */
+        private final int[] neighborIds = new int[GridNeighbors.DIRECTIONS];
+
+        /**
+         * Whether the search was started by run or claimed by the other thread.
+         */
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        /**
+         * Class constructor. Queues the source cell.
+         *
+         * @param grid the search area
+         * @param meeting the best path shared with the other search
+         * @param state the values of this search, already reset
+         * @param costs the G values published by this search
+         * @param otherCosts the G values published by the other search
+         * @param stamp the stamp of the current query
+         * @param source the cell this search starts from
+         * @param target the cell this search heads for
+         * @param reverse whether this search runs from the destination
+         */
+        public Frontier(SearchGrid grid, Meeting meeting, SearchState state, AtomicLongArray costs,
+                        AtomicLongArray otherCosts, int stamp, int source, int target,
+                        boolean reverse) {
+            this.grid = grid;
+            this.meeting = meeting;
+            this.state = state;
+            this.costs = costs;
+            this.otherCosts = otherCosts;
+            this.stamp = stamp;
+            this.source = source;
+            this.reverse = reverse;
+            int width = grid.getWidth();
+            this.targetX = target % width;
+            this.targetY = target / width;
+            state.visit(source, estimateDistance(source % width, source / width,
+                    this.targetX, this.targetY));
+            state.setG(source, 0);
+            pushOpen(state.getOpenQueue(), state, source);
+            costs.lazySet(source, pack(stamp, 0));
+        }
+
+        /**
+         * Returns the number of cells in the open set.
+         *
+         * @return the open set size
+         */
+        public int getOpenCount() {
+            return this.state.getOpenQueue().size();
+        }
+
+        /**
+         * Keeps the search from running if it has not started yet.
+         *
+         * @return true if the search will not run, false if it has already started
+         */
+        public boolean claim() {
+            return this.claimed.compareAndSet(false, true);
+        }
+
+        /**
+         * Expands cells until either search finishes, unless the search
+         * was claimed first.
+         */
+        @Override
+        public void run() {
+            if(!claim()) {
+                return;
+            }
+            while(!this.meeting.finished) {
+                step();
+            }
+        }
+
+        /**
+         * Expands the cell with the smallest F value, or finishes both
+         * searches once no cell left can lead to a shorter path.
+         */
+        public void step() {
+            IndexedMinHeap openQueue = this.state.getOpenQueue();
+            if(openQueue.isEmpty() || openQueue.peekKey() >= this.meeting.cost) {
+                this.meeting.finished = true;
+                return;
+            }
+            SearchState state = this.state;
+            SearchGrid grid = this.grid;
+            int current = openQueue.remove();
+            SearchStatistics statistics = state.getStatistics();
+            if(statistics != null) {
+                statistics.recordExpansion();
+            }
+            prepareNode(grid, state, current);
+            state.close(current);
+
+            int width = grid.getWidth();
+            int count = neighbors.getNeighbors(grid, current, this.neighborIds);
+            for(int k = 0; k < count; k++) {
+                int neighborId = this.neighborIds[k];
+                if(state.isClosed(neighborId)) {
+                    continue;
+                }
+                if(!state.isVisited(neighborId)) {
+                    state.visit(neighborId, estimateDistance(neighborId % width,
+                            neighborId / width, this.targetX, this.targetY));
+                }
+                // The search from the destination walks each move backwards,
+                // so it pays for entering the cell it comes from.
+                double newG = state.getG(current) + (this.reverse
+                        ? moveCost(grid, neighborId, current)
+                        : moveCost(grid, current, neighborId));
+                if(newG >= state.getG(neighborId)) {
+                    continue;
+                }
+                state.setG(neighborId, newG);
+                state.setParent(neighborId, current);
+                pushOpen(openQueue, state, neighborId);
+                // A volatile write, so that of two searches reaching the
+                // same cell at once at least one sees the other's G value.
+                this.costs.set(neighborId, pack(this.stamp, (int) newG));
+                long other = this.otherCosts.get(neighborId);
+                if((int) (other >>> 32) == this.stamp) {
+                    this.meeting.offer(newG + (int) other, neighborId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Search states of both directions and the arrays they share their G
+     * values through, reused by the queries of one thread.
+     */
+    private static class Workspace {
+
+        /**
+         * Values of the search from the start.
+         */
+        private final SearchState forward;
+
+        /**
+         * Values of the search from the destination.
+         */
+        private final SearchState backward;
+
+        /**
+         * G values published by the search from the start.
+         */
+        private final AtomicLongArray forwardCosts;
+
+        /**
+         * G values published by the search from the destination.
+         */
+        private final AtomicLongArray backwardCosts;
+
+        /**
+         * Stamp of the current query, 0 before the first one.
+         */
+        private int stamp;
+
+        /**
+         * Class constructor
+         *
+         * @param capacity the number of cells that can be tracked
+         */
+        public Workspace(int capacity) {
+            this.forward = new SearchState(capacity);
+            this.backward = new SearchState(capacity);
+            this.forwardCosts = new AtomicLongArray(capacity);
+            this.backwardCosts = new AtomicLongArray(capacity);
+            this.stamp = 0;
+        }
+    }
+}
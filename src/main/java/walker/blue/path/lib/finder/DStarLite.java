@@ -0,0 +1,360 @@
+package walker.blue.path.lib.finder;
+
+import java.util.Arrays;
+
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.GridNeighbors;
+import walker.blue.path.lib.util.IndexedMinHeap;
+
+/**
+ * This class implements the D* Lite algorithm for replanning on a grid
+ * whose cells change traversability. Unlike GridAStar, which searches
+ * from scratch on every call, a DStarLite instance belongs to one GridMap
+ * and one destination and keeps its search between calls. Cell updates
+ * and moves of the start cell only repair the part of the search they
+ * affect, so replanning after a small change is much cheaper than a new
+ * search.
+ *
+ * <p>The search runs backwards from the destination to the start cell,
+ * using the same moves and costs as GridAStar (10 for an orthogonal
+ * move, 14 for a diagonal one). An instance is not thread safe.
+ */
+public class DStarLite {
+
+    /**
+     * Distance used for cells with no known path to the destination.
+     */
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    /**
+     * The map being searched, which is modified by setTraversable.
+     */
+    private final GridMap map;
+
+    /**
+     * Neighbor generator for the selected connectivity.
+     */
+    private final GridNeighbors neighbors;
+
+    /**
+     * Id of the destination cell.
+     */
+    private final int goal;
+
+    /**
+     * Id of the current start cell.
+     */
+    private int start;
+
+    /**
+     * Start cell at the time of the last key modifier update.
+     */
+    private int lastStart;
+
+    /**
+     * Key modifier accumulated over the moves of the start cell.
+     */
+    private int keyModifier;
+
+    /**
+     * Distance from each cell to the destination as of its last expansion.
+     */
+    private final int[] g;
+
+    /**
+     * One-step lookahead distance from each cell to the destination.
+     */
+    private final int[] rhs;
+
+    /**
+     * Cells whose g and rhs values disagree.
+     */
+    private final IndexedMinHeap openQueue;
+
+    /**
+     * Scratch array receiving the neighbor ids of a cell being updated.
+     */
+    private final int[] neighborIds;
+
+    /**
+     * Scratch array receiving the neighbor ids of a cell being expanded.
+     */
+    private final int[] expandIds;
+
+    /**
+     * Class constructor using eight-way movement with corner cutting.
+     *
+     * @param map the map to search
+     * @param start the id of the start cell
+     * @param goal the id of the destination cell
+     */
+    public DStarLite(GridMap map, int start, int goal) {
+        this(map, start, goal, Connectivity.EIGHT);
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param map the map to search
+     * @param start the id of the start cell
+     * @param goal the id of the destination cell
+     * @param connectivity the moves allowed from each cell
+     */
+    public DStarLite(GridMap map, int start, int goal, Connectivity connectivity) {
+        this.map = map;
+        this.neighbors = new GridNeighbors(connectivity);
+        this.goal = goal;
+        this.start = start;
+        this.lastStart = start;
+        this.keyModifier = 0;
+        this.g = new int[map.size()];
+        this.rhs = new int[map.size()];
+        Arrays.fill(this.g, INFINITY);
+        Arrays.fill(this.rhs, INFINITY);
+        this.openQueue = new IndexedMinHeap(map.size());
+        this.neighborIds = new int[GridNeighbors.DIRECTIONS];
+        this.expandIds = new int[GridNeighbors.DIRECTIONS];
+        this.rhs[goal] = 0;
+        this.openQueue.add(goal, getHeuristic(start, goal), 0);
+    }
+
+    /**
+     * Access method to get the map.
+     *
+     * @return the map being searched
+     */
+    public GridMap getMap() {
+        return this.map;
+    }
+
+    /**
+     * Access method to get the start cell.
+     *
+     * @return the id of the start cell
+     */
+    public int getStart() {
+        return this.start;
+    }
+
+    /**
+     * Access method to get the destination cell.
+     *
+     * @return the id of the destination cell
+     */
+    public int getGoal() {
+        return this.goal;
+    }
+
+    /**
+     * Moves the start cell, for example after the agent took a step along
+     * the last path. The search is kept and only reordered lazily.
+     *
+     * @param start the id of the new start cell
+     */
+    public void setStart(int start) {
+        this.keyModifier += getHeuristic(this.lastStart, start);
+        this.lastStart = start;
+        this.start = start;
+    }
+
+    /**
+     * Changes the traversability of a cell of the map and marks the cells
+     * whose moves it affects for repair on the next call to findPath.
+     *
+     * @param x the column of the cell
+     * @param y the row of the cell
+     * @param traversable whether the cell can be walked on
+     */
+    public void setTraversable(int x, int y, boolean traversable) {
+        if(this.map.isTraversable(x, y) == traversable) {
+            return;
+        }
+        this.map.setTraversable(x, y, traversable);
+        // A cell takes part in the moves of every cell around it, including
+        // the diagonal moves that pass by its corner.
+        int width = this.map.getWidth();
+        int height = this.map.getHeight();
+        for(int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+            for(int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                updateVertex(ny * width + nx);
+            }
+        }
+    }
+
+    /**
+     * Repairs the search as needed and returns the current shortest path.
+     *
+     * @return the cell ids of the path from the start cell to the
+     *         destination, or null if there is no path
+     */
+    public int[] findPath() {
+        computeShortestPath();
+        if(this.g[this.start] >= INFINITY) {
+            return null;
+        }
+        int[] path = new int[16];
+        int length = 0;
+        int current = this.start;
+        path[length++] = current;
+        while(current != this.goal) {
+            int best = -1;
+            int bestCost = INFINITY;
+            int count = this.neighbors.getNeighbors(this.map, current, this.neighborIds);
+            for(int k = 0; k < count; k++) {
+                int neighbor = this.neighborIds[k];
+                if(this.g[neighbor] < INFINITY) {
+                    int cost = getCost(current, neighbor) + this.g[neighbor];
+                    if(cost < bestCost) {
+                        bestCost = cost;
+                        best = neighbor;
+                    }
+                }
+            }
+            if(best == -1 || length == this.g.length) {
+                return null;
+            }
+            if(length == path.length) {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = best;
+            current = best;
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    /**
+     * Returns the cost of the current shortest path, repairing the search as needed.
+     *
+     * @return the cost of the path, or -1 if there is no path
+     */
+    public int getPathCost() {
+        computeShortestPath();
+        return this.g[this.start] >= INFINITY ? -1 : this.g[this.start];
+    }
+
+    /**
+     * Expands inconsistent cells until the start cell is consistent and no
+     * queued cell can lower its distance.
+     */
+    private void computeShortestPath() {
+        IndexedMinHeap openQueue = this.openQueue;
+        while(!openQueue.isEmpty()) {
+            int startKey = getKey(this.start);
+            int startTie = Math.min(this.g[this.start], this.rhs[this.start]);
+            double topKey = openQueue.peekKey();
+            double topTie = openQueue.peekTie();
+            boolean beforeStart = topKey < startKey || (topKey == startKey && topTie < startTie);
+            if(!beforeStart && this.rhs[this.start] == this.g[this.start]) {
+                break;
+            }
+            int current = openQueue.peek();
+            int key = getKey(current);
+            int tie = Math.min(this.g[current], this.rhs[current]);
+            if(topKey < key || (topKey == key && topTie < tie)) {
+                // The key is out of date because the start cell moved.
+                openQueue.update(current, key, tie);
+            }
+            else if(this.g[current] > this.rhs[current]) {
+                // Overconsistent: the cell got closer to the destination.
+                this.g[current] = this.rhs[current];
+                openQueue.remove();
+                updateNeighbors(current);
+            }
+            else {
+                // Underconsistent: the cell got further from the destination.
+                this.g[current] = INFINITY;
+                updateVertex(current);
+                updateNeighbors(current);
+            }
+        }
+    }
+
+    /**
+     * Updates every cell that can move to the given cell.
+     *
+     * @param id the id of the cell
+     */
+    private void updateNeighbors(int id) {
+        int count = this.neighbors.getNeighbors(this.map, id, this.expandIds);
+        for(int k = 0; k < count; k++) {
+            updateVertex(this.expandIds[k]);
+        }
+    }
+
+    /**
+     * Recomputes the lookahead distance of a cell and queues it if it is
+     * inconsistent, or removes it from the queue if it is consistent.
+     *
+     * @param id the id of the cell
+     */
+    private void updateVertex(int id) {
+        if(id != this.goal) {
+            int best = INFINITY;
+            if(this.map.isTraversable(id)) {
+                int count = this.neighbors.getNeighbors(this.map, id, this.neighborIds);
+                for(int k = 0; k < count; k++) {
+                    int neighbor = this.neighborIds[k];
+                    if(this.g[neighbor] < INFINITY) {
+                        best = Math.min(best, getCost(id, neighbor) + this.g[neighbor]);
+                    }
+                }
+            }
+            this.rhs[id] = best;
+        }
+        if(this.g[id] != this.rhs[id]) {
+            int key = getKey(id);
+            int tie = Math.min(this.g[id], this.rhs[id]);
+            if(this.openQueue.contains(id)) {
+                this.openQueue.update(id, key, tie);
+            }
+            else {
+                this.openQueue.add(id, key, tie);
+            }
+        }
+        else {
+            this.openQueue.remove(id);
+        }
+    }
+
+    /**
+     * Returns the first part of the queue key of a cell.
+     *
+     * @param id the id of the cell
+     * @return the estimated length of the path from the start cell through the cell
+     */
+    private int getKey(int id) {
+        int distance = Math.min(this.g[id], this.rhs[id]);
+        if(distance >= INFINITY) {
+            return INFINITY;
+        }
+        return distance + getHeuristic(this.start, id) + this.keyModifier;
+    }
+
+    /**
+     * Returns the cost of a move between two neighboring cells.
+     *
+     * @param a the id of the first cell
+     * @param b the id of the second cell
+     * @return 14 for a diagonal move, 10 otherwise
+     */
+    private int getCost(int a, int b) {
+        int width = this.map.getWidth();
+        return a % width != b % width && a / width != b / width ? 14 : 10;
+    }
+
+    /**
+     * Returns the octile distance between two cells, which never
+     * overestimates the cost of a path between them.
+     *
+     * @param a the id of the first cell
+     * @param b the id of the second cell
+     * @return the estimated distance between the two cells
+     */
+    private int getHeuristic(int a, int b) {
+        int width = this.map.getWidth();
+        int dx = Math.abs(a % width - b % width);
+        int dy = Math.abs(a / width - b / width);
+        return 10 * Math.max(dx, dy) + 4 * Math.min(dx, dy);
+    }
+}
@@ -0,0 +1,215 @@
+package walker.blue.path.lib.finder;
+
+import java.util.List;
+
+import walker.blue.path.lib.base.AbstractPathfinder;
+import walker.blue.path.lib.graph.CsrGraph;
+import walker.blue.path.lib.node.GraphNode;
+import walker.blue.path.lib.util.IndexedMinHeap;
+import walker.blue.path.lib.util.SearchState;
+import walker.blue.path.lib.util.SearchStatistics;
+
+/**
+ * This class can be used to find a path between two nodes of a CsrGraph
+ * using the A* algorithm. The distance estimate is the straight-line
+ * distance between node locations times a scale, which never
+ * overestimates as long as no edge weighs less than the distance between
+ * its nodes times that scale. Like GridAStar, the per-query values are
+ * kept in a SearchState pooled per thread, so one graph can be searched
+ * by many threads at once.
+ */
+public class GraphAStar extends AbstractPathfinder<GraphNode, CsrGraph> {
+
+    /**
+     * Factor applied to the straight-line distance estimate.
+     */
+    protected double heuristicScale;
+
+    /**
+     * Class constructor using the plain straight-line distance as the estimate.
+     */
+    public GraphAStar() {
+        this(1.0);
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param heuristicScale the factor applied to the straight-line distance estimate
+     */
+    public GraphAStar(double heuristicScale) {
+        this.heuristicScale = heuristicScale;
+    }
+
+    /**
+     * Access method to get the heuristic scale.
+     *
+     * @return the factor applied to the straight-line distance estimate
+     */
+    public double getHeuristicScale() {
+        return this.heuristicScale;
+    }
+
+    /**
+     * Sets the factor applied to the straight-line distance estimate.
+     *
+     * @param heuristicScale the new factor
+     */
+    public void setHeuristicScale(double heuristicScale) {
+        this.heuristicScale = heuristicScale;
+    }
+
+    /**
+     * Returns a List representing the path between two nodes of a graph.
+     *
+     * @param graph the graph to search
+     * @param start the start node for the path search
+     * @param dest  the destination node for the path search
+     * @return      the List of nodes in the path starting from the start node and
+     *              ending with the dest node, or null if there is no path
+     */
+    @Override
+    public List<GraphNode> findPath(CsrGraph graph, GraphNode start, GraphNode dest) {
+        int[] path = findPath(graph, start.getIndex(), dest.getIndex());
+        return path == null ? null : graph.toNodes(path);
+    }
+
+    /**
+     * Returns the indices of the nodes on the path between two nodes.
+     *
+     * @param graph the graph to search
+     * @param start the index of the start node
+     * @param dest the index of the destination node
+     * @return the node indices of the path starting with start and ending
+     *         with dest, or null if there is no path
+     */
+    public int[] findPath(CsrGraph graph, int start, int dest) {
+        SearchState state = SearchState.acquire(graph.getNodeCount());
+        SearchStatistics statistics = startStatistics(state);
+        try {
+            if(!search(graph, state, start, dest)) {
+                return null;
+            }
+            return reconstructPath(state, dest);
+        }
+        finally {
+            finishStatistics(statistics);
+            state.release();
+        }
+    }
+
+    /**
+     * Returns the length of the shortest path between two nodes.
+     *
+     * @param graph the graph to search
+     * @param start the index of the start node
+     * @param dest the index of the destination node
+     * @return the sum of the edge weights along the path, or
+     *         Double.POSITIVE_INFINITY if there is no path
+     */
+    public double findDistance(CsrGraph graph, int start, int dest) {
+        SearchState state = SearchState.acquire(graph.getNodeCount());
+        SearchStatistics statistics = startStatistics(state);
+        try {
+            return search(graph, state, start, dest) ? state.getG(dest) : Double.POSITIVE_INFINITY;
+        }
+        finally {
+            finishStatistics(statistics);
+            state.release();
+        }
+    }
+
+    /**
+     * Runs the path search between two nodes, leaving the parents of the
+     * reached nodes in the given state. A destination of -1 searches the
+     * whole graph.
+     *
+     * @param graph the graph to search
+     * @param state an empty state holding at least as many nodes as the graph
+     * @param start the index of the start node
+     * @param dest the index of the destination node, or -1
+     * @return true if the destination was reached, false otherwise
+     */
+    protected boolean search(CsrGraph graph, SearchState state, int start, int dest) {
+        IndexedMinHeap openQueue = state.getOpenQueue();
+        SearchStatistics statistics = state.getStatistics();
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        float[] weights = graph.getWeights();
+
+        state.visit(start, estimateDistance(graph, start, dest));
+        state.setG(start, 0);
+        openQueue.add(start, state.getF(start));
+        if(statistics != null) {
+            statistics.recordGeneration(1);
+        }
+
+        while(!openQueue.isEmpty()) {
+            int current = openQueue.remove();
+            if(statistics != null) {
+                statistics.recordExpansion();
+            }
+            if(current == dest) {
+                return true;
+            }
+            state.close(current);
+
+            double currentG = state.getG(current);
+            for(int edge = offsets[current]; edge < offsets[current + 1]; edge++) {
+                int neighbor = targets[edge];
+                if(state.isClosed(neighbor)) {
+                    continue;
+                }
+                if(!state.isVisited(neighbor)) {
+                    state.visit(neighbor, estimateDistance(graph, neighbor, dest));
+                }
+                double newG = currentG + weights[edge];
+                if(newG < state.getG(neighbor)) {
+                    state.setG(neighbor, newG);
+                    state.setParent(neighbor, current);
+                    if(statistics != null) {
+                        if(openQueue.contains(neighbor)) {
+                            statistics.recordDecreaseKey();
+                        }
+                        else {
+                            statistics.recordGeneration(openQueue.size() + 1);
+                        }
+                    }
+                    openQueue.addOrDecrease(neighbor, state.getF(neighbor));
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the estimated distance from a node to the destination.
+     *
+     * @param graph the graph being searched
+     * @param node the index of the node
+     * @param dest the index of the destination node, or -1
+     * @return the scaled straight-line distance, or 0 with no destination
+     */
+    protected double estimateDistance(CsrGraph graph, int node, int dest) {
+        return dest == -1 ? 0 : this.heuristicScale * graph.getDistance(node, dest);
+    }
+
+    /**
+     * Follows the parents from the destination back to the start node.
+     *
+     * @param state the values of the finished search
+     * @param dest the index of the destination node
+     * @return the node indices from the start node to dest
+     */
+    protected int[] reconstructPath(SearchState state, int dest) {
+        int length = 0;
+        for(int node = dest; node != -1; node = state.getParent(node)) {
+            length++;
+        }
+        int[] path = new int[length];
+        for(int node = dest; node != -1; node = state.getParent(node)) {
+            path[--length] = node;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,65 @@
+package walker.blue.path.lib.finder;
+
+import java.util.Arrays;
+
+import walker.blue.path.lib.graph.CsrGraph;
+import walker.blue.path.lib.util.SearchState;
+import walker.blue.path.lib.util.SearchStatistics;
+
+/**
+ * This class runs Dijkstra's algorithm over a CsrGraph. It finds single
+ * paths like GraphAStar without a distance estimate, so it is correct for
+ * any non-negative edge weights, and can also compute the distance from
+ * one node to every other node in a single search.
+ */
+public class GraphDijkstra extends GraphAStar {
+
+    /**
+     * Class constructor
+     */
+    public GraphDijkstra() {
+        super(0.0);
+    }
+
+    /**
+     * Computes the distance from the source node to every node of the graph.
+     *
+     * @param graph the graph to search
+     * @param source the index of the source node
+     * @return the distance to each node by index, Float.POSITIVE_INFINITY
+     *         for nodes that cannot be reached
+     */
+    public float[] computeDistances(CsrGraph graph, int source) {
+        int size = graph.getNodeCount();
+        SearchState state = SearchState.acquire(size);
+        SearchStatistics statistics = startStatistics(state);
+        try {
+            search(graph, state, source, -1);
+            float[] distances = new float[size];
+            Arrays.fill(distances, Float.POSITIVE_INFINITY);
+            for(int node = 0; node < size; node++) {
+                if(state.isVisited(node)) {
+                    distances[node] = (float) state.getG(node);
+                }
+            }
+            return distances;
+        }
+        finally {
+            finishStatistics(statistics);
+            state.release();
+        }
+    }
+
+    /**
+     * Dijkstra's algorithm does not estimate the remaining distance.
+     *
+     * @param graph the graph being searched
+     * @param node the index of the node
+     * @param dest the index of the destination node
+     * @return always 0
+     */
+    @Override
+    protected double estimateDistance(CsrGraph graph, int node, int dest) {
+        return 0;
+    }
+}
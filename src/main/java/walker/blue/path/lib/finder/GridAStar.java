@@ -1,19 +1,160 @@
 package walker.blue.path.lib.finder;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
 
 import walker.blue.path.lib.base.AbstractPathfinder;
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.GridNeighbors;
+import walker.blue.path.lib.grid.GridPath;
+import walker.blue.path.lib.grid.Heuristic;
+import walker.blue.path.lib.grid.NodeGrid;
+import walker.blue.path.lib.grid.SearchGrid;
 import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.IndexedMinHeap;
+import walker.blue.path.lib.util.SearchState;
+import walker.blue.path.lib.util.SearchStatistics;
 
 /**
  * This class can be used to find a path between two nodes in a given
- * two-dimensional list of nodes.
+ * two-dimensional list of nodes, or between two cells of a compact GridMap.
+ * The g, h and parent values of a search are kept in a SearchState pooled
+ * per thread rather than on the nodes, so the same search area can be
+ * searched from several threads at once.
+ *
+ * <p>Moves cost 10 orthogonally and 14 diagonally, multiplied by the cost
+ * of the cell moved into on grids with weighted cells.
+ *
+ * <p>The remaining distance is estimated with a Heuristic, Manhattan by
+ * default. Heuristic.OCTILE never overestimates with eight-way movement
+ * and expands far fewer cells. A weight above 1 turns the search into
+ * weighted A*, which finds paths at most that many times longer than the
+ * shortest one while expanding fewer cells still. Cells with the same f
+ * value can be taken off the open queue in any order, or deepest first
+ * with setPreferLargerG, which stops a search from spreading across the
+ * many equally good paths of an open area.
  */
 public class GridAStar extends AbstractPathfinder<GridNode, List<List<GridNode>>> {
 
+    /**
+     * Generates the neighbors of each expanded cell.
+     */
+    protected GridNeighbors neighbors;
+
+    /**
+     * Estimates the distance from each cell to the destination.
+     */
+    protected Heuristic heuristic;
+
+    /**
+     * Factor the estimated distance is multiplied by.
+     */
+    protected double heuristicWeight;
+
+    /**
+     * Whether cells with equal f values are ordered by decreasing g value.
+     */
+    protected boolean preferLargerG;
+
+    /**
+     * Class constructor using eight-way movement with corner cutting.
+     */
+    public GridAStar() {
+        this(Connectivity.EIGHT);
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param connectivity the moves allowed from each cell
+     */
+    public GridAStar(Connectivity connectivity) {
+        this.neighbors = new GridNeighbors(connectivity);
+        this.heuristic = Heuristic.MANHATTAN;
+        this.heuristicWeight = 1.0;
+        this.preferLargerG = false;
+    }
+
+    /**
+     * Access method to get the connectivity.
+     *
+     * @return the moves allowed from each cell
+     */
+    public Connectivity getConnectivity() {
+        return this.neighbors.getConnectivity();
+    }
+
+    /**
+     * Sets the moves allowed from each cell.
+     *
+     * @param connectivity the new connectivity
+     */
+    public void setConnectivity(Connectivity connectivity) {
+        this.neighbors = new GridNeighbors(connectivity);
+    }
+
+    /**
+     * Access method to get the heuristic.
+     *
+     * @return the heuristic estimating the distance to the destination
+     */
+    public Heuristic getHeuristic() {
+        return this.heuristic;
+    }
+
+    /**
+     * Sets the heuristic estimating the distance to the destination.
+     *
+     * @param heuristic the new heuristic
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Access method to get the heuristic weight.
+     *
+     * @return the factor the estimated distance is multiplied by
+     */
+    public double getHeuristicWeight() {
+        return this.heuristicWeight;
+    }
+
+    /**
+     * Sets the factor the estimated distance is multiplied by. With an
+     * admissible heuristic, the paths found are at most weight times
+     * longer than the shortest path.
+     *
+     * @param weight the new weight, at least 1
+     */
+    public void setHeuristicWeight(double weight) {
+        if(weight < 1.0) {
+            throw new IllegalArgumentException("Heuristic weight must be at least 1: " + weight);
+        }
+        this.heuristicWeight = weight;
+    }
+
+    /**
+     * Checks whether cells with equal f values are ordered by decreasing g value.
+     *
+     * @return true if deeper cells are expanded first, false otherwise
+     */
+    public boolean isPreferLargerG() {
+        return this.preferLargerG;
+    }
+
+    /**
+     * Sets whether cells with equal f values are ordered by decreasing g
+     * value, so the search keeps following the cell closest to the
+     * destination instead of widening across equally good paths.
+     *
+     * @param preferLargerG true to expand deeper cells first
+     */
+    public void setPreferLargerG(boolean preferLargerG) {
+        this.preferLargerG = preferLargerG;
+    }
+
     /**
      * Returns a List representing the path between two nodes in a two-dimensional search space.
      *
@@ -24,84 +165,284 @@ public class GridAStar extends AbstractPathfinder<GridNode, List<List<GridNode>>
      *                   ending with the dest node
      */
     public List<GridNode> findPath(List<List<GridNode>> searchArea, GridNode start, GridNode dest) {
-        HashSet<GridNode> closedSet = new HashSet<GridNode>();
-        PriorityQueue<GridNode> openQueue = new PriorityQueue<GridNode>();
+        NodeGrid grid = new NodeGrid(searchArea);
+        SearchState state = SearchState.acquire(grid.getWidth() * grid.getHeight());
+        SearchStatistics statistics = startStatistics(state);
+        try {
+            int destId = grid.getId(dest);
+            if(!search(grid, state, grid.getId(start), destId)) {
+                return null;
+            }
+            return reconstructPath(grid, state, destId);
+        }
+        finally {
+            finishStatistics(statistics);
+            state.release();
+        }
+    }
 
-        start.setParent(null);
-        start.setG(0);
-        openQueue.add(start);
+    /**
+     * Returns the ids of the cells on the path between two cells of a GridMap or
+     * any other SearchGrid.
+     *
+     * @param grid  the search area
+     * @param start the id of the start cell
+     * @param dest  the id of the destination cell
+     * @return      the cell ids of the path starting with start and ending with dest,
+     *              or null if there is no path
+     */
+    public int[] findPath(SearchGrid grid, int start, int dest) {
+        SearchState state = SearchState.acquire(grid.getWidth() * grid.getHeight());
+        SearchStatistics statistics = startStatistics(state);
+        try {
+            if(!search(grid, state, start, dest)) {
+                return null;
+            }
+            return reconstructCellPath(grid, state, dest);
+        }
+        finally {
+            finishStatistics(statistics);
+            state.release();
+        }
+    }
+
+    /**
+     * Returns the path between two cells of a GridMap or any other
+     * SearchGrid as a compact immutable GridPath.
+     *
+     * @param grid  the search area
+     * @param start the id of the start cell
+     * @param dest  the id of the destination cell
+     * @return      the path starting with start and ending with dest, or null if there is no path
+     */
+    public GridPath findGridPath(SearchGrid grid, int start, int dest) {
+        int[] cells = findPath(grid, start, dest);
+        return cells == null ? null : toGridPath(grid, cells);
+    }
+
+    /**
+     * Returns the path between two cells of a GridMap or any other
+     * SearchGrid, giving up once the budget is spent. The search then
+     * returns a partial path from the start to the cell chosen by the
+     * fallback of the budget. A complete path is bounded by the heuristic
+     * weight only if the heuristic never overestimates, and by infinity
+     * otherwise.
+     *
+     * @param grid   the search area
+     * @param start  the id of the start cell
+     * @param dest   the id of the destination cell
+     * @param budget the limit on the work of the search
+     * @return       the complete or partial path, or the proof there is no path
+     */
+    public SearchResult findPath(SearchGrid grid, int start, int dest, SearchBudget budget) {
+        SearchState state = SearchState.acquire(grid.getWidth() * grid.getHeight());
+        SearchStatistics statistics = startStatistics(state);
+        try {
+            int end = search(grid, state, start, dest, budget);
+            if(end == -1) {
+                return SearchResult.noPath();
+            }
+            GridPath path = toGridPath(grid, reconstructCellPath(grid, state, end));
+            if(end != dest) {
+                return new SearchResult(SearchResult.Status.PARTIAL, path, Double.POSITIVE_INFINITY);
+            }
+            double bound = isAdmissible() ? this.heuristicWeight : Double.POSITIVE_INFINITY;
+            return new SearchResult(SearchResult.Status.COMPLETE, path, bound);
+        }
+        finally {
+            finishStatistics(statistics);
+            state.release();
+        }
+    }
+
+    /**
+     * Returns the cells as a GridPath, adding up the cost of each move.
+     *
+     * @param grid  the search area
+     * @param cells the cell ids of the path
+     * @return      the path
+     */
+    protected GridPath toGridPath(SearchGrid grid, int[] cells) {
+        double cost = 0;
+        for(int i = 1; i < cells.length; i++) {
+            cost += moveCost(grid, cells[i - 1], cells[i]);
+        }
+        return new GridPath(grid.getWidth(), cells, cost);
+    }
+
+    /**
+     * Runs the path search between two cells of the grid, leaving the
+     * parents of the reached cells in the given state.
+     *
+     * @param grid      the search area
+     * @param state     an empty state holding at least width * height cells
+     * @param startId   the id of the start cell
+     * @param destId    the id of the destination cell
+     * @return          true if the destination was reached, false otherwise
+     */
+    protected boolean search(SearchGrid grid, SearchState state, int startId, int destId) {
+        return search(grid, state, startId, destId, SearchBudget.UNLIMITED) != -1;
+    }
+
+    /**
+     * Runs the path search between two cells of the grid until the
+     * destination is reached or the budget is spent, leaving the parents
+     * of the reached cells in the given state.
+     *
+     * @param grid      the search area
+     * @param state     an empty state holding at least width * height cells
+     * @param startId   the id of the start cell
+     * @param destId    the id of the destination cell
+     * @param budget    the limit on the work of the search
+     * @return          destId if the destination was reached, the cell chosen by
+     *                  the fallback of the budget if it was spent first, or -1 if
+     *                  there is no path
+     */
+    protected int search(SearchGrid grid, SearchState state, int startId, int destId, SearchBudget budget) {
+        IndexedMinHeap openQueue = state.getOpenQueue();
+        SearchStatistics statistics = state.getStatistics();
+        GridNeighbors neighbors = this.neighbors;
+        int[] neighborIds = new int[GridNeighbors.DIRECTIONS];
+        int width = grid.getWidth();
+        int destX = destId % width;
+        int destY = destId / width;
+
+        state.visit(startId, estimateDistance(startId % width, startId / width, destX, destY));
+        state.setG(startId, 0);
+        pushOpen(openQueue, state, startId);
+        boolean lowestH = budget.getFallback() == SearchBudget.Fallback.LOWEST_H;
+        long startNanos = budget.getTimeoutNanos() == 0 ? 0 : System.nanoTime();
+        long expansions = 0;
+        int closest = startId;
 
         // Run while the open list is not empty (if it is, then the destination was never found)
         // and while the open list does not contain the destination node (once it has the
         // destination node the path has been found).
         while(!openQueue.isEmpty()) {
 
-            GridNode node = openQueue.remove();
+            int current = openQueue.remove();
+            if(statistics != null) {
+                statistics.recordExpansion();
+            }
+            prepareNode(grid, state, current);
+
+            // If the destination node has been reached, then the path has been found.
+            if(current == destId) {
+                return current;
+            }
+            if(lowestH && state.getH(current) < state.getH(closest)) {
+                closest = current;
+            }
+            // The cell just taken off the open queue has the lowest F value
+            // and, having been prepared, a parent it can be reached from.
+            if(budget.isExhausted(++expansions, startNanos)) {
+                return lowestH ? closest : current;
+            }
 
-            // If the destination node has been reached, then return the reconstructed path.
-            if(node == dest) {
-                return reconstructPath(start, node);
+            state.close(current);
+
+            int count = neighbors.getNeighbors(grid, current, neighborIds);
+            for(int k = 0; k < count; k++) {
+                int neighborId = neighborIds[k];
+
+                // If the neighbor has not been visited directly, then check to see
+                // if the neighbor's values can be updated.
+                if(!state.isClosed(neighborId)) {
+                    // If the neighbor has not been reached yet, then set its
+                    // parent node to none and its G value to "infinity".
+                    if(!state.isVisited(neighborId)) {
+                        state.visit(neighborId, estimateDistance(neighborId % width,
+                                neighborId / width, destX, destY));
+                    }
+
+                    double oldG = state.getG(neighborId);
+                    // Determine which of the two paths are the best option
+                    computeBestPath(grid, state, current, neighborId);
+                    if(state.getG(neighborId) < oldG) {
+                        // If the neighbor is already in the open queue, then its
+                        // key is lowered in place, otherwise it is added.
+                        pushOpen(openQueue, state, neighborId);
+                    }
+                }
             }
+        }
+        return -1;
+    }
 
-            closedSet.add(node);
-
-            // Find neighbors in the 3D array
-            for(int i = -1; i < 2; i++) {
-                for(int j = -1; j < 2; j++) {
-                    if(i != 0 || j != 0) {
-                        try {
-                            GridNode neighbor =
-                                    searchArea.get(node.getLocation().getY() + i).
-                                            get(node.getLocation().getX() + j);
-
-                            // If the neighbor can be walked through and has not been visited
-                            // directly, then check to see if the neighbor's values can be updated.
-                            //if(!closedSet.contains(neighbor) && neighbor.walkable()) {
-                            if(!closedSet.contains(neighbor) && neighbor.isTraversable()) {
-                                // If the neighbor has not been added to the priority queue,
-                                // then set its parent node to null and its G value to "infinity".
-                                if(!openQueue.contains(neighbor)) {
-                                    neighbor.setParent(null);
-                                    neighbor.setG(Double.POSITIVE_INFINITY);
-                                    neighbor.setH(getManhattanDistance(neighbor, dest));
-                                }
-
-                                double oldG = neighbor.getG();
-                                // Determine which of the two paths are the best option
-                                computeBestPath(node, neighbor);
-                                if(neighbor.getG() < oldG) {
-                                    // If the neighbor is in the open queue, then remove it and
-                                    // add it again, so that it can be sorted in the right place,
-                                    // instead of having to sort the whole queue again.
-                                    if(openQueue.contains(neighbor)) {
-                                        openQueue.remove(neighbor);
-                                    }
-                                    openQueue.add(neighbor);
-                                }
-                            }
-                        } // try
-                        catch (IndexOutOfBoundsException e) {}
-                    } // if(i != 0 || j != 0)
-                } // j
-            } // i
-        }
-        return null;
+    /**
+     * Adds a cell to the open queue, or lowers its key if it is already
+     * there, keyed by its f value and, when preferring larger g values,
+     * ordered among equal f values by its negated g value. Counts the
+     * generated node or lowered key if statistics are being recorded.
+     *
+     * @param openQueue     the open queue of the current path search
+     * @param state         the values of the current path search
+     * @param id            the id of the cell
+     */
+    protected void pushOpen(IndexedMinHeap openQueue, SearchState state, int id) {
+        SearchStatistics statistics = state.getStatistics();
+        if(statistics != null) {
+            if(openQueue.contains(id)) {
+                statistics.recordDecreaseKey();
+            }
+            else {
+                statistics.recordGeneration(openQueue.size() + 1);
+            }
+        }
+        if(!this.preferLargerG) {
+            openQueue.addOrDecrease(id, state.getF(id));
+        }
+        else if(openQueue.contains(id)) {
+            openQueue.update(id, state.getF(id), -state.getG(id));
+        }
+        else {
+            openQueue.add(id, state.getF(id), -state.getG(id));
+        }
     }
 
+    /**
+     * Called when a node is taken off the open queue, before it is compared
+     * to the destination and its neighbors are examined. Does nothing by default.
+     *
+     * @param grid          the search area
+     * @param state         the values of the current path search
+     * @param node          the id of the node taken off the open queue
+     */
+    protected void prepareNode(SearchGrid grid, SearchState state, int node) {}
+
     /**
      * Determines whether to set a neighbor's parent to the node or to the node's parent.
      *
-     * @param node          the current node being visited in the path search
-     * @param neighbor      a neighbor of node
+     * @param grid          the search area
+     * @param state         the values of the current path search
+     * @param node          the id of the current node being visited in the path search
+     * @param neighbor      the id of a neighbor of node
      */
-    protected void computeBestPath(GridNode node, GridNode neighbor) {
-        int nodeNeighborDistance = distanceBetweenNodes(node, neighbor);
-        if(node.getG() + nodeNeighborDistance < neighbor.getG()) {
-            neighbor.setParent(node);
-            neighbor.setG(node.getG() + nodeNeighborDistance);
+    protected void computeBestPath(SearchGrid grid, SearchState state, int node, int neighbor) {
+        int nodeNeighborDistance = moveCost(grid, node, neighbor);
+        if(state.getG(node) + nodeNeighborDistance < state.getG(neighbor)) {
+            state.setParent(neighbor, node);
+            state.setG(neighbor, state.getG(node) + nodeNeighborDistance);
         }
     }
 
+    /**
+     * Returns the cost of moving in a straight line from one cell to
+     * another: the distance between them times the cost of the cell
+     * entered.
+     *
+     * @param grid              the search area
+     * @param from              id of the cell moved from
+     * @param to                id of the cell moved into
+     * @return                  the cost of the move
+     */
+    protected int moveCost(SearchGrid grid, int from, int to) {
+        int width = grid.getWidth();
+        int toX = to % width;
+        int toY = to / width;
+        return distanceBetweenNodes(from % width, from / width, toX, toY) * grid.getCost(toX, toY);
+    }
+
     /**
      * Returns the approximate distance between two nodes in the search area.
      *
@@ -110,8 +451,21 @@ public class GridAStar extends AbstractPathfinder<GridNode, List<List<GridNode>>
      * @return                  an int representing the approximate distance between the two nodes
      */
     protected int distanceBetweenNodes(GridNode a, GridNode b) {
-        if(a.getLocation().getX() != b.getLocation().getX() &&
-                a.getLocation().getY() != b.getLocation().getY()) {
+        return distanceBetweenNodes(a.getLocation().getX(), a.getLocation().getY(),
+                b.getLocation().getX(), b.getLocation().getY());
+    }
+
+    /**
+     * Returns the approximate distance between two cells in the search area.
+     *
+     * @param ax                column of the first cell
+     * @param ay                row of the first cell
+     * @param bx                column of the second cell
+     * @param by                row of the second cell
+     * @return                  an int representing the approximate distance between the two cells
+     */
+    protected int distanceBetweenNodes(int ax, int ay, int bx, int by) {
+        if(ax != bx && ay != by) {
             return 14;
         }
         else {
@@ -119,6 +473,46 @@ public class GridAStar extends AbstractPathfinder<GridNode, List<List<GridNode>>
         }
     }
 
+    /**
+     * Returns whether the heuristic never overestimates the remaining
+     * distance with the current connectivity, which is what makes the
+     * heuristic weight a bound on the length of the paths found. MANHATTAN
+     * only qualifies without diagonal moves.
+     *
+     * @return true if the heuristic never overestimates
+     */
+    protected boolean isAdmissible() {
+        switch(this.heuristic) {
+            case OCTILE:
+            case EUCLIDEAN:
+            case CHEBYSHEV:
+                return true;
+            case MANHATTAN:
+                return getConnectivity() == Connectivity.FOUR;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the estimated distance from a cell to the destination that
+     * orders the open queue: the distance given by the heuristic, times
+     * the heuristic weight.
+     *
+     * @param ax                column of the cell
+     * @param ay                row of the cell
+     * @param bx                column of the destination
+     * @param by                row of the destination
+     * @return                  the estimated distance between the two cells
+     */
+    protected int estimateDistance(int ax, int ay, int bx, int by) {
+        int estimate = this.heuristic.estimate(ax, ay, bx, by);
+        if(this.heuristicWeight != 1.0) {
+            return (int) (estimate * this.heuristicWeight);
+        }
+        return estimate;
+    }
+
     /**
      * Returns the distance between two nodes using the Manhattan method of adding up the
      * x distance and the y distance together.
@@ -128,8 +522,23 @@ public class GridAStar extends AbstractPathfinder<GridNode, List<List<GridNode>>
      * @return                  an int representing the Manhattan distance between the two nodes
      */
     protected int getManhattanDistance(GridNode a, GridNode b) {
-        int xDelta = b.getLocation().getX() - a.getLocation().getX();
-        int yDelta = b.getLocation().getY() - a.getLocation().getY();
+        return getManhattanDistance(a.getLocation().getX(), a.getLocation().getY(),
+                b.getLocation().getX(), b.getLocation().getY());
+    }
+
+    /**
+     * Returns the distance between two cells using the Manhattan method of adding up the
+     * x distance and the y distance together.
+     *
+     * @param ax                column of the first cell
+     * @param ay                row of the first cell
+     * @param bx                column of the second cell
+     * @param by                row of the second cell
+     * @return                  an int representing the Manhattan distance between the two cells
+     */
+    protected int getManhattanDistance(int ax, int ay, int bx, int by) {
+        int xDelta = bx - ax;
+        int yDelta = by - ay;
         // Calculate absolute value because distance is always positive.
         if(xDelta < 0) {
             xDelta = -xDelta;
@@ -145,23 +554,43 @@ public class GridAStar extends AbstractPathfinder<GridNode, List<List<GridNode>>
      * Reconstructs the path by traversing from the destination node back through each parent
      * node until the start node is reached.
      *
-     * @param start         the node used as the starting point for the path search
-     * @param dest          the destination node that ends the path search
+     * @param grid          the search area wrapping the GridNodes
+     * @param state         the values of the finished path search
+     * @param destId        the id of the destination node that ends the path search
      * @return              Returns a List of GridNodes, which are the path with the start node
      *                      at the head of the List and the dest node at the tail
      */
-    protected List<GridNode> reconstructPath(GridNode start, GridNode dest) {
+    protected List<GridNode> reconstructPath(NodeGrid grid, SearchState state, int destId) {
         List<GridNode> path = new ArrayList<GridNode>();
-        GridNode node = dest;
-
-        while(true) {
-            path.add(0, node);
+        int id = destId;
 
-            if(node == start) {
-                break;
-            }
+        // Collect the nodes from the destination back and reverse them once,
+        // since inserting each one at the head would shift the whole list.
+        while(id != -1) {
+            path.add(grid.getNode(id));
+            id = state.getParent(id);
+        }
+        Collections.reverse(path);
+        return path;
+    }
 
-            node = (GridNode) node.getParent();
+    /**
+     * Reconstructs the path as cell ids by traversing from the destination cell back
+     * through each parent cell until the start cell is reached.
+     *
+     * @param grid          the search area
+     * @param state         the values of the finished path search
+     * @param destId        the id of the destination cell that ends the path search
+     * @return              the cell ids of the path with the start cell first
+     */
+    protected int[] reconstructCellPath(SearchGrid grid, SearchState state, int destId) {
+        int length = 0;
+        for(int id = destId; id != -1; id = state.getParent(id)) {
+            length++;
+        }
+        int[] path = new int[length];
+        for(int id = destId; id != -1; id = state.getParent(id)) {
+            path[--length] = id;
         }
         return path;
     }
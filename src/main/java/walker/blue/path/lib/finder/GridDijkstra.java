@@ -0,0 +1,187 @@
+package walker.blue.path.lib.finder;
+
+import java.util.Arrays;
+import java.util.List;
+
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.DistanceField;
+import walker.blue.path.lib.grid.GridNeighbors;
+import walker.blue.path.lib.grid.NodeGrid;
+import walker.blue.path.lib.grid.SearchGrid;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.IndexedMinHeap;
+import walker.blue.path.lib.util.SearchState;
+import walker.blue.path.lib.util.SearchStatistics;
+
+/**
+ * This class runs Dijkstra's algorithm over a grid. Besides finding a
+ * single path like GridAStar (with no distance estimate), it can flood
+ * the whole grid from one source and return a DistanceField holding the
+ * distance to and path back from every reachable cell, so one search
+ * answers the path to any number of destinations.
+ */
+public class GridDijkstra extends GridAStar {
+
+    /**
+     * Class constructor using eight-way movement with corner cutting.
+     */
+    public GridDijkstra() {
+        super();
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param connectivity the moves allowed from each cell
+     */
+    public GridDijkstra(Connectivity connectivity) {
+        super(connectivity);
+    }
+
+    /**
+     * Computes the distance from the source node to every node of the search area.
+     *
+     * @param searchArea a 2D list holding all of the GridNodes that describe the space
+     * @param source the node the distances are measured from
+     * @return the distance and parent of every node
+     */
+    public DistanceField computeDistanceField(List<List<GridNode>> searchArea, GridNode source) {
+        NodeGrid grid = new NodeGrid(searchArea);
+        return computeDistanceField(grid, grid.getId(source));
+    }
+
+    /**
+     * Computes the distance from the source cell to every cell of the grid.
+     *
+     * @param grid the search area
+     * @param source the id of the cell the distances are measured from
+     * @return the distance and parent of every cell
+     */
+    public DistanceField computeDistanceField(SearchGrid grid, int source) {
+        return computeDistanceField(grid, source, null);
+    }
+
+    /**
+     * Computes the distance from the source cell to the cells of the grid,
+     * stopping as soon as the distance of every target cell is known.
+     * Cells the search did not settle by then are reported as unreachable,
+     * so the field is only complete for the targets and the cells closer
+     * to the source than the furthest target.
+     *
+     * @param grid the search area
+     * @param source the id of the cell the distances are measured from
+     * @param targets the ids of the cells whose distances are needed, or
+     *                null to flood every reachable cell
+     * @return the distance and parent of every settled cell
+     */
+    public DistanceField computeDistanceField(SearchGrid grid, int source, int[] targets) {
+        int size = grid.getWidth() * grid.getHeight();
+        SearchState state = SearchState.acquire(size);
+        SearchStatistics statistics = startStatistics(state);
+        try {
+            if(targets == null) {
+                // With no destination the search runs until every reachable cell is closed.
+                search(grid, state, source, -1);
+            }
+            else {
+                floodUntil(grid, state, source, targets);
+            }
+            float[] distances = new float[size];
+            int[] parents = new int[size];
+            for(int id = 0; id < size; id++) {
+                if(state.isClosed(id)) {
+                    distances[id] = (float) state.getG(id);
+                    parents[id] = state.getParent(id);
+                }
+                else {
+                    distances[id] = Float.POSITIVE_INFINITY;
+                    parents[id] = -1;
+                }
+            }
+            return new DistanceField(grid.getWidth(), grid.getHeight(), source, distances, parents);
+        }
+        finally {
+            finishStatistics(statistics);
+            state.release();
+        }
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from a cell until every target cell is
+     * closed or no cell is left to expand.
+     *
+     * @param grid the search area
+     * @param state an empty state holding at least width * height cells
+     * @param source the id of the source cell
+     * @param targets the ids of the target cells
+     */
+    private void floodUntil(SearchGrid grid, SearchState state, int source, int[] targets) {
+        int[] sorted = targets.clone();
+        Arrays.sort(sorted);
+        int remaining = 0;
+        for(int k = 0; k < sorted.length; k++) {
+            if(k == 0 || sorted[k] != sorted[k - 1]) {
+                remaining++;
+            }
+        }
+        IndexedMinHeap openQueue = state.getOpenQueue();
+        SearchStatistics statistics = state.getStatistics();
+        GridNeighbors neighbors = this.neighbors;
+        int[] neighborIds = new int[GridNeighbors.DIRECTIONS];
+
+        // With no estimate the F value of every cell is its G value.
+        state.visit(source, 0);
+        state.setG(source, 0);
+        pushOpen(openQueue, state, source);
+        while(remaining > 0 && !openQueue.isEmpty()) {
+            int current = openQueue.remove();
+            if(statistics != null) {
+                statistics.recordExpansion();
+            }
+            state.close(current);
+            if(Arrays.binarySearch(sorted, current) >= 0) {
+                remaining--;
+            }
+            int count = neighbors.getNeighbors(grid, current, neighborIds);
+            for(int k = 0; k < count; k++) {
+                int neighborId = neighborIds[k];
+                if(state.isClosed(neighborId)) {
+                    continue;
+                }
+                if(!state.isVisited(neighborId)) {
+                    state.visit(neighborId, 0);
+                }
+                double oldG = state.getG(neighborId);
+                computeBestPath(grid, state, current, neighborId);
+                if(state.getG(neighborId) < oldG) {
+                    pushOpen(openQueue, state, neighborId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Dijkstra's algorithm does not estimate the remaining distance.
+     *
+     * @param ax                column of the first cell
+     * @param ay                row of the first cell
+     * @param bx                column of the second cell
+     * @param by                row of the second cell
+     * @return                  always 0
+     */
+    @Override
+    protected int estimateDistance(int ax, int ay, int bx, int by) {
+        return 0;
+    }
+
+    /**
+     * Dijkstra's algorithm ignores the heuristic and always finds the
+     * shortest path.
+     *
+     * @return always true
+     */
+    @Override
+    protected boolean isAdmissible() {
+        return true;
+    }
+}
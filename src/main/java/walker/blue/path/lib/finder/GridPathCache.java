@@ -0,0 +1,148 @@
+package walker.blue.path.lib.finder;
+
+import walker.blue.path.lib.base.PathCache;
+import walker.blue.path.lib.grid.GridPath;
+import walker.blue.path.lib.grid.SearchGrid;
+
+/**
+ * Bounded cache of the paths a GridAStar, or any of its subclasses, finds
+ * between two cells of a GridMap or any other SearchGrid. Results are
+ * keyed by the grid, compared by identity, and the ids of the start and
+ * destination cells, and are shared by every thread calling the cache.
+ *
+ * <p>Paths on a grid that implements Versioned, such as GridMap, are
+ * discarded once the grid has been modified since they were found. Other
+ * grids must be followed by a call to invalidate whenever they change.
+ * Searches that find no path are cached as well. GridPath is immutable,
+ * so cached paths are handed out as they are.
+ */
+public class GridPathCache {
+
+    /**
+     * The finder that runs the searches missing from the cache.
+     */
+    private final GridAStar finder;
+
+    /**
+     * The cached paths.
+     */
+    private final PathCache<GridPath> cache;
+
+    /**
+     * Class constructor using the default capacity and segment count.
+     *
+     * @param finder the finder that runs the searches missing from the cache
+     */
+    public GridPathCache(GridAStar finder) {
+        this(finder, PathCache.DEFAULT_CAPACITY, PathCache.DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Class constructor using the default segment count.
+     *
+     * @param finder the finder that runs the searches missing from the cache
+     * @param capacity the maximum number of cached paths
+     */
+    public GridPathCache(GridAStar finder, int capacity) {
+        this(finder, capacity, PathCache.DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param finder the finder that runs the searches missing from the cache
+     * @param capacity the maximum number of cached paths
+     * @param segmentCount the number of segments the cache is split into
+     */
+    public GridPathCache(GridAStar finder, int capacity, int segmentCount) {
+        this.finder = finder;
+        this.cache = new PathCache<GridPath>(capacity, segmentCount);
+    }
+
+    /**
+     * Returns the cached path between two cells, searching for it with the
+     * finder when it is not cached or has gone stale.
+     *
+     * @param grid  the search area
+     * @param start the id of the start cell
+     * @param dest  the id of the destination cell
+     * @return      the path starting with start and ending with dest, or null if there is no path
+     */
+    public GridPath findGridPath(SearchGrid grid, int start, int dest) {
+        long version = PathCache.getVersion(grid);
+        CellKey key = new CellKey(grid, start, dest);
+        PathCache.Entry<GridPath> entry = this.cache.get(key, version);
+        if(entry != null) {
+            return entry.getPath();
+        }
+        GridPath path = this.finder.findGridPath(grid, start, dest);
+        this.cache.put(key, version, path);
+        return path;
+    }
+
+    /**
+     * Removes every cached path. Needed after modifying a grid that does
+     * not implement Versioned.
+     */
+    public void invalidate() {
+        this.cache.invalidate();
+    }
+
+    /**
+     * Access method to get the finder.
+     *
+     * @return the finder that runs the searches missing from the cache
+     */
+    public GridAStar getFinder() {
+        return this.finder;
+    }
+
+    /**
+     * Access method to get the cache, which holds the size, hit, miss and
+     * eviction counts.
+     *
+     * @return the cached paths
+     */
+    public PathCache<GridPath> getCache() {
+        return this.cache;
+    }
+
+    /**
+     * Identifies a query by its grid, compared by identity, and the ids of
+     * its start and destination cells.
+     */
+    private static final class CellKey {
+
+        private final Object grid;
+
+        private final int start;
+
+        private final int dest;
+
+        private final int hash;
+
+        CellKey(Object grid, int start, int dest) {
+            this.grid = grid;
+            this.start = start;
+            this.dest = dest;
+            this.hash = (31 * System.identityHashCode(grid) + start) * 31 + dest;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(!(obj instanceof CellKey)) {
+                return false;
+            }
+            CellKey other = (CellKey) obj;
+            return this.grid == other.grid && this.start == other.start && this.dest == other.dest;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
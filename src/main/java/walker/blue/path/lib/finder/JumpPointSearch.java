@@ -0,0 +1,371 @@
+package walker.blue.path.lib.finder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.GridNeighbors;
+import walker.blue.path.lib.grid.Heuristic;
+import walker.blue.path.lib.grid.NodeGrid;
+import walker.blue.path.lib.grid.SearchGrid;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.IndexedMinHeap;
+import walker.blue.path.lib.util.SearchState;
+import walker.blue.path.lib.util.SearchStatistics;
+
+/**
+ * This class finds paths on uniform-cost grids using Jump Point Search.
+ * Instead of adding every neighbor of an expanded cell to the open queue,
+ * it scans in straight lines and only stops at jump points, where the
+ * symmetric paths that plain A* would explore diverge. The resulting
+ * path has the same cost as an optimal eight-way path without corner
+ * cutting, but far fewer cells pass through the open queue on open maps.
+ *
+ * <p>Jump points are only defined for Connectivity.EIGHT_NO_CORNER_CUTTING,
+ * which is the default. With any other connectivity, or on a grid whose
+ * cells do not all cost the same, the search falls back to plain A*. The
+ * returned path contains every cell, like GridAStar.
+ */
+public class JumpPointSearch extends GridAStar {
+
+    /**
+     * Class constructor using the octile heuristic, which matches the
+     * cost of the straight and diagonal runs between jump points.
+     */
+    public JumpPointSearch() {
+        super(Connectivity.EIGHT_NO_CORNER_CUTTING);
+        this.heuristic = Heuristic.OCTILE;
+    }
+
+    /**
+     * Runs a jump point search between two cells of the grid, leaving the
+     * parent jump point of every reached jump point in the given state.
+     *
+     * @param grid      the search area
+     * @param state     an empty state holding at least width * height cells
+     * @param startId   the id of the start cell
+     * @param destId    the id of the destination cell
+     * @param budget    the limit on the work of the search, counting expanded jump points
+     * @return          destId if the destination was reached, the jump point chosen by
+     *                  the fallback of the budget if it was spent first, or -1 if
+     *                  there is no path
+     */
+    @Override
+    protected int search(SearchGrid grid, SearchState state, int startId, int destId, SearchBudget budget) {
+        if(getConnectivity() != Connectivity.EIGHT_NO_CORNER_CUTTING || !grid.hasUniformCost()) {
+            return super.search(grid, state, startId, destId, budget);
+        }
+        IndexedMinHeap openQueue = state.getOpenQueue();
+        SearchStatistics statistics = state.getStatistics();
+        int[] successors = new int[16];
+        int width = grid.getWidth();
+        int destX = destId % width;
+        int destY = destId / width;
+
+        state.visit(startId, estimateDistance(startId % width, startId / width, destX, destY));
+        state.setG(startId, 0);
+        pushOpen(openQueue, state, startId);
+        boolean lowestH = budget.getFallback() == SearchBudget.Fallback.LOWEST_H;
+        long startNanos = budget.getTimeoutNanos() == 0 ? 0 : System.nanoTime();
+        long expansions = 0;
+        int closest = startId;
+
+        while(!openQueue.isEmpty()) {
+            int current = openQueue.remove();
+            if(statistics != null) {
+                statistics.recordExpansion();
+            }
+            if(current == destId) {
+                return current;
+            }
+            if(lowestH && state.getH(current) < state.getH(closest)) {
+                closest = current;
+            }
+            if(budget.isExhausted(++expansions, startNanos)) {
+                return lowestH ? closest : current;
+            }
+            state.close(current);
+
+            int x = current % width;
+            int y = current / width;
+            int count = findSuccessors(grid, state, current, successors);
+            for(int k = 0; k < count; k += 2) {
+                int dx = successors[k];
+                int dy = successors[k + 1];
+                int jumpPoint;
+                if(dx != 0 && dy != 0) {
+                    jumpPoint = jumpDiagonal(grid, x + dx, y + dy, dx, dy, destX, destY);
+                }
+                else {
+                    jumpPoint = jumpStraight(grid, x + dx, y + dy, dx, dy, destX, destY);
+                }
+                if(jumpPoint == -1 || state.isClosed(jumpPoint)) {
+                    continue;
+                }
+                int jumpX = jumpPoint % width;
+                int jumpY = jumpPoint / width;
+                if(!state.isVisited(jumpPoint)) {
+                    state.visit(jumpPoint, estimateDistance(jumpX, jumpY, destX, destY));
+                }
+                double g = state.getG(current) + getOctileDistance(x, y, jumpX, jumpY);
+                if(g < state.getG(jumpPoint)) {
+                    state.setG(jumpPoint, g);
+                    state.setParent(jumpPoint, current);
+                    pushOpen(openQueue, state, jumpPoint);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the directions worth searching from a jump point as (dx, dy)
+     * pairs, pruning the neighbors that are reached at least as cheaply
+     * through the parent of the jump point.
+     *
+     * @param grid          the search area
+     * @param state         the values of the current path search
+     * @param id            the id of the jump point being expanded
+     * @param directions    array of at least 16 entries receiving the direction pairs
+     * @return              the number of entries written, two per direction
+     */
+    private int findSuccessors(SearchGrid grid, SearchState state, int id, int[] directions) {
+        int width = grid.getWidth();
+        int x = id % width;
+        int y = id / width;
+        int parent = state.getParent(id);
+        int count = 0;
+
+        if(parent == -1) {
+            int moves = neighbors.getMoves(grid, x, y);
+            for(int direction = 0; moves != 0; direction++, moves >>>= 1) {
+                if((moves & 1) != 0) {
+                    directions[count++] = GridNeighbors.getDx(direction);
+                    directions[count++] = GridNeighbors.getDy(direction);
+                }
+            }
+            return count;
+        }
+
+        int dx = Integer.signum(x - parent % width);
+        int dy = Integer.signum(y - parent / width);
+        if(dx != 0 && dy != 0) {
+            boolean vertical = grid.isTraversable(x, y + dy);
+            boolean horizontal = grid.isTraversable(x + dx, y);
+            if(vertical) {
+                count = addDirection(directions, count, 0, dy);
+            }
+            if(horizontal) {
+                count = addDirection(directions, count, dx, 0);
+            }
+            if(vertical && horizontal && grid.isTraversable(x + dx, y + dy)) {
+                count = addDirection(directions, count, dx, dy);
+            }
+        }
+        else if(dx != 0) {
+            boolean up = grid.isTraversable(x, y - 1);
+            boolean down = grid.isTraversable(x, y + 1);
+            if(grid.isTraversable(x + dx, y)) {
+                count = addDirection(directions, count, dx, 0);
+                if(down && grid.isTraversable(x + dx, y + 1)) {
+                    count = addDirection(directions, count, dx, 1);
+                }
+                if(up && grid.isTraversable(x + dx, y - 1)) {
+                    count = addDirection(directions, count, dx, -1);
+                }
+            }
+            if(down) {
+                count = addDirection(directions, count, 0, 1);
+            }
+            if(up) {
+                count = addDirection(directions, count, 0, -1);
+            }
+        }
+        else {
+            boolean left = grid.isTraversable(x - 1, y);
+            boolean right = grid.isTraversable(x + 1, y);
+            if(grid.isTraversable(x, y + dy)) {
+                count = addDirection(directions, count, 0, dy);
+                if(right && grid.isTraversable(x + 1, y + dy)) {
+                    count = addDirection(directions, count, 1, dy);
+                }
+                if(left && grid.isTraversable(x - 1, y + dy)) {
+                    count = addDirection(directions, count, -1, dy);
+                }
+            }
+            if(right) {
+                count = addDirection(directions, count, 1, 0);
+            }
+            if(left) {
+                count = addDirection(directions, count, -1, 0);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Appends a direction pair to the array.
+     *
+     * @param directions    the array of direction pairs
+     * @param count         the number of entries already written
+     * @param dx            column offset of the direction
+     * @param dy            row offset of the direction
+     * @return              the new number of entries
+     */
+    private static int addDirection(int[] directions, int count, int dx, int dy) {
+        directions[count] = dx;
+        directions[count + 1] = dy;
+        return count + 2;
+    }
+
+    /**
+     * Scans from a cell along a horizontal or vertical direction until a jump
+     * point, the destination or an obstacle is reached.
+     *
+     * @param grid      the search area
+     * @param x         column of the first cell to scan
+     * @param y         row of the first cell to scan
+     * @param dx        column step, 0 when scanning vertically
+     * @param dy        row step, 0 when scanning horizontally
+     * @param destX     column of the destination
+     * @param destY     row of the destination
+     * @return          the id of the jump point found, or -1 if there is none
+     */
+    private int jumpStraight(SearchGrid grid, int x, int y, int dx, int dy, int destX, int destY) {
+        while(true) {
+            if(!grid.isTraversable(x, y)) {
+                return -1;
+            }
+            if(x == destX && y == destY) {
+                return y * grid.getWidth() + x;
+            }
+            // A cell is a jump point when a side neighbor is only reachable
+            // optimally through it, because the cell behind that neighbor is blocked.
+            if(dx != 0) {
+                if((grid.isTraversable(x, y - 1) && !grid.isTraversable(x - dx, y - 1)) ||
+                        (grid.isTraversable(x, y + 1) && !grid.isTraversable(x - dx, y + 1))) {
+                    return y * grid.getWidth() + x;
+                }
+            }
+            else {
+                if((grid.isTraversable(x - 1, y) && !grid.isTraversable(x - 1, y - dy)) ||
+                        (grid.isTraversable(x + 1, y) && !grid.isTraversable(x + 1, y - dy))) {
+                    return y * grid.getWidth() + x;
+                }
+            }
+            x += dx;
+            y += dy;
+        }
+    }
+
+    /**
+     * Scans from a cell along a diagonal direction until a jump point, the
+     * destination or an obstacle is reached. A diagonal cell is a jump point
+     * when one of the straight scans started from it finds a jump point.
+     *
+     * @param grid      the search area
+     * @param x         column of the first cell to scan
+     * @param y         row of the first cell to scan
+     * @param dx        column step
+     * @param dy        row step
+     * @param destX     column of the destination
+     * @param destY     row of the destination
+     * @return          the id of the jump point found, or -1 if there is none
+     */
+    private int jumpDiagonal(SearchGrid grid, int x, int y, int dx, int dy, int destX, int destY) {
+        while(true) {
+            if(!grid.isTraversable(x, y)) {
+                return -1;
+            }
+            if((x == destX && y == destY) ||
+                    jumpStraight(grid, x + dx, y, dx, 0, destX, destY) != -1 ||
+                    jumpStraight(grid, x, y + dy, 0, dy, destX, destY) != -1) {
+                return y * grid.getWidth() + x;
+            }
+            // Moving on diagonally needs both orthogonal cells to be free.
+            if(!grid.isTraversable(x + dx, y) || !grid.isTraversable(x, y + dy)) {
+                return -1;
+            }
+            x += dx;
+            y += dy;
+        }
+    }
+
+    /**
+     * Returns the exact length of the shortest eight-way path between two
+     * cells on an open grid, using the same 10/14 units as distanceBetweenNodes.
+     *
+     * @param ax                column of the first cell
+     * @param ay                row of the first cell
+     * @param bx                column of the second cell
+     * @param by                row of the second cell
+     * @return                  the octile distance between the two cells
+     */
+    protected int getOctileDistance(int ax, int ay, int bx, int by) {
+        return Heuristic.OCTILE.estimate(ax, ay, bx, by);
+    }
+
+    /**
+     * Reconstructs the path through the jump points and fills in the cells
+     * between them.
+     *
+     * @param grid          the search area wrapping the GridNodes
+     * @param state         the values of the finished path search
+     * @param destId        the id of the destination node that ends the path search
+     * @return              Returns a List of GridNodes, which are the path with the start node
+     *                      at the head of the List and the dest node at the tail
+     */
+    @Override
+    protected List<GridNode> reconstructPath(NodeGrid grid, SearchState state, int destId) {
+        int[] ids = reconstructCellPath(grid, state, destId);
+        List<GridNode> path = new ArrayList<GridNode>(ids.length);
+        for(int id : ids) {
+            path.add(grid.getNode(id));
+        }
+        return path;
+    }
+
+    /**
+     * Reconstructs the path through the jump points as cell ids and fills in
+     * the cells between them.
+     *
+     * @param grid          the search area
+     * @param state         the values of the finished path search
+     * @param destId        the id of the destination cell that ends the path search
+     * @return              the cell ids of the path with the start cell first
+     */
+    @Override
+    protected int[] reconstructCellPath(SearchGrid grid, SearchState state, int destId) {
+        return expandJumpPoints(grid.getWidth(), super.reconstructCellPath(grid, state, destId));
+    }
+
+    /**
+     * Fills in the cells between consecutive jump points, which always lie
+     * on a straight horizontal, vertical or diagonal line.
+     *
+     * @param width         number of columns in the grid
+     * @param jumpPoints    ids of the jump points from start to destination
+     * @return              ids of every cell on the path
+     */
+    private static int[] expandJumpPoints(int width, int[] jumpPoints) {
+        int length = 1;
+        for(int i = 1; i < jumpPoints.length; i++) {
+            length += Math.max(Math.abs(jumpPoints[i] % width - jumpPoints[i - 1] % width),
+                    Math.abs(jumpPoints[i] / width - jumpPoints[i - 1] / width));
+        }
+        int[] path = new int[length];
+        int index = 0;
+        path[index++] = jumpPoints[0];
+        for(int i = 1; i < jumpPoints.length; i++) {
+            int from = jumpPoints[i - 1];
+            int to = jumpPoints[i];
+            int step = Integer.signum(to / width - from / width) * width +
+                    Integer.signum(to % width - from % width);
+            for(int id = from + step; id != to; id += step) {
+                path[index++] = id;
+            }
+            path[index++] = to;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,102 @@
+package walker.blue.path.lib.finder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least-recently-used cache of line of sight results between
+ * pairs of cells. Line of sight is symmetric, so a pair is stored once
+ * regardless of its order. The cache is not thread-safe; ThetaStar keeps
+ * one per thread and clears it at the start of every search, since the
+ * results are only valid for the search area they were computed on.
+ */
+public class LineOfSightCache {
+
+    /**
+     * The cached results, in access order.
+     */
+    private final LinkedHashMap<Long, Boolean> results;
+
+    /**
+     * The maximum number of pairs to remember.
+     */
+    private final int capacity;
+
+    /**
+     * Class constructor
+     *
+     * @param capacity the maximum number of pairs to remember
+     */
+    public LineOfSightCache(final int capacity) {
+        this.capacity = capacity;
+        this.results = new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Access method to get the capacity.
+     *
+     * @return the maximum number of pairs remembered
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns the cached result for a pair of cells.
+     *
+     * @param a id of the first cell
+     * @param b id of the second cell
+     * @return the cached result, or null if the pair is not cached
+     */
+    public Boolean get(int a, int b) {
+        return this.results.get(key(a, b));
+    }
+
+    /**
+     * Stores the result for a pair of cells.
+     *
+     * @param a id of the first cell
+     * @param b id of the second cell
+     * @param visible whether the cells are within line of sight
+     */
+    public void put(int a, int b, boolean visible) {
+        this.results.put(key(a, b), visible);
+    }
+
+    /**
+     * Removes every cached result.
+     */
+    public void clear() {
+        this.results.clear();
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return the number of cached pairs
+     */
+    public int size() {
+        return this.results.size();
+    }
+
+    /**
+     * Packs an unordered pair of cell ids into one key.
+     *
+     * @param a id of the first cell
+     * @param b id of the second cell
+     * @return the key of the pair
+     */
+    private static long key(int a, int b) {
+        if(a > b) {
+            int temp = a;
+            a = b;
+            b = temp;
+        }
+        return ((long) a << 32) | (b & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,163 @@
+package walker.blue.path.lib.finder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable limit on the work of one path search: a number of expanded
+ * nodes, a wall time measured from the start of the search, or both. A
+ * search that runs out of budget returns a partial path towards the
+ * destination, ending at the node chosen by the fallback.
+ *
+ * <p>The wall time is checked every 64 expansions, so a search may run
+ * slightly past it.
+ */
+public final class SearchBudget {
+
+    /**
+     * Budget that never runs out.
+     */
+    public static final SearchBudget UNLIMITED = new SearchBudget(Long.MAX_VALUE, 0, null, Fallback.LOWEST_F);
+
+    /**
+     * Enum holding the ways of choosing where a partial path ends.
+     */
+    public enum Fallback {
+
+        /**
+         * The node with the lowest f value, the one the search would have
+         * expanded next.
+         */
+        LOWEST_F,
+
+        /**
+         * The expanded node with the lowest estimated distance to the
+         * destination.
+         */
+        LOWEST_H
+    }
+
+    /**
+     * Number of expansions between two checks of the wall time, minus 1.
+     */
+    private static final long TIME_CHECK_MASK = 63;
+
+    /**
+     * Largest number of nodes the search may expand.
+     */
+    private final long maxExpansions;
+
+    /**
+     * Wall time the search may take in nanoseconds, or 0 for no limit.
+     */
+    private final long timeoutNanos;
+
+    /**
+     * Where a partial path ends.
+     */
+    private final Fallback fallback;
+
+    /**
+     * Class constructor
+     *
+     * @param maxExpansions the largest number of nodes the search may expand,
+     *                      or Long.MAX_VALUE for no limit
+     * @param timeout the wall time the search may take, or 0 for no limit
+     * @param unit the unit of the timeout, which may be null without one
+     * @param fallback where a partial path ends
+     */
+    public SearchBudget(long maxExpansions, long timeout, TimeUnit unit, Fallback fallback) {
+        if(maxExpansions < 0 || timeout < 0) {
+            throw new IllegalArgumentException("Budget must not be negative: "
+                    + maxExpansions + " expansions, " + timeout + " " + unit);
+        }
+        this.maxExpansions = maxExpansions;
+        this.timeoutNanos = timeout == 0 ? 0 : Math.max(1, unit.toNanos(timeout));
+        this.fallback = fallback;
+    }
+
+    /**
+     * Returns a budget limiting the number of expanded nodes, ending
+     * partial paths at the lowest f value.
+     *
+     * @param maxExpansions the largest number of nodes the search may expand
+     * @return the budget
+     */
+    public static SearchBudget expansions(long maxExpansions) {
+        return new SearchBudget(maxExpansions, 0, null, Fallback.LOWEST_F);
+    }
+
+    /**
+     * Returns a budget limiting the wall time of the search, ending
+     * partial paths at the lowest f value.
+     *
+     * @param timeout the wall time the search may take
+     * @param unit the unit of the timeout
+     * @return the budget
+     */
+    public static SearchBudget timeout(long timeout, TimeUnit unit) {
+        return new SearchBudget(Long.MAX_VALUE, timeout, unit, Fallback.LOWEST_F);
+    }
+
+    /**
+     * Returns a budget with the same limits ending partial paths as given.
+     *
+     * @param fallback where a partial path ends
+     * @return the budget
+     */
+    public SearchBudget withFallback(Fallback fallback) {
+        return new SearchBudget(this.maxExpansions, this.timeoutNanos, TimeUnit.NANOSECONDS, fallback);
+    }
+
+    /**
+     * Access method to get the expansion limit.
+     *
+     * @return the largest number of nodes the search may expand
+     */
+    public long getMaxExpansions() {
+        return this.maxExpansions;
+    }
+
+    /**
+     * Access method to get the wall time limit.
+     *
+     * @return the wall time the search may take in nanoseconds, or 0 for no limit
+     */
+    public long getTimeoutNanos() {
+        return this.timeoutNanos;
+    }
+
+    /**
+     * Access method to get the fallback.
+     *
+     * @return where a partial path ends
+     */
+    public Fallback getFallback() {
+        return this.fallback;
+    }
+
+    /**
+     * Checks whether a search may go on to expand another node.
+     *
+     * @param expansions the number of nodes expanded so far, including the next one
+     * @param startNanos System.nanoTime() when the search started
+     * @return true if the budget is spent, false otherwise
+     */
+    public boolean isExhausted(long expansions, long startNanos) {
+        if(expansions > this.maxExpansions) {
+            return true;
+        }
+        return this.timeoutNanos != 0 && (expansions & TIME_CHECK_MASK) == 1
+                && System.nanoTime() - startNanos >= this.timeoutNanos;
+    }
+
+    /**
+     * Returns a formatted String holding the limits of the budget.
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "SearchBudget(maxExpansions=" + this.maxExpansions + ", timeoutNanos=" + this.timeoutNanos
+                + ", fallback=" + this.fallback + ")";
+    }
+}
@@ -0,0 +1,124 @@
+package walker.blue.path.lib.finder;
+
+import walker.blue.path.lib.grid.GridPath;
+
+/**
+ * Immutable outcome of a path search run with a SearchBudget: whether the
+ * destination was reached, the path found and how far its cost may be
+ * from the shortest one.
+ */
+public final class SearchResult {
+
+    /**
+     * Enum holding the ways a search can end.
+     */
+    public enum Status {
+
+        /**
+         * The path reaches the destination.
+         */
+        COMPLETE,
+
+        /**
+         * The budget ran out first. The path leads from the start towards
+         * the destination and ends at the node chosen by the fallback.
+         */
+        PARTIAL,
+
+        /**
+         * The destination cannot be reached. There is no path.
+         */
+        NO_PATH
+    }
+
+    /**
+     * Outcome of every search that proves there is no path.
+     */
+    private static final SearchResult NO_PATH = new SearchResult(Status.NO_PATH, null, Double.POSITIVE_INFINITY);
+
+    /**
+     * How the search ended.
+     */
+    private final Status status;
+
+    /**
+     * The path found, or null if there is none.
+     */
+    private final GridPath path;
+
+    /**
+     * Factor by which the cost of a complete path may exceed the shortest one.
+     */
+    private final double bound;
+
+    /**
+     * Class constructor
+     *
+     * @param status how the search ended
+     * @param path the path found, or null if there is none
+     * @param bound the factor by which the cost of a complete path may exceed
+     *              the shortest one, assuming a heuristic that never overestimates
+     */
+    public SearchResult(Status status, GridPath path, double bound) {
+        this.status = status;
+        this.path = path;
+        this.bound = bound;
+    }
+
+    /**
+     * Returns the outcome of a search that proved there is no path.
+     *
+     * @return the result
+     */
+    public static SearchResult noPath() {
+        return NO_PATH;
+    }
+
+    /**
+     * Access method to get the status.
+     *
+     * @return how the search ended
+     */
+    public Status getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Checks whether the path reaches the destination.
+     *
+     * @return true if the search is complete, false otherwise
+     */
+    public boolean isComplete() {
+        return this.status == Status.COMPLETE;
+    }
+
+    /**
+     * Access method to get the path.
+     *
+     * @return the path found, or null if there is none
+     */
+    public GridPath getPath() {
+        return this.path;
+    }
+
+    /**
+     * Access method to get the suboptimality bound. A complete path costs
+     * at most this many times the shortest path, as long as the heuristic
+     * never overestimates. It is 1 for a path proven shortest.
+     *
+     * @return the bound
+     */
+    public double getBound() {
+        return this.bound;
+    }
+
+    /**
+     * Returns a formatted String holding the status, bound and path.
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return this.status + " (bound " + this.bound + ") " + this.path;
+    }
+}
@@ -1,12 +1,17 @@
 package walker.blue.path.lib.finder;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.lang.Math;
-import java.util.PriorityQueue;
 
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.GridNeighbors;
+import walker.blue.path.lib.grid.Heuristic;
+import walker.blue.path.lib.grid.NodeGrid;
+import walker.blue.path.lib.grid.SearchGrid;
 import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.SearchState;
+import walker.blue.path.lib.util.SearchStatistics;
 
 /**
  * This class expands upon GridAStar by providing a means for generating
@@ -16,110 +21,259 @@ import walker.blue.path.lib.node.GridNode;
  * the previous node's parent. If there is no line of sight, then the
  * current node's parent is set to the previous node, which introduces a
  * turn in the path.
+ *
+ * <p>Line of sight results can be kept in a bounded per-thread cache, and
+ * in lazy mode (Lazy Theta*) a neighbor is optimistically given the node's
+ * parent without any check, deferring the line of sight test until the
+ * neighbor is expanded. That needs one check per expanded node rather
+ * than one per relaxation.
+ *
+ * <p>On grids with weighted cells, a straight segment costs its length
+ * times the average cost of the cells it enters.
  */
 public class ThetaStar extends GridAStar {
 
     /**
-     * Returns a List representing the path between two nodes in a two-dimensional search space.
-     *
-     * @param searchArea a 2D list holding all of the GridNodes that describe the space
-     * @param start      the start node for the path search and must inherit from Node
-     * @param dest       the destination node for the path search and must inherit from Node
-     * @return           the List of nodes in the path starting from the start node and
-     *                   ending with the dest node
+     * Whether line of sight checks are deferred until expansion.
      */
-    public List<GridNode> findPath(List<List<GridNode>> searchArea, GridNode start, GridNode dest) {
-        HashSet<GridNode> closedSet = new HashSet<GridNode>();
-        PriorityQueue<GridNode> openQueue = new PriorityQueue<GridNode>();
+    private boolean lazy;
 
-        start.setParent(null);
-        start.setG(0);
-        openQueue.add(start);
+    /**
+     * Maximum number of line of sight results cached per thread, 0 to disable.
+     */
+    private int lineOfSightCacheSize;
 
-        // Run while the open list is not empty (if it is, then the destination was never found)
-        // and while the open list does not contain the destination node (once it has the
-        // destination node the path has been found).
-        while(!openQueue.isEmpty()) {
+    /**
+     * Line of sight cache of each thread.
+     */
+    private final ThreadLocal<LineOfSightCache> lineOfSightCache =
+            new ThreadLocal<LineOfSightCache>();
 
-            GridNode node = openQueue.remove();
+    /**
+     * Class constructor using eight-way movement with corner cutting.
+     */
+    public ThetaStar() {
+        super();
+    }
 
-            // If the destination node has been reached, then return the reconstructed path.
-            if(node == dest) {
-                return reconstructPath(start, node);
-            }
+    /**
+     * Class constructor
+     *
+     * @param connectivity the moves allowed from each cell
+     */
+    public ThetaStar(Connectivity connectivity) {
+        super(connectivity);
+    }
 
-            closedSet.add(node);
+    /**
+     * Checks whether line of sight checks are deferred until expansion.
+     *
+     * @return true if running as Lazy Theta*, false otherwise
+     */
+    public boolean isLazy() {
+        return this.lazy;
+    }
 
-            // Find neighbors in the 3D array
-            for(int i = -1; i < 2; i++) {
-                for(int j = -1; j < 2; j++) {
-                    if(i != 0 || j != 0) {
-                        try {
-                            GridNode neighbor =
-                                    searchArea.get(node.getLocation().getY() + i).
-                                            get(node.getLocation().getX() + j);
+    /**
+     * Sets whether line of sight checks are deferred until expansion.
+     *
+     * @param lazy true to run as Lazy Theta*
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
 
-                            // If the neighbor can be walked through and has not been visited
-                            // directly, then check to see if the neighbor's values can be updated.
-                            //if(!closedSet.contains(neighbor) && neighbor.walkable()) {
-                            if(!closedSet.contains(neighbor) && neighbor.isTraversable()) {
-                                // If the neighbor has not been added to the priority queue,
-                                // then set its parent node to null and its G value to "infinity".
-                                if(!openQueue.contains(neighbor)) {
-                                    neighbor.setParent(null);
-                                    neighbor.setG(Double.POSITIVE_INFINITY);
-                                    neighbor.setH(getManhattanDistance(neighbor, dest));
-                                }
+    /**
+     * Access method to get the line of sight cache size.
+     *
+     * @return maximum number of cached results per thread, 0 if disabled
+     */
+    public int getLineOfSightCacheSize() {
+        return this.lineOfSightCacheSize;
+    }
+
+    /**
+     * Sets how many line of sight results each thread keeps during a search.
+     *
+     * @param size maximum number of cached results, 0 to disable the cache
+     */
+    public void setLineOfSightCacheSize(int size) {
+        this.lineOfSightCacheSize = size;
+    }
+
+    /**
+     * Clears the line of sight cache of the current thread before running the search.
+     *
+     * @param grid      the search area
+     * @param state     an empty state holding at least width * height cells
+     * @param startId   the id of the start cell
+     * @param destId    the id of the destination cell
+     * @param budget    the limit on the work of the search
+     * @return          destId if the destination was reached, the cell chosen by
+     *                  the fallback of the budget if it was spent first, or -1 if
+     *                  there is no path
+     */
+    @Override
+    protected int search(SearchGrid grid, SearchState state, int startId, int destId, SearchBudget budget) {
+        LineOfSightCache cache = this.lineOfSightCache.get();
+        if(this.lineOfSightCacheSize > 0) {
+            if(cache == null || cache.capacity() != this.lineOfSightCacheSize) {
+                cache = new LineOfSightCache(this.lineOfSightCacheSize);
+                this.lineOfSightCache.set(cache);
+            }
+            cache.clear();
+        }
+        else if(cache != null) {
+            this.lineOfSightCache.remove();
+        }
+        return super.search(grid, state, startId, destId, budget);
+    }
 
-                                double oldG = neighbor.getG();
-                                // Determine which of the two paths are the best option
-                                computeBestPath(searchArea, node, neighbor);
-                                if(neighbor.getG() < oldG) {
-                                    // If the neighbor is in the open queue, then remove it and
-                                    // add it again, so that it can be sorted in the right place,
-                                    // instead of having to sort the whole queue again.
-                                    if(openQueue.contains(neighbor)) {
-                                        openQueue.remove(neighbor);
-                                    }
-                                    openQueue.add(neighbor);
-                                }
-                            }
-                        } // try
-                        catch (IndexOutOfBoundsException e) {}
-                    } // if(i != 0 || j != 0)
-                } // j
-            } // i
+    /**
+     * In lazy mode, checks the line of sight between the node and the parent
+     * it was optimistically given. If it is blocked, the node is instead
+     * attached to the closed neighbor that reaches it most cheaply.
+     *
+     * @param grid          the search area
+     * @param state         the values of the current path search
+     * @param node          the id of the node taken off the open queue
+     */
+    @Override
+    protected void prepareNode(SearchGrid grid, SearchState state, int node) {
+        int parent = state.getParent(node);
+        if(!this.lazy || parent == -1) {
+            return;
+        }
+        if(checkLineOfSight(grid, state, parent, node)) {
+            return;
+        }
+        int[] neighborIds = new int[GridNeighbors.DIRECTIONS];
+        int count = neighbors.getNeighbors(grid, node, neighborIds);
+        double bestG = Double.POSITIVE_INFINITY;
+        int bestParent = parent;
+        for(int k = 0; k < count; k++) {
+            int neighbor = neighborIds[k];
+            if(state.isClosed(neighbor)) {
+                double g = state.getG(neighbor) + moveCost(grid, neighbor, node);
+                if(g < bestG) {
+                    bestG = g;
+                    bestParent = neighbor;
+                }
+            }
         }
-        return null;
+        state.setParent(node, bestParent);
+        state.setG(node, bestG);
     }
 
     /**
      * Determines whether to set a neighbor's parent to the node or to the node's parent.
      *
-     * @param searchArea    a 2D list holding all of the GridNodes that describe the space
-     * @param node          the current node being visited in the path search
-     * @param neighbor      a neighbor of node
+     * @param grid          the search area
+     * @param state         the values of the current path search
+     * @param node          the id of the current node being visited in the path search
+     * @param neighbor      the id of a neighbor of node
      */
-    protected void computeBestPath(List<List<GridNode>> searchArea,
-                                   GridNode node,
-                                   GridNode neighbor) {
-        if(node.getParent() != null && lineOfSight(searchArea, (GridNode)node.getParent(), neighbor)) {
-            int parentNeighborDistance = distanceBetweenNodes((GridNode)node.getParent(), neighbor);
+    @Override
+    protected void computeBestPath(SearchGrid grid, SearchState state, int node, int neighbor) {
+        int parent = state.getParent(node);
+        boolean throughParent = parent != -1 && (this.lazy || checkLineOfSight(grid, state, parent, neighbor));
+        if(throughParent) {
+            int parentNeighborDistance = moveCost(grid, parent, neighbor);
 
-            if(node.getParent().getG() + parentNeighborDistance < neighbor.getG()) {
-                neighbor.setParent(node.getParent());
-                neighbor.setG(node.getParent().getG() + parentNeighborDistance);
+            if(state.getG(parent) + parentNeighborDistance < state.getG(neighbor)) {
+                state.setParent(neighbor, parent);
+                state.setG(neighbor, state.getG(parent) + parentNeighborDistance);
             }
         }
-        else {
-            int nodeNeighborDistance = distanceBetweenNodes(node, neighbor);
-            if(node.getG() + nodeNeighborDistance < neighbor.getG()) {
-                neighbor.setParent(node);
-                neighbor.setG(node.getG() + nodeNeighborDistance);
+        // With weighted cells a straight segment from the parent can cost
+        // more than the move through the node, so both are tried.
+        if(!throughParent || !grid.hasUniformCost()) {
+            int nodeNeighborDistance = moveCost(grid, node, neighbor);
+            if(state.getG(node) + nodeNeighborDistance < state.getG(neighbor)) {
+                state.setParent(neighbor, node);
+                state.setG(neighbor, state.getG(node) + nodeNeighborDistance);
             }
         }
     }
 
+    /**
+     * Returns the cost of a straight segment between two cells: its length
+     * times the average cost of the cells it enters, which are the cells
+     * the line of sight check walks through other than the start. Between
+     * neighboring cells this is the same as for GridAStar.
+     *
+     * @param grid          the search area
+     * @param from          id of the cell the segment starts from
+     * @param to            id of the cell the segment ends in
+     * @return              the cost of the segment
+     */
+    @Override
+    protected int moveCost(SearchGrid grid, int from, int to) {
+        int width = grid.getWidth();
+        int x = from % width;
+        int y = from / width;
+        int toX = to % width;
+        int toY = to / width;
+        int dx = Math.abs(toX - x);
+        int dy = Math.abs(toY - y);
+        if(grid.hasUniformCost() || Math.max(dx, dy) <= 1) {
+            return super.moveCost(grid, from, to);
+        }
+        long total = walkLine(grid, x, y, toX, toY, true);
+        if(dy > dx) {
+            // A line leaning towards the columns is walked one row at a time, counting both ends.
+            total -= grid.getCost(x, y);
+        }
+        else if(x < toX) {
+            // A line leaning towards the rows is walked one column at a time,
+            // not counting the cell with the larger column.
+            total += grid.getCost(toX, toY) - grid.getCost(x, y);
+        }
+        return (int) (distanceBetweenNodes(x, y, toX, toY) * total / Math.max(dx, dy));
+    }
+
+    /**
+     * Checks the line of sight between two cells, counting the check if
+     * statistics are being recorded.
+     *
+     * @param grid          the search area
+     * @param state         the values of the current path search
+     * @param a             id of the first cell
+     * @param b             id of the second cell
+     * @return              true if the two cells are in line of sight of one another
+     */
+    private boolean checkLineOfSight(SearchGrid grid, SearchState state, int a, int b) {
+        SearchStatistics statistics = state.getStatistics();
+        if(statistics != null) {
+            statistics.recordLineOfSightCheck();
+        }
+        return checkLineOfSight(grid, a, b);
+    }
+
+    /**
+     * Returns true if the two cells are within line of sight of one another,
+     * using the line of sight cache of the current thread when it is enabled.
+     *
+     * @param grid          the search area
+     * @param a             id of the first cell
+     * @param b             id of the second cell
+     * @return              Returns a boolean for whether or not the two cells are in line of sight
+     *                      of one another.
+     */
+    protected boolean checkLineOfSight(SearchGrid grid, int a, int b) {
+        int width = grid.getWidth();
+        LineOfSightCache cache = this.lineOfSightCacheSize > 0 ? this.lineOfSightCache.get() : null;
+        if(cache == null) {
+            return lineOfSight(grid, a % width, a / width, b % width, b / width);
+        }
+        Boolean cached = cache.get(a, b);
+        if(cached == null) {
+            cached = lineOfSight(grid, a % width, a / width, b % width, b / width);
+            cache.put(a, b, cached);
+        }
+        return cached;
+    }
+
     /**
      * Returns true if the two nodes are within line of sight of one another, false otherwise.
      *
@@ -131,11 +285,43 @@ public class ThetaStar extends GridAStar {
      *                      of one another.
      */
     private boolean lineOfSight(List<List<GridNode>> searchArea, GridNode a, GridNode b) {
-        int xA = a.getLocation().getX();
-        int yA = a.getLocation().getY();
-        int xB = b.getLocation().getX();
-        int yB = b.getLocation().getY();
+        return lineOfSight(new NodeGrid(searchArea),
+                a.getLocation().getX(), a.getLocation().getY(),
+                b.getLocation().getX(), b.getLocation().getY());
+    }
+
+    /**
+     * Returns true if the two cells are within line of sight of one another, false otherwise.
+     *
+     * @param grid          the search area
+     * @param xA            column of the first cell
+     * @param yA            row of the first cell
+     * @param xB            column of the second cell
+     * @param yB            row of the second cell
+     *
+     * @return              Returns a boolean for whether or not the two cells are in line of sight
+     *                      of one another.
+     */
+    protected boolean lineOfSight(SearchGrid grid, int xA, int yA, int xB, int yB) {
+        return walkLine(grid, xA, yA, xB, yB, false) >= 0;
+    }
 
+    /**
+     * Walks the cells of the line between two cells, either checking that
+     * they are traversable or adding up their costs, so that the cost of a
+     * segment is taken from the cells its line of sight check saw.
+     *
+     * @param grid          the search area
+     * @param xA            column of the first cell
+     * @param yA            row of the first cell
+     * @param xB            column of the second cell
+     * @param yB            row of the second cell
+     * @param addCosts      whether to add up the costs instead of checking traversability
+     * @return              the total cost of the cells, 0 when only checking, or -1 if
+     *                      a cell is not traversable
+     */
+    private static long walkLine(SearchGrid grid, int xA, int yA, int xB, int yB, boolean addCosts) {
+        long total = 0;
         int rise = yB - yA;
         int run = xB - xA;
 
@@ -146,8 +332,11 @@ public class ThetaStar extends GridAStar {
                 yA = temp;
             }
             for(int y = yA; y < yB + 1; y++) {
-                if(!searchArea.get(y).get(xA).isTraversable()) {
-                    return false;
+                if(addCosts) {
+                    total += grid.getCost(xA, y);
+                }
+                else if(!grid.isTraversable(xA, y)) {
+                    return -1;
                 }
             }
         }
@@ -171,15 +360,24 @@ public class ThetaStar extends GridAStar {
                     xA = temp;
                     y = yB;
                 }
-                for(int x = xA; x < xB; x++) {
-                    if(!searchArea.get(y).get(x).isTraversable()) {
-                        return false;
+                // Walk the line one horizontal run of cells at a time, so that each
+                // run is checked with a single row test instead of cell by cell.
+                int x = xA;
+                while(x < xB) {
+                    int length = delta == 0 ? xB - x : (threshold - offset + delta - 1) / delta;
+                    int last = Math.min(x + length, xB) - 1;
+                    if(addCosts) {
+                        for(int cell = x; cell <= last; cell++) {
+                            total += grid.getCost(cell, y);
+                        }
                     }
-                    offset += delta;
-                    if(offset >= threshold) {
-                        y += adjust;
-                        threshold += thresholdInc;
+                    else if(!grid.isRowTraversable(y, x, last)) {
+                        return -1;
                     }
+                    x += length;
+                    offset += length * delta;
+                    y += adjust;
+                    threshold += thresholdInc;
                 }
             }
             else {
@@ -194,8 +392,11 @@ public class ThetaStar extends GridAStar {
                     x = xB;
                 }
                 for(int y = yA; y < yB + 1; y++) {
-                    if(!searchArea.get(y).get(x).isTraversable()) {
-                        return false;
+                    if(addCosts) {
+                        total += grid.getCost(x, y);
+                    }
+                    else if(!grid.isTraversable(x, y)) {
+                        return -1;
                     }
                     offset += delta;
                     if(offset >= threshold) {
@@ -205,20 +406,23 @@ public class ThetaStar extends GridAStar {
                 }
             }
         }
-        return true;
+        return total;
     }
 
     /**
-     * Returns the approximate distance between two nodes in the search area.
+     * Returns the straight-line distance between two cells in the search
+     * area, so 10 between orthogonal neighbors and 14 between diagonal ones.
      *
-     * @param a                 first node
-     * @param b                 second node
-     * @return                  an int representing the approximate distance between the two nodes
+     * @param ax                column of the first cell
+     * @param ay                row of the first cell
+     * @param bx                column of the second cell
+     * @param by                row of the second cell
+     * @return                  ten times the Euclidean distance between the two cells, rounded down
      */
     @Override
-    protected int distanceBetweenNodes(GridNode a, GridNode b) {
-        int xDelta = b.getLocation().getX() - a.getLocation().getX();
-        int yDelta = b.getLocation().getY() - a.getLocation().getY();
+    protected int distanceBetweenNodes(int ax, int ay, int bx, int by) {
+        int xDelta = bx - ax;
+        int yDelta = by - ay;
         // Calculate absolute value because distance is always positive.
         if(xDelta < 0) {
             xDelta = -xDelta;
@@ -226,7 +430,19 @@ public class ThetaStar extends GridAStar {
         if(yDelta < 0) {
             yDelta = -yDelta;
         }
-        return (int) (10 * Math.sqrt(xDelta + yDelta));
+        return (int) (10 * Math.sqrt(xDelta * xDelta + yDelta * yDelta));
+    }
+
+    /**
+     * Straight segments may be shorter than any eight-way path, so only
+     * the Euclidean and Chebyshev distances never overestimate them.
+     *
+     * @return true if the heuristic never overestimates
+     */
+    @Override
+    protected boolean isAdmissible() {
+        Heuristic heuristic = getHeuristic();
+        return heuristic == Heuristic.EUCLIDEAN || heuristic == Heuristic.CHEBYSHEV;
     }
 
     /**
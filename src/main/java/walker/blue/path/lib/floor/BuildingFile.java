@@ -0,0 +1,462 @@
+package walker.blue.path.lib.floor;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.MappedGridMap;
+
+/**
+ * Binary file holding the floors and floor connectors of a building,
+ * which is memory-mapped when opened. The traversability of each floor is
+ * stored with the same bit layout as a GridMap and handed out as a
+ * MappedGridMap over the mapped file, so opening a building reads only
+ * its header and connector table, and the floors are paged in by the
+ * operating system as they are searched. Each floor is mapped on its own,
+ * which lets a file grow past the 2 GB limit of a single mapping.
+ *
+ * <p>All values are little-endian. The file is laid out as:
+ * <pre>
+ * header     magic, format version, floor count, connector count (ints),
+ *            offset of the first floor's bits (long)
+ * floors     per floor: width, height, floor number, flags (ints),
+ *            offset of its bits (long)
+ * connectors per connector: x, y, z, type ordinal, traversable (0 or 1),
+ *            connection count, indices of the connections (ints)
+ * bits       per floor: (width * height + 63) / 64 longs, followed when
+ *            the COSTS flag is set by width * height cost bytes, 8-byte
+ *            aligned
+ * </pre>
+ */
+public class BuildingFile {
+
+    /**
+     * First int of every building file.
+     */
+    public static final int MAGIC = 0x46425742;
+
+    /**
+     * Version of the file format written by this class.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Floor flag set when the bits of the floor are followed by its cell costs.
+     */
+    public static final int FLAG_COSTS = 1;
+
+    /**
+     * Size in bytes of the fixed header.
+     */
+    private static final int HEADER_BYTES = 24;
+
+    /**
+     * Size in bytes of the entry of one floor.
+     */
+    private static final int FLOOR_BYTES = 24;
+
+    /**
+     * Size in bytes of the fixed part of the entry of one connector.
+     */
+    private static final int CONNECTOR_BYTES = 24;
+
+    /**
+     * Size of the buffer the floor bits are written through.
+     */
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    /**
+     * The floors, over the mapped file.
+     */
+    private final List<MappedGridMap> floors;
+
+    /**
+     * Column of each connector.
+     */
+    private final int[] connectorX;
+
+    /**
+     * Row of each connector.
+     */
+    private final int[] connectorY;
+
+    /**
+     * Floor number of each connector.
+     */
+    private final int[] connectorZ;
+
+    /**
+     * Type of each connector.
+     */
+    private final FloorConnector.Type[] connectorTypes;
+
+    /**
+     * Traversability of each connector.
+     */
+    private final boolean[] connectorTraversable;
+
+    /**
+     * Indices of the connectors each connector is connected to.
+     */
+    private final int[][] connections;
+
+    /**
+     * Class constructor
+     *
+     * @param floors the floors, over the mapped file
+     * @param connectorX the column of each connector
+     * @param connectorY the row of each connector
+     * @param connectorZ the floor number of each connector
+     * @param connectorTypes the type of each connector
+     * @param connectorTraversable the traversability of each connector
+     * @param connections the indices of the connectors each connector is connected to
+     */
+    private BuildingFile(List<MappedGridMap> floors,
+                         int[] connectorX,
+                         int[] connectorY,
+                         int[] connectorZ,
+                         FloorConnector.Type[] connectorTypes,
+                         boolean[] connectorTraversable,
+                         int[][] connections) {
+        this.floors = Collections.unmodifiableList(floors);
+        this.connectorX = connectorX;
+        this.connectorY = connectorY;
+        this.connectorZ = connectorZ;
+        this.connectorTypes = connectorTypes;
+        this.connectorTraversable = connectorTraversable;
+        this.connections = connections;
+    }
+
+    /**
+     * Writes a building to a file, replacing the file if it exists.
+     *
+     * @param file the file to write
+     * @param floors the floors of the building
+     * @param connectors the floor connectors of the building, each at the position
+     *                   given by its index
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, List<GridMap> floors, List<FloorConnector> connectors)
+            throws IOException {
+        long tableBytes = HEADER_BYTES + (long) FLOOR_BYTES * floors.size();
+        for(int i = 0; i < connectors.size(); i++) {
+            FloorConnector connector = connectors.get(i);
+            if(connector.getIndex() != i) {
+                throw new IllegalArgumentException("Connector at position " + i
+                        + " has index " + connector.getIndex());
+            }
+            tableBytes += CONNECTOR_BYTES + 4L * connector.getConnections().size();
+        }
+        long dataOffset = align(tableBytes);
+        if(dataOffset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Connector table too large: " + tableBytes + " bytes");
+        }
+
+        ByteBuffer table = ByteBuffer.allocate((int) dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+        table.putInt(MAGIC);
+        table.putInt(FORMAT_VERSION);
+        table.putInt(floors.size());
+        table.putInt(connectors.size());
+        table.putLong(dataOffset);
+        long offset = dataOffset;
+        for(GridMap floor : floors) {
+            table.putInt(floor.getWidth());
+            table.putInt(floor.getHeight());
+            table.putInt(floor.getFloor());
+            table.putInt(floor.hasUniformCost() ? 0 : FLAG_COSTS);
+            table.putLong(offset);
+            offset += 8L * floor.getBits().length;
+            if(!floor.hasUniformCost()) {
+                offset += align(floor.getCosts().length);
+            }
+        }
+        for(FloorConnector connector : connectors) {
+            table.putInt(connector.getLocation().getX());
+            table.putInt(connector.getLocation().getY());
+            table.putInt(connector.getLocation().getZ());
+            table.putInt(connector.getType().ordinal());
+            table.putInt(connector.isTraversable() ? 1 : 0);
+            table.putInt(connector.getConnections().size());
+            for(FloorConnector connection : connector.getConnections()) {
+                table.putInt(connection.getIndex());
+            }
+        }
+        table.position(0);
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            writeFully(channel, table);
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            LongBuffer words = buffer.asLongBuffer();
+            for(GridMap floor : floors) {
+                long[] bits = floor.getBits();
+                for(int i = 0; i < bits.length; i += words.capacity()) {
+                    int count = Math.min(words.capacity(), bits.length - i);
+                    words.clear();
+                    words.put(bits, i, count);
+                    buffer.clear();
+                    buffer.limit(8 * count);
+                    writeFully(channel, buffer);
+                }
+                byte[] costs = floor.getCosts();
+                if(costs != null) {
+                    writeFully(channel, ByteBuffer.wrap(costs));
+                    writeFully(channel, ByteBuffer.allocate((int) (align(costs.length) - costs.length)));
+                }
+            }
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Opens a building file, mapping the bits of every floor into memory.
+     * The file can be closed, moved or deleted afterwards without
+     * affecting the returned building, but must not be rewritten while it
+     * is in use.
+     *
+     * @param file the file to open
+     * @return the building held by the file
+     * @throws IOException if the file cannot be read or is not a building file
+     */
+    public static BuildingFile open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if(size < HEADER_BYTES) {
+                throw new IOException("Not a building file: " + file);
+            }
+            ByteBuffer header = map(channel, 0, HEADER_BYTES);
+            if(header.getInt() != MAGIC) {
+                throw new IOException("Not a building file: " + file);
+            }
+            int version = header.getInt();
+            if(version != FORMAT_VERSION) {
+                throw new IOException("Unsupported building file version " + version + ": " + file);
+            }
+            int floorCount = header.getInt();
+            int connectorCount = header.getInt();
+            long dataOffset = header.getLong();
+            if(floorCount < 0 || connectorCount < 0 || dataOffset < HEADER_BYTES
+                    || dataOffset > size || dataOffset > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt building file header: " + file);
+            }
+
+            ByteBuffer table = map(channel, HEADER_BYTES, dataOffset - HEADER_BYTES);
+            List<MappedGridMap> floors = new ArrayList<MappedGridMap>(floorCount);
+            for(int i = 0; i < floorCount; i++) {
+                int width = table.getInt();
+                int height = table.getInt();
+                int floor = table.getInt();
+                int flags = table.getInt();
+                long offset = table.getLong();
+                long bytes = 8 * (((long) width * height + 63) >>> 6);
+                long costBytes = (flags & FLAG_COSTS) != 0 ? (long) width * height : 0;
+                if(width < 0 || height < 0 || offset < dataOffset
+                        || offset + bytes + costBytes > size) {
+                    throw new IOException("Corrupt entry for floor " + i + ": " + file);
+                }
+                ByteBuffer costs = costBytes == 0 ? null : map(channel, offset + bytes, costBytes);
+                floors.add(new MappedGridMap(width, height, floor,
+                        map(channel, offset, bytes).asLongBuffer(), costs));
+            }
+
+            int[] connectorX = new int[connectorCount];
+            int[] connectorY = new int[connectorCount];
+            int[] connectorZ = new int[connectorCount];
+            FloorConnector.Type[] connectorTypes = new FloorConnector.Type[connectorCount];
+            boolean[] connectorTraversable = new boolean[connectorCount];
+            int[][] connections = new int[connectorCount][];
+            FloorConnector.Type[] types = FloorConnector.Type.values();
+            for(int i = 0; i < connectorCount; i++) {
+                connectorX[i] = table.getInt();
+                connectorY[i] = table.getInt();
+                connectorZ[i] = table.getInt();
+                int type = table.getInt();
+                connectorTraversable[i] = table.getInt() != 0;
+                int count = table.getInt();
+                if(type < 0 || type >= types.length || count < 0 || count > connectorCount) {
+                    throw new IOException("Corrupt entry for connector " + i + ": " + file);
+                }
+                connectorTypes[i] = types[type];
+                connections[i] = new int[count];
+                for(int k = 0; k < count; k++) {
+                    connections[i][k] = table.getInt();
+                    if(connections[i][k] < 0 || connections[i][k] >= connectorCount) {
+                        throw new IOException("Corrupt entry for connector " + i + ": " + file);
+                    }
+                }
+            }
+            return new BuildingFile(floors, connectorX, connectorY, connectorZ,
+                    connectorTypes, connectorTraversable, connections);
+        }
+        catch(BufferUnderflowException e) {
+            throw new IOException("Truncated building file: " + file, e);
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the number of floors.
+     *
+     * @return the floor count
+     */
+    public int getFloorCount() {
+        return this.floors.size();
+    }
+
+    /**
+     * Returns a floor by its position in the file.
+     *
+     * @param index the position of the floor
+     * @return the floor, over the mapped file
+     */
+    public MappedGridMap getFloor(int index) {
+        return this.floors.get(index);
+    }
+
+    /**
+     * Access method to get the floors.
+     *
+     * @return unmodifiable list of the floors, over the mapped file
+     */
+    public List<MappedGridMap> getFloors() {
+        return this.floors;
+    }
+
+    /**
+     * Returns the number of floor connectors.
+     *
+     * @return the connector count
+     */
+    public int getConnectorCount() {
+        return this.connectorX.length;
+    }
+
+    /**
+     * Returns the column of a floor connector.
+     *
+     * @param index the index of the connector
+     * @return the x coordinate of the connector
+     */
+    public int getConnectorX(int index) {
+        return this.connectorX[index];
+    }
+
+    /**
+     * Returns the row of a floor connector.
+     *
+     * @param index the index of the connector
+     * @return the y coordinate of the connector
+     */
+    public int getConnectorY(int index) {
+        return this.connectorY[index];
+    }
+
+    /**
+     * Returns the floor number of a floor connector.
+     *
+     * @param index the index of the connector
+     * @return the z coordinate of the connector
+     */
+    public int getConnectorZ(int index) {
+        return this.connectorZ[index];
+    }
+
+    /**
+     * Returns the type of a floor connector.
+     *
+     * @param index the index of the connector
+     * @return the type of the connector
+     */
+    public FloorConnector.Type getConnectorType(int index) {
+        return this.connectorTypes[index];
+    }
+
+    /**
+     * Returns the connectors a floor connector is connected to.
+     *
+     * @param index the index of the connector
+     * @return a copy of the indices of the connected connectors
+     */
+    public int[] getConnections(int index) {
+        return this.connections[index].clone();
+    }
+
+    /**
+     * Creates the FloorConnectors of the building, with their indices set
+     * and their connections linked. Only the connectors are created; the
+     * floors are not turned into GridNodes.
+     *
+     * @return the connectors, each at the position given by its index
+     */
+    public List<FloorConnector> createFloorConnectors() {
+        int count = getConnectorCount();
+        List<FloorConnector> connectors = new ArrayList<FloorConnector>(count);
+        for(int i = 0; i < count; i++) {
+            FloorConnector connector = new FloorConnector(this.connectorX[i], this.connectorY[i],
+                    this.connectorZ[i], this.connectorTraversable[i],
+                    new ArrayList<FloorConnector>(this.connections[i].length),
+                    this.connectorTypes[i]);
+            connector.setIndex(i);
+            connectors.add(connector);
+        }
+        for(int i = 0; i < count; i++) {
+            for(int connection : this.connections[i]) {
+                connectors.get(i).addConnection(connectors.get(connection));
+            }
+        }
+        return connectors;
+    }
+
+    /**
+     * Maps a read-only region of a file as little-endian.
+     *
+     * @param channel the channel of the file
+     * @param offset the position of the region
+     * @param size the size of the region in bytes
+     * @return the mapped region
+     * @throws IOException if the region cannot be mapped
+     */
+    private static ByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer to a channel.
+     *
+     * @param channel the channel to write to
+     * @param buffer the bytes to write
+     * @throws IOException if the channel cannot be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Rounds a size up to a multiple of eight bytes.
+     *
+     * @param bytes the size
+     * @return the smallest multiple of eight not less than bytes
+     */
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,416 @@
+package walker.blue.path.lib.floor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.finder.GridDijkstra;
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.DistanceField;
+import walker.blue.path.lib.grid.Heuristic;
+import walker.blue.path.lib.node.GridNode;
+
+/**
+ * Precomputed distances between every pair of floor connectors on the same
+ * floor of a building, with the same moves and costs as FloorSequencer
+ * (10 for an orthogonal move, 14 for a diagonal one). Each floor is
+ * flooded once from each of its connectors. The paths between the
+ * connectors can be kept as well, compressed to the cells where the path
+ * turns.
+ *
+ * <p>Connectors are assigned to the floor of their location and addressed
+ * by FloorConnector.getIndex(), which must be their position in the
+ * connector list. When the cells of a floor change, the floor has to be
+ * invalidated; invalid floors are rebuilt by the next call to update,
+ * which must not run concurrently with queries. Floors are independent,
+ * so they can be built concurrently on an executor.
+ */
+public class ConnectorTable {
+
+    /**
+     * Marks a pair of connectors with no path between them.
+     */
+    public static final int UNREACHABLE = -1;
+
+    /**
+     * The search area of each floor.
+     */
+    private final List<FloorGrid> floors;
+
+    /**
+     * The connectors of the building.
+     */
+    private final List<FloorConnector> connectors;
+
+    /**
+     * Whether the paths between connectors are kept.
+     */
+    private final boolean storePaths;
+
+    /**
+     * Floods each floor from its connectors.
+     */
+    private final GridDijkstra dijkstra;
+
+    /**
+     * Finds the paths between connectors when they are not kept.
+     */
+    private final GridAStar aStar;
+
+    /**
+     * Indices of the connectors on each floor.
+     */
+    private final int[][] floorConnectors;
+
+    /**
+     * Position of each connector in the list of its floor.
+     */
+    private final int[] slots;
+
+    /**
+     * Distances between the connectors of each floor, row by row.
+     */
+    private final int[][] distances;
+
+    /**
+     * Compressed paths between the connectors of each floor, row by row,
+     * or null when paths are not kept.
+     */
+    private final int[][][] paths;
+
+    /**
+     * Whether the distances of each floor are up to date.
+     */
+    private final boolean[] valid;
+
+    /**
+     * Class constructor. Every floor is built right away on the calling thread.
+     *
+     * @param searchArea the 2D search area of each floor, the 0th being the bottom floor
+     * @param connectors the connectors of the building
+     * @param connectivity the moves allowed on each floor
+     * @param storePaths whether to keep the paths between connectors
+     */
+    public ConnectorTable(List<List<List<GridNode>>> searchArea, List<FloorConnector> connectors,
+                          Connectivity connectivity, boolean storePaths) {
+        this(searchArea, connectors, connectivity, storePaths, null);
+    }
+
+    /**
+     * Class constructor. Every floor is built right away, one task per
+     * floor on the given executor.
+     *
+     * @param searchArea the 2D search area of each floor, the 0th being the bottom floor
+     * @param connectors the connectors of the building
+     * @param connectivity the moves allowed on each floor
+     * @param storePaths whether to keep the paths between connectors
+     * @param executor the executor building the floors, or null to build them on the calling thread
+     */
+    public ConnectorTable(List<List<List<GridNode>>> searchArea, List<FloorConnector> connectors,
+                          Connectivity connectivity, boolean storePaths, ExecutorService executor) {
+        int floorCount = searchArea.size();
+        this.floors = new ArrayList<FloorGrid>(floorCount);
+        for(List<List<GridNode>> floor : searchArea) {
+            this.floors.add(new FloorGrid(floor));
+        }
+        this.connectors = connectors;
+        this.storePaths = storePaths;
+        this.dijkstra = new GridDijkstra(connectivity);
+        // Paths are looked up with a heuristic that never overestimates, so
+        // they have the lengths stored in the table.
+        this.aStar = new GridAStar(connectivity);
+        this.aStar.setHeuristic(connectivity == Connectivity.FOUR ? Heuristic.MANHATTAN : Heuristic.OCTILE);
+
+        int[] counts = new int[floorCount];
+        this.slots = new int[connectors.size()];
+        for(int i = 0; i < connectors.size(); i++) {
+            int floor = connectors.get(i).getLocation().getZ();
+            this.slots[i] = counts[floor]++;
+        }
+        this.floorConnectors = new int[floorCount][];
+        for(int floor = 0; floor < floorCount; floor++) {
+            this.floorConnectors[floor] = new int[counts[floor]];
+        }
+        for(int i = 0; i < connectors.size(); i++) {
+            this.floorConnectors[connectors.get(i).getLocation().getZ()][this.slots[i]] = i;
+        }
+        this.distances = new int[floorCount][];
+        this.paths = storePaths ? new int[floorCount][][] : null;
+        this.valid = new boolean[floorCount];
+        update(executor);
+    }
+
+    /**
+     * Returns the number of floors.
+     *
+     * @return the floor count
+     */
+    public int getFloorCount() {
+        return this.floors.size();
+    }
+
+    /**
+     * Returns the connectors on a floor.
+     *
+     * @param floor the floor number
+     * @return the indices of the connectors on the floor
+     */
+    public int[] getConnectors(int floor) {
+        return this.floorConnectors[floor];
+    }
+
+    /**
+     * Checks whether paths between connectors are kept.
+     *
+     * @return true if paths are kept, false otherwise
+     */
+    public boolean isStoringPaths() {
+        return this.storePaths;
+    }
+
+    /**
+     * Marks the distances of a floor as out of date, after cells of the
+     * floor changed.
+     *
+     * @param floor the floor number
+     */
+    public void invalidateFloor(int floor) {
+        this.valid[floor] = false;
+    }
+
+    /**
+     * Checks whether the distances of a floor are up to date.
+     *
+     * @param floor the floor number
+     * @return true if the floor is up to date, false otherwise
+     */
+    public boolean isValid(int floor) {
+        return this.valid[floor];
+    }
+
+    /**
+     * Checks whether some floor was invalidated since the last update.
+     *
+     * @return true if a floor needs rebuilding, false otherwise
+     */
+    public boolean needsUpdate() {
+        for(boolean floorValid : this.valid) {
+            if(!floorValid) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rebuilds every floor that was invalidated.
+     */
+    public void update() {
+        update(null);
+    }
+
+    /**
+     * Rebuilds every floor that was invalidated, one task per floor on the
+     * given executor, and waits for all of them.
+     *
+     * @param executor the executor building the floors, or null to build them on the calling thread
+     */
+    public void update(ExecutorService executor) {
+        List<Future<?>> builds = new ArrayList<Future<?>>();
+        for(int floor = 0; floor < this.floors.size(); floor++) {
+            if(this.valid[floor]) {
+                continue;
+            }
+            if(executor == null) {
+                buildFloor(floor);
+                continue;
+            }
+            final int stale = floor;
+            builds.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    buildFloor(stale);
+                    return null;
+                }
+            }));
+        }
+        for(Future<?> build : builds) {
+            await(build);
+        }
+    }
+
+    /**
+     * Returns the distance between two connectors on the same floor.
+     *
+     * @param from the index of the first connector
+     * @param to the index of the second connector
+     * @return the length of the path between them, or UNREACHABLE
+     */
+    public int getDistance(int from, int to) {
+        int floor = this.connectors.get(from).getLocation().getZ();
+        return this.distances[floor][this.slots[from] * this.floorConnectors[floor].length + this.slots[to]];
+    }
+
+    /**
+     * Returns the path between two connectors on the same floor, taken
+     * from the table when paths are kept and searched for otherwise.
+     *
+     * @param from the index of the first connector
+     * @param to the index of the second connector
+     * @return the cell ids within the floor from the first connector to
+     *         the second, or null if there is no path
+     */
+    public int[] getPath(int from, int to) {
+        int floor = this.connectors.get(from).getLocation().getZ();
+        FloorGrid grid = this.floors.get(floor);
+        if(this.storePaths) {
+            int[] turns = this.paths[floor][this.slots[from] * this.floorConnectors[floor].length
+                    + this.slots[to]];
+            return turns == null ? null : expand(turns, grid.getWidth());
+        }
+        return this.aStar.findPath(grid, getCell(grid, from), getCell(grid, to));
+    }
+
+    /**
+     * Waits for a task and returns its result, rethrowing what it threw.
+     *
+     * @param future the pending result of the task
+     * @param <V> the type of the result
+     * @return the result of the task
+     */
+    static <V> V await(Future<V> future) {
+        try {
+            return future.get();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a floor task", e);
+        }
+        catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Floods a floor from each of its connectors and fills its part of the table.
+     *
+     * @param floor the floor number
+     */
+    private void buildFloor(int floor) {
+        FloorGrid grid = this.floors.get(floor);
+        int[] indices = this.floorConnectors[floor];
+        int count = indices.length;
+        int[] floorDistances = new int[count * count];
+        int[][] floorPaths = this.storePaths ? new int[count * count][] : null;
+        for(int a = 0; a < count; a++) {
+            DistanceField field = this.dijkstra.computeDistanceField(grid, getCell(grid, indices[a]));
+            for(int b = 0; b < count; b++) {
+                int cell = getCell(grid, indices[b]);
+                if(!field.isReachable(cell)) {
+                    floorDistances[a * count + b] = UNREACHABLE;
+                    continue;
+                }
+                floorDistances[a * count + b] = (int) field.getDistance(cell);
+                if(floorPaths != null) {
+                    floorPaths[a * count + b] = compress(field.getPath(cell), grid.getWidth());
+                }
+            }
+        }
+        this.distances[floor] = floorDistances;
+        if(this.paths != null) {
+            this.paths[floor] = floorPaths;
+        }
+        this.valid[floor] = true;
+    }
+
+    /**
+     * Returns the cell of a connector within its floor.
+     *
+     * @param grid the search area of the floor
+     * @param connector the index of the connector
+     * @return the cell id
+     */
+    private int getCell(FloorGrid grid, int connector) {
+        GridNode node = this.connectors.get(connector);
+        return node.getLocation().getY() * grid.getWidth() + node.getLocation().getX();
+    }
+
+    /**
+     * Keeps the first and last cells of a path and every cell where it
+     * turns. Moves are compared by their column and row offsets, since on
+     * narrow floors different moves can change the cell id by the same amount.
+     *
+     * @param path the cell ids of the path
+     * @param width the number of columns in the floor
+     * @return the cell ids of the turning points
+     */
+    static int[] compress(int[] path, int width) {
+        int[] turns = new int[path.length];
+        int count = 0;
+        turns[count++] = path[0];
+        for(int k = 1; k < path.length - 1; k++) {
+            int dx = path[k] % width - path[k - 1] % width;
+            int dy = path[k] / width - path[k - 1] / width;
+            int nextDx = path[k + 1] % width - path[k] % width;
+            int nextDy = path[k + 1] / width - path[k] / width;
+            if(dx != nextDx || dy != nextDy) {
+                turns[count++] = path[k];
+            }
+        }
+        if(path.length > 1) {
+            turns[count++] = path[path.length - 1];
+        }
+        return Arrays.copyOf(turns, count);
+    }
+
+    /**
+     * Restores every cell of a path compressed to its turning points.
+     * Consecutive turning points are joined by a run of identical moves.
+     *
+     * @param turns the cell ids of the turning points
+     * @param width the number of columns in the floor
+     * @return the cell ids of the path
+     */
+    static int[] expand(int[] turns, int width) {
+        int length = 1;
+        for(int k = 1; k < turns.length; k++) {
+            length += steps(turns[k - 1], turns[k], width);
+        }
+        int[] path = new int[length];
+        path[0] = turns[0];
+        int position = 1;
+        for(int k = 1; k < turns.length; k++) {
+            int steps = steps(turns[k - 1], turns[k], width);
+            int dx = Integer.signum(turns[k] % width - turns[k - 1] % width);
+            int dy = Integer.signum(turns[k] / width - turns[k - 1] / width);
+            for(int s = 1; s <= steps; s++) {
+                path[position++] = turns[k - 1] + s * (dy * width + dx);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Returns the number of moves in a straight run between two cells.
+     *
+     * @param from the id of the first cell
+     * @param to the id of the second cell
+     * @param width the number of columns in the floor
+     * @return the number of moves
+     */
+    private static int steps(int from, int to, int width) {
+        return Math.max(Math.abs(to % width - from % width), Math.abs(to / width - from / width));
+    }
+}
@@ -198,12 +198,16 @@ public class FloorConnector extends GridNode {
         return true;
     }
 
+    /**
+     * Uses the super class's hashCode, since equality is decided by the
+     * super class. Hashing the connections would recurse forever, because
+     * connected connectors list each other.
+     *
+     * @return int
+     */
     @Override
     public int hashCode() {
-        int result = index;
-        result = 31 * result + connections.hashCode();
-        result = 31 * result + type.hashCode();
-        return result;
+        return super.hashCode();
     }
 
     @Override
@@ -0,0 +1,95 @@
+package walker.blue.path.lib.floor;
+
+import java.util.List;
+
+import walker.blue.path.lib.grid.SearchGrid;
+import walker.blue.path.lib.node.GridNode;
+
+/**
+ * Search area of one floor of a building, in which floor connectors can
+ * always be walked through. The floor is wrapped, not copied.
+ */
+class FloorGrid implements SearchGrid {
+
+    /**
+     * The wrapped floor, indexed by row and then column.
+     */
+    private final List<List<GridNode>> floor;
+
+    /**
+     * Number of columns in the floor.
+     */
+    private final int width;
+
+    /**
+     * Number of rows in the floor.
+     */
+    private final int height;
+
+    /**
+     * Class constructor
+     *
+     * @param floor the 2D list of nodes of the floor
+     */
+    public FloorGrid(List<List<GridNode>> floor) {
+        this.floor = floor;
+        this.height = floor.size();
+        this.width = this.height == 0 ? 0 : floor.get(0).size();
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    @Override
+    public boolean isTraversable(int x, int y) {
+        if(x < 0 || y < 0 || x >= this.width || y >= this.height) {
+            return false;
+        }
+        GridNode node = this.floor.get(y).get(x);
+        return node.isTraversable() || node instanceof FloorConnector;
+    }
+
+    @Override
+    public boolean isRowTraversable(int y, int fromX, int toX) {
+        for(int x = fromX; x <= toX; x++) {
+            if(!isTraversable(x, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns 1, since every cell of the floor costs the same.
+     *
+     * @param x the column of the cell
+     * @param y the row of the cell
+     * @return 1
+     */
+    @Override
+    public int getCost(int x, int y) {
+        return 1;
+    }
+
+    @Override
+    public boolean hasUniformCost() {
+        return true;
+    }
+
+    /**
+     * Returns the node with the given row-major index.
+     *
+     * @param id the id of the node within the floor
+     * @return the node
+     */
+    public GridNode getNode(int id) {
+        return this.floor.get(id / this.width).get(id % this.width);
+    }
+}
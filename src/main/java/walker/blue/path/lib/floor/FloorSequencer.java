@@ -1,22 +1,55 @@
 package walker.blue.path.lib.floor;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.finder.GridDijkstra;
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.DistanceField;
+import walker.blue.path.lib.grid.GridNeighbors;
 import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.node.RectCoordinates;
+import walker.blue.path.lib.util.IndexedMinHeap;
+import walker.blue.path.lib.util.SearchState;
 
 /**
- * This class sequences together 2D paths generated from a GridAStar
- * object to form an approximate shortest 3D path specific to
- * building navigation.
+ * This class finds the shortest 3D path through a building made of
+ * stacked 2D floors. The whole building is searched as one graph with a
+ * single A* pass: cells of a floor are linked to their neighbors with the
+ * moves and costs of GridAStar (10 for an orthogonal move, 14 for a
+ * diagonal one), and every FloorConnector is linked to the connectors in
+ * its connection list with a cost per floor travelled that depends on its
+ * type. Floor connectors can always be walked through, whatever their
+ * traversable flag says.
+ *
+ * <p>Cells are identified by floor * stride + y * width + x, where stride
+ * is the cell count of the largest floor.
  */
 public class FloorSequencer {
 
     /**
-     * Holds the pathfinder that calculates each floor's 2D path.
+     * Default cost of travelling one floor by stairs.
+     */
+    public static final int DEFAULT_STAIRS_COST = 50;
+
+    /**
+     * Default cost of travelling one floor by elevator.
+     */
+    public static final int DEFAULT_ELEVATOR_COST = 30;
+
+    /**
+     * Default cost of travelling one floor through a connector of type NONE.
+     */
+    public static final int DEFAULT_CONNECTOR_COST = 50;
+
+    /**
+     * Holds the pathfinder whose connectivity is used on each floor.
      */
     private GridAStar pathfinder;
 
@@ -31,10 +64,27 @@ public class FloorSequencer {
      */
     private List<FloorConnector> floorConnectors;
 
+    /**
+     * Cost of travelling one floor, by connector type ordinal.
+     */
+    private final int[] floorCosts;
+
+    /**
+     * Precomputed distances between the connectors of each floor, or null
+     * to search the whole building on every query.
+     */
+    private ConnectorTable connectorTable;
+
+    /**
+     * Executor running independent per-floor work, or null to run it on
+     * the calling thread.
+     */
+    private ExecutorService executor;
+
     /**
      * Class contructor
      *
-     * @param pathfinder Patfinder used to calculate paths
+     * @param pathfinder Patfinder whose connectivity is used on each floor
      * @param searchArea Search area for the building
      * @param floorConnectors Floor connectors for the building
      */
@@ -44,189 +94,610 @@ public class FloorSequencer {
         this.pathfinder = pathfinder;
         this.searchArea = searchArea;
         this.floorConnectors = floorConnectors;
+        this.floorCosts = new int[FloorConnector.Type.values().length];
+        this.floorCosts[FloorConnector.Type.NONE.ordinal()] = DEFAULT_CONNECTOR_COST;
+        this.floorCosts[FloorConnector.Type.STAIRS.ordinal()] = DEFAULT_STAIRS_COST;
+        this.floorCosts[FloorConnector.Type.ELEVATOR.ordinal()] = DEFAULT_ELEVATOR_COST;
+    }
+
+    /**
+     * Access method to get the cost of travelling one floor through a
+     * type of connector.
+     *
+     * @param type the connector type
+     * @return the cost per floor
+     */
+    public int getFloorCost(FloorConnector.Type type) {
+        return this.floorCosts[type.ordinal()];
+    }
+
+    /**
+     * Sets the cost of travelling one floor through a type of connector.
+     * Moving from a connector to one of its connections costs the floor
+     * cost of the connector being left times the number of floors between them.
+     *
+     * @param type the connector type
+     * @param cost the cost per floor, which must be positive
+     */
+    public void setFloorCost(FloorConnector.Type type, int cost) {
+        if(cost <= 0) {
+            throw new IllegalArgumentException("Floor cost must be positive: " + cost);
+        }
+        this.floorCosts[type.ordinal()] = cost;
+    }
+
+    /**
+     * Access method to get the executor.
+     *
+     * @return the executor running per-floor work, or null
+     */
+    public ExecutorService getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Sets the executor running work that does not depend on other floors:
+     * building the floors of the connector table and, in each query with
+     * a connector table, searching the start and destination floors and
+     * filling in the paths between connectors. Queries wait for the tasks
+     * they submit, so they must not run on a bounded executor they share
+     * with those tasks. The executor is not shut down by this class.
+     *
+     * @param executor the executor, or null to run everything on the calling thread
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Precomputes the distances between the connectors of each floor and
+     * uses them for every later query. The connector list must not change
+     * afterwards, and floors whose cells change must be invalidated.
+     *
+     * @param storePaths whether to keep the paths between connectors as well
+     * @return the precomputed table
+     */
+    public ConnectorTable precompute(boolean storePaths) {
+        this.connectorTable = new ConnectorTable(this.searchArea, this.floorConnectors,
+                this.pathfinder.getConnectivity(), storePaths, this.executor);
+        return this.connectorTable;
+    }
+
+    /**
+     * Access method to get the connector table.
+     *
+     * @return the precomputed table, or null if there is none
+     */
+    public ConnectorTable getConnectorTable() {
+        return this.connectorTable;
     }
 
     /**
-     * Calculates the approximate shortest path from the start node to the dest node
-     * even when both nodes are on different floors. Once every possible sequence of
-     * floor connectors to move from the start node's floor to the dest node's floor
-     * is calculated, the connectors in each sequence are used as start and end nodes
-     * in the 2D path search, which uses the pathfinder member object. The shortest
-     * path is assumed to be the multi-floor path that is calculated the quickest due
-     * to fewer nodes having to be visited. Of course, this is dependent upon CPU load.
-     * Technically, a longer path could be calculated quicker than a shorter path if
-     * when the shorter path was being calculated, the CPU had a greater load from
-     * external applications outside of the navigation system.
+     * Marks the precomputed distances of a floor as out of date after its
+     * cells changed. They are rebuilt by the next call to update.
+     *
+     * @param floor the floor number
+     */
+    public void invalidateFloor(int floor) {
+        if(this.connectorTable != null) {
+            this.connectorTable.invalidateFloor(floor);
+        }
+    }
+
+    /**
+     * Rebuilds the precomputed distances of every invalidated floor, on the
+     * executor if one is set. Must not run concurrently with queries.
+     */
+    public void update() {
+        if(this.connectorTable != null) {
+            this.connectorTable.update(this.executor);
+        }
+    }
+
+    /**
+     * Calculates the shortest path from the start node to the dest node,
+     * which may be on different floors. Without a connector table the
+     * building is searched once, taking floor connectors wherever they
+     * make the path cheaper. With one, only the start and destination
+     * floors are searched and the rest of the route is planned over the
+     * precomputed distances between connectors.
      *
      * @param start the start node
      * @param dest the end node
-     * @return the path from the start to dest nodes as a List of GridNodes
+     * @return the path from the start to dest nodes as a List of GridNodes,
+     *         or null if there is no path
+     * @throws IllegalStateException if floors of the connector table were
+     *         invalidated since its last update
      */
     public List<GridNode> findPath(GridNode start, GridNode dest) {
-        List<GridNode> path = null;
-        
-        // Check if the start and dest node are on the same floor. If so,
-        // then simply call the pathfinder's findPath method to find the path on one floor.
-        if(start.getLocation().getZ() == dest.getLocation().getZ()) {
-            return pathfinder.findPath(searchArea.get(start.getLocation().getZ()), start, dest);
-        }
-
-        List<List<GridNode>> floorSequences =
-                findFloorSequences(start.getLocation().getZ(), dest.getLocation().getZ());
-
-        // Remove all sequences with an odd number of elements because that represents the extra
-        // path that is the longer of another path that does not take the extra node. Also, add
-        // the start and dest nodes to the beginning and end of each floor sequence.
-        for(int i = 0; i < floorSequences.size(); i++) {
-            if(floorSequences.get(i).size()%2 != 0) {
-                floorSequences.remove(i);
+        if(this.connectorTable != null) {
+            return findPathWithTable(start, dest);
+        }
+        List<FloorGrid> floors = new ArrayList<FloorGrid>(this.searchArea.size());
+        int stride = 0;
+        for(List<List<GridNode>> floor : this.searchArea) {
+            FloorGrid grid = new FloorGrid(floor);
+            floors.add(grid);
+            stride = Math.max(stride, grid.getWidth() * grid.getHeight());
+        }
+        int startId = getId(floors, stride, start.getLocation());
+        int destId = getId(floors, stride, dest.getLocation());
+        if(!isPassable(floors, stride, startId) || !isPassable(floors, stride, destId)) {
+            return null;
+        }
+
+        // Connector cells sorted by id, so the connector at a cell can be
+        // found with a binary search once the bit set says there is one.
+        int connectorCount = this.floorConnectors.size();
+        long[] connectorKeys = new long[connectorCount];
+        BitSet connectorCells = new BitSet();
+        boolean aligned = true;
+        int minFloorCost = Integer.MAX_VALUE;
+        for(int i = 0; i < connectorCount; i++) {
+            FloorConnector connector = this.floorConnectors.get(i);
+            int id = getId(floors, stride, connector.getLocation());
+            connectorKeys[i] = ((long) id << 32) | i;
+            connectorCells.set(id);
+            minFloorCost = Math.min(minFloorCost, this.floorCosts[connector.getType().ordinal()]);
+            for(FloorConnector connection : connector.getConnections()) {
+                aligned &= connection.getLocation().getX() == connector.getLocation().getX()
+                        && connection.getLocation().getY() == connector.getLocation().getY();
             }
-            else {
-                floorSequences.get(i).add(0, start);
-                floorSequences.get(i).add(floorSequences.get(i).size(), dest);
+        }
+        Arrays.sort(connectorKeys);
+        int[] connectorIds = new int[connectorCount];
+        for(int i = 0; i < connectorCount; i++) {
+            connectorIds[i] = (int) (connectorKeys[i] >>> 32);
+        }
+        if(connectorCount == 0) {
+            minFloorCost = 0;
+        }
+
+        Heuristic heuristic = new Heuristic(floors, stride, destId, minFloorCost, aligned,
+                this.pathfinder.getConnectivity() == Connectivity.FOUR);
+        SearchState state = SearchState.acquire(floors.size() * stride);
+        try {
+            if(!search(floors, stride, state, startId, destId, heuristic,
+                    connectorCells, connectorIds, connectorKeys)) {
+                return null;
+            }
+            return reconstructPath(floors, stride, state, destId);
+        }
+        finally {
+            state.release();
+        }
+    }
+
+    /**
+     * Finds the shortest path with the connector table. The start floor is
+     * flooded from the start node and the destination floor from the
+     * destination node, then Dijkstra runs over the connectors, linked by
+     * the table on each floor and by their connections across floors.
+     *
+     * @param start the start node
+     * @param dest the end node
+     * @return the path from the start to dest nodes, or null if there is no path
+     */
+    private List<GridNode> findPathWithTable(GridNode start, GridNode dest) {
+        ConnectorTable table = this.connectorTable;
+        if(table.needsUpdate()) {
+            throw new IllegalStateException("Floors were invalidated; call update() before searching");
+        }
+        int startFloor = start.getLocation().getZ();
+        int destFloor = dest.getLocation().getZ();
+        FloorGrid startGrid = new FloorGrid(this.searchArea.get(startFloor));
+        FloorGrid destGrid = new FloorGrid(this.searchArea.get(destFloor));
+        if(!startGrid.isTraversable(start.getLocation().getX(), start.getLocation().getY())
+                || !destGrid.isTraversable(dest.getLocation().getX(), dest.getLocation().getY())) {
+            return null;
+        }
+        int startCell = start.getLocation().getY() * startGrid.getWidth() + start.getLocation().getX();
+        int destCell = dest.getLocation().getY() * destGrid.getWidth() + dest.getLocation().getX();
+        final GridDijkstra dijkstra = new GridDijkstra(this.pathfinder.getConnectivity());
+        // Both floods stop once they reach every connector of their floor.
+        // The destination floor is flooded on the executor meanwhile.
+        int[] startTargets = getCells(startGrid, table.getConnectors(startFloor),
+                startFloor == destFloor ? destCell : -1);
+        final int[] destTargets = getCells(destGrid, table.getConnectors(destFloor), -1);
+        Future<DistanceField> destFlood = null;
+        if(this.executor != null) {
+            final FloorGrid grid = destGrid;
+            final int cell = destCell;
+            destFlood = this.executor.submit(new Callable<DistanceField>() {
+                @Override
+                public DistanceField call() {
+                    return dijkstra.computeDistanceField(grid, cell, destTargets);
+                }
+            });
+        }
+        DistanceField startField = dijkstra.computeDistanceField(startGrid, startCell, startTargets);
+        if(startFloor != destFloor && !reachesAny(startField, startTargets)) {
+            // No connector can be reached, so the destination flood is not needed.
+            if(destFlood != null) {
+                destFlood.cancel(false);
             }
+            return null;
         }
+        DistanceField destField = destFlood != null ? ConnectorTable.await(destFlood)
+                : dijkstra.computeDistanceField(destGrid, destCell, destTargets);
 
-        long shortestTime = (long)Double.POSITIVE_INFINITY;
-        for(int i = 0; i < floorSequences.size(); i++) {
-            boolean hasPath = true;
-            List<GridNode> tempPath = new ArrayList<GridNode>();
-            long startTime = System.nanoTime();
+        // Abstract nodes are the connectors, followed by the start and destination nodes.
+        int connectorCount = this.floorConnectors.size();
+        int startNode = connectorCount;
+        int destNode = connectorCount + 1;
+        int[] g = new int[connectorCount + 2];
+        int[] parent = new int[connectorCount + 2];
+        boolean[] crossed = new boolean[connectorCount + 2];
+        boolean[] closed = new boolean[connectorCount + 2];
+        Arrays.fill(g, Integer.MAX_VALUE);
+        IndexedMinHeap openQueue = new IndexedMinHeap(connectorCount + 2);
+        g[startNode] = 0;
+        parent[startNode] = -1;
+        openQueue.add(startNode, 0);
 
-            for(int j = 0; j < floorSequences.get(i).size(); j += 2) {
-                List<GridNode> path2D =
-                        pathfinder.findPath(
-                                searchArea.get(floorSequences.get(i).get(j).getLocation().getZ()),
-                                floorSequences.get(i).get(j),
-                                floorSequences.get(i).get(j+1));
+        while(!openQueue.isEmpty()) {
+            int current = openQueue.remove();
+            if(current == destNode) {
+                return buildPath(startField, destField, startFloor, destFloor, parent, crossed,
+                        startNode, destNode);
+            }
+            closed[current] = true;
 
-                if(path2D == null) {
-                    hasPath = false;
-                    break;
+            if(current == startNode) {
+                for(int connector : table.getConnectors(startFloor)) {
+                    int cell = getCell(startGrid, connector);
+                    if(startField.isReachable(cell)) {
+                        relax(openQueue, g, parent, crossed, closed, current, connector,
+                                (int) startField.getDistance(cell), false);
+                    }
                 }
-                else {
-                    tempPath.addAll(path2D);
+                if(startFloor == destFloor && startField.isReachable(destCell)) {
+                    relax(openQueue, g, parent, crossed, closed, current, destNode,
+                            (int) startField.getDistance(destCell), false);
+                }
+                continue;
+            }
+
+            FloorConnector connector = this.floorConnectors.get(current);
+            int floor = connector.getLocation().getZ();
+            for(int other : table.getConnectors(floor)) {
+                int distance = table.getDistance(current, other);
+                if(other != current && distance != ConnectorTable.UNREACHABLE) {
+                    relax(openQueue, g, parent, crossed, closed, current, other, distance, false);
                 }
             }
-            if(hasPath) {
-                long endTime = System.nanoTime();
-                long currentTime = endTime - startTime;
-                if(currentTime < shortestTime) {
-                    path = new ArrayList<>(tempPath);
+            int perFloor = this.floorCosts[connector.getType().ordinal()];
+            for(FloorConnector connection : connector.getConnections()) {
+                int floorCount = Math.max(1, Math.abs(connection.getLocation().getZ() - floor));
+                relax(openQueue, g, parent, crossed, closed, current, connection.getIndex(),
+                        perFloor * floorCount, true);
+            }
+            if(floor == destFloor) {
+                int cell = getCell(destGrid, current);
+                if(destField.isReachable(cell)) {
+                    relax(openQueue, g, parent, crossed, closed, current, destNode,
+                            (int) destField.getDistance(cell), false);
                 }
             }
         }
-        return path;
+        return null;
     }
 
     /**
-     * Generates every sequence of floor connector nodes to take going
-     * from the start floor to the destination floor using the floor
-     * connectors as links between each floor. It performs a depth-first
-     * search through the list of floor connectors (similar to
-     * how an adjacency list is traversed) to find every possible way in
-     * the floor connector nodes an be followed to go from the start floor
-     * to the destination floor.
+     * Lowers the G value of an abstract node if the path through the
+     * current node is shorter, and queues it by its G value.
      *
-     * @param startFloor the start floor
-     * @param destFloor the end floor
-     * @return a list of every sequence of floor connectors that can
-     *          be followed to navigate from the start floor to the dest floor
-     */
-    private List<List<GridNode>> findFloorSequences(int startFloor, int destFloor) {
-        List<List<GridNode>> sequences = new ArrayList<>();
-
-        // Go through the floor connections list pushing the nodes that are on the start floor
-        // and finding all floor sequences from the pushed node
-        for(FloorConnector connector : floorConnectors) {
-            if(connector.getLocation().getZ() == startFloor) {
-                List<FloorConnector> sequence = new ArrayList<>();
-                Deque<FloorConnector> stack = new ArrayDeque<>();
-                Deque<Integer> numNeighborsPushedStack = new ArrayDeque<>();
-                Deque<Integer> numPoppedStack = new ArrayDeque<>();
-
-                boolean[] visited = new boolean[floorConnectors.size()];
-
-                visited[connector.getIndex()] = true;
-                stack.push(connector);
-
-                int numPopped = 0;
-                // Use depth-first search to find all of the possible sequences to use
-                // to get from the starting floor to the destination floor.
-                while(!stack.isEmpty()) {
-                    FloorConnector node = stack.pop();
-
-                    numPopped++;
-
-                    // Place the node at the end of the current list.
-                    sequence.add(node);
-
-                    // If the current node is on the destination floor, then store the current
-                    // path sequence to the list of sequences and remove it from the current path
-                    // sequence to backtrack. If its not on the destination floor, then push all
-                    // of the unvisited neighbors to the stack.
-                    if(node.getLocation().getZ() == destFloor) {
-                        sequences.add(new ArrayList<GridNode>(sequence));
-                        sequence.remove(sequence.size() - 1); // Remove last element
-                        visited[node.getIndex()] = false;
-                    }
-                    else {
-                        int numNeighborsPushedCount = 0;
-                        for(FloorConnector neighbor : node.getConnections()) {
-                            // If the neighbor hasn't been visited (i.e. isn't on the stack),
-                            // then push it to the stack and increment numNeighborsPushedCount.
-                            if(!visited[neighbor.getIndex()]) {
-                                visited[neighbor.getIndex()] = true;
-                                stack.push(neighbor);
-                                numNeighborsPushedCount++;
-                            }
-                        }
+     * @param openQueue the open set
+     * @param g the G value of each abstract node
+     * @param parent the parent of each abstract node
+     * @param crossed whether each abstract node was reached through a connection
+     * @param closed whether each abstract node is closed
+     * @param current the node being expanded
+     * @param node the node being reached
+     * @param cost the cost of the edge between the two nodes
+     * @param crossing whether the edge is a connection between connectors
+     */
+    private static void relax(IndexedMinHeap openQueue, int[] g, int[] parent, boolean[] crossed,
+                              boolean[] closed, int current, int node, int cost, boolean crossing) {
+        if(closed[node]) {
+            return;
+        }
+        int newG = g[current] + cost;
+        if(newG < g[node]) {
+            g[node] = newG;
+            parent[node] = current;
+            crossed[node] = crossing;
+            openQueue.addOrDecrease(node, newG);
+        }
+    }
 
-                        // Store the information needed to backtrack properly, which is the number
-                        // of neighbors pushed to the stack and the current number of popped nodes
-                        // so far. Reset the number of popped nodes to start a new count.
-                        numNeighborsPushedStack.push(numNeighborsPushedCount);
-                        numPoppedStack.push(numPopped);
-                        numPopped = 0;
+    /**
+     * Turns the abstract path into nodes, filling in the cells walked on
+     * each floor.
+     *
+     * @param startField the distances from the start node on its floor
+     * @param destField the distances from the destination node on its floor
+     * @param startFloor the floor of the start node
+     * @param destFloor the floor of the destination node
+     * @param parent the parent of each abstract node
+     * @param crossed whether each abstract node was reached through a connection
+     * @param startNode the abstract node of the start node
+     * @param destNode the abstract node of the destination node
+     * @return the nodes of the path with the start node first
+     */
+    private List<GridNode> buildPath(DistanceField startField, DistanceField destField,
+                                     int startFloor, int destFloor, int[] parent,
+                                     boolean[] crossed, int startNode, int destNode) {
+        int length = 0;
+        for(int node = destNode; node != -1; node = parent[node]) {
+            length++;
+        }
+        int[] abstractPath = new int[length];
+        for(int node = destNode; node != -1; node = parent[node]) {
+            abstractPath[--length] = node;
+        }
+
+        // Legs between two connectors of a floor are searched for when the
+        // table does not keep paths; those searches run on the executor.
+        final ConnectorTable table = this.connectorTable;
+        List<Future<int[]>> searches = new ArrayList<Future<int[]>>(abstractPath.length);
+        for(int k = 1; k < abstractPath.length; k++) {
+            final int from = abstractPath[k - 1];
+            final int to = abstractPath[k];
+            if(this.executor != null && !table.isStoringPaths() && from != startNode
+                    && to != destNode && !crossed[to]) {
+                searches.add(this.executor.submit(new Callable<int[]>() {
+                    @Override
+                    public int[] call() {
+                        return table.getPath(from, to);
                     }
+                }));
+            }
+            else {
+                searches.add(null);
+            }
+        }
+
+        List<GridNode> path = new ArrayList<GridNode>();
+        for(int k = 1; k < abstractPath.length; k++) {
+            int from = abstractPath[k - 1];
+            int to = abstractPath[k];
+            if(crossed[to]) {
+                // Moving through a connection only adds the connector reached.
+                FloorGrid grid = new FloorGrid(this.searchArea.get(
+                        this.floorConnectors.get(to).getLocation().getZ()));
+                path.add(grid.getNode(getCell(grid, to)));
+                continue;
+            }
+            int floor = from == startNode ? startFloor : this.floorConnectors.get(from).getLocation().getZ();
+            FloorGrid grid = new FloorGrid(this.searchArea.get(floor));
+            int[] cells;
+            if(from == startNode) {
+                cells = startField.getPath(to == destNode ? destField.getSource() : getCell(grid, to));
+            }
+            else if(to == destNode) {
+                cells = reverse(destField.getPath(getCell(grid, from)));
+            }
+            else if(searches.get(k - 1) != null) {
+                cells = ConnectorTable.await(searches.get(k - 1));
+            }
+            else {
+                cells = table.getPath(from, to);
+            }
+            // Every leg starts where the previous one ended.
+            for(int i = path.isEmpty() ? 0 : 1; i < cells.length; i++) {
+                path.add(grid.getNode(cells[i]));
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Returns the cell of a connector within its floor.
+     *
+     * @param grid the search area of the floor of the connector
+     * @param connector the index of the connector
+     * @return the cell id
+     */
+    private int getCell(FloorGrid grid, int connector) {
+        RectCoordinates location = this.floorConnectors.get(connector).getLocation();
+        return location.getY() * grid.getWidth() + location.getX();
+    }
+
+    /**
+     * Checks whether a flood reached any of the given cells.
+     *
+     * @param field the distances of the flood
+     * @param cells the cell ids
+     * @return true if at least one cell is reachable, false otherwise
+     */
+    private static boolean reachesAny(DistanceField field, int[] cells) {
+        for(int cell : cells) {
+            if(field.isReachable(cell)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the cells of connectors within their floor.
+     *
+     * @param grid the search area of the floor of the connectors
+     * @param connectors the indices of the connectors
+     * @param extra the id of one more cell to include, or -1
+     * @return the cell ids
+     */
+    private int[] getCells(FloorGrid grid, int[] connectors, int extra) {
+        int[] cells = new int[connectors.length + (extra == -1 ? 0 : 1)];
+        for(int k = 0; k < connectors.length; k++) {
+            cells[k] = getCell(grid, connectors[k]);
+        }
+        if(extra != -1) {
+            cells[connectors.length] = extra;
+        }
+        return cells;
+    }
+
+    /**
+     * Reverses an array of cell ids in place.
+     *
+     * @param cells the cell ids
+     * @return the same array, reversed
+     */
+    private static int[] reverse(int[] cells) {
+        for(int i = 0, j = cells.length - 1; i < j; i++, j--) {
+            int cell = cells[i];
+            cells[i] = cells[j];
+            cells[j] = cell;
+        }
+        return cells;
+    }
+
+    /**
+     * Runs A* over every floor of the building at once.
+     *
+     * @param floors the search area of each floor
+     * @param stride the number of ids reserved for each floor
+     * @param state an empty state holding every id of the building
+     * @param startId the id of the start cell
+     * @param destId the id of the destination cell
+     * @param heuristic the estimate of the remaining cost
+     * @param connectorCells the ids of the cells holding a connector
+     * @param connectorIds the ids of the connector cells, sorted
+     * @param connectorKeys the connector id in the high half and list index in the low half, sorted
+     * @return true if the destination was reached, false otherwise
+     */
+    private boolean search(List<FloorGrid> floors, int stride, SearchState state,
+                           int startId, int destId, Heuristic heuristic, BitSet connectorCells,
+                           int[] connectorIds, long[] connectorKeys) {
+        IndexedMinHeap openQueue = state.getOpenQueue();
+        GridNeighbors neighbors = new GridNeighbors(this.pathfinder.getConnectivity());
+        int[] neighborIds = new int[GridNeighbors.DIRECTIONS];
+
+        state.visit(startId, heuristic.estimate(startId));
+        state.setG(startId, 0);
+        openQueue.add(startId, state.getF(startId));
+
+        while(!openQueue.isEmpty()) {
+            int current = openQueue.remove();
+            if(current == destId) {
+                return true;
+            }
+            state.close(current);
+
+            int floor = current / stride;
+            int cell = current - floor * stride;
+            FloorGrid grid = floors.get(floor);
+            int width = grid.getWidth();
+            int count = neighbors.getNeighbors(grid, cell, neighborIds);
+            for(int k = 0; k < count; k++) {
+                int neighbor = neighborIds[k];
+                int cost = neighbor % width != cell % width && neighbor / width != cell / width ? 14 : 10;
+                relax(state, heuristic, current, floor * stride + neighbor, cost);
+            }
 
-                    // If all of the neighbors have been popped off the stack, then remove the
-                    // node that pushed those neighbors from the path sequence, mark it as not
-                    // visited, and load the previous number of popped nodes to the numPopped
-                    // variable, so that sequence backtracking is possible.
-                    if(!numNeighborsPushedStack.isEmpty() &&
-                            numPopped == numNeighborsPushedStack.peek()) {
-                        FloorConnector removedNode = sequence.remove(sequence.size() - 1);
-                        visited[removedNode.getIndex()] = false;
-                        numNeighborsPushedStack.pop();
-                        numPopped = numPoppedStack.pop();
+            if(connectorCells.get(current)) {
+                // Several connectors may share a cell; take the links of all of them.
+                int first = Arrays.binarySearch(connectorIds, current);
+                while(first > 0 && connectorIds[first - 1] == current) {
+                    first--;
+                }
+                for(int i = first; i < connectorIds.length && connectorIds[i] == current; i++) {
+                    FloorConnector connector = this.floorConnectors.get((int) connectorKeys[i]);
+                    int perFloor = this.floorCosts[connector.getType().ordinal()];
+                    for(FloorConnector connection : connector.getConnections()) {
+                        RectCoordinates location = connection.getLocation();
+                        int floorCount = Math.max(1, Math.abs(location.getZ() - floor));
+                        relax(state, heuristic, current, getId(floors, stride, location),
+                                perFloor * floorCount);
                     }
                 }
             }
         }
-        return sequences;
+        return false;
     }
 
     /**
-     * Prints the given floor sequences in an easy-to-view format.
+     * Lowers the G value of a cell if the path through the current cell is
+     * shorter, and queues it by its F value.
      *
-     * @param floorSequences list of node sequences
+     * @param state the values of the current path search
+     * @param heuristic the estimate of the remaining cost
+     * @param current the id of the cell being expanded
+     * @param next the id of the cell being reached
+     * @param cost the cost of the move between the two cells
      */
-    public void printFloorSequences( List<List<GridNode>> floorSequences) {
-        if(floorSequences.isEmpty()) {
-            System.out.println("Not possible to go from start floor to destination floor.");
+    private static void relax(SearchState state, Heuristic heuristic, int current, int next, int cost) {
+        if(state.isClosed(next)) {
+            return;
         }
-        else {
-            for(int i = 0; i < floorSequences.size(); i++) {
-                System.out.print("Sequence " + i + ": ");
-                for(int j = 0; j < floorSequences.get(i).size(); j++) {
-                    System.out.print("(" + floorSequences.get(i).get(j).getLocation().getX() + ", " +
-                            floorSequences.get(i).get(j).getLocation().getY() + ", " +
-                            floorSequences.get(i).get(j).getLocation().getZ() + ") -> ");
-                }
-                System.out.println();
+        if(!state.isVisited(next)) {
+            state.visit(next, heuristic.estimate(next));
+        }
+        double newG = state.getG(current) + cost;
+        if(newG < state.getG(next)) {
+            state.setG(next, newG);
+            state.setParent(next, current);
+            // Among equal F values the cell furthest from the start is
+            // expanded first, so large open floors are not flooded.
+            IndexedMinHeap openQueue = state.getOpenQueue();
+            if(openQueue.contains(next)) {
+                openQueue.update(next, state.getF(next), -newG);
             }
+            else {
+                openQueue.add(next, state.getF(next), -newG);
+            }
+        }
+    }
+
+    /**
+     * Turns the parents of the finished search into the list of nodes.
+     *
+     * @param floors the search area of each floor
+     * @param stride the number of ids reserved for each floor
+     * @param state the values of the finished path search
+     * @param destId the id of the destination cell
+     * @return the nodes of the path with the start node first
+     */
+    private List<GridNode> reconstructPath(List<FloorGrid> floors, int stride,
+                                           SearchState state, int destId) {
+        int length = 0;
+        for(int id = destId; id != -1; id = state.getParent(id)) {
+            length++;
+        }
+        GridNode[] nodes = new GridNode[length];
+        for(int id = destId; id != -1; id = state.getParent(id)) {
+            nodes[--length] = floors.get(id / stride).getNode(id % stride);
         }
+        return new ArrayList<GridNode>(Arrays.asList(nodes));
+    }
+
+    /**
+     * Returns the id of the cell at a location of the building.
+     *
+     * @param floors the search area of each floor
+     * @param stride the number of ids reserved for each floor
+     * @param location the location of the cell
+     * @return the id of the cell
+     */
+    private static int getId(List<FloorGrid> floors, int stride, RectCoordinates location) {
+        int z = location.getZ();
+        return z * stride + location.getY() * floors.get(z).getWidth() + location.getX();
+    }
+
+    /**
+     * Checks whether a path may start or end at a cell.
+     *
+     * @param floors the search area of each floor
+     * @param stride the number of ids reserved for each floor
+     * @param id the id of the cell
+     * @return true if the cell can be walked through, false otherwise
+     */
+    private static boolean isPassable(List<FloorGrid> floors, int stride, int id) {
+        FloorGrid grid = floors.get(id / stride);
+        int cell = id % stride;
+        return grid.isTraversable(cell % grid.getWidth(), cell / grid.getWidth());
     }
 
     /**
@@ -292,4 +763,97 @@ public class FloorSequencer {
             }
         }
     }
+
+    /**
+     * Estimate of the remaining cost to the destination that never
+     * overestimates it. Each floor still to travel costs at least the
+     * cheapest floor cost among the connectors of the building. The distance across the floor is only added
+     * when every connector links to connectors right above or below it,
+     * since otherwise a connector could shorten it.
+     */
+    private static class Heuristic {
+
+        /**
+         * The search area of each floor.
+         */
+        private final List<FloorGrid> floors;
+
+        /**
+         * Number of ids reserved for each floor.
+         */
+        private final int stride;
+
+        /**
+         * Floor of the destination.
+         */
+        private final int destFloor;
+
+        /**
+         * Column of the destination.
+         */
+        private final int destX;
+
+        /**
+         * Row of the destination.
+         */
+        private final int destY;
+
+        /**
+         * Lowest cost of travelling one floor.
+         */
+        private final int minFloorCost;
+
+        /**
+         * Whether the distance across the floor is part of the estimate.
+         */
+        private final boolean planar;
+
+        /**
+         * Whether only orthogonal moves are allowed.
+         */
+        private final boolean orthogonal;
+
+        /**
+         * Class constructor
+         *
+         * @param floors the search area of each floor
+         * @param stride the number of ids reserved for each floor
+         * @param destId the id of the destination cell
+         * @param minFloorCost the lowest cost of travelling one floor
+         * @param planar whether the distance across the floor is part of the estimate
+         * @param orthogonal whether only orthogonal moves are allowed
+         */
+        public Heuristic(List<FloorGrid> floors, int stride, int destId, int minFloorCost,
+                         boolean planar, boolean orthogonal) {
+            this.floors = floors;
+            this.stride = stride;
+            this.destFloor = destId / stride;
+            int width = floors.get(this.destFloor).getWidth();
+            this.destX = destId % stride % width;
+            this.destY = destId % stride / width;
+            this.minFloorCost = minFloorCost;
+            this.planar = planar;
+            this.orthogonal = orthogonal;
+        }
+
+        /**
+         * Returns the estimated cost from a cell to the destination.
+         *
+         * @param id the id of the cell
+         * @return the estimated cost
+         */
+        public int estimate(int id) {
+            int floor = id / this.stride;
+            int estimate = Math.abs(floor - this.destFloor) * this.minFloorCost;
+            if(this.planar) {
+                int cell = id - floor * this.stride;
+                int width = this.floors.get(floor).getWidth();
+                int dx = Math.abs(cell % width - this.destX);
+                int dy = Math.abs(cell / width - this.destY);
+                estimate += this.orthogonal ? 10 * (dx + dy)
+                        : 10 * Math.max(dx, dy) + 4 * Math.min(dx, dy);
+            }
+            return estimate;
+        }
+    }
 }
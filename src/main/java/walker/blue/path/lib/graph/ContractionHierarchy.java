@@ -0,0 +1,560 @@
+package walker.blue.path.lib.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import walker.blue.path.lib.util.IndexedMinHeap;
+import walker.blue.path.lib.util.SearchState;
+
+/**
+ * Contraction hierarchy of a CsrGraph, built by ContractionHierarchyBuilder.
+ * Every node has a rank, and every edge of the graph plus every shortcut
+ * added during contraction is stored either in the upward graph of its
+ * source (when it leads to a higher rank) or in the backward upward graph
+ * of its target (when it comes from a higher rank). A query runs Dijkstra
+ * forward from the start node and backward from the destination node,
+ * each only towards higher ranks, which settles a tiny part of the graph.
+ *
+ * <p>Nodes are addressed by the GraphNode indices of the original graph.
+ * Queries may run on many threads at once; the search state is pooled
+ * per thread.
+ */
+public class ContractionHierarchy {
+
+    /**
+     * Marks the start of a serialized contraction hierarchy.
+     */
+    private static final int MAGIC = 0x43484742;
+
+    /**
+     * Version of the serialized format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Contraction order of each node.
+     */
+    private final int[] rank;
+
+    /**
+     * First upward edge of each node, followed by the upward edge count.
+     */
+    private final int[] forwardOffsets;
+
+    /**
+     * Target of each upward edge.
+     */
+    private final int[] forwardTargets;
+
+    /**
+     * Weight of each upward edge.
+     */
+    private final float[] forwardWeights;
+
+    /**
+     * Node bypassed by each upward edge, or -1 for an original edge.
+     */
+    private final int[] forwardMiddles;
+
+    /**
+     * First backward upward edge of each node, followed by the edge count.
+     */
+    private final int[] backwardOffsets;
+
+    /**
+     * Source of each backward upward edge.
+     */
+    private final int[] backwardTargets;
+
+    /**
+     * Weight of each backward upward edge.
+     */
+    private final float[] backwardWeights;
+
+    /**
+     * Node bypassed by each backward upward edge, or -1 for an original edge.
+     */
+    private final int[] backwardMiddles;
+
+    /**
+     * Number of shortcuts added during contraction.
+     */
+    private final int shortcutCount;
+
+    /**
+     * Search state of the forward and backward searches, pooled per thread.
+     */
+    private final ThreadLocal<SearchState[]> states = new ThreadLocal<SearchState[]>();
+
+    /**
+     * Class constructor
+     *
+     * @param rank the contraction order of each node
+     * @param forwardOffsets the first upward edge of each node, followed by the count
+     * @param forwardTargets the target of each upward edge
+     * @param forwardWeights the weight of each upward edge
+     * @param forwardMiddles the node bypassed by each upward edge, or -1
+     * @param backwardOffsets the first backward upward edge of each node, followed by the count
+     * @param backwardTargets the source of each backward upward edge
+     * @param backwardWeights the weight of each backward upward edge
+     * @param backwardMiddles the node bypassed by each backward upward edge, or -1
+     * @param shortcutCount the number of shortcuts added during contraction
+     */
+    public ContractionHierarchy(int[] rank,
+                                int[] forwardOffsets, int[] forwardTargets,
+                                float[] forwardWeights, int[] forwardMiddles,
+                                int[] backwardOffsets, int[] backwardTargets,
+                                float[] backwardWeights, int[] backwardMiddles,
+                                int shortcutCount) {
+        this.rank = rank;
+        this.forwardOffsets = forwardOffsets;
+        this.forwardTargets = forwardTargets;
+        this.forwardWeights = forwardWeights;
+        this.forwardMiddles = forwardMiddles;
+        this.backwardOffsets = backwardOffsets;
+        this.backwardTargets = backwardTargets;
+        this.backwardWeights = backwardWeights;
+        this.backwardMiddles = backwardMiddles;
+        this.shortcutCount = shortcutCount;
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return the node count
+     */
+    public int getNodeCount() {
+        return this.rank.length;
+    }
+
+    /**
+     * Returns the contraction order of a node.
+     *
+     * @param node the index of the node
+     * @return the rank of the node, 0 for the first node contracted
+     */
+    public int getRank(int node) {
+        return this.rank[node];
+    }
+
+    /**
+     * Returns the number of shortcuts added during contraction.
+     *
+     * @return the shortcut count
+     */
+    public int getShortcutCount() {
+        return this.shortcutCount;
+    }
+
+    /**
+     * Returns the length of the shortest path between two nodes.
+     *
+     * @param start the index of the start node
+     * @param dest the index of the destination node
+     * @return the length of the path, or Double.POSITIVE_INFINITY if there is no path
+     */
+    public double findDistance(int start, int dest) {
+        SearchState[] states = acquireStates();
+        int meeting = search(states[0], states[1], start, dest);
+        return meeting == -1 ? Double.POSITIVE_INFINITY
+                : states[0].getG(meeting) + states[1].getG(meeting);
+    }
+
+    /**
+     * Returns the shortest path between two nodes, with every shortcut
+     * expanded into the original edges it stands for.
+     *
+     * @param start the index of the start node
+     * @param dest the index of the destination node
+     * @return the node indices of the path from start to dest, or null if there is no path
+     */
+    public int[] findPath(int start, int dest) {
+        SearchState[] states = acquireStates();
+        SearchState forward = states[0];
+        SearchState backward = states[1];
+        int meeting = search(forward, backward, start, dest);
+        if(meeting == -1) {
+            return null;
+        }
+        // Upward nodes from the start to the meeting node, then from the
+        // meeting node down to the destination.
+        int count = 0;
+        for(int node = meeting; node != -1; node = forward.getParent(node)) {
+            count++;
+        }
+        int[] upward = new int[count];
+        for(int node = meeting; node != -1; node = forward.getParent(node)) {
+            upward[--count] = node;
+        }
+        PathBuffer path = new PathBuffer();
+        path.add(start);
+        for(int k = 1; k < upward.length; k++) {
+            unpack(upward[k - 1], upward[k], path);
+        }
+        for(int node = meeting; backward.getParent(node) != -1; node = backward.getParent(node)) {
+            unpack(node, backward.getParent(node), path);
+        }
+        return path.toArray();
+    }
+
+    /**
+     * Runs the bidirectional upward search.
+     *
+     * @param forward the state of the search from the start node
+     * @param backward the state of the search from the destination node
+     * @param start the index of the start node
+     * @param dest the index of the destination node
+     * @return the node where the shortest path peaks, or -1 if there is no path
+     */
+    private int search(SearchState forward, SearchState backward, int start, int dest) {
+        forward.reset();
+        backward.reset();
+        IndexedMinHeap forwardQueue = forward.getOpenQueue();
+        IndexedMinHeap backwardQueue = backward.getOpenQueue();
+        forward.visit(start, 0);
+        forward.setG(start, 0);
+        forwardQueue.add(start, 0);
+        backward.visit(dest, 0);
+        backward.setG(dest, 0);
+        backwardQueue.add(dest, 0);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        while(true) {
+            // A direction is finished once nothing left in its queue can
+            // lead to a shorter path than the best one found.
+            if(!forwardQueue.isEmpty() && forwardQueue.peekKey() >= best) {
+                forwardQueue.clear();
+            }
+            if(!backwardQueue.isEmpty() && backwardQueue.peekKey() >= best) {
+                backwardQueue.clear();
+            }
+            boolean forwardStep;
+            if(forwardQueue.isEmpty()) {
+                if(backwardQueue.isEmpty()) {
+                    break;
+                }
+                forwardStep = false;
+            }
+            else {
+                forwardStep = backwardQueue.isEmpty()
+                        || forwardQueue.peekKey() <= backwardQueue.peekKey();
+            }
+            SearchState state = forwardStep ? forward : backward;
+            SearchState other = forwardStep ? backward : forward;
+            int current = state.getOpenQueue().remove();
+            state.close(current);
+            double g = state.getG(current);
+            if(other.isVisited(current) && g + other.getG(current) < best) {
+                best = g + other.getG(current);
+                meeting = current;
+            }
+            if(isStalled(state, current, g, forwardStep)) {
+                continue;
+            }
+            int[] offsets = forwardStep ? this.forwardOffsets : this.backwardOffsets;
+            int[] targets = forwardStep ? this.forwardTargets : this.backwardTargets;
+            float[] weights = forwardStep ? this.forwardWeights : this.backwardWeights;
+            for(int edge = offsets[current]; edge < offsets[current + 1]; edge++) {
+                int target = targets[edge];
+                if(state.isClosed(target)) {
+                    continue;
+                }
+                if(!state.isVisited(target)) {
+                    state.visit(target, 0);
+                }
+                double newG = g + weights[edge];
+                if(newG < state.getG(target)) {
+                    state.setG(target, newG);
+                    state.setParent(target, current);
+                    state.getOpenQueue().addOrDecrease(target, newG);
+                }
+            }
+        }
+        return meeting;
+    }
+
+    /**
+     * Checks whether a settled node can be reached more cheaply through a
+     * higher ranked node by going down an edge the search does not use.
+     * The upward distance of such a node is not its real distance, so its
+     * edges cannot lead to the shortest path and need not be relaxed.
+     *
+     * @param state the state of the search settling the node
+     * @param node the index of the settled node
+     * @param g the distance of the node in that search
+     * @param forwardStep true for the search from the start node
+     * @return true if the node is stalled, false otherwise
+     */
+    private boolean isStalled(SearchState state, int node, double g, boolean forwardStep) {
+        // Edges coming down into the node in the direction of the search
+        // are stored in the opposite upward graph.
+        int[] offsets = forwardStep ? this.backwardOffsets : this.forwardOffsets;
+        int[] targets = forwardStep ? this.backwardTargets : this.forwardTargets;
+        float[] weights = forwardStep ? this.backwardWeights : this.forwardWeights;
+        for(int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+            int higher = targets[edge];
+            if(state.isVisited(higher) && state.getG(higher) + weights[edge] < g) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends the original path of an edge, without its first node.
+     *
+     * @param from the index of the source of the edge
+     * @param to the index of the target of the edge
+     * @param path the buffer receiving the nodes
+     */
+    private void unpack(int from, int to, PathBuffer path) {
+        int middle = getMiddle(from, to);
+        if(middle == -1) {
+            path.add(to);
+        }
+        else {
+            unpack(from, middle, path);
+            unpack(middle, to, path);
+        }
+    }
+
+    /**
+     * Returns the node bypassed by the lightest edge between two nodes.
+     *
+     * @param from the index of the source of the edge
+     * @param to the index of the target of the edge
+     * @return the bypassed node, or -1 for an original edge
+     */
+    private int getMiddle(int from, int to) {
+        int node = from;
+        int other = to;
+        int[] offsets = this.forwardOffsets;
+        int[] targets = this.forwardTargets;
+        float[] weights = this.forwardWeights;
+        int[] middles = this.forwardMiddles;
+        if(this.rank[to] < this.rank[from]) {
+            node = to;
+            other = from;
+            offsets = this.backwardOffsets;
+            targets = this.backwardTargets;
+            weights = this.backwardWeights;
+            middles = this.backwardMiddles;
+        }
+        int middle = -1;
+        float best = Float.POSITIVE_INFINITY;
+        for(int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+            if(targets[edge] == other && weights[edge] < best) {
+                best = weights[edge];
+                middle = middles[edge];
+            }
+        }
+        return middle;
+    }
+
+    /**
+     * Returns the search states pooled for the current thread.
+     *
+     * @return the forward and backward states
+     */
+    private SearchState[] acquireStates() {
+        SearchState[] states = this.states.get();
+        if(states == null) {
+            states = new SearchState[] {
+                    new SearchState(this.rank.length), new SearchState(this.rank.length)};
+            this.states.set(states);
+        }
+        return states;
+    }
+
+    /**
+     * Writes the hierarchy in a compact binary form.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(this.shortcutCount);
+        writeInts(out, this.rank);
+        writeInts(out, this.forwardOffsets);
+        writeInts(out, this.forwardTargets);
+        writeFloats(out, this.forwardWeights);
+        writeInts(out, this.forwardMiddles);
+        writeInts(out, this.backwardOffsets);
+        writeInts(out, this.backwardTargets);
+        writeFloats(out, this.backwardWeights);
+        writeInts(out, this.backwardMiddles);
+    }
+
+    /**
+     * Reads a hierarchy written by write.
+     *
+     * @param in the input to read from
+     * @return the hierarchy
+     * @throws IOException if reading fails or the data is not a contraction hierarchy
+     */
+    public static ContractionHierarchy read(DataInput in) throws IOException {
+        if(in.readInt() != MAGIC) {
+            throw new IOException("Not a contraction hierarchy");
+        }
+        int version = in.readInt();
+        if(version != VERSION) {
+            throw new IOException("Unsupported contraction hierarchy version " + version);
+        }
+        int shortcutCount = in.readInt();
+        int[] rank = readInts(in);
+        int[] forwardOffsets = readInts(in);
+        int[] forwardTargets = readInts(in);
+        float[] forwardWeights = readFloats(in);
+        int[] forwardMiddles = readInts(in);
+        int[] backwardOffsets = readInts(in);
+        int[] backwardTargets = readInts(in);
+        float[] backwardWeights = readFloats(in);
+        int[] backwardMiddles = readInts(in);
+        return new ContractionHierarchy(rank,
+                forwardOffsets, forwardTargets, forwardWeights, forwardMiddles,
+                backwardOffsets, backwardTargets, backwardWeights, backwardMiddles,
+                shortcutCount);
+    }
+
+    /**
+     * Writes the hierarchy to a file.
+     *
+     * @param file the file to write
+     * @throws IOException if writing fails
+     */
+    public void save(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            write(out);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a hierarchy from a file written by save.
+     *
+     * @param file the file to read
+     * @return the hierarchy
+     * @throws IOException if reading fails or the file is not a contraction hierarchy
+     */
+    public static ContractionHierarchy load(File file) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        try {
+            return read(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes a length-prefixed int array.
+     *
+     * @param out the output to write to
+     * @param values the values to write
+     * @throws IOException if writing fails
+     */
+    private static void writeInts(DataOutput out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for(int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Writes a length-prefixed float array.
+     *
+     * @param out the output to write to
+     * @param values the values to write
+     * @throws IOException if writing fails
+     */
+    private static void writeFloats(DataOutput out, float[] values) throws IOException {
+        out.writeInt(values.length);
+        for(float value : values) {
+            out.writeFloat(value);
+        }
+    }
+
+    /**
+     * Reads a length-prefixed int array.
+     *
+     * @param in the input to read from
+     * @return the values read
+     * @throws IOException if reading fails
+     */
+    private static int[] readInts(DataInput in) throws IOException {
+        int[] values = new int[in.readInt()];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * Reads a length-prefixed float array.
+     *
+     * @param in the input to read from
+     * @return the values read
+     * @throws IOException if reading fails
+     */
+    private static float[] readFloats(DataInput in) throws IOException {
+        float[] values = new float[in.readInt()];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = in.readFloat();
+        }
+        return values;
+    }
+
+    /**
+     * Growable int array collecting the nodes of an unpacked path.
+     */
+    private static class PathBuffer {
+
+        /**
+         * Nodes collected so far.
+         */
+        private int[] nodes = new int[16];
+
+        /**
+         * Number of nodes collected so far.
+         */
+        private int size = 0;
+
+        /**
+         * Appends a node.
+         *
+         * @param node the index of the node
+         */
+        void add(int node) {
+            if(this.size == this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, 2 * this.size);
+            }
+            this.nodes[this.size++] = node;
+        }
+
+        /**
+         * Returns the collected nodes.
+         *
+         * @return a trimmed copy of the buffer
+         */
+        int[] toArray() {
+            return Arrays.copyOf(this.nodes, this.size);
+        }
+    }
+}
@@ -0,0 +1,536 @@
+package walker.blue.path.lib.graph;
+
+import java.util.Arrays;
+
+import walker.blue.path.lib.util.IndexedMinHeap;
+
+/**
+ * Builds a ContractionHierarchy from a CsrGraph. Nodes are contracted one
+ * at a time, cheapest first, where the cost of a node is the number of
+ * shortcuts its contraction adds minus the number of edges it removes,
+ * plus the number of its neighbors already contracted (which spreads the
+ * contraction evenly over the graph). Contracting a node adds a shortcut
+ * u to x for every pair of edges u to v and v to x whose combined path
+ * is not matched by a witness path that avoids v. Witnesses are looked
+ * for with a Dijkstra search limited to a number of settled nodes, so a
+ * few unneeded shortcuts may be added but no shortest path is lost. When
+ * a node is contracted its remaining edges are moved out of the working
+ * graph into the hierarchy, which keeps later witness searches small.
+ *
+ * <p>Preprocessing is meant to run offline; the result can be saved with
+ * ContractionHierarchy.write and loaded again with ContractionHierarchy.read.
+ */
+public class ContractionHierarchyBuilder {
+
+    /**
+     * Number of settled nodes after which a witness search gives up.
+     */
+    public static final int DEFAULT_WITNESS_LIMIT = 500;
+
+    /**
+     * Number of settled nodes after which a witness search run only to
+     * estimate the cost of a node gives up.
+     */
+    public static final int DEFAULT_SIMULATION_LIMIT = 50;
+
+    /**
+     * Number of settled nodes after which a witness search gives up.
+     */
+    private final int witnessLimit;
+
+    /**
+     * Number of settled nodes after which a witness search run only to
+     * estimate the cost of a node gives up.
+     */
+    private final int simulationLimit;
+
+    /**
+     * Number of nodes in the graph.
+     */
+    private int nodeCount;
+
+    /**
+     * Targets of the outgoing edges of each uncontracted node, including
+     * shortcuts. Edges to contracted nodes are moved out of these lists.
+     */
+    private int[][] outTargets;
+
+    /**
+     * Weights of the outgoing edges of each node.
+     */
+    private float[][] outWeights;
+
+    /**
+     * Contracted node bypassed by each outgoing edge, or -1 for original edges.
+     */
+    private int[][] outMiddles;
+
+    /**
+     * Number of outgoing edges of each node.
+     */
+    private int[] outCounts;
+
+    /**
+     * Sources of the incoming edges of each uncontracted node.
+     */
+    private int[][] inSources;
+
+    /**
+     * Weights of the incoming edges of each node.
+     */
+    private float[][] inWeights;
+
+    /**
+     * Number of incoming edges of each node.
+     */
+    private int[] inCounts;
+
+    /**
+     * Number of contracted neighbors of each node.
+     */
+    private int[] contractedNeighbors;
+
+    /**
+     * Source, target and bypassed node of every edge moved into the
+     * hierarchy, three entries per edge.
+     */
+    private int[] doneEdges;
+
+    /**
+     * Weight of every edge moved into the hierarchy.
+     */
+    private float[] doneWeights;
+
+    /**
+     * Number of edges moved into the hierarchy.
+     */
+    private int doneCount;
+
+    /**
+     * Distances of the current witness search.
+     */
+    private double[] witnessDistances;
+
+    /**
+     * Generation in which each witness distance was set.
+     */
+    private int[] witnessVisited;
+
+    /**
+     * Generation of the current witness search.
+     */
+    private int witnessGeneration;
+
+    /**
+     * Open set of the witness searches.
+     */
+    private IndexedMinHeap witnessQueue;
+
+    /**
+     * Generation in which each node was marked as a target of the witness search.
+     */
+    private int[] targetMarks;
+
+    /**
+     * Class constructor using DEFAULT_WITNESS_LIMIT and DEFAULT_SIMULATION_LIMIT.
+     */
+    public ContractionHierarchyBuilder() {
+        this(DEFAULT_WITNESS_LIMIT, DEFAULT_SIMULATION_LIMIT);
+    }
+
+    /**
+     * Class constructor. Higher limits add fewer shortcuts but make
+     * preprocessing slower.
+     *
+     * @param witnessLimit number of settled nodes after which a witness search gives up
+     * @param simulationLimit the same limit while estimating the cost of a node
+     */
+    public ContractionHierarchyBuilder(int witnessLimit, int simulationLimit) {
+        this.witnessLimit = witnessLimit;
+        this.simulationLimit = simulationLimit;
+    }
+
+    /**
+     * Contracts every node of a graph and returns the resulting hierarchy.
+     *
+     * @param graph the graph, whose edge weights must not be negative
+     * @return the contraction hierarchy of the graph
+     */
+    public ContractionHierarchy build(CsrGraph graph) {
+        init(graph);
+        int[] rank = new int[this.nodeCount];
+        IndexedMinHeap order = new IndexedMinHeap(this.nodeCount);
+        for(int node = 0; node < this.nodeCount; node++) {
+            order.add(node, getPriority(node));
+        }
+        int[] neighbors = new int[16];
+        int nextRank = 0;
+        while(!order.isEmpty()) {
+            // The cheapest node is checked again before use, in case its
+            // priority went up since it was queued.
+            int node = order.peek();
+            int priority = getPriority(node);
+            if(priority > order.peekKey()) {
+                order.update(node, priority, 0);
+                if(order.peek() != node) {
+                    continue;
+                }
+            }
+            order.remove();
+            contract(node, false);
+            rank[node] = nextRank++;
+
+            int count = this.outCounts[node] + this.inCounts[node];
+            if(count > neighbors.length) {
+                neighbors = new int[2 * count];
+            }
+            System.arraycopy(this.outTargets[node], 0, neighbors, 0, this.outCounts[node]);
+            System.arraycopy(this.inSources[node], 0, neighbors, this.outCounts[node], this.inCounts[node]);
+            retire(node);
+            // The shortcuts just added and the edges just removed change
+            // the cost of the neighbors.
+            for(int k = 0; k < count; k++) {
+                int neighbor = neighbors[k];
+                this.contractedNeighbors[neighbor]++;
+                order.update(neighbor, getPriority(neighbor), 0);
+            }
+        }
+        return assemble(rank);
+    }
+
+    /**
+     * Copies the edges of the graph into growable per-node lists.
+     *
+     * @param graph the graph to contract
+     */
+    private void init(CsrGraph graph) {
+        int n = graph.getNodeCount();
+        this.nodeCount = n;
+        this.outTargets = new int[n][];
+        this.outWeights = new float[n][];
+        this.outMiddles = new int[n][];
+        this.outCounts = new int[n];
+        this.inSources = new int[n][];
+        this.inWeights = new float[n][];
+        this.inCounts = new int[n];
+        for(int node = 0; node < n; node++) {
+            this.outTargets[node] = new int[4];
+            this.outWeights[node] = new float[4];
+            this.outMiddles[node] = new int[4];
+            this.inSources[node] = new int[4];
+            this.inWeights[node] = new float[4];
+        }
+        this.contractedNeighbors = new int[n];
+        this.doneEdges = new int[3 * Math.max(graph.getEdgeCount(), 1)];
+        this.doneWeights = new float[Math.max(graph.getEdgeCount(), 1)];
+        this.doneCount = 0;
+        this.witnessDistances = new double[n];
+        this.witnessVisited = new int[n];
+        this.witnessGeneration = 0;
+        this.witnessQueue = new IndexedMinHeap(n);
+        this.targetMarks = new int[n];
+        for(int node = 0; node < n; node++) {
+            for(int edge = graph.getEdgeStart(node); edge < graph.getEdgeEnd(node); edge++) {
+                int target = graph.getTarget(edge);
+                if(target != node) {
+                    addEdge(node, target, graph.getWeight(edge), -1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the current contraction cost of a node.
+     *
+     * @param node the index of the node
+     * @return twice the edge difference plus the number of contracted neighbors
+     */
+    private int getPriority(int node) {
+        int removed = this.outCounts[node] + this.inCounts[node];
+        return 2 * (contract(node, true) - removed) + this.contractedNeighbors[node];
+    }
+
+    /**
+     * Finds the shortcuts needed to contract a node and adds them unless simulating.
+     *
+     * @param node the index of the node
+     * @param simulate true to only count the shortcuts
+     * @return the number of shortcuts needed
+     */
+    private int contract(int node, boolean simulate) {
+        int shortcuts = 0;
+        int inCount = this.inCounts[node];
+        int outCount = this.outCounts[node];
+        // Shortcuts are added to the lists of other nodes only, so the
+        // lists of the contracted node can be read while adding them.
+        int[] outTargets = this.outTargets[node];
+        float[] outWeights = this.outWeights[node];
+        for(int i = 0; i < inCount; i++) {
+            int source = this.inSources[node][i];
+            double inWeight = this.inWeights[node][i];
+            double maxOut = -1;
+            int targets = 0;
+            int generation = this.witnessGeneration + 1;
+            for(int k = 0; k < outCount; k++) {
+                if(outTargets[k] != source) {
+                    maxOut = Math.max(maxOut, outWeights[k]);
+                    this.targetMarks[outTargets[k]] = generation;
+                    targets++;
+                }
+            }
+            if(maxOut < 0) {
+                continue;
+            }
+            findWitnesses(source, node, inWeight + maxOut, targets,
+                    simulate ? this.simulationLimit : this.witnessLimit);
+            for(int k = 0; k < outCount; k++) {
+                int target = outTargets[k];
+                if(target == source) {
+                    continue;
+                }
+                double viaNode = inWeight + outWeights[k];
+                if(getWitnessDistance(target) > viaNode) {
+                    shortcuts++;
+                    if(!simulate) {
+                        addEdge(source, target, (float) viaNode, node);
+                    }
+                }
+            }
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Runs a Dijkstra search from a node over the uncontracted graph
+     * without passing through the node being contracted.
+     *
+     * @param source the index of the start node
+     * @param excluded the index of the node being contracted
+     * @param limit the distance beyond which no witness is needed
+     * @param targets the number of marked target nodes
+     * @param settleLimit the number of settled nodes after which the search gives up
+     */
+    private void findWitnesses(int source, int excluded, double limit, int targets, int settleLimit) {
+        IndexedMinHeap queue = this.witnessQueue;
+        queue.clear();
+        this.witnessGeneration++;
+        this.witnessDistances[source] = 0;
+        this.witnessVisited[source] = this.witnessGeneration;
+        queue.add(source, 0);
+        int settled = 0;
+        while(!queue.isEmpty() && queue.peekKey() <= limit && settled < settleLimit) {
+            int current = queue.remove();
+            settled++;
+            // Once every target is settled their distances are final.
+            if(this.targetMarks[current] == this.witnessGeneration && --targets == 0) {
+                break;
+            }
+            double distance = this.witnessDistances[current];
+            int[] edgeTargets = this.outTargets[current];
+            float[] weights = this.outWeights[current];
+            for(int k = 0; k < this.outCounts[current]; k++) {
+                int target = edgeTargets[k];
+                if(target == excluded) {
+                    continue;
+                }
+                double newDistance = distance + weights[k];
+                if(newDistance < getWitnessDistance(target)) {
+                    this.witnessDistances[target] = newDistance;
+                    this.witnessVisited[target] = this.witnessGeneration;
+                    queue.addOrDecrease(target, newDistance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the distance found by the last witness search.
+     *
+     * @param node the index of the node
+     * @return the distance, or infinity if the node was not reached
+     */
+    private double getWitnessDistance(int node) {
+        return this.witnessVisited[node] == this.witnessGeneration
+                ? this.witnessDistances[node] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Adds an edge, or lowers the weight of an existing edge between the same nodes.
+     *
+     * @param from the index of the source node
+     * @param to the index of the target node
+     * @param weight the weight of the edge
+     * @param middle the contracted node the edge bypasses, or -1
+     */
+    private void addEdge(int from, int to, float weight, int middle) {
+        for(int k = 0; k < this.outCounts[from]; k++) {
+            if(this.outTargets[from][k] == to) {
+                if(weight < this.outWeights[from][k]) {
+                    this.outWeights[from][k] = weight;
+                    this.outMiddles[from][k] = middle;
+                    for(int i = 0; i < this.inCounts[to]; i++) {
+                        if(this.inSources[to][i] == from) {
+                            this.inWeights[to][i] = weight;
+                        }
+                    }
+                }
+                return;
+            }
+        }
+        int out = this.outCounts[from]++;
+        if(out == this.outTargets[from].length) {
+            this.outTargets[from] = Arrays.copyOf(this.outTargets[from], 2 * out);
+            this.outWeights[from] = Arrays.copyOf(this.outWeights[from], 2 * out);
+            this.outMiddles[from] = Arrays.copyOf(this.outMiddles[from], 2 * out);
+        }
+        this.outTargets[from][out] = to;
+        this.outWeights[from][out] = weight;
+        this.outMiddles[from][out] = middle;
+        int in = this.inCounts[to]++;
+        if(in == this.inSources[to].length) {
+            this.inSources[to] = Arrays.copyOf(this.inSources[to], 2 * in);
+            this.inWeights[to] = Arrays.copyOf(this.inWeights[to], 2 * in);
+        }
+        this.inSources[to][in] = from;
+        this.inWeights[to][in] = weight;
+    }
+
+    /**
+     * Moves the edges of a contracted node out of the working lists and
+     * into the hierarchy. Every remaining neighbor is contracted later, so
+     * each of these edges leads upwards from the node.
+     *
+     * @param node the index of the contracted node
+     */
+    private void retire(int node) {
+        for(int k = 0; k < this.outCounts[node]; k++) {
+            int target = this.outTargets[node][k];
+            keepEdge(node, target, this.outWeights[node][k], this.outMiddles[node][k]);
+            int i = indexOf(this.inSources[target], this.inCounts[target], node);
+            int last = --this.inCounts[target];
+            this.inSources[target][i] = this.inSources[target][last];
+            this.inWeights[target][i] = this.inWeights[target][last];
+        }
+        for(int i = 0; i < this.inCounts[node]; i++) {
+            int source = this.inSources[node][i];
+            int k = indexOf(this.outTargets[source], this.outCounts[source], node);
+            keepEdge(source, node, this.outWeights[source][k], this.outMiddles[source][k]);
+            int last = --this.outCounts[source];
+            this.outTargets[source][k] = this.outTargets[source][last];
+            this.outWeights[source][k] = this.outWeights[source][last];
+            this.outMiddles[source][k] = this.outMiddles[source][last];
+        }
+        this.outCounts[node] = 0;
+        this.inCounts[node] = 0;
+        this.outTargets[node] = null;
+        this.outWeights[node] = null;
+        this.outMiddles[node] = null;
+        this.inSources[node] = null;
+        this.inWeights[node] = null;
+    }
+
+    /**
+     * Returns the position of a value in the first count entries of an array.
+     *
+     * @param values the array to search
+     * @param count the number of entries in use
+     * @param value the value to look for
+     * @return the position of the value, or -1 if it is not there
+     */
+    private static int indexOf(int[] values, int count, int value) {
+        for(int k = 0; k < count; k++) {
+            if(values[k] == value) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Records an edge of the finished hierarchy.
+     *
+     * @param from the index of the source node
+     * @param to the index of the target node
+     * @param weight the weight of the edge
+     * @param middle the contracted node the edge bypasses, or -1
+     */
+    private void keepEdge(int from, int to, float weight, int middle) {
+        if(this.doneCount == this.doneWeights.length) {
+            this.doneEdges = Arrays.copyOf(this.doneEdges, 6 * this.doneCount);
+            this.doneWeights = Arrays.copyOf(this.doneWeights, 2 * this.doneCount);
+        }
+        this.doneEdges[3 * this.doneCount] = from;
+        this.doneEdges[3 * this.doneCount + 1] = to;
+        this.doneEdges[3 * this.doneCount + 2] = middle;
+        this.doneWeights[this.doneCount] = weight;
+        this.doneCount++;
+    }
+
+    /**
+     * Splits every edge into the upward graph of its source or the
+     * backward upward graph of its target, by rank.
+     *
+     * @param rank the contraction order of each node
+     * @return the contraction hierarchy
+     */
+    private ContractionHierarchy assemble(int[] rank) {
+        int n = this.nodeCount;
+        int[] edges = this.doneEdges;
+        int[] forwardOffsets = new int[n + 1];
+        int[] backwardOffsets = new int[n + 1];
+        int shortcutCount = 0;
+        for(int e = 0; e < this.doneCount; e++) {
+            int from = edges[3 * e];
+            int to = edges[3 * e + 1];
+            if(rank[to] > rank[from]) {
+                forwardOffsets[from + 1]++;
+            }
+            else {
+                backwardOffsets[to + 1]++;
+            }
+            if(edges[3 * e + 2] != -1) {
+                shortcutCount++;
+            }
+        }
+        for(int node = 0; node < n; node++) {
+            forwardOffsets[node + 1] += forwardOffsets[node];
+            backwardOffsets[node + 1] += backwardOffsets[node];
+        }
+        int[] forwardTargets = new int[forwardOffsets[n]];
+        float[] forwardWeights = new float[forwardOffsets[n]];
+        int[] forwardMiddles = new int[forwardOffsets[n]];
+        int[] backwardTargets = new int[backwardOffsets[n]];
+        float[] backwardWeights = new float[backwardOffsets[n]];
+        int[] backwardMiddles = new int[backwardOffsets[n]];
+        int[] forwardNext = Arrays.copyOf(forwardOffsets, n);
+        int[] backwardNext = Arrays.copyOf(backwardOffsets, n);
+        for(int e = 0; e < this.doneCount; e++) {
+            int from = edges[3 * e];
+            int to = edges[3 * e + 1];
+            if(rank[to] > rank[from]) {
+                int slot = forwardNext[from]++;
+                forwardTargets[slot] = to;
+                forwardWeights[slot] = this.doneWeights[e];
+                forwardMiddles[slot] = edges[3 * e + 2];
+            }
+            else {
+                int slot = backwardNext[to]++;
+                backwardTargets[slot] = from;
+                backwardWeights[slot] = this.doneWeights[e];
+                backwardMiddles[slot] = edges[3 * e + 2];
+            }
+        }
+        // Drop the working arrays so a reused builder does not hold on to them.
+        this.outTargets = null;
+        this.outWeights = null;
+        this.outMiddles = null;
+        this.inSources = null;
+        this.inWeights = null;
+        this.doneEdges = null;
+        this.doneWeights = null;
+        return new ContractionHierarchy(rank,
+                forwardOffsets, forwardTargets, forwardWeights, forwardMiddles,
+                backwardOffsets, backwardTargets, backwardWeights, backwardMiddles,
+                shortcutCount);
+    }
+}
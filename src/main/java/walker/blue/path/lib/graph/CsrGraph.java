@@ -0,0 +1,341 @@
+package walker.blue.path.lib.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import walker.blue.path.lib.node.GraphNode;
+import walker.blue.path.lib.node.RectCoordinates;
+
+/**
+ * Immutable directed graph of GraphNodes stored in compressed sparse row
+ * form. Nodes are addressed by GraphNode.getIndex(). The outgoing edges of
+ * node i are the entries offsets[i] (inclusive) to offsets[i + 1]
+ * (exclusive) of the targets and weights arrays, so the whole graph is
+ * held in three primitive arrays with no object per edge.
+ *
+ * <p>Graphs are created with a Builder, or converted from adjacency lists
+ * with fromAdjacencyLists.
+ */
+public class CsrGraph {
+
+    /**
+     * Nodes by index.
+     */
+    private final GraphNode[] nodes;
+
+    /**
+     * Index of the first outgoing edge of each node, followed by the edge count.
+     */
+    private final int[] offsets;
+
+    /**
+     * Target node of each edge.
+     */
+    private final int[] targets;
+
+    /**
+     * Weight of each edge.
+     */
+    private final float[] weights;
+
+    /**
+     * Coordinates of each node, three entries (x, y, z) per node.
+     */
+    private final int[] coordinates;
+
+    /**
+     * Class constructor
+     *
+     * @param nodes the nodes by index
+     * @param offsets the index of the first edge of each node, followed by the edge count
+     * @param targets the target node of each edge
+     * @param weights the weight of each edge
+     */
+    public CsrGraph(GraphNode[] nodes, int[] offsets, int[] targets, float[] weights) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.coordinates = new int[3 * nodes.length];
+        for(int i = 0; i < nodes.length; i++) {
+            RectCoordinates location = nodes[i].getLocation();
+            this.coordinates[3 * i] = location.getX();
+            this.coordinates[3 * i + 1] = location.getY();
+            this.coordinates[3 * i + 2] = location.getZ();
+        }
+    }
+
+    /**
+     * Converts adjacency lists into a graph. The weight of every edge is
+     * the straight-line distance between the locations of its nodes.
+     *
+     * @param nodes the nodes, whose indices must be 0 to nodes.size() - 1
+     * @param adjacency the neighbors of each node, by node index
+     * @return the graph
+     */
+    public static CsrGraph fromAdjacencyLists(List<GraphNode> nodes, List<List<GraphNode>> adjacency) {
+        Builder builder = new Builder(nodes);
+        for(int i = 0; i < adjacency.size(); i++) {
+            for(GraphNode neighbor : adjacency.get(i)) {
+                builder.addEdge(i, neighbor.getIndex());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return the node count
+     */
+    public int getNodeCount() {
+        return this.nodes.length;
+    }
+
+    /**
+     * Returns the number of directed edges.
+     *
+     * @return the edge count
+     */
+    public int getEdgeCount() {
+        return this.targets.length;
+    }
+
+    /**
+     * Returns a node by index.
+     *
+     * @param index the index of the node
+     * @return the node
+     */
+    public GraphNode getNode(int index) {
+        return this.nodes[index];
+    }
+
+    /**
+     * Returns the index of the first outgoing edge of a node.
+     *
+     * @param node the index of the node
+     * @return the index of the first edge
+     */
+    public int getEdgeStart(int node) {
+        return this.offsets[node];
+    }
+
+    /**
+     * Returns the index after the last outgoing edge of a node.
+     *
+     * @param node the index of the node
+     * @return the index after the last edge
+     */
+    public int getEdgeEnd(int node) {
+        return this.offsets[node + 1];
+    }
+
+    /**
+     * Returns the target node of an edge.
+     *
+     * @param edge the index of the edge
+     * @return the index of the target node
+     */
+    public int getTarget(int edge) {
+        return this.targets[edge];
+    }
+
+    /**
+     * Returns the weight of an edge.
+     *
+     * @param edge the index of the edge
+     * @return the weight of the edge
+     */
+    public float getWeight(int edge) {
+        return this.weights[edge];
+    }
+
+    /**
+     * Returns the backing offsets array.
+     *
+     * @return the index of the first edge of each node, followed by the edge count
+     */
+    public int[] getOffsets() {
+        return this.offsets;
+    }
+
+    /**
+     * Returns the backing targets array.
+     *
+     * @return the target node of each edge
+     */
+    public int[] getTargets() {
+        return this.targets;
+    }
+
+    /**
+     * Returns the backing weights array.
+     *
+     * @return the weight of each edge
+     */
+    public float[] getWeights() {
+        return this.weights;
+    }
+
+    /**
+     * Returns the straight-line distance between the locations of two nodes.
+     *
+     * @param a the index of the first node
+     * @param b the index of the second node
+     * @return the Euclidean distance between the two nodes
+     */
+    public double getDistance(int a, int b) {
+        int[] coordinates = this.coordinates;
+        double dx = coordinates[3 * a] - coordinates[3 * b];
+        double dy = coordinates[3 * a + 1] - coordinates[3 * b + 1];
+        double dz = coordinates[3 * a + 2] - coordinates[3 * b + 2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Returns the nodes of a path given as node indices.
+     *
+     * @param path the node indices
+     * @return the nodes in the same order
+     */
+    public List<GraphNode> toNodes(int[] path) {
+        List<GraphNode> nodes = new ArrayList<GraphNode>(path.length);
+        for(int index : path) {
+            nodes.add(this.nodes[index]);
+        }
+        return nodes;
+    }
+
+    /**
+     * Collects the edges of a graph and builds the CSR arrays in one pass
+     * over them. Edges may be added in any order.
+     */
+    public static class Builder {
+
+        /**
+         * Nodes by index.
+         */
+        private final GraphNode[] nodes;
+
+        /**
+         * Source node of each edge added so far.
+         */
+        private int[] sources;
+
+        /**
+         * Target node of each edge added so far.
+         */
+        private int[] targets;
+
+        /**
+         * Weight of each edge added so far.
+         */
+        private float[] weights;
+
+        /**
+         * Number of edges added so far.
+         */
+        private int edgeCount;
+
+        /**
+         * Class constructor
+         *
+         * @param nodes the nodes, whose indices must be 0 to nodes.size() - 1
+         */
+        public Builder(List<GraphNode> nodes) {
+            this.nodes = new GraphNode[nodes.size()];
+            for(GraphNode node : nodes) {
+                int index = node.getIndex();
+                if(index < 0 || index >= this.nodes.length || this.nodes[index] != null) {
+                    throw new IllegalArgumentException("Node indices must be unique and in [0, "
+                            + this.nodes.length + "): " + index);
+                }
+                this.nodes[index] = node;
+            }
+            this.sources = new int[16];
+            this.targets = new int[16];
+            this.weights = new float[16];
+            this.edgeCount = 0;
+        }
+
+        /**
+         * Adds a directed edge weighted by the straight-line distance between its nodes.
+         *
+         * @param from the index of the source node
+         * @param to the index of the target node
+         * @return this builder
+         */
+        public Builder addEdge(int from, int to) {
+            RectCoordinates a = this.nodes[from].getLocation();
+            RectCoordinates b = this.nodes[to].getLocation();
+            double dx = a.getX() - b.getX();
+            double dy = a.getY() - b.getY();
+            double dz = a.getZ() - b.getZ();
+            return addEdge(from, to, (float) Math.sqrt(dx * dx + dy * dy + dz * dz));
+        }
+
+        /**
+         * Adds a directed edge.
+         *
+         * @param from the index of the source node
+         * @param to the index of the target node
+         * @param weight the weight of the edge, which must not be negative
+         * @return this builder
+         */
+        public Builder addEdge(int from, int to, float weight) {
+            if(this.edgeCount == this.sources.length) {
+                int capacity = 2 * this.edgeCount;
+                this.sources = Arrays.copyOf(this.sources, capacity);
+                this.targets = Arrays.copyOf(this.targets, capacity);
+                this.weights = Arrays.copyOf(this.weights, capacity);
+            }
+            this.sources[this.edgeCount] = from;
+            this.targets[this.edgeCount] = to;
+            this.weights[this.edgeCount] = weight;
+            this.edgeCount++;
+            return this;
+        }
+
+        /**
+         * Adds an edge in each direction between two nodes.
+         *
+         * @param a the index of the first node
+         * @param b the index of the second node
+         * @param weight the weight of both edges
+         * @return this builder
+         */
+        public Builder addUndirectedEdge(int a, int b, float weight) {
+            addEdge(a, b, weight);
+            return addEdge(b, a, weight);
+        }
+
+        /**
+         * Builds the graph from the edges added so far.
+         *
+         * @return the graph
+         */
+        public CsrGraph build() {
+            int nodeCount = this.nodes.length;
+            int[] offsets = new int[nodeCount + 1];
+            for(int e = 0; e < this.edgeCount; e++) {
+                offsets[this.sources[e] + 1]++;
+            }
+            for(int i = 0; i < nodeCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            // Place every edge in the slot range of its source node,
+            // keeping the order the edges were added in.
+            int[] next = Arrays.copyOf(offsets, nodeCount);
+            int[] csrTargets = new int[this.edgeCount];
+            float[] csrWeights = new float[this.edgeCount];
+            for(int e = 0; e < this.edgeCount; e++) {
+                int slot = next[this.sources[e]]++;
+                csrTargets[slot] = this.targets[e];
+                csrWeights[slot] = this.weights[e];
+            }
+            return new CsrGraph(this.nodes.clone(), offsets, csrTargets, csrWeights);
+        }
+    }
+}
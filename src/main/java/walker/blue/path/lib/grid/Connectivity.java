@@ -0,0 +1,31 @@
+package walker.blue.path.lib.grid;
+
+/**
+ * Enum holding the ways a grid pathfinder may move from a cell to its
+ * neighbors.
+ */
+public enum Connectivity {
+
+    /**
+     * Only the four orthogonal neighbors can be reached.
+     */
+    FOUR,
+
+    /**
+     * All eight neighbors can be reached, even when a diagonal move cuts
+     * between two untraversable cells.
+     */
+    EIGHT,
+
+    /**
+     * All eight neighbors can be reached, but a diagonal move is not allowed
+     * to squeeze between two untraversable orthogonal neighbors.
+     */
+    EIGHT_NO_SQUEEZING,
+
+    /**
+     * All eight neighbors can be reached, but a diagonal move is only allowed
+     * when both orthogonal neighbors it passes are traversable.
+     */
+    EIGHT_NO_CORNER_CUTTING
+}
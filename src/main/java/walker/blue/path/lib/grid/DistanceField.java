@@ -0,0 +1,185 @@
+package walker.blue.path.lib.grid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import walker.blue.path.lib.node.GridNode;
+
+/**
+ * Holds the distance from one source cell to every cell of a grid and the
+ * parent of every cell on its shortest path back to the source, as
+ * produced by a single Dijkstra flood. The path to any cell can be read
+ * back in time proportional to its length.
+ */
+public class DistanceField {
+
+    /**
+     * Number of columns in the grid.
+     */
+    private final int width;
+
+    /**
+     * Number of rows in the grid.
+     */
+    private final int height;
+
+    /**
+     * Id of the source cell.
+     */
+    private final int source;
+
+    /**
+     * Distance from the source to each cell, or infinity if unreachable.
+     */
+    private final float[] distances;
+
+    /**
+     * Id of the parent of each cell, or -1 for the source and unreachable cells.
+     */
+    private final int[] parents;
+
+    /**
+     * Class constructor
+     *
+     * @param width the number of columns in the grid
+     * @param height the number of rows in the grid
+     * @param source the id of the source cell
+     * @param distances the distance from the source to each cell
+     * @param parents the parent id of each cell
+     */
+    public DistanceField(int width, int height, int source, float[] distances, int[] parents) {
+        this.width = width;
+        this.height = height;
+        this.source = source;
+        this.distances = distances;
+        this.parents = parents;
+    }
+
+    /**
+     * Access method to get the width.
+     *
+     * @return the number of columns in the grid
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Access method to get the height.
+     *
+     * @return the number of rows in the grid
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Access method to get the source cell.
+     *
+     * @return the id of the source cell
+     */
+    public int getSource() {
+        return this.source;
+    }
+
+    /**
+     * Returns the distance from the source to a cell.
+     *
+     * @param id the id of the cell
+     * @return the distance, or Float.POSITIVE_INFINITY if the cell cannot be reached
+     */
+    public float getDistance(int id) {
+        return this.distances[id];
+    }
+
+    /**
+     * Returns the distance from the source to a cell.
+     *
+     * @param x the column of the cell
+     * @param y the row of the cell
+     * @return the distance, or Float.POSITIVE_INFINITY if the cell cannot be reached
+     */
+    public float getDistance(int x, int y) {
+        return this.distances[y * this.width + x];
+    }
+
+    /**
+     * Checks whether a cell can be reached from the source.
+     *
+     * @param id the id of the cell
+     * @return true if there is a path from the source to the cell, false otherwise
+     */
+    public boolean isReachable(int id) {
+        return this.distances[id] != Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the cell before the given one on its shortest path from the source.
+     *
+     * @param id the id of the cell
+     * @return the id of the parent, or -1 for the source and unreachable cells
+     */
+    public int getParent(int id) {
+        return this.parents[id];
+    }
+
+    /**
+     * Returns the backing distance array, indexed by cell id.
+     *
+     * @return the distances
+     */
+    public float[] getDistances() {
+        return this.distances;
+    }
+
+    /**
+     * Returns the backing parent array, indexed by cell id.
+     *
+     * @return the parent ids
+     */
+    public int[] getParents() {
+        return this.parents;
+    }
+
+    /**
+     * Returns the shortest path from the source to a cell.
+     *
+     * @param dest the id of the destination cell
+     * @return the cell ids of the path starting with the source, or null if
+     *         the cell cannot be reached
+     */
+    public int[] getPath(int dest) {
+        if(!isReachable(dest)) {
+            return null;
+        }
+        int length = 0;
+        for(int id = dest; id != -1; id = this.parents[id]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for(int id = dest; id != -1; id = this.parents[id]) {
+            path[--length] = id;
+        }
+        return path;
+    }
+
+    /**
+     * Returns the shortest path from the source to a node of a search area.
+     *
+     * @param searchArea the 2D list of GridNodes the field was computed on
+     * @param dest the destination node
+     * @return the nodes of the path starting with the source, or null if the
+     *         node cannot be reached
+     */
+    public List<GridNode> getPath(List<List<GridNode>> searchArea, GridNode dest) {
+        int[] ids = getPath(dest.getLocation().getY() * this.width + dest.getLocation().getX());
+        if(ids == null) {
+            return null;
+        }
+        List<GridNode> path = new ArrayList<GridNode>(ids.length);
+        for(int id : ids) {
+            path.add(searchArea.get(id / this.width).get(id % this.width));
+        }
+        return path;
+    }
+}
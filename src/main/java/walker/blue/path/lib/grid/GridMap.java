@@ -0,0 +1,312 @@
+package walker.blue.path.lib.grid;
+
+import java.util.Arrays;
+
+import walker.blue.path.lib.base.Versioned;
+
+/**
+ * Compact search area that stores the traversability of every cell as one
+ * bit in a flat long array, in row-major order. A GridMap needs roughly
+ * one bit per cell, compared to the several dozen bytes per cell used by
+ * a 2D list of GridNodes, and can be searched directly by the grid
+ * pathfinders using int cell ids (y * width + x).
+ *
+ * <p>Cells can be given a cost from 1 to 255, held in a byte per cell.
+ * The layer is only allocated once a cell is given a cost other than 1.
+ *
+ * <p>The map counts its modifications, so cached results computed on it
+ * can tell when they have gone stale.
+ */
+public class GridMap implements SearchGrid, Versioned {
+
+    /**
+     * Lowest cost a cell can have.
+     */
+    public static final int MIN_COST = 1;
+
+    /**
+     * Highest cost a cell can have.
+     */
+    public static final int MAX_COST = 255;
+
+    /**
+     * Number of columns in the map.
+     */
+    private final int width;
+
+    /**
+     * Number of rows in the map.
+     */
+    private final int height;
+
+    /**
+     * The floor number of the map, used as the z coordinate of its cells.
+     */
+    private final int floor;
+
+    /**
+     * Traversability bits, one per cell in row-major order.
+     */
+    private final long[] bits;
+
+    /**
+     * Cost of every cell in row-major order as an unsigned byte, or null
+     * while every cell costs 1.
+     */
+    private byte[] costs;
+
+    /**
+     * Number of modifications made to the map.
+     */
+    private volatile long version;
+
+    /**
+     * Class constructor creating a map in which every cell is untraversable.
+     *
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param floor the floor number of the map
+     */
+    public GridMap(int width, int height, int floor) {
+        this.width = width;
+        this.height = height;
+        this.floor = floor;
+        this.bits = new long[(int) (((long) width * height + 63) >>> 6)];
+    }
+
+    /**
+     * Class constructor creating a map on floor 0 in which every cell is untraversable.
+     *
+     * @param width the number of columns
+     * @param height the number of rows
+     */
+    public GridMap(int width, int height) {
+        this(width, height, 0);
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Access method to get the floor number.
+     *
+     * @return int
+     */
+    public int getFloor() {
+        return this.floor;
+    }
+
+    /**
+     * Returns the number of cells in the map.
+     *
+     * @return width * height
+     */
+    public int size() {
+        return this.width * this.height;
+    }
+
+    /**
+     * Returns the row-major id of the cell at the given coordinates.
+     *
+     * @param x the column of the cell
+     * @param y the row of the cell
+     * @return the id of the cell
+     */
+    public int getId(int x, int y) {
+        return y * this.width + x;
+    }
+
+    /**
+     * Returns the column of the cell with the given id.
+     *
+     * @param id the id of the cell
+     * @return the x coordinate of the cell
+     */
+    public int getX(int id) {
+        return id % this.width;
+    }
+
+    /**
+     * Returns the row of the cell with the given id.
+     *
+     * @param id the id of the cell
+     * @return the y coordinate of the cell
+     */
+    public int getY(int id) {
+        return id / this.width;
+    }
+
+    @Override
+    public boolean isTraversable(int x, int y) {
+        return x >= 0 && y >= 0 && x < this.width && y < this.height &&
+                isTraversable(y * this.width + x);
+    }
+
+    /**
+     * Checks whether the cell with the given id can be walked through.
+     * The id must be inside the map.
+     *
+     * @param id the id of the cell
+     * @return true if the cell is traversable, false otherwise
+     */
+    public boolean isTraversable(int id) {
+        return (this.bits[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Checks a run of cells in one row a 64-bit word at a time.
+     *
+     * @param y the row of the cells
+     * @param fromX the first column, inclusive
+     * @param toX the last column, inclusive, not less than fromX
+     * @return true if every cell is inside the map and traversable, false otherwise
+     */
+    @Override
+    public boolean isRowTraversable(int y, int fromX, int toX) {
+        if(y < 0 || y >= this.height || fromX < 0 || toX >= this.width) {
+            return false;
+        }
+        int start = y * this.width + fromX;
+        int end = y * this.width + toX;
+        int startWord = start >>> 6;
+        int endWord = end >>> 6;
+        long firstMask = -1L << start;
+        long lastMask = -1L >>> (63 - (end & 63));
+        if(startWord == endWord) {
+            long mask = firstMask & lastMask;
+            return (this.bits[startWord] & mask) == mask;
+        }
+        if((this.bits[startWord] & firstMask) != firstMask) {
+            return false;
+        }
+        for(int word = startWord + 1; word < endWord; word++) {
+            if(this.bits[word] != -1L) {
+                return false;
+            }
+        }
+        return (this.bits[endWord] & lastMask) == lastMask;
+    }
+
+    /**
+     * Sets whether the cell at the given coordinates can be walked through.
+     *
+     * @param x the column of the cell
+     * @param y the row of the cell
+     * @param traversable the new traversability of the cell
+     */
+    public void setTraversable(int x, int y, boolean traversable) {
+        int id = y * this.width + x;
+        if(traversable) {
+            this.bits[id >>> 6] |= 1L << id;
+        }
+        else {
+            this.bits[id >>> 6] &= ~(1L << id);
+        }
+        this.version++;
+    }
+
+    @Override
+    public int getCost(int x, int y) {
+        return getCost(y * this.width + x);
+    }
+
+    /**
+     * Returns the cost of entering the cell with the given id. The id
+     * must be inside the map.
+     *
+     * @param id the id of the cell
+     * @return the cost of the cell, from MIN_COST to MAX_COST
+     */
+    public int getCost(int id) {
+        byte[] costs = this.costs;
+        return costs == null ? 1 : costs[id] & 0xff;
+    }
+
+    /**
+     * Sets the cost of entering the cell at the given coordinates.
+     *
+     * @param x the column of the cell
+     * @param y the row of the cell
+     * @param cost the new cost of the cell, from MIN_COST to MAX_COST
+     */
+    public void setCost(int x, int y, int cost) {
+        if(cost < MIN_COST || cost > MAX_COST) {
+            throw new IllegalArgumentException("Cost must be in [" + MIN_COST + ", " + MAX_COST
+                    + "]: " + cost);
+        }
+        if(this.costs == null) {
+            if(cost == 1) {
+                return;
+            }
+            byte[] costs = new byte[size()];
+            Arrays.fill(costs, (byte) 1);
+            this.costs = costs;
+        }
+        this.costs[y * this.width + x] = (byte) cost;
+        this.version++;
+    }
+
+    /**
+     * Checks whether every cell costs 1. Stays false once any cell has
+     * been given another cost, even if it is set back to 1 later.
+     *
+     * @return true if no cell was ever given a cost other than 1
+     */
+    @Override
+    public boolean hasUniformCost() {
+        return this.costs == null;
+    }
+
+    /**
+     * Returns the cost layer of the map, one unsigned byte per cell in
+     * row-major order. Callers that modify it must call markModified
+     * afterwards.
+     *
+     * @return the backing cost of every cell, or null while every cell costs 1
+     */
+    public byte[] getCosts() {
+        return this.costs;
+    }
+
+    /**
+     * Returns the bitset holding the traversability of every cell. Bit
+     * (id % 64) of word (id / 64) is set when the cell is traversable.
+     * Callers that modify the words must call markModified afterwards.
+     *
+     * @return the backing words of the map
+     */
+    public long[] getBits() {
+        return this.bits;
+    }
+
+    /**
+     * Advances the version of the map after its bits were changed directly.
+     */
+    public void markModified() {
+        this.version++;
+    }
+
+    @Override
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for(int y = 0; y < this.height; y++) {
+            for(int x = 0; x < this.width; x++) {
+                builder.append(isTraversable(x, y) ? 'O' : 'X');
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+}
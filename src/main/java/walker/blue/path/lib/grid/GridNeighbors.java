@@ -0,0 +1,186 @@
+package walker.blue.path.lib.grid;
+
+/**
+ * Generates the neighbors of a cell in a SearchGrid without any exception
+ * handling at the borders. The traversability of the eight surrounding
+ * cells is gathered into an 8-bit mask, cells outside of the grid simply
+ * leaving their bit clear, and a table precomputed for the connectivity
+ * turns that mask into the set of allowed moves.
+ */
+public class GridNeighbors {
+
+    /**
+     * Number of directions a cell can have neighbors in.
+     */
+    public static final int DIRECTIONS = 8;
+
+    /**
+     * Column offset of each direction.
+     */
+    private static final int[] DX = {-1, 0, 1, -1, 1, -1, 0, 1};
+
+    /**
+     * Row offset of each direction.
+     */
+    private static final int[] DY = {-1, -1, -1, 0, 0, 1, 1, 1};
+
+    /**
+     * Allowed moves for every traversability mask, per connectivity.
+     */
+    private static final int[][] ALLOWED = new int[Connectivity.values().length][256];
+
+    static {
+        for(Connectivity connectivity : Connectivity.values()) {
+            for(int mask = 0; mask < 256; mask++) {
+                ALLOWED[connectivity.ordinal()][mask] = allowedMoves(connectivity, mask);
+            }
+        }
+    }
+
+    /**
+     * Table of allowed moves for the chosen connectivity.
+     */
+    private final int[] allowed;
+
+    /**
+     * The connectivity used to generate neighbors.
+     */
+    private final Connectivity connectivity;
+
+    /**
+     * Class constructor
+     *
+     * @param connectivity the moves allowed from a cell
+     */
+    public GridNeighbors(Connectivity connectivity) {
+        this.connectivity = connectivity;
+        this.allowed = ALLOWED[connectivity.ordinal()];
+    }
+
+    /**
+     * Access method to get the connectivity.
+     *
+     * @return connectivity
+     */
+    public Connectivity getConnectivity() {
+        return this.connectivity;
+    }
+
+    /**
+     * Writes the ids of the traversable neighbors of a cell into the given
+     * array and returns how many were written.
+     *
+     * @param grid the search area
+     * @param id the id of the cell
+     * @param neighbors array of at least DIRECTIONS entries receiving the neighbor ids
+     * @return the number of neighbors written
+     */
+    public int getNeighbors(SearchGrid grid, int id, int[] neighbors) {
+        int width = grid.getWidth();
+        int x = id % width;
+        int y = id / width;
+        int moves = getMoves(grid, x, y);
+        int count = 0;
+        while(moves != 0) {
+            int direction = Integer.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            neighbors[count++] = id + DY[direction] * width + DX[direction];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the allowed moves from a cell as a bit mask over the directions.
+     *
+     * @param grid the search area
+     * @param x the column of the cell
+     * @param y the row of the cell
+     * @return bit mask with bit i set when a move in direction i is allowed
+     */
+    public int getMoves(SearchGrid grid, int x, int y) {
+        int mask = 0;
+        for(int direction = 0; direction < DIRECTIONS; direction++) {
+            if(grid.isTraversable(x + DX[direction], y + DY[direction])) {
+                mask |= 1 << direction;
+            }
+        }
+        return this.allowed[mask];
+    }
+
+    /**
+     * Returns the column offset of a direction.
+     *
+     * @param direction index of the direction
+     * @return -1, 0 or 1
+     */
+    public static int getDx(int direction) {
+        return DX[direction];
+    }
+
+    /**
+     * Returns the row offset of a direction.
+     *
+     * @param direction index of the direction
+     * @return -1, 0 or 1
+     */
+    public static int getDy(int direction) {
+        return DY[direction];
+    }
+
+    /**
+     * Returns the index of the direction with the given offsets.
+     *
+     * @param dx column offset between -1 and 1
+     * @param dy row offset between -1 and 1, not both 0
+     * @return index of the direction
+     */
+    public static int getDirection(int dx, int dy) {
+        for(int direction = 0; direction < DIRECTIONS; direction++) {
+            if(DX[direction] == dx && DY[direction] == dy) {
+                return direction;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the allowed moves for one traversability mask.
+     *
+     * @param connectivity the moves allowed from a cell
+     * @param mask bit mask of the traversable neighbors
+     * @return bit mask of the allowed moves
+     */
+    private static int allowedMoves(Connectivity connectivity, int mask) {
+        int moves = 0;
+        for(int direction = 0; direction < DIRECTIONS; direction++) {
+            if((mask & (1 << direction)) == 0) {
+                continue;
+            }
+            if(DX[direction] == 0 || DY[direction] == 0) {
+                moves |= 1 << direction;
+                continue;
+            }
+            boolean horizontal = (mask & (1 << getDirection(DX[direction], 0))) != 0;
+            boolean vertical = (mask & (1 << getDirection(0, DY[direction]))) != 0;
+            boolean diagonalAllowed;
+            switch(connectivity) {
+                case FOUR:
+                    diagonalAllowed = false;
+                    break;
+                case EIGHT_NO_SQUEEZING:
+                    diagonalAllowed = horizontal || vertical;
+                    break;
+                case EIGHT_NO_CORNER_CUTTING:
+                    diagonalAllowed = horizontal && vertical;
+                    break;
+                default:
+                    diagonalAllowed = true;
+                    break;
+            }
+            if(diagonalAllowed) {
+                moves |= 1 << direction;
+            }
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,237 @@
+package walker.blue.path.lib.grid;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import walker.blue.path.lib.node.GridNode;
+
+/**
+ * Immutable path through a grid, held as the row-major ids of its cells
+ * (y * width + x) in one int array together with the cost of the path.
+ * A GridPath takes four bytes per cell, can be walked by index without
+ * creating any objects, and can be shared between threads, cached or
+ * written to a stream as it is. A list of GridNodes can still be made
+ * from it with toNodes.
+ *
+ * <p>Consecutive cells are adjacent for the A* family of finders, while
+ * the cells of a Theta* path are the corners of its straight segments.
+ */
+public final class GridPath {
+
+    /**
+     * Number of columns in the grid the path goes through.
+     */
+    private final int width;
+
+    /**
+     * Ids of the cells of the path, from start to destination.
+     */
+    private final int[] cells;
+
+    /**
+     * Cost of the path, in the units of the finder that found it.
+     */
+    private final double cost;
+
+    /**
+     * Class constructor
+     *
+     * @param width the number of columns in the grid
+     * @param cells the ids of the cells of the path, from start to destination,
+     *              which are copied
+     * @param cost the cost of the path
+     */
+    public GridPath(int width, int[] cells, double cost) {
+        if(width <= 0) {
+            throw new IllegalArgumentException("Width must be positive: " + width);
+        }
+        if(cells.length == 0) {
+            throw new IllegalArgumentException("A path holds at least one cell");
+        }
+        this.width = width;
+        this.cells = cells.clone();
+        this.cost = cost;
+    }
+
+    /**
+     * Access method to get the width.
+     *
+     * @return the number of columns in the grid
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Access method to get the cost.
+     *
+     * @return the cost of the path, in the units of the finder that found it
+     */
+    public double getCost() {
+        return this.cost;
+    }
+
+    /**
+     * Returns the number of cells in the path.
+     *
+     * @return the number of cells, including the start and the destination
+     */
+    public int size() {
+        return this.cells.length;
+    }
+
+    /**
+     * Returns the id of a cell of the path.
+     *
+     * @param index the position of the cell in the path
+     * @return the id of the cell
+     */
+    public int getCell(int index) {
+        return this.cells[index];
+    }
+
+    /**
+     * Returns the column of a cell of the path.
+     *
+     * @param index the position of the cell in the path
+     * @return the x coordinate of the cell
+     */
+    public int getX(int index) {
+        return this.cells[index] % this.width;
+    }
+
+    /**
+     * Returns the row of a cell of the path.
+     *
+     * @param index the position of the cell in the path
+     * @return the y coordinate of the cell
+     */
+    public int getY(int index) {
+        return this.cells[index] / this.width;
+    }
+
+    /**
+     * Returns the id of the first cell.
+     *
+     * @return the id of the start cell
+     */
+    public int getStart() {
+        return this.cells[0];
+    }
+
+    /**
+     * Returns the id of the last cell.
+     *
+     * @return the id of the destination cell
+     */
+    public int getDest() {
+        return this.cells[this.cells.length - 1];
+    }
+
+    /**
+     * Returns the straight-line length of the path, measured in cells.
+     *
+     * @return the sum of the Euclidean lengths of the steps of the path
+     */
+    public double getLength() {
+        double length = 0;
+        for(int i = 1; i < this.cells.length; i++) {
+            double dx = getX(i) - getX(i - 1);
+            double dy = getY(i) - getY(i - 1);
+            length += Math.sqrt(dx * dx + dy * dy);
+        }
+        return length;
+    }
+
+    /**
+     * Returns the ids of the cells of the path.
+     *
+     * @return a copy of the cell ids, from start to destination
+     */
+    public int[] toArray() {
+        return this.cells.clone();
+    }
+
+    /**
+     * Looks up the nodes of the path in a 2D list of nodes.
+     *
+     * @param searchArea a 2D list holding the GridNodes of the grid, by row
+     * @return the nodes of the path, from start to destination
+     */
+    public List<GridNode> toNodes(List<List<GridNode>> searchArea) {
+        List<GridNode> nodes = new ArrayList<GridNode>(this.cells.length);
+        for(int i = 0; i < this.cells.length; i++) {
+            nodes.add(searchArea.get(getY(i)).get(getX(i)));
+        }
+        return nodes;
+    }
+
+    /**
+     * Writes the path to a stream as the width, the cost, the number of
+     * cells and the cell ids.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(this.width);
+        out.writeDouble(this.cost);
+        out.writeInt(this.cells.length);
+        for(int cell : this.cells) {
+            out.writeInt(cell);
+        }
+    }
+
+    /**
+     * Reads a path written by writeTo.
+     *
+     * @param in the stream to read from
+     * @return the path
+     * @throws IOException if the stream cannot be read
+     */
+    public static GridPath readFrom(DataInput in) throws IOException {
+        int width = in.readInt();
+        double cost = in.readDouble();
+        int[] cells = new int[in.readInt()];
+        for(int i = 0; i < cells.length; i++) {
+            cells[i] = in.readInt();
+        }
+        return new GridPath(width, cells, cost);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof GridPath)) {
+            return false;
+        }
+        GridPath other = (GridPath) obj;
+        return this.width == other.width
+                && Double.compare(this.cost, other.cost) == 0
+                && Arrays.equals(this.cells, other.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = this.width;
+        long bits = Double.doubleToLongBits(this.cost);
+        result = 31 * result + (int) (bits ^ (bits >>> 32));
+        result = 31 * result + Arrays.hashCode(this.cells);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Cost: ").append(this.cost).append(", Path:");
+        for(int i = 0; i < this.cells.length; i++) {
+            builder.append(" (").append(getX(i)).append(", ").append(getY(i)).append(')');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package walker.blue.path.lib.grid;
+
+/**
+ * Enum holding the ways a grid pathfinder may estimate the distance from
+ * a cell to the destination. Distances use the same scale as the moves,
+ * 10 per orthogonal step and 14 per diagonal step.
+ *
+ * <p>With eight-way movement only OCTILE, EUCLIDEAN and CHEBYSHEV never
+ * overestimate, with OCTILE being the tightest of them. With four-way
+ * movement MANHATTAN is the tightest and still never overestimates.
+ */
+public enum Heuristic {
+
+    /**
+     * The sum of the x and y distances. Overestimates diagonal moves.
+     */
+    MANHATTAN {
+        @Override
+        public int estimate(int dx, int dy) {
+            return 10 * (dx + dy);
+        }
+    },
+
+    /**
+     * Diagonal steps while both distances remain, then straight steps.
+     * The exact length of an unobstructed eight-way path.
+     */
+    OCTILE {
+        @Override
+        public int estimate(int dx, int dy) {
+            return 10 * Math.max(dx, dy) + 4 * Math.min(dx, dy);
+        }
+    },
+
+    /**
+     * The straight-line distance.
+     */
+    EUCLIDEAN {
+        @Override
+        public int estimate(int dx, int dy) {
+            return (int) (10 * Math.sqrt(dx * dx + dy * dy));
+        }
+    },
+
+    /**
+     * The larger of the x and y distances, as if diagonal steps cost the
+     * same as straight ones.
+     */
+    CHEBYSHEV {
+        @Override
+        public int estimate(int dx, int dy) {
+            return 10 * Math.max(dx, dy);
+        }
+    };
+
+    /**
+     * Returns the estimated distance covering the given column and row
+     * distances.
+     *
+     * @param dx the number of columns between the cells, not negative
+     * @param dy the number of rows between the cells, not negative
+     * @return the estimated distance
+     */
+    public abstract int estimate(int dx, int dy);
+
+    /**
+     * Returns the estimated distance between two cells.
+     *
+     * @param ax column of the first cell
+     * @param ay row of the first cell
+     * @param bx column of the second cell
+     * @param by row of the second cell
+     * @return the estimated distance
+     */
+    public int estimate(int ax, int ay, int bx, int by) {
+        return estimate(Math.abs(bx - ax), Math.abs(by - ay));
+    }
+}
@@ -0,0 +1,236 @@
+package walker.blue.path.lib.grid;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Read-only search area that takes the traversability of its cells from
+ * a LongBuffer laid out like the bits of a GridMap: one bit per cell in
+ * row-major order, bit (id % 64) of word (id / 64) being set when the
+ * cell is traversable. The buffer is usually a view of a memory-mapped
+ * building file, so a floor can be searched straight from the page cache
+ * without reading it into the heap first. Cell costs can likewise come
+ * from a buffer holding one unsigned byte per cell.
+ */
+public class MappedGridMap implements SearchGrid {
+
+    /**
+     * Number of columns in the map.
+     */
+    private final int width;
+
+    /**
+     * Number of rows in the map.
+     */
+    private final int height;
+
+    /**
+     * The floor number of the map, used as the z coordinate of its cells.
+     */
+    private final int floor;
+
+    /**
+     * Traversability bits, one per cell in row-major order.
+     */
+    private final LongBuffer bits;
+
+    /**
+     * Cost of every cell as an unsigned byte, or null if every cell costs 1.
+     */
+    private final ByteBuffer costs;
+
+    /**
+     * Class constructor
+     *
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param floor the floor number of the map
+     * @param bits the traversability bits, holding at least (width * height + 63) / 64 words
+     *             from index 0
+     */
+    public MappedGridMap(int width, int height, int floor, LongBuffer bits) {
+        this(width, height, floor, bits, null);
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param floor the floor number of the map
+     * @param bits the traversability bits, holding at least (width * height + 63) / 64 words
+     *             from index 0
+     * @param costs the cost of every cell as an unsigned byte in row-major order from
+     *              index 0, or null if every cell costs 1
+     */
+    public MappedGridMap(int width, int height, int floor, LongBuffer bits, ByteBuffer costs) {
+        if(bits.limit() < ((long) width * height + 63) >>> 6) {
+            throw new IllegalArgumentException("Buffer holds " + bits.limit()
+                    + " words, too few for a " + width + "x" + height + " map");
+        }
+        if(costs != null && costs.limit() < (long) width * height) {
+            throw new IllegalArgumentException("Buffer holds " + costs.limit()
+                    + " costs, too few for a " + width + "x" + height + " map");
+        }
+        this.width = width;
+        this.height = height;
+        this.floor = floor;
+        this.bits = bits;
+        this.costs = costs;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Access method to get the floor number.
+     *
+     * @return int
+     */
+    public int getFloor() {
+        return this.floor;
+    }
+
+    /**
+     * Returns the number of cells in the map.
+     *
+     * @return width * height
+     */
+    public int size() {
+        return this.width * this.height;
+    }
+
+    /**
+     * Returns the row-major id of the cell at the given coordinates.
+     *
+     * @param x the column of the cell
+     * @param y the row of the cell
+     * @return the id of the cell
+     */
+    public int getId(int x, int y) {
+        return y * this.width + x;
+    }
+
+    /**
+     * Returns the column of the cell with the given id.
+     *
+     * @param id the id of the cell
+     * @return the x coordinate of the cell
+     */
+    public int getX(int id) {
+        return id % this.width;
+    }
+
+    /**
+     * Returns the row of the cell with the given id.
+     *
+     * @param id the id of the cell
+     * @return the y coordinate of the cell
+     */
+    public int getY(int id) {
+        return id / this.width;
+    }
+
+    @Override
+    public boolean isTraversable(int x, int y) {
+        return x >= 0 && y >= 0 && x < this.width && y < this.height &&
+                isTraversable(y * this.width + x);
+    }
+
+    /**
+     * Checks whether the cell with the given id can be walked through.
+     * The id must be inside the map.
+     *
+     * @param id the id of the cell
+     * @return true if the cell is traversable, false otherwise
+     */
+    public boolean isTraversable(int id) {
+        return (this.bits.get(id >>> 6) & (1L << id)) != 0;
+    }
+
+    /**
+     * Checks a run of cells in one row a 64-bit word at a time.
+     *
+     * @param y the row of the cells
+     * @param fromX the first column, inclusive
+     * @param toX the last column, inclusive, not less than fromX
+     * @return true if every cell is inside the map and traversable, false otherwise
+     */
+    @Override
+    public boolean isRowTraversable(int y, int fromX, int toX) {
+        if(y < 0 || y >= this.height || fromX < 0 || toX >= this.width) {
+            return false;
+        }
+        LongBuffer bits = this.bits;
+        int start = y * this.width + fromX;
+        int end = y * this.width + toX;
+        int startWord = start >>> 6;
+        int endWord = end >>> 6;
+        long firstMask = -1L << start;
+        long lastMask = -1L >>> (63 - (end & 63));
+        if(startWord == endWord) {
+            long mask = firstMask & lastMask;
+            return (bits.get(startWord) & mask) == mask;
+        }
+        if((bits.get(startWord) & firstMask) != firstMask) {
+            return false;
+        }
+        for(int word = startWord + 1; word < endWord; word++) {
+            if(bits.get(word) != -1L) {
+                return false;
+            }
+        }
+        return (bits.get(endWord) & lastMask) == lastMask;
+    }
+
+    @Override
+    public int getCost(int x, int y) {
+        return this.costs == null ? 1 : this.costs.get(y * this.width + x) & 0xff;
+    }
+
+    @Override
+    public boolean hasUniformCost() {
+        return this.costs == null;
+    }
+
+    /**
+     * Copies the map into a GridMap on the heap.
+     *
+     * @return a modifiable copy of the map
+     */
+    public GridMap toGridMap() {
+        GridMap map = new GridMap(this.width, this.height, this.floor);
+        long[] words = map.getBits();
+        for(int i = 0; i < words.length; i++) {
+            words[i] = this.bits.get(i);
+        }
+        if(this.costs != null) {
+            for(int y = 0; y < this.height; y++) {
+                for(int x = 0; x < this.width; x++) {
+                    map.setCost(x, y, getCost(x, y));
+                }
+            }
+        }
+        map.markModified();
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for(int y = 0; y < this.height; y++) {
+            for(int x = 0; x < this.width; x++) {
+                builder.append(isTraversable(x, y) ? 'O' : 'X');
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+}
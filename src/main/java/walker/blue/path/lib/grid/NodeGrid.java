@@ -0,0 +1,114 @@
+package walker.blue.path.lib.grid;
+
+import java.util.List;
+
+import walker.blue.path.lib.node.GridNode;
+
+/**
+ * Adapter that lets a 2D list of GridNodes be searched as a SearchGrid.
+ * The list is wrapped, not copied.
+ */
+public class NodeGrid implements SearchGrid {
+
+    /**
+     * The wrapped search area, indexed by row and then column.
+     */
+    private final List<List<GridNode>> searchArea;
+
+    /**
+     * Number of columns in the search area.
+     */
+    private final int width;
+
+    /**
+     * Number of rows in the search area.
+     */
+    private final int height;
+
+    /**
+     * Class constructor
+     *
+     * @param searchArea a 2D list holding all of the GridNodes that describe the space
+     */
+    public NodeGrid(List<List<GridNode>> searchArea) {
+        this.searchArea = searchArea;
+        this.height = searchArea.size();
+        this.width = this.height == 0 ? 0 : searchArea.get(0).size();
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    @Override
+    public boolean isTraversable(int x, int y) {
+        return x >= 0 && y >= 0 && x < this.width && y < this.height &&
+                this.searchArea.get(y).get(x).isTraversable();
+    }
+
+    @Override
+    public boolean isRowTraversable(int y, int fromX, int toX) {
+        if(y < 0 || y >= this.height || fromX < 0 || toX >= this.width) {
+            return false;
+        }
+        List<GridNode> row = this.searchArea.get(y);
+        for(int x = fromX; x <= toX; x++) {
+            if(!row.get(x).isTraversable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns 1, since every cell of the search area costs the same.
+     *
+     * @param x the column of the cell
+     * @param y the row of the cell
+     * @return 1
+     */
+    @Override
+    public int getCost(int x, int y) {
+        return 1;
+    }
+
+    @Override
+    public boolean hasUniformCost() {
+        return true;
+    }
+
+    /**
+     * Returns the wrapped search area.
+     *
+     * @return the 2D list of GridNodes
+     */
+    public List<List<GridNode>> getSearchArea() {
+        return this.searchArea;
+    }
+
+    /**
+     * Returns the row-major index of the given node.
+     *
+     * @param node a node in the search area
+     * @return the id of the node
+     */
+    public int getId(GridNode node) {
+        return node.getLocation().getY() * this.width + node.getLocation().getX();
+    }
+
+    /**
+     * Returns the node with the given row-major index.
+     *
+     * @param id the id of the node
+     * @return the node in the search area
+     */
+    public GridNode getNode(int id) {
+        return this.searchArea.get(id / this.width).get(id % this.width);
+    }
+}
@@ -0,0 +1,69 @@
+package walker.blue.path.lib.grid;
+
+/**
+ * Interface for a rectangular search area that grid pathfinders can search
+ * by cell coordinates. Cells are identified by their row-major index
+ * (y * width + x).
+ *
+ * <p>Every traversable cell has a cost of at least 1. Moving into a cell
+ * costs the length of the move times the cost of the cell, so on a grid
+ * where every cost is 1 the usual move costs apply, and since no cost is
+ * below 1 the distance estimates of the finders never overestimate.
+ */
+public interface SearchGrid {
+
+    /**
+     * Returns the number of columns in the grid.
+     *
+     * @return width of the grid
+     */
+    int getWidth();
+
+    /**
+     * Returns the number of rows in the grid.
+     *
+     * @return height of the grid
+     */
+    int getHeight();
+
+    /**
+     * Checks whether the cell at the given coordinates can be walked through.
+     * Coordinates outside of the grid are never traversable.
+     *
+     * @param x the column of the cell
+     * @param y the row of the cell
+     * @return true if the cell is inside the grid and traversable, false otherwise
+     */
+    boolean isTraversable(int x, int y);
+
+    /**
+     * Checks whether every cell of a row between two columns can be walked
+     * through. Line of sight checks use this to test a whole run of cells
+     * at once.
+     *
+     * @param y the row of the cells
+     * @param fromX the first column, inclusive
+     * @param toX the last column, inclusive, not less than fromX
+     * @return true if every cell is inside the grid and traversable, false otherwise
+     */
+    boolean isRowTraversable(int y, int fromX, int toX);
+
+    /**
+     * Returns the cost of entering the cell at the given coordinates,
+     * which must be inside the grid.
+     *
+     * @param x the column of the cell
+     * @param y the row of the cell
+     * @return the cost of the cell, at least 1
+     */
+    int getCost(int x, int y);
+
+    /**
+     * Checks whether every cell of the grid has a cost of 1. Finders that
+     * rely on uniform costs, like JumpPointSearch, use this to decide
+     * whether they can run.
+     *
+     * @return true if every cell costs 1, false if some cells may cost more
+     */
+    boolean hasUniformCost();
+}
@@ -0,0 +1,147 @@
+package walker.blue.path.lib.grid;
+
+/**
+ * Rectangular window onto another SearchGrid, addressed with local
+ * coordinates. Cells outside the window are untraversable, so a search
+ * over a SubGrid never leaves the rectangle. Ids are local as well
+ * (y * width + x within the window) and can be translated back to the
+ * ids of the underlying grid with toGlobal.
+ */
+public class SubGrid implements SearchGrid {
+
+    /**
+     * The grid the window looks onto.
+     */
+    private final SearchGrid grid;
+
+    /**
+     * Column of the underlying grid at local column 0.
+     */
+    private final int originX;
+
+    /**
+     * Row of the underlying grid at local row 0.
+     */
+    private final int originY;
+
+    /**
+     * Number of columns in the window.
+     */
+    private final int width;
+
+    /**
+     * Number of rows in the window.
+     */
+    private final int height;
+
+    /**
+     * Class constructor
+     *
+     * @param grid the grid the window looks onto
+     * @param originX the column of the top left cell of the window
+     * @param originY the row of the top left cell of the window
+     * @param width the number of columns in the window
+     * @param height the number of rows in the window
+     */
+    public SubGrid(SearchGrid grid, int originX, int originY, int width, int height) {
+        this.grid = grid;
+        this.originX = originX;
+        this.originY = originY;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    @Override
+    public boolean isTraversable(int x, int y) {
+        return x >= 0 && y >= 0 && x < this.width && y < this.height
+                && this.grid.isTraversable(this.originX + x, this.originY + y);
+    }
+
+    @Override
+    public boolean isRowTraversable(int y, int fromX, int toX) {
+        if(y < 0 || y >= this.height || fromX < 0 || toX >= this.width) {
+            return false;
+        }
+        return this.grid.isRowTraversable(this.originY + y, this.originX + fromX, this.originX + toX);
+    }
+
+    @Override
+    public int getCost(int x, int y) {
+        return this.grid.getCost(this.originX + x, this.originY + y);
+    }
+
+    @Override
+    public boolean hasUniformCost() {
+        return this.grid.hasUniformCost();
+    }
+
+    /**
+     * Access method to get the underlying grid.
+     *
+     * @return the grid the window looks onto
+     */
+    public SearchGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Access method to get the column of the window origin.
+     *
+     * @return the column of the top left cell in the underlying grid
+     */
+    public int getOriginX() {
+        return this.originX;
+    }
+
+    /**
+     * Access method to get the row of the window origin.
+     *
+     * @return the row of the top left cell in the underlying grid
+     */
+    public int getOriginY() {
+        return this.originY;
+    }
+
+    /**
+     * Checks whether a cell of the underlying grid lies inside the window.
+     *
+     * @param id the id of the cell in the underlying grid
+     * @return true if the cell is inside the window, false otherwise
+     */
+    public boolean contains(int id) {
+        int x = id % this.grid.getWidth() - this.originX;
+        int y = id / this.grid.getWidth() - this.originY;
+        return x >= 0 && y >= 0 && x < this.width && y < this.height;
+    }
+
+    /**
+     * Translates the id of a cell of the underlying grid to a local id.
+     *
+     * @param id the id of a cell inside the window
+     * @return the local id of the cell
+     */
+    public int toLocal(int id) {
+        int gridWidth = this.grid.getWidth();
+        return (id / gridWidth - this.originY) * this.width + id % gridWidth - this.originX;
+    }
+
+    /**
+     * Translates a local id to the id of the cell in the underlying grid.
+     *
+     * @param id the local id of a cell
+     * @return the id of the cell in the underlying grid
+     */
+    public int toGlobal(int id) {
+        return (id / this.width + this.originY) * this.grid.getWidth() + id % this.width + this.originX;
+    }
+}
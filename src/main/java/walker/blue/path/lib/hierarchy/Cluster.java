@@ -0,0 +1,169 @@
+package walker.blue.path.lib.hierarchy;
+
+import walker.blue.path.lib.grid.SubGrid;
+
+/**
+ * Holds one rectangular cluster of a ClusterMap: the entrance cells on
+ * its borders and the cost of the shortest path inside the cluster
+ * between every pair of entrances.
+ *
+ * <p>Entrances are grouped by the side of the cluster they lie on, in the
+ * order west, east, north, south. The k-th entrance of a side is linked to
+ * the k-th entrance of the opposite side of the neighboring cluster.
+ */
+public class Cluster {
+
+    /**
+     * Side index of the entrances shared with the western neighbor.
+     */
+    public static final int WEST = 0;
+
+    /**
+     * Side index of the entrances shared with the eastern neighbor.
+     */
+    public static final int EAST = 1;
+
+    /**
+     * Side index of the entrances shared with the northern neighbor.
+     */
+    public static final int NORTH = 2;
+
+    /**
+     * Side index of the entrances shared with the southern neighbor.
+     */
+    public static final int SOUTH = 3;
+
+    /**
+     * Number of sides of a cluster.
+     */
+    public static final int SIDES = 4;
+
+    /**
+     * Cost stored for a pair of entrances with no path between them.
+     */
+    public static final int UNREACHABLE = -1;
+
+    /**
+     * Index of the cluster in its ClusterMap.
+     */
+    private final int index;
+
+    /**
+     * Window onto the cells of the cluster.
+     */
+    private final SubGrid view;
+
+    /**
+     * Cell ids (in the full grid) of the entrances.
+     */
+    private int[] entrances;
+
+    /**
+     * Index of the first entrance of each side, followed by the entrance count.
+     */
+    private int[] sideStarts;
+
+    /**
+     * Row-major matrix of path costs between entrances.
+     */
+    private int[] costs;
+
+    /**
+     * Class constructor creating a cluster with no entrances.
+     *
+     * @param index the index of the cluster in its ClusterMap
+     * @param view the window onto the cells of the cluster
+     */
+    public Cluster(int index, SubGrid view) {
+        this.index = index;
+        this.view = view;
+        this.entrances = new int[0];
+        this.sideStarts = new int[SIDES + 1];
+        this.costs = new int[0];
+    }
+
+    /**
+     * Access method to get the index.
+     *
+     * @return the index of the cluster in its ClusterMap
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Access method to get the view.
+     *
+     * @return the window onto the cells of the cluster
+     */
+    public SubGrid getView() {
+        return this.view;
+    }
+
+    /**
+     * Returns the number of entrances of the cluster.
+     *
+     * @return the entrance count
+     */
+    public int getEntranceCount() {
+        return this.entrances.length;
+    }
+
+    /**
+     * Returns the cell of an entrance.
+     *
+     * @param entrance the index of the entrance
+     * @return the cell id in the full grid
+     */
+    public int getEntrance(int entrance) {
+        return this.entrances[entrance];
+    }
+
+    /**
+     * Returns the index of the first entrance on a side.
+     *
+     * @param side WEST, EAST, NORTH or SOUTH
+     * @return the index of the first entrance on the side
+     */
+    public int getSideStart(int side) {
+        return this.sideStarts[side];
+    }
+
+    /**
+     * Returns the side an entrance lies on.
+     *
+     * @param entrance the index of the entrance
+     * @return WEST, EAST, NORTH or SOUTH
+     */
+    public int getSide(int entrance) {
+        int side = 0;
+        while(entrance >= this.sideStarts[side + 1]) {
+            side++;
+        }
+        return side;
+    }
+
+    /**
+     * Returns the cost of the shortest path inside the cluster between two entrances.
+     *
+     * @param from the index of the first entrance
+     * @param to the index of the second entrance
+     * @return the cost of the path, or UNREACHABLE if there is none
+     */
+    public int getCost(int from, int to) {
+        return this.costs[from * this.entrances.length + to];
+    }
+
+    /**
+     * Replaces the entrances and their costs.
+     *
+     * @param entrances cell ids of the entrances grouped by side
+     * @param sideStarts index of the first entrance of each side, followed by the count
+     * @param costs row-major matrix of path costs between entrances
+     */
+    void setEntrances(int[] entrances, int[] sideStarts, int[] costs) {
+        this.entrances = entrances;
+        this.sideStarts = sideStarts;
+        this.costs = costs;
+    }
+}
@@ -0,0 +1,630 @@
+package walker.blue.path.lib.hierarchy;
+
+import java.util.Arrays;
+import java.util.List;
+
+import walker.blue.path.lib.base.Versioned;
+import walker.blue.path.lib.finder.GridDijkstra;
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.DistanceField;
+import walker.blue.path.lib.grid.GridNeighbors;
+import walker.blue.path.lib.grid.NodeGrid;
+import walker.blue.path.lib.grid.SearchGrid;
+import walker.blue.path.lib.grid.SubGrid;
+import walker.blue.path.lib.node.GridNode;
+
+/**
+ * Abstraction of a large grid used by HierarchicalAStar. The grid is
+ * partitioned into square clusters. Wherever two neighboring clusters
+ * can be crossed, a pair of linked entrance cells is placed on their
+ * border (one in the middle of every short opening, one at each end of
+ * every long one), and the cost of the shortest path between every pair
+ * of entrances of a cluster is precomputed with a Dijkstra search
+ * restricted to that cluster.
+ *
+ * <p>The entrances form the nodes of a small abstract graph. When the
+ * traversability or cost of cells changes, cellChanged marks their
+ * cluster and update rebuilds the abstraction for the marked clusters and
+ * their neighbors only. A Versioned grid, such as GridMap, that changed
+ * without any cell being marked is rebuilt in full by update. The owner
+ * of the map calls update once the changes are done; queries never
+ * rebuild it and refuse to run while changes are pending. A ClusterMap
+ * may be searched by many threads at once, but cellChanged and update
+ * must not run concurrently with queries.
+ *
+ * <p>With Connectivity.EIGHT a diagonal move that squeezes through the
+ * corner point shared by four clusters is not represented, so such a
+ * crossing is not found by the abstract search.
+ */
+public class ClusterMap {
+
+    /**
+     * Cluster size used when none is given.
+     */
+    public static final int DEFAULT_CLUSTER_SIZE = 32;
+
+    /**
+     * Openings at least this long get an entrance at each end instead of
+     * a single one in the middle.
+     */
+    private static final int LONG_OPENING = 6;
+
+    /**
+     * The grid being abstracted.
+     */
+    private final SearchGrid grid;
+
+    /**
+     * Width and height of a cluster in cells.
+     */
+    private final int clusterSize;
+
+    /**
+     * Number of cluster columns.
+     */
+    private final int clustersX;
+
+    /**
+     * Number of cluster rows.
+     */
+    private final int clustersY;
+
+    /**
+     * Moves allowed inside the grid.
+     */
+    private final Connectivity connectivity;
+
+    /**
+     * Neighbor generator for the selected connectivity.
+     */
+    private final GridNeighbors neighbors;
+
+    /**
+     * Search used to compute the costs between entrances.
+     */
+    private final GridDijkstra dijkstra;
+
+    /**
+     * Clusters in row-major order.
+     */
+    private final Cluster[] clusters;
+
+    /**
+     * Linked cell pairs on the border between each cluster and its eastern
+     * neighbor, flattened as {west cell, east cell, ...}.
+     */
+    private final int[][] eastLinks;
+
+    /**
+     * Linked cell pairs on the border between each cluster and its southern
+     * neighbor, flattened as {north cell, south cell, ...}.
+     */
+    private final int[][] southLinks;
+
+    /**
+     * Clusters whose cells changed since the last update.
+     */
+    private final boolean[] dirty;
+
+    /**
+     * Whether any cluster is marked dirty.
+     */
+    private boolean hasDirty;
+
+    /**
+     * Version of the grid at the last update, if the grid is Versioned.
+     */
+    private long version;
+
+    /**
+     * Abstract node id of the first entrance of each cluster, followed by
+     * the total number of abstract nodes.
+     */
+    private int[] nodeOffsets;
+
+    /**
+     * Cluster of each abstract node.
+     */
+    private int[] nodeClusters;
+
+    /**
+     * Class constructor using clusters of DEFAULT_CLUSTER_SIZE and eight-way movement.
+     *
+     * @param searchArea a 2D list holding all of the GridNodes that describe the space
+     */
+    public ClusterMap(List<List<GridNode>> searchArea) {
+        this(new NodeGrid(searchArea), DEFAULT_CLUSTER_SIZE, Connectivity.EIGHT);
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param grid the grid to abstract
+     * @param clusterSize the width and height of a cluster in cells
+     * @param connectivity the moves allowed from each cell
+     */
+    public ClusterMap(SearchGrid grid, int clusterSize, Connectivity connectivity) {
+        this.grid = grid;
+        this.clusterSize = clusterSize;
+        this.clustersX = (grid.getWidth() + clusterSize - 1) / clusterSize;
+        this.clustersY = (grid.getHeight() + clusterSize - 1) / clusterSize;
+        this.connectivity = connectivity;
+        this.neighbors = new GridNeighbors(connectivity);
+        this.dijkstra = new GridDijkstra(connectivity);
+        int count = this.clustersX * this.clustersY;
+        this.clusters = new Cluster[count];
+        this.eastLinks = new int[count][];
+        this.southLinks = new int[count][];
+        this.dirty = new boolean[count];
+        for(int index = 0; index < count; index++) {
+            int originX = (index % this.clustersX) * clusterSize;
+            int originY = (index / this.clustersX) * clusterSize;
+            SubGrid view = new SubGrid(grid, originX, originY,
+                    Math.min(clusterSize, grid.getWidth() - originX),
+                    Math.min(clusterSize, grid.getHeight() - originY));
+            this.clusters[index] = new Cluster(index, view);
+        }
+        Arrays.fill(this.dirty, true);
+        this.hasDirty = true;
+        update();
+    }
+
+    /**
+     * Access method to get the grid.
+     *
+     * @return the grid being abstracted
+     */
+    public SearchGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Access method to get the cluster size.
+     *
+     * @return the width and height of a cluster in cells
+     */
+    public int getClusterSize() {
+        return this.clusterSize;
+    }
+
+    /**
+     * Access method to get the connectivity.
+     *
+     * @return the moves allowed from each cell
+     */
+    public Connectivity getConnectivity() {
+        return this.connectivity;
+    }
+
+    /**
+     * Returns the number of clusters.
+     *
+     * @return the cluster count
+     */
+    public int getClusterCount() {
+        return this.clusters.length;
+    }
+
+    /**
+     * Returns a cluster by index.
+     *
+     * @param index the index of the cluster
+     * @return the cluster
+     */
+    public Cluster getCluster(int index) {
+        return this.clusters[index];
+    }
+
+    /**
+     * Returns the index of the cluster holding a cell.
+     *
+     * @param id the id of the cell
+     * @return the index of the cluster
+     */
+    public int getClusterIndex(int id) {
+        int width = this.grid.getWidth();
+        return (id / width / this.clusterSize) * this.clustersX + (id % width) / this.clusterSize;
+    }
+
+    /**
+     * Returns the neighbor of a cluster on one of its sides.
+     *
+     * @param index the index of the cluster
+     * @param side WEST, EAST, NORTH or SOUTH
+     * @return the index of the neighboring cluster, or -1 at the edge of the grid
+     */
+    public int getNeighbor(int index, int side) {
+        int cx = index % this.clustersX;
+        int cy = index / this.clustersX;
+        switch(side) {
+            case Cluster.WEST:
+                return cx > 0 ? index - 1 : -1;
+            case Cluster.EAST:
+                return cx < this.clustersX - 1 ? index + 1 : -1;
+            case Cluster.NORTH:
+                return cy > 0 ? index - this.clustersX : -1;
+            default:
+                return cy < this.clustersY - 1 ? index + this.clustersX : -1;
+        }
+    }
+
+    /**
+     * Returns the number of nodes in the abstract graph.
+     *
+     * @return the total number of entrances
+     */
+    public int getNodeCount() {
+        return this.nodeOffsets[this.clusters.length];
+    }
+
+    /**
+     * Returns the abstract node id of the first entrance of a cluster.
+     *
+     * @param index the index of the cluster
+     * @return the id of the node of entrance 0
+     */
+    public int getNodeOffset(int index) {
+        return this.nodeOffsets[index];
+    }
+
+    /**
+     * Returns the cluster an abstract node belongs to.
+     *
+     * @param node the id of the abstract node
+     * @return the index of the cluster
+     */
+    public int getNodeCluster(int node) {
+        return this.nodeClusters[node];
+    }
+
+    /**
+     * Returns the abstract node linked to the given one across a cluster border.
+     *
+     * @param node the id of the abstract node
+     * @return the id of the linked node in the neighboring cluster
+     */
+    public int getLinkedNode(int node) {
+        int index = this.nodeClusters[node];
+        Cluster cluster = this.clusters[index];
+        int entrance = node - this.nodeOffsets[index];
+        int side = cluster.getSide(entrance);
+        int neighbor = getNeighbor(index, side);
+        int opposite = side ^ 1;
+        return this.nodeOffsets[neighbor] + this.clusters[neighbor].getSideStart(opposite)
+                + entrance - cluster.getSideStart(side);
+    }
+
+    /**
+     * Marks the cluster holding a cell for rebuilding after the cell
+     * changed traversability or cost. The abstraction is rebuilt by the
+     * next call to update.
+     *
+     * @param x the column of the cell
+     * @param y the row of the cell
+     */
+    public void cellChanged(int x, int y) {
+        this.dirty[(y / this.clusterSize) * this.clustersX + x / this.clusterSize] = true;
+        this.hasDirty = true;
+    }
+
+    /**
+     * Checks whether cells changed since the last update.
+     *
+     * @return true if some clusters need rebuilding, false otherwise
+     */
+    public boolean needsUpdate() {
+        return this.hasDirty || getGridVersion() != this.version;
+    }
+
+    /**
+     * Rebuilds the borders of every marked cluster and the entrances and
+     * costs of the marked clusters and their neighbors. Rebuilds every
+     * cluster if the grid is Versioned and changed with no cluster marked.
+     */
+    public void update() {
+        long version = getGridVersion();
+        if(!this.hasDirty) {
+            if(version == this.version) {
+                return;
+            }
+            Arrays.fill(this.dirty, true);
+        }
+        this.version = version;
+        int count = this.clusters.length;
+        boolean[] rebuild = new boolean[count];
+        for(int index = 0; index < count; index++) {
+            if(!this.dirty[index]) {
+                continue;
+            }
+            this.eastLinks[index] = findEastLinks(index);
+            this.southLinks[index] = findSouthLinks(index);
+            int west = getNeighbor(index, Cluster.WEST);
+            if(west != -1) {
+                this.eastLinks[west] = findEastLinks(west);
+            }
+            int north = getNeighbor(index, Cluster.NORTH);
+            if(north != -1) {
+                this.southLinks[north] = findSouthLinks(north);
+            }
+            rebuild[index] = true;
+            for(int side = 0; side < Cluster.SIDES; side++) {
+                int neighbor = getNeighbor(index, side);
+                if(neighbor != -1) {
+                    rebuild[neighbor] = true;
+                }
+            }
+        }
+        for(int index = 0; index < count; index++) {
+            if(rebuild[index]) {
+                buildCluster(index);
+            }
+        }
+        Arrays.fill(this.dirty, false);
+        this.hasDirty = false;
+
+        this.nodeOffsets = new int[count + 1];
+        for(int index = 0; index < count; index++) {
+            this.nodeOffsets[index + 1] = this.nodeOffsets[index]
+                    + this.clusters[index].getEntranceCount();
+        }
+        this.nodeClusters = new int[this.nodeOffsets[count]];
+        for(int index = 0; index < count; index++) {
+            Arrays.fill(this.nodeClusters, this.nodeOffsets[index], this.nodeOffsets[index + 1], index);
+        }
+    }
+
+    /**
+     * Returns the version of the grid.
+     *
+     * @return the version of the grid if it is Versioned, 0 otherwise
+     */
+    private long getGridVersion() {
+        return this.grid instanceof Versioned ? ((Versioned) this.grid).getVersion() : 0;
+    }
+
+    /**
+     * Gathers the entrances of a cluster from its four borders and computes
+     * the cost between every pair of them.
+     *
+     * @param index the index of the cluster
+     */
+    private void buildCluster(int index) {
+        int[][] sides = new int[Cluster.SIDES][];
+        int west = getNeighbor(index, Cluster.WEST);
+        int north = getNeighbor(index, Cluster.NORTH);
+        sides[Cluster.WEST] = west == -1 ? new int[0] : takeCells(this.eastLinks[west], 1);
+        sides[Cluster.EAST] = getNeighbor(index, Cluster.EAST) == -1
+                ? new int[0] : takeCells(this.eastLinks[index], 0);
+        sides[Cluster.NORTH] = north == -1 ? new int[0] : takeCells(this.southLinks[north], 1);
+        sides[Cluster.SOUTH] = getNeighbor(index, Cluster.SOUTH) == -1
+                ? new int[0] : takeCells(this.southLinks[index], 0);
+
+        int[] sideStarts = new int[Cluster.SIDES + 1];
+        for(int side = 0; side < Cluster.SIDES; side++) {
+            sideStarts[side + 1] = sideStarts[side] + sides[side].length;
+        }
+        int[] entrances = new int[sideStarts[Cluster.SIDES]];
+        for(int side = 0; side < Cluster.SIDES; side++) {
+            System.arraycopy(sides[side], 0, entrances, sideStarts[side], sides[side].length);
+        }
+
+        Cluster cluster = this.clusters[index];
+        SubGrid view = cluster.getView();
+        int size = entrances.length;
+        int[] costs = new int[size * size];
+        for(int from = 0; from < size; from++) {
+            DistanceField field = this.dijkstra.computeDistanceField(view, view.toLocal(entrances[from]));
+            for(int to = 0; to < size; to++) {
+                int local = view.toLocal(entrances[to]);
+                costs[from * size + to] = field.isReachable(local)
+                        ? (int) field.getDistance(local) : Cluster.UNREACHABLE;
+            }
+        }
+        cluster.setEntrances(entrances, sideStarts, costs);
+    }
+
+    /**
+     * Returns one side of a flattened array of linked cell pairs.
+     *
+     * @param links the linked pairs
+     * @param side 0 for the first cell of each pair, 1 for the second
+     * @return the cells on that side
+     */
+    private static int[] takeCells(int[] links, int side) {
+        int[] cells = new int[links.length / 2];
+        for(int k = 0; k < cells.length; k++) {
+            cells[k] = links[2 * k + side];
+        }
+        return cells;
+    }
+
+    /**
+     * Finds the linked cell pairs on the border between a cluster and its
+     * eastern neighbor.
+     *
+     * @param index the index of the cluster
+     * @return the flattened pairs, or null if the cluster has no eastern neighbor
+     */
+    private int[] findEastLinks(int index) {
+        if(getNeighbor(index, Cluster.EAST) == -1) {
+            return null;
+        }
+        SubGrid view = this.clusters[index].getView();
+        int x = view.getOriginX() + view.getWidth() - 1;
+        return findLinks(x, view.getOriginY(), 0, 1, 1, 0, view.getHeight());
+    }
+
+    /**
+     * Finds the linked cell pairs on the border between a cluster and its
+     * southern neighbor.
+     *
+     * @param index the index of the cluster
+     * @return the flattened pairs, or null if the cluster has no southern neighbor
+     */
+    private int[] findSouthLinks(int index) {
+        if(getNeighbor(index, Cluster.SOUTH) == -1) {
+            return null;
+        }
+        SubGrid view = this.clusters[index].getView();
+        int y = view.getOriginY() + view.getHeight() - 1;
+        return findLinks(view.getOriginX(), y, 1, 0, 0, 1, view.getWidth());
+    }
+
+    /**
+     * Walks a border and places linked cell pairs on every opening. Cells
+     * on the near side of the border start at (x, y) and advance by
+     * (stepX, stepY); the linked cell is offset by (crossX, crossY).
+     *
+     * @param x the column of the first near cell
+     * @param y the row of the first near cell
+     * @param stepX column step along the border
+     * @param stepY row step along the border
+     * @param crossX column offset to the far side
+     * @param crossY row offset to the far side
+     * @param length number of cells along the border
+     * @return the flattened pairs
+     */
+    private int[] findLinks(int x, int y, int stepX, int stepY, int crossX, int crossY, int length) {
+        int width = this.grid.getWidth();
+        int[] links = new int[8];
+        int count = 0;
+        int run = 0;
+        for(int k = 0; k <= length; k++) {
+            int nx = x + k * stepX;
+            int ny = y + k * stepY;
+            boolean open = k < length && this.grid.isTraversable(nx, ny)
+                    && this.grid.isTraversable(nx + crossX, ny + crossY);
+            if(open) {
+                run++;
+                continue;
+            }
+            if(run > 0) {
+                int first = k - run;
+                int last = k - 1;
+                if(run < LONG_OPENING) {
+                    links = addLink(links, count++, x, y, stepX, stepY, crossX, crossY,
+                            (first + last) / 2, width);
+                }
+                else {
+                    links = addLink(links, count++, x, y, stepX, stepY, crossX, crossY, first, width);
+                    links = addLink(links, count++, x, y, stepX, stepY, crossX, crossY, last, width);
+                }
+                run = 0;
+            }
+            if(k + 1 < length) {
+                // A diagonal move can cross the border where no orthogonal
+                // pair is open, for example between two blocked corners.
+                links = ensureCapacity(links, count + 2);
+                count = addDiagonalLinks(links, count, x, y, stepX, stepY, crossX, crossY, k, width);
+            }
+        }
+        return Arrays.copyOf(links, 2 * count);
+    }
+
+    /**
+     * Adds links for the diagonal moves across the border between
+     * positions k and k + 1 that are not covered by an open orthogonal pair.
+     *
+     * @param links the flattened pairs, with room for two more
+     * @param count the number of pairs already in links
+     * @param x the column of the first near cell
+     * @param y the row of the first near cell
+     * @param stepX column step along the border
+     * @param stepY row step along the border
+     * @param crossX column offset to the far side
+     * @param crossY row offset to the far side
+     * @param k the position along the border
+     * @param width the number of columns in the grid
+     * @return the new number of pairs
+     */
+    private int addDiagonalLinks(int[] links, int count, int x, int y, int stepX, int stepY,
+                                 int crossX, int crossY, int k, int width) {
+        int ax = x + k * stepX;
+        int ay = y + k * stepY;
+        int bx = ax + stepX;
+        int by = ay + stepY;
+        if(isOpenPair(ax, ay, crossX, crossY) || isOpenPair(bx, by, crossX, crossY)) {
+            return count;
+        }
+        if(isMoveAllowed(ax, ay, bx + crossX, by + crossY)) {
+            links[2 * count] = ay * width + ax;
+            links[2 * count + 1] = (by + crossY) * width + bx + crossX;
+            count++;
+        }
+        if(isMoveAllowed(bx, by, ax + crossX, ay + crossY)) {
+            links[2 * count] = by * width + bx;
+            links[2 * count + 1] = (ay + crossY) * width + ax + crossX;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether a near cell and the cell across the border from it are both traversable.
+     *
+     * @param x the column of the near cell
+     * @param y the row of the near cell
+     * @param crossX column offset to the far side
+     * @param crossY row offset to the far side
+     * @return true if both cells are traversable, false otherwise
+     */
+    private boolean isOpenPair(int x, int y, int crossX, int crossY) {
+        return this.grid.isTraversable(x, y) && this.grid.isTraversable(x + crossX, y + crossY);
+    }
+
+    /**
+     * Checks whether a single move between two neighboring cells is allowed.
+     *
+     * @param fromX the column of the first cell
+     * @param fromY the row of the first cell
+     * @param toX the column of the second cell
+     * @param toY the row of the second cell
+     * @return true if the move is allowed, false otherwise
+     */
+    private boolean isMoveAllowed(int fromX, int fromY, int toX, int toY) {
+        if(!this.grid.isTraversable(fromX, fromY) || !this.grid.isTraversable(toX, toY)) {
+            return false;
+        }
+        int direction = GridNeighbors.getDirection(toX - fromX, toY - fromY);
+        return (this.neighbors.getMoves(this.grid, fromX, fromY) & (1 << direction)) != 0;
+    }
+
+    /**
+     * Appends the pair at position k of a border.
+     *
+     * @param links the flattened pairs
+     * @param count the number of pairs already in links
+     * @param x the column of the first near cell
+     * @param y the row of the first near cell
+     * @param stepX column step along the border
+     * @param stepY row step along the border
+     * @param crossX column offset to the far side
+     * @param crossY row offset to the far side
+     * @param k the position along the border
+     * @param width the number of columns in the grid
+     * @return the links array, grown if needed
+     */
+    private static int[] addLink(int[] links, int count, int x, int y, int stepX, int stepY,
+                                 int crossX, int crossY, int k, int width) {
+        links = ensureCapacity(links, count + 1);
+        int nx = x + k * stepX;
+        int ny = y + k * stepY;
+        links[2 * count] = ny * width + nx;
+        links[2 * count + 1] = (ny + crossY) * width + nx + crossX;
+        return links;
+    }
+
+    /**
+     * Grows a flattened pair array to hold at least the given number of pairs.
+     *
+     * @param links the flattened pairs
+     * @param pairs the number of pairs needed
+     * @return the links array, or a larger copy of it
+     */
+    private static int[] ensureCapacity(int[] links, int pairs) {
+        if(2 * pairs <= links.length) {
+            return links;
+        }
+        return Arrays.copyOf(links, Math.max(2 * pairs, 2 * links.length));
+    }
+}
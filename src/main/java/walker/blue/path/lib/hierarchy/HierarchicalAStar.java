@@ -0,0 +1,326 @@
+package walker.blue.path.lib.hierarchy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import walker.blue.path.lib.finder.GridDijkstra;
+import walker.blue.path.lib.grid.DistanceField;
+import walker.blue.path.lib.grid.NodeGrid;
+import walker.blue.path.lib.grid.SearchGrid;
+import walker.blue.path.lib.grid.SubGrid;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.IndexedMinHeap;
+
+/**
+ * This class implements hierarchical pathfinding (HPA*) over a
+ * ClusterMap. A query connects the start and destination cells to the
+ * entrances of their clusters, runs A* over the small abstract graph of
+ * entrances, and then refines each abstract step into cells with a
+ * search restricted to a single cluster. Paths are usually within a few
+ * percent of optimal while exploring a small fraction of the grid.
+ *
+ * <p>Uses the moves and costs of GridAStar (10 for an orthogonal move,
+ * 14 for a diagonal one, times the cost of the cell entered), both inside
+ * clusters and across their borders. Borders are only crossed at
+ * entrances, which are placed without regard to cost, and the cost from
+ * an entrance to the destination is estimated with a flood from the
+ * destination; both are exact on grids of uniform cost.
+ */
+public class HierarchicalAStar {
+
+    /**
+     * The abstraction being searched.
+     */
+    private final ClusterMap clusterMap;
+
+    /**
+     * Search used inside single clusters.
+     */
+    private final GridDijkstra dijkstra;
+
+    /**
+     * Class constructor
+     *
+     * @param clusterMap the abstraction of the grid to search
+     */
+    public HierarchicalAStar(ClusterMap clusterMap) {
+        this.clusterMap = clusterMap;
+        this.dijkstra = new GridDijkstra(clusterMap.getConnectivity());
+    }
+
+    /**
+     * Access method to get the cluster map.
+     *
+     * @return the abstraction being searched
+     */
+    public ClusterMap getClusterMap() {
+        return this.clusterMap;
+    }
+
+    /**
+     * Returns the path between two nodes of the search area the cluster
+     * map was built from. The cluster map must wrap a NodeGrid.
+     *
+     * @param start the start node
+     * @param dest the destination node
+     * @return the nodes of the path, or null if there is no path
+     */
+    public List<GridNode> findPath(GridNode start, GridNode dest) {
+        NodeGrid grid = (NodeGrid) this.clusterMap.getGrid();
+        int[] cells = findPath(grid.getId(start), grid.getId(dest));
+        if(cells == null) {
+            return null;
+        }
+        List<GridNode> path = new ArrayList<GridNode>(cells.length);
+        for(int cell : cells) {
+            path.add(grid.getNode(cell));
+        }
+        return path;
+    }
+
+    /**
+     * Returns the path between two cells, refining every step of the abstract path.
+     *
+     * @param start the id of the start cell
+     * @param dest the id of the destination cell
+     * @return the cell ids of the path from start to dest, or null if there is no path
+     */
+    public int[] findPath(int start, int dest) {
+        int[] waypoints = findAbstractPath(start, dest);
+        if(waypoints == null) {
+            return null;
+        }
+        int[] path = new int[] {start};
+        int length = 1;
+        for(int k = 1; k < waypoints.length; k++) {
+            int[] segment = refine(waypoints[k - 1], waypoints[k]);
+            if(length + segment.length > path.length) {
+                path = Arrays.copyOf(path, Math.max(2 * path.length, length + segment.length));
+            }
+            // Every segment starts where the previous one ended.
+            System.arraycopy(segment, 1, path, length, segment.length - 1);
+            length += segment.length - 1;
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    /**
+     * Returns the waypoints of the path between two cells: the start cell,
+     * the entrances the path passes through and the destination cell.
+     * Consecutive waypoints lie either in the same cluster or on both
+     * sides of a cluster border, and can be turned into cells one at a
+     * time with refine, so a caller only pays for the part of the path it uses.
+     *
+     * @param start the id of the start cell
+     * @param dest the id of the destination cell
+     * @return the cell ids of the waypoints, or null if there is no path
+     * @throws IllegalStateException if cells changed since the last update
+     *         of the cluster map
+     */
+    public int[] findAbstractPath(int start, int dest) {
+        ClusterMap clusterMap = this.clusterMap;
+        SearchGrid grid = clusterMap.getGrid();
+        int width = grid.getWidth();
+        if(!grid.isTraversable(start % width, start / width)
+                || !grid.isTraversable(dest % width, dest / width)) {
+            return null;
+        }
+        if(clusterMap.needsUpdate()) {
+            throw new IllegalStateException("Cells of the cluster map changed; call update() before searching");
+        }
+
+        int startCluster = clusterMap.getClusterIndex(start);
+        int destCluster = clusterMap.getClusterIndex(dest);
+        DistanceField startField = flood(startCluster, start);
+        DistanceField destField = flood(destCluster, dest);
+
+        // Abstract nodes are the entrances, followed by the start and destination cells.
+        int nodeCount = clusterMap.getNodeCount();
+        int startNode = nodeCount;
+        int destNode = nodeCount + 1;
+        int[] g = new int[nodeCount + 2];
+        int[] parent = new int[nodeCount + 2];
+        boolean[] closed = new boolean[nodeCount + 2];
+        Arrays.fill(g, Integer.MAX_VALUE);
+        IndexedMinHeap openQueue = new IndexedMinHeap(nodeCount + 2);
+        g[startNode] = 0;
+        parent[startNode] = -1;
+        openQueue.add(startNode, 0);
+
+        int destX = dest % width;
+        int destY = dest / width;
+        while(!openQueue.isEmpty()) {
+            int current = openQueue.remove();
+            if(current == destNode) {
+                return buildWaypoints(parent, start, dest, startNode, destNode);
+            }
+            closed[current] = true;
+
+            if(current == startNode) {
+                Cluster cluster = clusterMap.getCluster(startCluster);
+                int offset = clusterMap.getNodeOffset(startCluster);
+                for(int entrance = 0; entrance < cluster.getEntranceCount(); entrance++) {
+                    int local = cluster.getView().toLocal(cluster.getEntrance(entrance));
+                    if(startField.isReachable(local)) {
+                        relax(openQueue, g, parent, closed, current, offset + entrance,
+                                (int) startField.getDistance(local), cluster.getEntrance(entrance),
+                                destX, destY, width);
+                    }
+                }
+                if(startCluster == destCluster) {
+                    int local = clusterMap.getCluster(destCluster).getView().toLocal(dest);
+                    if(startField.isReachable(local)) {
+                        relax(openQueue, g, parent, closed, current, destNode,
+                                (int) startField.getDistance(local), dest, destX, destY, width);
+                    }
+                }
+                continue;
+            }
+
+            int index = clusterMap.getNodeCluster(current);
+            Cluster cluster = clusterMap.getCluster(index);
+            int offset = clusterMap.getNodeOffset(index);
+            int entrance = current - offset;
+            int cell = cluster.getEntrance(entrance);
+            for(int other = 0; other < cluster.getEntranceCount(); other++) {
+                int cost = cluster.getCost(entrance, other);
+                if(other != entrance && cost != Cluster.UNREACHABLE) {
+                    relax(openQueue, g, parent, closed, current, offset + other, cost,
+                            cluster.getEntrance(other), destX, destY, width);
+                }
+            }
+            int linked = clusterMap.getLinkedNode(current);
+            int linkedCluster = clusterMap.getNodeCluster(linked);
+            int linkedCell = clusterMap.getCluster(linkedCluster)
+                    .getEntrance(linked - clusterMap.getNodeOffset(linkedCluster));
+            relax(openQueue, g, parent, closed, current, linked,
+                    getCost(grid, cell, linkedCell), linkedCell, destX, destY, width);
+            if(index == destCluster) {
+                int local = cluster.getView().toLocal(cell);
+                if(destField.isReachable(local)) {
+                    relax(openQueue, g, parent, closed, current, destNode,
+                            (int) destField.getDistance(local), dest, destX, destY, width);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the cells between two consecutive waypoints of an abstract path.
+     *
+     * @param from the id of the first waypoint
+     * @param to the id of the second waypoint
+     * @return the cell ids from the first waypoint to the second, both included
+     */
+    public int[] refine(int from, int to) {
+        int fromCluster = this.clusterMap.getClusterIndex(from);
+        if(from == to) {
+            return new int[] {from};
+        }
+        if(fromCluster != this.clusterMap.getClusterIndex(to)) {
+            // Waypoints in different clusters are linked entrances one move apart.
+            return new int[] {from, to};
+        }
+        SubGrid view = this.clusterMap.getCluster(fromCluster).getView();
+        int[] local = this.dijkstra.findPath(view, view.toLocal(from), view.toLocal(to));
+        for(int k = 0; k < local.length; k++) {
+            local[k] = view.toGlobal(local[k]);
+        }
+        return local;
+    }
+
+    /**
+     * Floods a cluster from one of its cells.
+     *
+     * @param index the index of the cluster
+     * @param cell the id of the source cell
+     * @return the distances inside the cluster
+     */
+    private DistanceField flood(int index, int cell) {
+        SubGrid view = this.clusterMap.getCluster(index).getView();
+        return this.dijkstra.computeDistanceField(view, view.toLocal(cell));
+    }
+
+    /**
+     * Lowers the G value of an abstract node if the path through the
+     * current node is shorter, and queues it by its F value.
+     *
+     * @param openQueue the open set
+     * @param g the G value of each abstract node
+     * @param parent the parent of each abstract node
+     * @param closed whether each abstract node is closed
+     * @param current the node being expanded
+     * @param node the node being reached
+     * @param cost the cost of the edge between the two nodes
+     * @param cell the id of the cell of the node being reached
+     * @param destX the column of the destination cell
+     * @param destY the row of the destination cell
+     * @param width the number of columns in the grid
+     */
+    private static void relax(IndexedMinHeap openQueue, int[] g, int[] parent, boolean[] closed,
+                              int current, int node, int cost, int cell, int destX, int destY,
+                              int width) {
+        if(closed[node]) {
+            return;
+        }
+        int newG = g[current] + cost;
+        if(newG < g[node]) {
+            g[node] = newG;
+            parent[node] = current;
+            int dx = Math.abs(cell % width - destX);
+            int dy = Math.abs(cell / width - destY);
+            openQueue.addOrDecrease(node, newG + 10 * Math.max(dx, dy) + 4 * Math.min(dx, dy));
+        }
+    }
+
+    /**
+     * Turns the parents of the abstract search into the list of waypoints.
+     *
+     * @param parent the parent of each abstract node
+     * @param start the id of the start cell
+     * @param dest the id of the destination cell
+     * @param startNode the abstract node of the start cell
+     * @param destNode the abstract node of the destination cell
+     * @return the cell ids of the waypoints
+     */
+    private int[] buildWaypoints(int[] parent, int start, int dest, int startNode, int destNode) {
+        int length = 0;
+        for(int node = destNode; node != -1; node = parent[node]) {
+            length++;
+        }
+        int[] waypoints = new int[length];
+        for(int node = destNode; node != -1; node = parent[node]) {
+            int cell;
+            if(node == startNode) {
+                cell = start;
+            }
+            else if(node == destNode) {
+                cell = dest;
+            }
+            else {
+                int index = this.clusterMap.getNodeCluster(node);
+                cell = this.clusterMap.getCluster(index)
+                        .getEntrance(node - this.clusterMap.getNodeOffset(index));
+            }
+            waypoints[--length] = cell;
+        }
+        return waypoints;
+    }
+
+    /**
+     * Returns the cost of a single move between two neighboring cells.
+     *
+     * @param grid the search area
+     * @param a the id of the cell moved from
+     * @param b the id of the cell moved into
+     * @return 14 for a diagonal move, 10 otherwise, times the cost of the cell moved into
+     */
+    private static int getCost(SearchGrid grid, int a, int b) {
+        int width = grid.getWidth();
+        int x = b % width;
+        int y = b / width;
+        return (a % width != x && a / width != y ? 14 : 10) * grid.getCost(x, y);
+    }
+}
@@ -71,6 +71,17 @@ public class GridNode extends AbstractPathfinderNode {
         return true;
     }
 
+    /**
+     * Hashes the location only, so the hash of a node stays the same when
+     * its traversability changes.
+     *
+     * @return int
+     */
+    @Override
+    public int hashCode() {
+        return location.hashCode();
+    }
+
     @Override
     public String toString() {
         return super.toString() + "\n" +
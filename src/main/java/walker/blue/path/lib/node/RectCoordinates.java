@@ -91,6 +91,19 @@ public class RectCoordinates {
         return true;
     }
 
+    /**
+     * Overrides the hashCode combining the x, y, and z coordinates.
+     *
+     * @return int
+     */
+    @Override
+    public int hashCode() {
+        int result = x;
+        result = 31 * result + y;
+        result = 31 * result + z;
+        return result;
+    }
+
     /**
      * Gives the x, y, and z coordinates in String form.
      *
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import walker.blue.path.lib.floor.FloorConnector;
+import walker.blue.path.lib.grid.GridMap;
 import walker.blue.path.lib.node.GridNode;
 
 /**
@@ -17,7 +18,10 @@ public class GridGenerator {
     private GridGenerator() {}
 
     /**
-     * Generates a 2D grid using the values in the char array
+     * Generates a 2D grid using the values in the char array. GridNodes
+     * hold no cost, so '1' is the same as 'O' while the other cost digits,
+     * like every unknown value, give untraversable nodes. Weighted grids
+     * are generated with genMap.
      *
      * @param grid char values indicating the type of grid node
      * @return generated grid
@@ -43,6 +47,7 @@ public class GridGenerator {
             for (char type : xRow) {
                 switch(type) {
                     case 'O':
+                    case '1':
                         currentXRow.add(new GridNode(x, y, floor, true));
                         break;
                     case 'X':
@@ -92,4 +97,60 @@ public class GridGenerator {
         }
         return generatedGrid3D;
     }
-}
\ No newline at end of file
+
+    /**
+     * Generates a compact GridMap using the values in the char array. 'O'
+     * cells are traversable, and so are the digits '1' to '9', which give
+     * the cell that cost ('1' being the same as 'O'). Every other value,
+     * including floor connectors, is marked untraversable. No per-cell
+     * objects are created.
+     *
+     * @param grid char values indicating the type of each cell
+     * @return generated map
+     */
+    public static GridMap genMap(final char[][] grid) {
+        return genMap(grid, 0);
+    }
+
+    /**
+     * Generates a compact GridMap using the values in the char array and
+     * assigns it the given floor number.
+     *
+     * @param grid char values indicating the type of each cell
+     * @param floor the floor number of the map
+     * @return generated map
+     */
+    public static GridMap genMap(final char[][] grid, int floor) {
+        int width = grid.length == 0 ? 0 : grid[0].length;
+        GridMap map = new GridMap(width, grid.length, floor);
+        for(int y = 0; y < grid.length; y++) {
+            for(int x = 0; x < grid[y].length; x++) {
+                char type = grid[y][x];
+                if(type == 'O') {
+                    map.setTraversable(x, y, true);
+                }
+                else if(type >= '1' && type <= '9') {
+                    map.setTraversable(x, y, true);
+                    map.setCost(x, y, type - '0');
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Generates a compact GridMap for every floor in the char array.
+     *
+     * @param grid3D char values indicating the type of each cell
+     * @return generated maps, with the 0th index being the bottom floor
+     */
+    public static List<GridMap> genMap3D(final char[][][] grid3D) {
+        final List<GridMap> maps = new ArrayList<>();
+        int z = 0;
+        for(char[][] floor : grid3D) {
+            maps.add(genMap(floor, z));
+            z++;
+        }
+        return maps;
+    }
+}
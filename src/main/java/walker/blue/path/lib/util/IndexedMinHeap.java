@@ -0,0 +1,382 @@
+package walker.blue.path.lib.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int ids ordered by a double key, with ties broken
+ * by an optional second double key (0 when not given). Every id remembers
+ * the slot it occupies in the heap, which gives O(1) membership tests
+ * and O(log n) decrease-key instead of the O(n) contains/remove calls
+ * of java.util.PriorityQueue.
+ *
+ * <p>Ids must be in the range [0, capacity). Grid pathfinders use the
+ * row-major cell index (y * width + x) as the id. Only the slot of each
+ * id takes memory for the whole capacity. The open set of a search is
+ * usually a small part of the search area, so the heap arrays start
+ * small and grow with the largest number of ids held at once.
+ */
+public class IndexedMinHeap {
+
+    /**
+     * Marks an id that is not currently in the heap.
+     */
+    private static final int ABSENT = -1;
+
+    /**
+     * Initial length of the heap arrays.
+     */
+    private static final int INITIAL_LENGTH = 64;
+
+    /**
+     * Ids stored in heap order.
+     */
+    private int[] heap;
+
+    /**
+     * Keys stored in heap order, parallel to the heap array.
+     */
+    private double[] keys;
+
+    /**
+     * Second keys stored in heap order, parallel to the heap array.
+     */
+    private double[] ties;
+
+    /**
+     * Slot of each id in the heap, or ABSENT.
+     */
+    private int[] slots;
+
+    /**
+     * Number of ids in the heap.
+     */
+    private int size;
+
+    /**
+     * Class constructor
+     *
+     * @param capacity the number of distinct ids the heap can hold
+     */
+    public IndexedMinHeap(int capacity) {
+        this.slots = new int[Math.max(capacity, 1)];
+        Arrays.fill(this.slots, ABSENT);
+        int length = Math.min(this.slots.length, INITIAL_LENGTH);
+        this.heap = new int[length];
+        this.keys = new double[length];
+        this.ties = new double[length];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of distinct ids the heap can hold.
+     *
+     * @return capacity of the heap
+     */
+    public int capacity() {
+        return this.slots.length;
+    }
+
+    /**
+     * Returns the number of ids in the heap.
+     *
+     * @return size of the heap
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Checks whether the heap holds no ids.
+     *
+     * @return true if the heap is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Checks whether the given id is in the heap.
+     *
+     * @param id the id to look for
+     * @return true if the id is in the heap, false otherwise
+     */
+    public boolean contains(int id) {
+        return this.slots[id] != ABSENT;
+    }
+
+    /**
+     * Returns the key the given id is stored with. The id must be in the heap.
+     *
+     * @param id an id in the heap
+     * @return the key of the id
+     */
+    public double getKey(int id) {
+        return this.keys[this.slots[id]];
+    }
+
+    /**
+     * Returns the second key the given id is stored with. The id must be in the heap.
+     *
+     * @param id an id in the heap
+     * @return the second key of the id
+     */
+    public double getTie(int id) {
+        return this.ties[this.slots[id]];
+    }
+
+    /**
+     * Returns the id stored at a position of the heap, for visiting every
+     * id in no particular order. The position must be less than size().
+     *
+     * @param index the position in the heap
+     * @return the id at that position
+     */
+    public int idAt(int index) {
+        return this.heap[index];
+    }
+
+    /**
+     * Returns the id with the smallest key without removing it.
+     * The heap must not be empty.
+     *
+     * @return the id with the smallest key
+     */
+    public int peek() {
+        return this.heap[0];
+    }
+
+    /**
+     * Returns the smallest key in the heap. The heap must not be empty.
+     *
+     * @return the smallest key
+     */
+    public double peekKey() {
+        return this.keys[0];
+    }
+
+    /**
+     * Returns the second key of the id with the smallest key. The heap must not be empty.
+     *
+     * @return the second key of the top id
+     */
+    public double peekTie() {
+        return this.ties[0];
+    }
+
+    /**
+     * Adds an id that is not yet in the heap.
+     *
+     * @param id the id to add
+     * @param key the key of the id
+     */
+    public void add(int id, double key) {
+        add(id, key, 0);
+    }
+
+    /**
+     * Adds an id that is not yet in the heap.
+     *
+     * @param id the id to add
+     * @param key the key of the id
+     * @param tie the second key, compared when the keys are equal
+     */
+    public void add(int id, double key, double tie) {
+        if(this.size == this.heap.length) {
+            grow();
+        }
+        int slot = this.size++;
+        place(id, key, tie, slot);
+        siftUp(slot);
+    }
+
+    /**
+     * Lowers the key of an id that is already in the heap.
+     *
+     * @param id the id to update
+     * @param key the new key, which must not be greater than the old one
+     */
+    public void decreaseKey(int id, double key) {
+        int slot = this.slots[id];
+        this.keys[slot] = key;
+        this.ties[slot] = 0;
+        siftUp(slot);
+    }
+
+    /**
+     * Changes both keys of an id that is already in the heap, in either direction.
+     *
+     * @param id the id to update
+     * @param key the new key
+     * @param tie the new second key
+     */
+    public void update(int id, double key, double tie) {
+        int slot = this.slots[id];
+        this.keys[slot] = key;
+        this.ties[slot] = tie;
+        siftUp(slot);
+        siftDown(this.slots[id]);
+    }
+
+    /**
+     * Adds the id if it is not in the heap, otherwise lowers its key.
+     *
+     * @param id the id to add or update
+     * @param key the new key of the id
+     */
+    public void addOrDecrease(int id, double key) {
+        if(contains(id)) {
+            decreaseKey(id, key);
+        }
+        else {
+            add(id, key);
+        }
+    }
+
+    /**
+     * Removes and returns the id with the smallest key. The heap must not be empty.
+     *
+     * @return the id with the smallest key
+     */
+    public int remove() {
+        int top = this.heap[0];
+        this.slots[top] = ABSENT;
+        this.size--;
+        if(this.size > 0) {
+            move(this.size, 0);
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Removes the given id from the heap if it is there.
+     *
+     * @param id the id to remove
+     * @return true if the id was in the heap, false otherwise
+     */
+    public boolean remove(int id) {
+        int slot = this.slots[id];
+        if(slot == ABSENT) {
+            return false;
+        }
+        this.slots[id] = ABSENT;
+        this.size--;
+        if(slot < this.size) {
+            int moved = this.heap[this.size];
+            move(this.size, slot);
+            siftUp(slot);
+            siftDown(this.slots[moved]);
+        }
+        return true;
+    }
+
+    /**
+     * Removes every id from the heap. Runs in time proportional to the
+     * current size, not the capacity, so the heap can be reused cheaply.
+     */
+    public void clear() {
+        for(int i = 0; i < this.size; i++) {
+            this.slots[this.heap[i]] = ABSENT;
+        }
+        this.size = 0;
+    }
+
+    /**
+     * Doubles the length of the heap arrays, up to the capacity.
+     */
+    private void grow() {
+        int length = (int) Math.min((long) this.heap.length * 2, this.slots.length);
+        this.heap = Arrays.copyOf(this.heap, length);
+        this.keys = Arrays.copyOf(this.keys, length);
+        this.ties = Arrays.copyOf(this.ties, length);
+    }
+
+    /**
+     * Moves the entry at the given slot towards the root until the heap
+     * property holds again.
+     *
+     * @param slot slot of the entry to move
+     */
+    private void siftUp(int slot) {
+        int id = this.heap[slot];
+        double key = this.keys[slot];
+        double tie = this.ties[slot];
+        while(slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if(!less(key, tie, this.keys[parent], this.ties[parent])) {
+                break;
+            }
+            move(parent, slot);
+            slot = parent;
+        }
+        place(id, key, tie, slot);
+    }
+
+    /**
+     * Moves the entry at the given slot towards the leaves until the heap
+     * property holds again.
+     *
+     * @param slot slot of the entry to move
+     */
+    private void siftDown(int slot) {
+        int id = this.heap[slot];
+        double key = this.keys[slot];
+        double tie = this.ties[slot];
+        int half = this.size >>> 1;
+        while(slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if(right < this.size
+                    && less(this.keys[right], this.ties[right], this.keys[child], this.ties[child])) {
+                child = right;
+            }
+            if(!less(this.keys[child], this.ties[child], key, tie)) {
+                break;
+            }
+            move(child, slot);
+            slot = child;
+        }
+        place(id, key, tie, slot);
+    }
+
+    /**
+     * Compares two entries by key, then by second key.
+     *
+     * @param key key of the first entry
+     * @param tie second key of the first entry
+     * @param otherKey key of the second entry
+     * @param otherTie second key of the second entry
+     * @return true if the first entry orders strictly before the second
+     */
+    private static boolean less(double key, double tie, double otherKey, double otherTie) {
+        return key < otherKey || (key == otherKey && tie < otherTie);
+    }
+
+    /**
+     * Copies the entry in one slot to another slot.
+     *
+     * @param from source slot
+     * @param to destination slot
+     */
+    private void move(int from, int to) {
+        this.heap[to] = this.heap[from];
+        this.keys[to] = this.keys[from];
+        this.ties[to] = this.ties[from];
+        this.slots[this.heap[to]] = to;
+    }
+
+    /**
+     * Writes an entry into the given slot.
+     *
+     * @param id id of the entry
+     * @param key key of the entry
+     * @param tie second key of the entry
+     * @param slot slot to write to
+     */
+    private void place(int id, double key, double tie, int slot) {
+        this.heap[slot] = id;
+        this.keys[slot] = key;
+        this.ties[slot] = tie;
+        this.slots[id] = slot;
+    }
+}
@@ -0,0 +1,189 @@
+package walker.blue.path.lib.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of non-negative long values with one bucket per
+ * power of two. Bucket 0 counts zeros and bucket b counts the values in
+ * [2^(b-1), 2^b), so recording is a few atomic adds and the histogram has
+ * a fixed size whatever the range of the values. Percentiles are
+ * reported as the upper bound of their bucket, which is at most twice
+ * the true value.
+ */
+public class LogHistogram {
+
+    /**
+     * Number of buckets, enough for any non-negative long.
+     */
+    public static final int BUCKETS = 64;
+
+    /**
+     * Number of values in each bucket.
+     */
+    private final AtomicLongArray buckets;
+
+    /**
+     * Number of values recorded.
+     */
+    private final AtomicLong count;
+
+    /**
+     * Sum of the values recorded.
+     */
+    private final AtomicLong sum;
+
+    /**
+     * Largest value recorded.
+     */
+    private final AtomicLong max;
+
+    /**
+     * Class constructor
+     */
+    public LogHistogram() {
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.sum = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a value. Negative values, which mark a value that could not
+     * be measured, are ignored.
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+        if(value < 0) {
+            return;
+        }
+        this.buckets.incrementAndGet(bucketOf(value));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(value);
+        long current = this.max.get();
+        while(value > current && !this.max.compareAndSet(current, value)) {
+            current = this.max.get();
+        }
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Returns the sum of the values recorded.
+     *
+     * @return the sum
+     */
+    public long getSum() {
+        return this.sum.get();
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return the largest value, or 0 if none were recorded
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     *
+     * @return the mean, or 0 if none were recorded
+     */
+    public double getMean() {
+        long count = this.count.get();
+        return count == 0 ? 0 : (double) this.sum.get() / count;
+    }
+
+    /**
+     * Returns the number of values in a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the number of values in the bucket
+     */
+    public long getBucketCount(int bucket) {
+        return this.buckets.get(bucket);
+    }
+
+    /**
+     * Returns the smallest value that falls in a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the lower bound of the bucket
+     */
+    public static long getBucketLowerBound(int bucket) {
+        return bucket == 0 ? 0 : 1L << (bucket - 1);
+    }
+
+    /**
+     * Returns an upper bound of the value below which the given fraction
+     * of the recorded values fall.
+     *
+     * @param fraction the fraction of values, between 0 and 1
+     * @return the upper bound of the bucket holding the percentile, no
+     *         greater than the largest value, or 0 if none were recorded
+     */
+    public long getPercentile(double fraction) {
+        long count = 0;
+        for(int b = 0; b < BUCKETS; b++) {
+            count += this.buckets.get(b);
+        }
+        if(count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for(int b = 0; b < BUCKETS; b++) {
+            seen += this.buckets.get(b);
+            if(seen >= rank) {
+                long upper = b == 0 ? 0 : b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1;
+                return Math.min(upper, this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * Forgets every recorded value. Values recorded while resetting may
+     * be partly kept.
+     */
+    public void reset() {
+        for(int b = 0; b < BUCKETS; b++) {
+            this.buckets.set(b, 0);
+        }
+        this.count.set(0);
+        this.sum.set(0);
+        this.max.set(0);
+    }
+
+    /**
+     * Returns a formatted String holding the count, mean, median, 99th
+     * percentile and largest value.
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "count=" + getCount() + " mean=" + String.format("%.1f", getMean())
+                + " p50=" + getPercentile(0.5) + " p99=" + getPercentile(0.99) + " max=" + getMax();
+    }
+
+    /**
+     * Returns the bucket a value falls in.
+     *
+     * @param value a non-negative value
+     * @return the index of the bucket
+     */
+    private static int bucketOf(long value) {
+        return BUCKETS - Long.numberOfLeadingZeros(value);
+    }
+}
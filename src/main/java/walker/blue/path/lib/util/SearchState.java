@@ -0,0 +1,330 @@
+package walker.blue.path.lib.util;
+
+import java.util.Arrays;
+
+/**
+ * Holds the per-query values of a path search (g, h, parent and closed
+ * state of every node) in primitive arrays indexed by node id, so the
+ * nodes of a search area are never modified and one search area can be
+ * searched by many threads at once.
+ *
+ * <p>Each thread keeps one pooled instance which is handed out by
+ * {@link #acquire(int)}. A generation stamp marks which entries belong to
+ * the current query, so starting a new query does not need a reset pass
+ * over the arrays.
+ *
+ * <p>A state takes 32 bytes per node plus 20 per node of the largest open
+ * set it held, and the pooled one only grows, so a thread that once
+ * searched a large area keeps that memory. {@link #clearPool()} drops the
+ * state of the current thread, and {@link #setMaxPooledCapacity(int)}
+ * stops states for larger areas from being pooled on any thread, such as
+ * the workers of a shared pool.
+ */
+public class SearchState {
+
+    /**
+     * Instance pooled for each thread.
+     */
+    private static final ThreadLocal<SearchState> POOL = new ThreadLocal<SearchState>();
+
+    /**
+     * Largest number of nodes of a pooled state.
+     */
+    private static volatile int maxPooledCapacity = Integer.MAX_VALUE;
+
+    /**
+     * Distance from the start node to each node following the current path
+     */
+    private double[] g;
+
+    /**
+     * Estimated distance from each node to the destination node
+     */
+    private double[] h;
+
+    /**
+     * Id of the parent of each node, or -1 if the node has no parent
+     */
+    private int[] parent;
+
+    /**
+     * Generation in which each node was last visited
+     */
+    private int[] visited;
+
+    /**
+     * Generation in which each node was last closed
+     */
+    private int[] closed;
+
+    /**
+     * Generation of the current query
+     */
+    private int generation;
+
+    /**
+     * Open set of the current query
+     */
+    private IndexedMinHeap openQueue;
+
+    /**
+     * Whether the instance is being used by a query
+     */
+    private boolean inUse;
+
+    /**
+     * Counters of the current query, or null if it is not being recorded
+     */
+    private SearchStatistics statistics;
+
+    /**
+     * Counters reused by every recorded query, created by the first one
+     */
+    private SearchStatistics statisticsPool;
+
+    /**
+     * Class constructor
+     *
+     * @param capacity the number of nodes that can be tracked
+     */
+    public SearchState(int capacity) {
+        this.g = new double[capacity];
+        this.h = new double[capacity];
+        this.parent = new int[capacity];
+        this.visited = new int[capacity];
+        this.closed = new int[capacity];
+        this.openQueue = new IndexedMinHeap(capacity);
+        this.generation = 0;
+    }
+
+    /**
+     * Returns the state pooled for the current thread, ready for a new query
+     * over at most capacity nodes. The state must be handed back with
+     * {@link #release()} once the query is done. If the pooled state is
+     * still in use (for example by an enclosing query on the same thread),
+     * a fresh unpooled instance is returned instead.
+     *
+     * @param capacity the number of nodes that can be tracked
+     * @return a state ready for a new query
+     */
+    public static SearchState acquire(int capacity) {
+        SearchState state = POOL.get();
+        if(state != null && state.capacity() > maxPooledCapacity) {
+            // The limit was lowered since the state was pooled.
+            POOL.remove();
+            state = null;
+        }
+        if(state != null && state.inUse) {
+            state = new SearchState(capacity);
+        }
+        else if(state == null || state.capacity() < capacity) {
+            state = new SearchState(capacity);
+            if(capacity <= maxPooledCapacity) {
+                POOL.set(state);
+            }
+        }
+        state.inUse = true;
+        state.reset();
+        return state;
+    }
+
+    /**
+     * Drops the state pooled for the current thread, so that its memory
+     * can be reclaimed once no query uses it. The next query on the thread
+     * creates a new one.
+     */
+    public static void clearPool() {
+        POOL.remove();
+    }
+
+    /**
+     * Access method to get the largest capacity of a pooled state.
+     *
+     * @return the largest number of nodes of a state kept between queries
+     */
+    public static int getMaxPooledCapacity() {
+        return maxPooledCapacity;
+    }
+
+    /**
+     * Sets the largest capacity of a pooled state. Queries over more nodes
+     * get a state of their own that is dropped once they are done, and
+     * larger states already pooled are dropped by the next query on their
+     * thread.
+     *
+     * @param capacity the largest number of nodes of a state kept between
+     *                 queries, at least 0
+     */
+    public static void setMaxPooledCapacity(int capacity) {
+        if(capacity < 0) {
+            throw new IllegalArgumentException("Pooled capacity must not be negative: " + capacity);
+        }
+        maxPooledCapacity = capacity;
+    }
+
+    /**
+     * Hands the state back to the pool of the current thread.
+     */
+    public void release() {
+        this.inUse = false;
+    }
+
+    /**
+     * Forgets every value of the previous query by moving to a new generation.
+     */
+    public void reset() {
+        this.openQueue.clear();
+        this.statistics = null;
+        this.generation++;
+        if(this.generation == Integer.MAX_VALUE) {
+            Arrays.fill(this.visited, 0);
+            Arrays.fill(this.closed, 0);
+            this.generation = 1;
+        }
+    }
+
+    /**
+     * Returns the number of nodes that can be tracked.
+     *
+     * @return capacity of the state
+     */
+    public int capacity() {
+        return this.g.length;
+    }
+
+    /**
+     * Returns the counters of the current query.
+     *
+     * @return the counters, or null if the query is not being recorded
+     */
+    public SearchStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Starts recording the current query into counters owned by this
+     * state, which are set to zero.
+     *
+     * @return the counters of the current query
+     */
+    public SearchStatistics recordStatistics() {
+        if(this.statisticsPool == null) {
+            this.statisticsPool = new SearchStatistics();
+        }
+        this.statistics = this.statisticsPool;
+        this.statistics.reset();
+        return this.statistics;
+    }
+
+    /**
+     * Returns the open set of the current query.
+     *
+     * @return the open queue
+     */
+    public IndexedMinHeap getOpenQueue() {
+        return this.openQueue;
+    }
+
+    /**
+     * Checks whether the node has been reached during the current query.
+     *
+     * @param id id of the node
+     * @return true if the node has been visited, false otherwise
+     */
+    public boolean isVisited(int id) {
+        return this.visited[id] == this.generation;
+    }
+
+    /**
+     * Marks the node as reached with no parent, a G value of "infinity" and
+     * the given estimated distance to the destination.
+     *
+     * @param id id of the node
+     * @param h estimated distance from the node to the destination
+     */
+    public void visit(int id, double h) {
+        this.visited[id] = this.generation;
+        this.g[id] = Double.POSITIVE_INFINITY;
+        this.h[id] = h;
+        this.parent[id] = -1;
+    }
+
+    /**
+     * Checks whether the node has been closed during the current query.
+     *
+     * @param id id of the node
+     * @return true if the node is closed, false otherwise
+     */
+    public boolean isClosed(int id) {
+        return this.closed[id] == this.generation;
+    }
+
+    /**
+     * Marks the node as closed for the current query.
+     *
+     * @param id id of the node
+     */
+    public void close(int id) {
+        this.closed[id] = this.generation;
+    }
+
+    /**
+     * Returns the G value of the node, or "infinity" if it has not been visited.
+     *
+     * @param id id of the node
+     * @return the distance from the start node to the node
+     */
+    public double getG(int id) {
+        return isVisited(id) ? this.g[id] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Sets the G value of a visited node.
+     *
+     * @param id id of the node
+     * @param val new value of G
+     */
+    public void setG(int id, double val) {
+        this.g[id] = val;
+    }
+
+    /**
+     * Returns the H value of a visited node.
+     *
+     * @param id id of the node
+     * @return the estimated distance from the node to the destination
+     */
+    public double getH(int id) {
+        return this.h[id];
+    }
+
+    /**
+     * Returns the F value of a visited node, which is the sum of its G and H values.
+     *
+     * @param id id of the node
+     * @return the estimated length of the path through the node
+     */
+    public double getF(int id) {
+        return this.g[id] + this.h[id];
+    }
+
+    /**
+     * Returns the parent id of the node, or -1 if it has none.
+     *
+     * @param id id of the node
+     * @return id of the parent node
+     */
+    public int getParent(int id) {
+        return isVisited(id) ? this.parent[id] : -1;
+    }
+
+    /**
+     * Sets the parent id of a visited node.
+     *
+     * @param id id of the node
+     * @param parentId id of the new parent, or -1 for none
+     */
+    public void setParent(int id, int parentId) {
+        this.parent[id] = parentId;
+    }
+}
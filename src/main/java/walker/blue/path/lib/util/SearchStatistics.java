@@ -0,0 +1,345 @@
+package walker.blue.path.lib.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Holds the counters of one path search: how many nodes were expanded and
+ * generated, how often a key in the open set was lowered, how many line
+ * of sight checks were made, the largest size of the open set, the wall
+ * time and an estimate of the bytes allocated.
+ *
+ * <p>Finders only fill in an instance while their StatisticsListener is
+ * set, through the SearchState of the query. With no listener the
+ * state holds null and every counter update is skipped.
+ */
+public class SearchStatistics {
+
+    /**
+     * Enum holding the values recorded for each search.
+     */
+    public enum Metric {
+
+        /**
+         * Nodes taken off the open set.
+         */
+        EXPANDED,
+
+        /**
+         * Nodes added to the open set.
+         */
+        GENERATED,
+
+        /**
+         * Keys lowered for nodes already in the open set.
+         */
+        DECREASE_KEYS,
+
+        /**
+         * Line of sight checks between two cells.
+         */
+        LINE_OF_SIGHT_CHECKS,
+
+        /**
+         * Largest number of nodes in the open set at once.
+         */
+        MAX_OPEN_SIZE,
+
+        /**
+         * Wall time of the search in nanoseconds.
+         */
+        ELAPSED_NANOS,
+
+        /**
+         * Bytes allocated by the searching thread, or -1 if the JVM cannot tell.
+         */
+        ALLOCATED_BYTES
+    }
+
+    /**
+     * Bean reading the allocation counter of each thread, or null if the JVM has none.
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = allocationBean();
+
+    /**
+     * Nodes taken off the open set.
+     */
+    private long expanded;
+
+    /**
+     * Nodes added to the open set.
+     */
+    private long generated;
+
+    /**
+     * Keys lowered for nodes already in the open set.
+     */
+    private long decreaseKeys;
+
+    /**
+     * Line of sight checks between two cells.
+     */
+    private long lineOfSightChecks;
+
+    /**
+     * Largest number of nodes in the open set at once.
+     */
+    private long maxOpenSize;
+
+    /**
+     * System.nanoTime() when the search started, then the wall time once it finished.
+     */
+    private long elapsedNanos;
+
+    /**
+     * Allocation counter of the thread when the search started, then the
+     * bytes allocated once it finished.
+     */
+    private long allocatedBytes;
+
+    /**
+     * Class constructor
+     */
+    public SearchStatistics() {
+        reset();
+    }
+
+    /**
+     * Sets every counter to zero.
+     */
+    public void reset() {
+        this.expanded = 0;
+        this.generated = 0;
+        this.decreaseKeys = 0;
+        this.lineOfSightChecks = 0;
+        this.maxOpenSize = 0;
+        this.elapsedNanos = 0;
+        this.allocatedBytes = 0;
+    }
+
+    /**
+     * Sets every counter to zero and starts measuring the wall time and
+     * the allocations of the calling thread.
+     */
+    public void start() {
+        reset();
+        this.allocatedBytes = threadAllocatedBytes();
+        this.elapsedNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops measuring the wall time and the allocations. Must be called on
+     * the thread that called start.
+     */
+    public void finish() {
+        this.elapsedNanos = System.nanoTime() - this.elapsedNanos;
+        long allocated = threadAllocatedBytes();
+        this.allocatedBytes = allocated < 0 || this.allocatedBytes < 0 ? -1 : allocated - this.allocatedBytes;
+    }
+
+    /**
+     * Counts a node taken off the open set.
+     */
+    public void recordExpansion() {
+        this.expanded++;
+    }
+
+    /**
+     * Counts a node added to the open set.
+     *
+     * @param openSize the size of the open set after the node was added
+     */
+    public void recordGeneration(int openSize) {
+        this.generated++;
+        if(openSize > this.maxOpenSize) {
+            this.maxOpenSize = openSize;
+        }
+    }
+
+    /**
+     * Counts a lowered key of a node already in the open set.
+     */
+    public void recordDecreaseKey() {
+        this.decreaseKeys++;
+    }
+
+    /**
+     * Counts a line of sight check.
+     */
+    public void recordLineOfSightCheck() {
+        this.lineOfSightChecks++;
+    }
+
+    /**
+     * Adds the node counters of another search to these, as for the two
+     * halves of a bidirectional search. The open set sizes are added too,
+     * which bounds the combined size of both open sets.
+     *
+     * @param other the counters to add
+     */
+    public void add(SearchStatistics other) {
+        this.expanded += other.expanded;
+        this.generated += other.generated;
+        this.decreaseKeys += other.decreaseKeys;
+        this.lineOfSightChecks += other.lineOfSightChecks;
+        this.maxOpenSize += other.maxOpenSize;
+    }
+
+    /**
+     * Returns a copy of the counters, for keeping past the query they
+     * were recorded for.
+     *
+     * @return the copy
+     */
+    public SearchStatistics copy() {
+        SearchStatistics copy = new SearchStatistics();
+        copy.add(this);
+        copy.elapsedNanos = this.elapsedNanos;
+        copy.allocatedBytes = this.allocatedBytes;
+        return copy;
+    }
+
+    /**
+     * Returns the value of one metric.
+     *
+     * @param metric the metric to return
+     * @return the value of the metric
+     */
+    public long get(Metric metric) {
+        switch(metric) {
+            case EXPANDED:
+                return this.expanded;
+            case GENERATED:
+                return this.generated;
+            case DECREASE_KEYS:
+                return this.decreaseKeys;
+            case LINE_OF_SIGHT_CHECKS:
+                return this.lineOfSightChecks;
+            case MAX_OPEN_SIZE:
+                return this.maxOpenSize;
+            case ELAPSED_NANOS:
+                return this.elapsedNanos;
+            default:
+                return this.allocatedBytes;
+        }
+    }
+
+    /**
+     * Access method to get the number of expanded nodes.
+     *
+     * @return nodes taken off the open set
+     */
+    public long getExpanded() {
+        return this.expanded;
+    }
+
+    /**
+     * Access method to get the number of generated nodes.
+     *
+     * @return nodes added to the open set
+     */
+    public long getGenerated() {
+        return this.generated;
+    }
+
+    /**
+     * Access method to get the number of lowered keys.
+     *
+     * @return keys lowered for nodes already in the open set
+     */
+    public long getDecreaseKeys() {
+        return this.decreaseKeys;
+    }
+
+    /**
+     * Access method to get the number of line of sight checks.
+     *
+     * @return line of sight checks between two cells
+     */
+    public long getLineOfSightChecks() {
+        return this.lineOfSightChecks;
+    }
+
+    /**
+     * Access method to get the largest size of the open set.
+     *
+     * @return largest number of nodes in the open set at once
+     */
+    public long getMaxOpenSize() {
+        return this.maxOpenSize;
+    }
+
+    /**
+     * Access method to get the wall time of the search.
+     *
+     * @return the wall time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * Access method to get the bytes allocated during the search. The
+     * count covers everything the searching thread allocated, and is -1
+     * if the JVM does not track allocations per thread.
+     *
+     * @return the bytes allocated, or -1
+     */
+    public long getAllocatedBytes() {
+        return this.allocatedBytes;
+    }
+
+    /**
+     * Returns a formatted String holding every counter.
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "expanded=" + this.expanded + " generated=" + this.generated
+                + " decreaseKeys=" + this.decreaseKeys + " lineOfSightChecks=" + this.lineOfSightChecks
+                + " maxOpenSize=" + this.maxOpenSize + " elapsedNanos=" + this.elapsedNanos
+                + " allocatedBytes=" + this.allocatedBytes;
+    }
+
+    /**
+     * Returns the number of bytes the calling thread has allocated so far.
+     *
+     * @return the allocation counter of the thread, or -1 if it is not available
+     */
+    private static long threadAllocatedBytes() {
+        if(ALLOCATION_BEAN == null) {
+            return -1;
+        }
+        return ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the bean reading the allocation counters, enabling them if needed.
+     *
+     * @return the bean, or null if the JVM does not count allocations per thread
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if(!(bean instanceof com.sun.management.ThreadMXBean)) {
+                return null;
+            }
+            com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+            if(!allocationBean.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            if(!allocationBean.isThreadAllocatedMemoryEnabled()) {
+                allocationBean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return allocationBean;
+        }
+        catch(LinkageError e) {
+            // Not a HotSpot-derived JVM.
+            return null;
+        }
+        catch(UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package walker.blue.path.lib.base;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridFixtures;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Unit tests for BatchPathfinder class
+ */
+public class BatchPathfinderTest {
+
+    @Test
+    public void testFindPathsMatchesSequential() {
+        char[][] searchAreaGrid = GridFixtures.searchAreaGrid();
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(searchAreaGrid);
+        GridAStar gridAStar = new GridAStar();
+        Random random = new Random(3);
+        List<PathQuery<GridNode>> queries = new ArrayList<>();
+        for(int i = 0; i < 200; i++) {
+            GridNode start = searchArea.get(random.nextInt(7)).get(random.nextInt(7));
+            GridNode dest = searchArea.get(random.nextInt(7)).get(random.nextInt(7));
+            queries.add(new PathQuery<>(start, dest));
+        }
+
+        BatchPathfinder<GridNode, List<List<GridNode>>> batch =
+                new BatchPathfinder<>(gridAStar, new ForkJoinPool(4));
+        List<List<GridNode>> paths = batch.findPaths(searchArea, queries);
+        batch.shutdown();
+
+        Assert.assertEquals(queries.size(), paths.size());
+        for(int i = 0; i < queries.size(); i++) {
+            PathQuery<GridNode> query = queries.get(i);
+            Assert.assertEquals(gridAStar.findPath(searchArea, query.getStart(), query.getDest()),
+                    paths.get(i));
+        }
+    }
+}
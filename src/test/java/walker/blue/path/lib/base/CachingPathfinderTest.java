@@ -0,0 +1,93 @@
+package walker.blue.path.lib.base;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridFixtures;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Unit tests for CachingPathfinder class
+ */
+public class CachingPathfinderTest {
+
+    private char[][] searchAreaGrid;
+
+    @Before
+    public void classSetup() {
+        searchAreaGrid = GridFixtures.searchAreaGrid();
+    }
+
+    @Test
+    public void testHitsReturnSamePath() {
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(searchAreaGrid);
+        GridAStar gridAStar = new GridAStar();
+        CachingPathfinder<GridNode, List<List<GridNode>>> cache =
+                new CachingPathfinder<>(gridAStar);
+        GridNode start = searchArea.get(0).get(0);
+        GridNode dest = searchArea.get(6).get(6);
+
+        List<GridNode> first = cache.findPath(searchArea, start, dest);
+        List<GridNode> second = cache.findPath(searchArea,
+                new GridNode(0, 0, 0, true), new GridNode(6, 6, 0, true));
+
+        Assert.assertEquals(gridAStar.findPath(searchArea, start, dest), first);
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(0.5, cache.getHitRate(), 0);
+        try {
+            first.add(start);
+            Assert.fail("Cached paths must be unmodifiable");
+        }
+        catch(UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInvalidate() {
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(searchAreaGrid);
+        CachingPathfinder<GridNode, List<List<GridNode>>> cache =
+                new CachingPathfinder<>(new GridAStar());
+        GridNode start = searchArea.get(0).get(0);
+        GridNode dest = searchArea.get(6).get(6);
+
+        List<GridNode> before = cache.findPath(searchArea, start, dest);
+        searchArea.get(6).set(6, new GridNode(6, 6, 0, false));
+        Assert.assertSame(before, cache.findPath(searchArea, start, dest));
+
+        cache.invalidate();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertNull(cache.findPath(searchArea, start, searchArea.get(6).get(6)));
+        Assert.assertNull(cache.findPath(searchArea, start, searchArea.get(6).get(6)));
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testEviction() {
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(searchAreaGrid);
+        CachingPathfinder<GridNode, List<List<GridNode>>> cache =
+                new CachingPathfinder<>(new GridAStar(), 2, 1);
+        GridNode start = searchArea.get(0).get(0);
+
+        cache.findPath(searchArea, start, searchArea.get(6).get(6));
+        cache.findPath(searchArea, start, searchArea.get(4).get(4));
+        cache.findPath(searchArea, start, searchArea.get(6).get(6));
+        cache.findPath(searchArea, start, searchArea.get(2).get(2));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+
+        // (4, 4) was the least recently used and has been evicted.
+        cache.findPath(searchArea, start, searchArea.get(6).get(6));
+        cache.findPath(searchArea, start, searchArea.get(4).get(4));
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(4, cache.getMissCount());
+    }
+}
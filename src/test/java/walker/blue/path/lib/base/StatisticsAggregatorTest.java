@@ -0,0 +1,136 @@
+package walker.blue.path.lib.base;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import walker.blue.path.lib.finder.BidirectionalAStar;
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.finder.ThetaStar;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.util.GridFixtures;
+import walker.blue.path.lib.util.GridGenerator;
+import walker.blue.path.lib.util.SearchState;
+import walker.blue.path.lib.util.SearchStatistics;
+import walker.blue.path.lib.util.SearchStatistics.Metric;
+
+/**
+ * Unit tests for StatisticsAggregator class
+ */
+public class StatisticsAggregatorTest {
+
+    private StatisticsAggregator aggregator;
+
+    private List<SearchStatistics> recorded;
+
+    private StatisticsListener recorder;
+
+    @Before
+    public void classSetup() {
+        this.aggregator = new StatisticsAggregator();
+        this.recorded = new ArrayList<SearchStatistics>();
+        this.recorder = new StatisticsListener() {
+            @Override
+            public void searchFinished(SearchStatistics statistics) {
+                recorded.add(statistics.copy());
+                aggregator.searchFinished(statistics);
+            }
+        };
+    }
+
+    @Test
+    public void testCorridorCounts() {
+        GridMap map = GridGenerator.genMap(new char[][] {{'O', 'O', 'O', 'O', 'O', 'O'}});
+        GridAStar gridAStar = new GridAStar();
+        gridAStar.setStatisticsListener(recorder);
+        Assert.assertEquals(6, gridAStar.findPath(map, 0, 5).length);
+        Assert.assertEquals(1, recorded.size());
+        SearchStatistics statistics = recorded.get(0);
+        // Every cell is generated and expanded once, one at a time.
+        Assert.assertEquals(6, statistics.getExpanded());
+        Assert.assertEquals(6, statistics.getGenerated());
+        Assert.assertEquals(0, statistics.getDecreaseKeys());
+        Assert.assertEquals(0, statistics.getLineOfSightChecks());
+        Assert.assertEquals(1, statistics.getMaxOpenSize());
+        Assert.assertTrue(statistics.getElapsedNanos() > 0);
+        Assert.assertEquals(6, aggregator.getHistogram(Metric.EXPANDED).getMax());
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        GridMap map = GridGenerator.genMap(GridFixtures.searchAreaGrid());
+        GridAStar gridAStar = new GridAStar();
+        Assert.assertNull(gridAStar.getStatisticsListener());
+        gridAStar.setStatisticsListener(recorder);
+        gridAStar.findPath(map, map.getId(0, 0), map.getId(1, 6));
+        gridAStar.setStatisticsListener(null);
+        gridAStar.findPath(map, map.getId(0, 0), map.getId(1, 6));
+        Assert.assertEquals(1, recorded.size());
+
+        // A new query on the same thread starts without statistics.
+        SearchState state = SearchState.acquire(map.size());
+        try {
+            Assert.assertNull(state.getStatistics());
+        }
+        finally {
+            state.release();
+        }
+    }
+
+    @Test
+    public void testFinders() {
+        GridMap map = GridGenerator.genMap(GridFixtures.searchAreaGrid());
+        ThetaStar thetaStar = new ThetaStar();
+        BidirectionalAStar bidirectional = new BidirectionalAStar();
+        thetaStar.setStatisticsListener(recorder);
+        bidirectional.setStatisticsListener(recorder);
+
+        thetaStar.findPath(map, map.getId(0, 0), map.getId(1, 6));
+        SearchStatistics theta = recorded.get(0);
+        Assert.assertTrue(theta.getExpanded() > 0);
+        Assert.assertTrue(theta.getLineOfSightChecks() > 0);
+
+        thetaStar.setLazy(true);
+        thetaStar.findPath(map, map.getId(0, 0), map.getId(1, 6));
+        SearchStatistics lazy = recorded.get(1);
+        // Lazy Theta* checks the line of sight once per expanded cell at most.
+        Assert.assertTrue(lazy.getLineOfSightChecks() <= lazy.getExpanded());
+        Assert.assertTrue(lazy.getLineOfSightChecks() < theta.getLineOfSightChecks());
+
+        bidirectional.findPath(map, map.getId(0, 0), map.getId(1, 6));
+        SearchStatistics both = recorded.get(2);
+        Assert.assertTrue(both.getExpanded() > 0);
+        Assert.assertTrue(both.getGenerated() >= both.getExpanded());
+
+        Assert.assertEquals(3, aggregator.getSearchCount());
+    }
+
+    @Test
+    public void testSlowestAndReset() {
+        SearchStatistics fast = new SearchStatistics();
+        fast.start();
+        fast.finish();
+        SearchStatistics slow = new SearchStatistics();
+        slow.start();
+        slow.recordExpansion();
+        long begin = System.nanoTime();
+        while(System.nanoTime() - begin < 1000000) {
+            slow.recordGeneration(1);
+        }
+        slow.finish();
+        Assert.assertNull(aggregator.getSlowest());
+        aggregator.searchFinished(slow);
+        aggregator.searchFinished(fast);
+        Assert.assertEquals(2, aggregator.getSearchCount());
+        Assert.assertEquals(1, aggregator.getSlowest().getExpanded());
+        Assert.assertNotSame(slow, aggregator.getSlowest());
+        Assert.assertTrue(aggregator.getHistogram(Metric.GENERATED).getMax() > 0);
+
+        aggregator.reset();
+        Assert.assertEquals(0, aggregator.getSearchCount());
+        Assert.assertNull(aggregator.getSlowest());
+    }
+}
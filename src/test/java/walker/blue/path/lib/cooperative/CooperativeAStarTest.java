@@ -0,0 +1,187 @@
+package walker.blue.path.lib.cooperative;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.util.GridFixtures;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Unit tests for CooperativeAStar class
+ */
+public class CooperativeAStarTest {
+
+    @Test
+    public void testSingleAgentTakesShortestPath() {
+        char[][] searchAreaGrid = GridFixtures.searchAreaGrid();
+        GridMap map = GridGenerator.genMap(searchAreaGrid);
+        int start = map.getId(0, 0);
+        int goal = map.getId(1, 6);
+        CooperativeAStar planner = new CooperativeAStar(map, 16);
+        int agent = planner.addAgent(start, goal);
+        int[] path = new GridAStar().findPath(map, start, goal);
+
+        Assert.assertNull(planner.getPlan(agent));
+        Assert.assertEquals(0, planner.replan());
+        int[] plan = planner.getPlan(agent);
+        Assert.assertEquals(17, plan.length);
+        Assert.assertEquals(start, plan[0]);
+        // Paths of equal cost may differ, but the goal is reached as soon
+        // as on the shortest path and never left.
+        Assert.assertTrue(plan[path.length - 2] != goal);
+        for(int t = path.length - 1; t < plan.length; t++) {
+            Assert.assertEquals(goal, plan[t]);
+        }
+        for(int t = 1; t < path.length; t++) {
+            planner.step();
+            Assert.assertEquals(plan[t], planner.getPosition(agent));
+        }
+        Assert.assertTrue(planner.isAtGoal(agent));
+        Assert.assertEquals(path.length - 1, planner.getTime());
+    }
+
+    @Test
+    public void testAgentsPassInCorridor() {
+        char[][] searchAreaGrid = {
+                {'O', 'O', 'O', 'O', 'O', 'O', 'O'},
+                {'X', 'X', 'X', 'O', 'X', 'X', 'X'}};
+        GridMap map = GridGenerator.genMap(searchAreaGrid);
+        CooperativeAStar planner = new CooperativeAStar(map, 8);
+        planner.addAgent(map.getId(0, 0), map.getId(6, 0));
+        planner.addAgent(map.getId(6, 0), map.getId(0, 0));
+        run(planner, 30);
+        Assert.assertTrue(planner.isAllAtGoal());
+    }
+
+    @Test
+    public void testManyAgents() {
+        GridMap map = scatteredMap(24, 0.1, 5L);
+        CooperativeAStar planner = new CooperativeAStar(map, 12);
+        addRandomAgents(map, planner, 40, 9L);
+        run(planner, 150);
+        Assert.assertTrue(planner.isAllAtGoal());
+    }
+
+    @Test
+    public void testManyAgentsInParallel() {
+        GridMap map = scatteredMap(24, 0.1, 5L);
+        CooperativeAStar planner = new CooperativeAStar(map, 12);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        planner.setPool(pool);
+        addRandomAgents(map, planner, 40, 9L);
+        run(planner, 150);
+        pool.shutdown();
+        Assert.assertTrue(planner.isAllAtGoal());
+    }
+
+    @Test
+    public void testCrowdedAgentsWait() {
+        // Agents that find no plan wait in place and the others route around them.
+        GridMap map = scatteredMap(10, 0, 3L);
+        CooperativeAStar planner = new CooperativeAStar(map, 8);
+        addRandomAgents(map, planner, 60, 11L);
+        int waiting = 0;
+        for(int step = 0; step < 40; step++) {
+            waiting += planner.replan();
+            run(planner, 1);
+        }
+        Assert.assertTrue(waiting > 0);
+    }
+
+    @Test
+    public void testCrowdedAgentsInParallel() {
+        // Conflicting commits are retried, and every attempt claims entries.
+        GridMap map = scatteredMap(10, 0, 3L);
+        CooperativeAStar planner = new CooperativeAStar(map, 8);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        planner.setPool(pool);
+        addRandomAgents(map, planner, 60, 11L);
+        try {
+            run(planner, 40);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testNewGoal() {
+        GridMap map = scatteredMap(10, 0, 1L);
+        CooperativeAStar planner = new CooperativeAStar(map, 4);
+        int agent = planner.addAgent(map.getId(0, 0), map.getId(3, 0));
+        run(planner, 5);
+        Assert.assertTrue(planner.isAtGoal(agent));
+        planner.setGoal(agent, map.getId(3, 6));
+        run(planner, 6);
+        Assert.assertEquals(map.getId(3, 6), planner.getPosition(agent));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBlockedStart() {
+        char[][] searchAreaGrid = {
+                {'O', 'X'},
+                {'O', 'O'}};
+        GridMap map = GridGenerator.genMap(searchAreaGrid);
+        new CooperativeAStar(map, 4).addAgent(map.getId(1, 0), map.getId(0, 0));
+    }
+
+    /**
+     * Steps the planner, checking that no two agents share a cell or swap places.
+     */
+    private static void run(CooperativeAStar planner, int steps) {
+        int count = planner.getAgentCount();
+        int[] previous = new int[count];
+        for(int step = 0; step < steps; step++) {
+            for(int agent = 0; agent < count; agent++) {
+                previous[agent] = planner.getPosition(agent);
+            }
+            planner.step();
+            for(int a = 0; a < count; a++) {
+                for(int b = a + 1; b < count; b++) {
+                    Assert.assertFalse(planner.getPosition(a) == planner.getPosition(b));
+                    Assert.assertFalse(planner.getPosition(a) == previous[b]
+                            && planner.getPosition(b) == previous[a]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a square map with randomly blocked cells.
+     */
+    private static GridMap scatteredMap(int size, double density, long seed) {
+        Random random = new Random(seed);
+        char[][] grid = new char[size][size];
+        for(int y = 0; y < size; y++) {
+            for(int x = 0; x < size; x++) {
+                grid[y][x] = random.nextDouble() < density ? 'X' : 'O';
+            }
+        }
+        return GridGenerator.genMap(grid);
+    }
+
+    /**
+     * Adds agents with distinct random starts and distinct random goals.
+     */
+    private static void addRandomAgents(GridMap map, CooperativeAStar planner, int count, long seed) {
+        Random random = new Random(seed);
+        boolean[] starts = new boolean[map.size()];
+        boolean[] goals = new boolean[map.size()];
+        while(planner.getAgentCount() < count) {
+            int start = random.nextInt(map.size());
+            int goal = random.nextInt(map.size());
+            if(starts[start] || goals[goal] || !map.isTraversable(start) || !map.isTraversable(goal)
+                    || new GridAStar().findPath(map, start, goal) == null) {
+                continue;
+            }
+            starts[start] = true;
+            goals[goal] = true;
+            planner.addAgent(start, goal);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package walker.blue.path.lib.cooperative;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Unit tests for ReservationTable class
+ */
+public class ReservationTableTest {
+
+    private ReservationTable table;
+
+    @Before
+    public void classSetup() {
+        this.table = new ReservationTable(10, 64);
+    }
+
+    @Test
+    public void testReserve() {
+        Assert.assertEquals(ReservationTable.NONE, table.getOwner(12, 3));
+        Assert.assertTrue(table.reserve(12, 3, 0));
+        Assert.assertTrue(table.reserve(12, 3, 0));
+        Assert.assertFalse(table.reserve(12, 3, 1));
+        Assert.assertEquals(0, table.getOwner(12, 3));
+        Assert.assertTrue(table.isFree(12, 3, 0));
+        Assert.assertFalse(table.isFree(12, 3, 1));
+        // Other times and cells are unaffected.
+        Assert.assertTrue(table.isFree(12, 4, 1));
+        Assert.assertTrue(table.isFree(13, 3, 1));
+
+        table.release(12, 3, 1);
+        Assert.assertEquals(0, table.getOwner(12, 3));
+        table.release(12, 3, 0);
+        Assert.assertEquals(ReservationTable.NONE, table.getOwner(12, 3));
+        Assert.assertTrue(table.reserve(12, 3, 1));
+        Assert.assertEquals(1, table.getOwner(12, 3));
+    }
+
+    @Test
+    public void testMoveIsSharedByBothDirections() {
+        // Cell 11 and its neighbors 12, 21 and 22.
+        Assert.assertTrue(table.reserveMove(11, 22, 5, 0));
+        Assert.assertEquals(0, table.getMoveOwner(22, 11, 5));
+        Assert.assertFalse(table.isMoveFree(22, 11, 5, 1));
+        Assert.assertTrue(table.isMoveFree(22, 11, 6, 1));
+        Assert.assertTrue(table.isMoveFree(11, 12, 5, 1));
+        Assert.assertTrue(table.isMoveFree(11, 21, 5, 1));
+        // Edges and cells are kept apart.
+        Assert.assertTrue(table.isFree(11, 5, 1));
+        table.releaseMove(22, 11, 5, 0);
+        Assert.assertTrue(table.reserveMove(22, 11, 5, 1));
+    }
+
+    @Test
+    public void testEnsureCapacityKeepsReservations() {
+        for(int cell = 0; cell < 32; cell++) {
+            Assert.assertTrue(table.reserve(cell, cell % 4, cell % 3));
+        }
+        table.ensureCapacity(1000);
+        Assert.assertTrue(table.capacity() >= 1000);
+        Assert.assertEquals(32, table.size());
+        for(int cell = 0; cell < 32; cell++) {
+            Assert.assertEquals(cell % 3, table.getOwner(cell, cell % 4));
+        }
+        table.clear();
+        Assert.assertEquals(0, table.size());
+        Assert.assertEquals(ReservationTable.NONE, table.getOwner(5, 1));
+    }
+
+    @Test
+    public void testFull() {
+        int capacity = table.capacity();
+        for(int time = 0; time < capacity; time++) {
+            Assert.assertTrue(table.reserve(0, time, 0));
+        }
+        // New entries fail once the table is full, released ones still count.
+        Assert.assertFalse(table.reserve(0, capacity, 0));
+        Assert.assertFalse(table.reserveMove(0, 1, 0, 0));
+        table.release(0, 0, 0);
+        Assert.assertFalse(table.reserve(1, 0, 1));
+        Assert.assertEquals(capacity, table.size());
+        // Entries already claimed can still be reserved and looked up.
+        Assert.assertTrue(table.reserve(0, 0, 1));
+        Assert.assertEquals(1, table.getOwner(0, 0));
+        Assert.assertEquals(ReservationTable.NONE, table.getOwner(2, 0));
+        Assert.assertTrue(table.isMoveFree(0, 1, 0, 1));
+    }
+
+    @Test
+    public void testConcurrentReserve() throws Exception {
+        final ReservationTable shared = new ReservationTable(100, 10000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for(int agent = 0; agent < 4; agent++) {
+                final int id = agent;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int won = 0;
+                        for(int cell = 0; cell < 5000; cell++) {
+                            if(shared.reserve(cell, cell % 7, id)) {
+                                won++;
+                            }
+                        }
+                        return won;
+                    }
+                }));
+            }
+            int total = 0;
+            for(Future<Integer> future : futures) {
+                total += future.get();
+            }
+            // Every cell went to exactly one agent.
+            Assert.assertEquals(5000, total);
+            Assert.assertEquals(5000, shared.size());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
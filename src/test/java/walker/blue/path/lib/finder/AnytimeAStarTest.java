@@ -0,0 +1,137 @@
+package walker.blue.path.lib.finder;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.GridPath;
+import walker.blue.path.lib.grid.Heuristic;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Unit tests for AnytimeAStar class
+ */
+public class AnytimeAStarTest {
+
+    private static final char[][] SEARCH_AREA_GRID = {
+            {'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O'},
+            {'O', 'X', 'X', 'X', 'X', 'X', 'X', 'X', 'X', 'X', 'X', 'O'},
+            {'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'X', 'O'},
+            {'X', 'X', 'X', 'X', 'X', 'X', 'X', 'X', 'X', 'O', 'X', 'O'},
+            {'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'X', 'O'},
+            {'O', 'X', 'X', 'X', 'X', 'X', 'X', 'X', 'X', 'X', 'X', 'O'},
+            {'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O'}};
+
+    private static final char[][] SCATTERED_GRID = {
+            {'O', 'X', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'X', 'X', 'X', 'X', 'O', 'O', 'X', 'O', 'O', 'O'},
+            {'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'X', 'X', 'O', 'O', 'O', 'X', 'O', 'X', 'X', 'O', 'O', 'O'},
+            {'O', 'O', 'O', 'X', 'X', 'O', 'X', 'O', 'O', 'O', 'X', 'O', 'O', 'X', 'O', 'O', 'O', 'O', 'O', 'X'},
+            {'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'X', 'X', 'X', 'O', 'O', 'O', 'O', 'O', 'X'},
+            {'O', 'O', 'X', 'X', 'O', 'X', 'O', 'X', 'O', 'O', 'O', 'X', 'O', 'O', 'O', 'X', 'O', 'O', 'O', 'O'},
+            {'O', 'O', 'O', 'O', 'X', 'O', 'O', 'O', 'X', 'O', 'O', 'X', 'X', 'X', 'O', 'X', 'O', 'O', 'O', 'O'},
+            {'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'X', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'X', 'X', 'O'},
+            {'O', 'O', 'O', 'X', 'X', 'O', 'O', 'O', 'O', 'O', 'X', 'O', 'X', 'O', 'X', 'X', 'X', 'X', 'O', 'X'},
+            {'X', 'O', 'O', 'X', 'O', 'X', 'X', 'O', 'O', 'O', 'O', 'O', 'X', 'O', 'O', 'X', 'O', 'X', 'X', 'O'},
+            {'X', 'X', 'X', 'X', 'O', 'O', 'O', 'O', 'X', 'O', 'X', 'O', 'O', 'O', 'O', 'O', 'O', 'O', 'X', 'O'}};
+
+    private GridMap map;
+
+    private AnytimeAStar anytimeAStar;
+
+    @Before
+    public void classSetup() {
+        this.map = GridGenerator.genMap(SEARCH_AREA_GRID);
+        this.anytimeAStar = new AnytimeAStar();
+    }
+
+    @Test
+    public void testConvergesToShortestPath() {
+        GridAStar gridAStar = new GridAStar();
+        gridAStar.setHeuristic(Heuristic.OCTILE);
+        int start = map.getId(0, 2);
+        int dest = map.getId(0, 4);
+        GridPath shortest = gridAStar.findGridPath(map, start, dest);
+
+        SearchResult result = anytimeAStar.findPath(map, start, dest, SearchBudget.UNLIMITED);
+        Assert.assertEquals(SearchResult.Status.COMPLETE, result.getStatus());
+        Assert.assertEquals(1.0, result.getBound(), 0);
+        Assert.assertEquals(shortest.getCost(), result.getPath().getCost(), 0);
+        Assert.assertArrayEquals(anytimeAStar.findPath(map, start, dest), result.getPath().toArray());
+    }
+
+    @Test
+    public void testImprovements() {
+        GridMap scattered = GridGenerator.genMap(SCATTERED_GRID);
+        final List<SearchResult> improvements = new ArrayList<SearchResult>();
+        SearchResult result = anytimeAStar.findPath(scattered, 0, scattered.getId(19, 9),
+                SearchBudget.UNLIMITED, new AnytimeAStar.ImprovementListener() {
+                    @Override
+                    public void pathImproved(SearchResult improved) {
+                        improvements.add(improved);
+                    }
+                });
+        // The first pass takes a longer path, which a later pass shortens.
+        Assert.assertTrue(improvements.size() > 1);
+        Assert.assertTrue(improvements.get(0).getPath().getCost() > result.getPath().getCost());
+        for(int i = 1; i < improvements.size(); i++) {
+            Assert.assertTrue(improvements.get(i).getBound() <= improvements.get(i - 1).getBound());
+            Assert.assertTrue(improvements.get(i).getPath().getCost()
+                    <= improvements.get(i - 1).getPath().getCost());
+        }
+        for(SearchResult improved : improvements) {
+            Assert.assertTrue(improved.isComplete());
+            Assert.assertTrue(improved.getPath().getCost() <= improved.getBound() * result.getPath().getCost());
+        }
+        SearchResult last = improvements.get(improvements.size() - 1);
+        Assert.assertEquals(1.0, last.getBound(), 0);
+        Assert.assertEquals(result.getPath(), last.getPath());
+
+        GridAStar gridAStar = new GridAStar();
+        gridAStar.setHeuristic(Heuristic.OCTILE);
+        Assert.assertEquals(gridAStar.findGridPath(scattered, 0, scattered.getId(19, 9)).getCost(),
+                result.getPath().getCost(), 0);
+    }
+
+    @Test
+    public void testBudget() {
+        int start = map.getId(0, 0);
+        int dest = map.getId(0, 6);
+        SearchResult partial = anytimeAStar.findPath(map, start, dest, SearchBudget.expansions(4));
+        Assert.assertEquals(SearchResult.Status.PARTIAL, partial.getStatus());
+        Assert.assertEquals(start, partial.getPath().getStart());
+        Assert.assertEquals(Double.POSITIVE_INFINITY, partial.getBound(), 0);
+
+        SearchResult complete = anytimeAStar.findPath(map, start, dest, SearchBudget.expansions(1000));
+        Assert.assertTrue(complete.isComplete());
+        Assert.assertEquals(dest, complete.getPath().getDest());
+    }
+
+    @Test
+    public void testNoPath() {
+        GridMap walled = GridGenerator.genMap(new char[][] {
+                {'O', 'X', 'O'},
+                {'O', 'X', 'O'}});
+        SearchResult result = anytimeAStar.findPath(walled, 0, 2, SearchBudget.UNLIMITED);
+        Assert.assertEquals(SearchResult.Status.NO_PATH, result.getStatus());
+        Assert.assertNull(result.getPath());
+        Assert.assertNull(anytimeAStar.findPath(walled, 0, 2));
+    }
+
+    @Test
+    public void testStartIsDest() {
+        int start = map.getId(3, 0);
+        SearchResult result = anytimeAStar.findPath(map, start, start, SearchBudget.UNLIMITED);
+        Assert.assertTrue(result.isComplete());
+        Assert.assertEquals(1, result.getPath().size());
+        Assert.assertEquals(1.0, result.getBound(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWeight() {
+        anytimeAStar.setInitialWeight(0.5);
+    }
+}
@@ -0,0 +1,113 @@
+package walker.blue.path.lib.finder;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.DistanceField;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.GridPath;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridFixtures;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Unit tests for BidirectionalAStar class
+ */
+public class BidirectionalAStarTest {
+
+    private GridMap map;
+
+    @Before
+    public void classSetup() {
+        // A 40x40 map with a quarter of the cells blocked.
+        Random random = new Random(3);
+        char[][] grid = new char[40][40];
+        for(int y = 0; y < grid.length; y++) {
+            for(int x = 0; x < grid[y].length; x++) {
+                grid[y][x] = random.nextInt(4) == 0 ? 'X' : 'O';
+            }
+        }
+        this.map = GridGenerator.genMap(grid);
+    }
+
+    @Test
+    public void testMatchesDijkstra() {
+        for(Connectivity connectivity : Connectivity.values()) {
+            assertOptimal(new BidirectionalAStar(connectivity), connectivity);
+        }
+    }
+
+    @Test
+    public void testMatchesDijkstraOnTwoThreads() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for(Connectivity connectivity : Connectivity.values()) {
+                assertOptimal(new BidirectionalAStar(connectivity, executor), connectivity);
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMatchesDijkstraOnWeightedMap() {
+        Random random = new Random(5);
+        for(int id = 0; id < map.size(); id++) {
+            map.setCost(map.getX(id), map.getY(id), 1 + random.nextInt(9));
+        }
+        assertOptimal(new BidirectionalAStar(), Connectivity.EIGHT);
+        assertOptimal(new BidirectionalAStar(Connectivity.FOUR), Connectivity.FOUR);
+    }
+
+    @Test
+    public void testNodePath() {
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(GridFixtures.searchAreaGrid());
+        BidirectionalAStar bidirectional = new BidirectionalAStar();
+        GridNode start = searchArea.get(0).get(0);
+        GridNode dest = searchArea.get(6).get(1);
+        List<GridNode> path = bidirectional.findPath(searchArea, start, dest);
+        Assert.assertNotNull(path);
+        Assert.assertEquals(start, path.get(0));
+        Assert.assertEquals(dest, path.get(path.size() - 1));
+        Assert.assertNull(bidirectional.findPath(searchArea, start, searchArea.get(0).get(6)));
+        Assert.assertEquals(1, bidirectional.findPath(searchArea, start, start).size());
+    }
+
+    /**
+     * Checks the path from a few sources to every cell against a Dijkstra flood.
+     */
+    private void assertOptimal(BidirectionalAStar bidirectional, Connectivity connectivity) {
+        GridDijkstra dijkstra = new GridDijkstra(connectivity);
+        Random random = new Random(11);
+        for(int query = 0; query < 5; query++) {
+            int source;
+            do {
+                source = random.nextInt(map.size());
+            } while(!map.isTraversable(source));
+            DistanceField field = dijkstra.computeDistanceField(map, source);
+            for(int dest = 0; dest < map.size(); dest++) {
+                if(!map.isTraversable(dest)) {
+                    continue;
+                }
+                GridPath path = bidirectional.findGridPath(map, source, dest);
+                if(!field.isReachable(dest)) {
+                    Assert.assertNull(path);
+                    continue;
+                }
+                Assert.assertNotNull(path);
+                Assert.assertEquals(source, path.getStart());
+                Assert.assertEquals(dest, path.getDest());
+                Assert.assertEquals(field.getDistance(dest), path.getCost(), 0.0f);
+                Assert.assertEquals(path, GridFixtures.checkPath(map, path.toArray(), connectivity));
+            }
+        }
+    }
+}
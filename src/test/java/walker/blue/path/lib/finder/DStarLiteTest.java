@@ -0,0 +1,95 @@
+package walker.blue.path.lib.finder;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import walker.blue.path.lib.grid.DistanceField;
+import walker.blue.path.lib.grid.GridMap;
+
+/**
+ * Unit tests for DStarLite class
+ */
+public class DStarLiteTest {
+
+    private static final int SIZE = 24;
+
+    private Random random;
+
+    @Before
+    public void classSetup() {
+        this.random = new Random(7);
+    }
+
+    @Test
+    public void testReplanMatchesFullSearch() {
+        GridMap map = randomMap();
+        int start = map.getId(1, 1);
+        int goal = map.getId(SIZE - 2, SIZE - 2);
+        DStarLite dStarLite = new DStarLite(map, start, goal);
+        for(int round = 0; round < 40; round++) {
+            assertOptimal(map, dStarLite);
+            for(int k = 0; k < 5; k++) {
+                int x = random.nextInt(SIZE);
+                int y = random.nextInt(SIZE);
+                if(map.getId(x, y) != start && map.getId(x, y) != goal) {
+                    dStarLite.setTraversable(x, y, !map.isTraversable(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMovingStart() {
+        GridMap map = randomMap();
+        int goal = map.getId(SIZE - 2, SIZE - 2);
+        DStarLite dStarLite = new DStarLite(map, map.getId(1, 1), goal);
+        int[] path = dStarLite.findPath();
+        Assert.assertNotNull(path);
+        for(int step = 1; step < path.length - 1; step++) {
+            dStarLite.setStart(path[step]);
+            int x = random.nextInt(SIZE);
+            int y = random.nextInt(SIZE);
+            if(map.getId(x, y) != path[step] && map.getId(x, y) != goal) {
+                dStarLite.setTraversable(x, y, true);
+            }
+            assertOptimal(map, dStarLite);
+        }
+    }
+
+    private void assertOptimal(GridMap map, DStarLite dStarLite) {
+        DistanceField field = new GridDijkstra().computeDistanceField(map, dStarLite.getStart());
+        int[] path = dStarLite.findPath();
+        if(!field.isReachable(dStarLite.getGoal())) {
+            Assert.assertNull(path);
+            Assert.assertEquals(-1, dStarLite.getPathCost());
+            return;
+        }
+        Assert.assertNotNull(path);
+        Assert.assertEquals(dStarLite.getStart(), path[0]);
+        Assert.assertEquals(dStarLite.getGoal(), path[path.length - 1]);
+        int cost = 0;
+        for(int i = 1; i < path.length; i++) {
+            Assert.assertTrue(map.isTraversable(path[i]));
+            boolean diagonal = map.getX(path[i]) != map.getX(path[i - 1])
+                    && map.getY(path[i]) != map.getY(path[i - 1]);
+            cost += diagonal ? 14 : 10;
+        }
+        Assert.assertEquals(field.getDistance(dStarLite.getGoal()), cost, 0.0f);
+        Assert.assertEquals(cost, dStarLite.getPathCost());
+    }
+
+    private GridMap randomMap() {
+        GridMap map = new GridMap(SIZE, SIZE);
+        for(int y = 0; y < SIZE; y++) {
+            for(int x = 0; x < SIZE; x++) {
+                map.setTraversable(x, y, random.nextDouble() > 0.25);
+            }
+        }
+        map.setTraversable(1, 1, true);
+        map.setTraversable(SIZE - 2, SIZE - 2, true);
+        return map;
+    }
+}
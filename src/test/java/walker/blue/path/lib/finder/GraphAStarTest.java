@@ -0,0 +1,101 @@
+package walker.blue.path.lib.finder;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import walker.blue.path.lib.graph.CsrGraph;
+import walker.blue.path.lib.node.GraphNode;
+
+/**
+ * Unit tests for GraphAStar class
+ */
+public class GraphAStarTest {
+
+    private List<GraphNode> nodes;
+
+    private CsrGraph graph;
+
+    @Before
+    public void classSetup() {
+        // Random points on a plane, each linked to a few of its neighbors
+        // by edges weighted with their straight-line distance.
+        Random random = new Random(3);
+        this.nodes = new ArrayList<GraphNode>();
+        for(int i = 0; i < 300; i++) {
+            nodes.add(new GraphNode(random.nextInt(1000), random.nextInt(1000), 0, i));
+        }
+        List<List<GraphNode>> adjacency = new ArrayList<List<GraphNode>>();
+        for(int i = 0; i < nodes.size(); i++) {
+            List<GraphNode> neighbors = new ArrayList<GraphNode>();
+            for(int k = 0; k < 3; k++) {
+                neighbors.add(nodes.get(random.nextInt(nodes.size())));
+            }
+            adjacency.add(neighbors);
+        }
+        this.graph = CsrGraph.fromAdjacencyLists(nodes, adjacency);
+    }
+
+    @Test
+    public void testBuilderLayout() {
+        CsrGraph small = new CsrGraph.Builder(nodes.subList(0, 3))
+                .addEdge(2, 0, 5.0f)
+                .addUndirectedEdge(0, 1, 2.0f)
+                .addEdge(2, 1, 1.0f)
+                .build();
+        Assert.assertEquals(3, small.getNodeCount());
+        Assert.assertEquals(4, small.getEdgeCount());
+        Assert.assertArrayEquals(new int[] {0, 1, 2, 4}, small.getOffsets());
+        Assert.assertArrayEquals(new int[] {1, 0, 0, 1}, small.getTargets());
+        Assert.assertEquals(5.0f, small.getWeight(small.getEdgeStart(2)), 0.0f);
+    }
+
+    @Test
+    public void testMatchesDijkstra() {
+        GraphAStar graphAStar = new GraphAStar();
+        GraphDijkstra graphDijkstra = new GraphDijkstra();
+        float[] distances = graphDijkstra.computeDistances(graph, 0);
+        for(int dest = 0; dest < graph.getNodeCount(); dest++) {
+            int[] path = graphAStar.findPath(graph, 0, dest);
+            if(distances[dest] == Float.POSITIVE_INFINITY) {
+                Assert.assertNull(path);
+                continue;
+            }
+            Assert.assertNotNull(path);
+            Assert.assertEquals(0, path[0]);
+            Assert.assertEquals(dest, path[path.length - 1]);
+            Assert.assertEquals(distances[dest], pathLength(path), 1e-2);
+            Assert.assertEquals(distances[dest], graphDijkstra.findDistance(graph, 0, dest), 1e-2);
+        }
+    }
+
+    @Test
+    public void testFindPathNodes() {
+        float[] distances = new GraphDijkstra().computeDistances(graph, 5);
+        int dest = 0;
+        while(distances[dest] == Float.POSITIVE_INFINITY || dest == 5) {
+            dest++;
+        }
+        List<GraphNode> path = new GraphAStar().findPath(graph, nodes.get(5), nodes.get(dest));
+        Assert.assertEquals(nodes.get(5), path.get(0));
+        Assert.assertEquals(nodes.get(dest), path.get(path.size() - 1));
+    }
+
+    private double pathLength(int[] path) {
+        double length = 0;
+        for(int i = 1; i < path.length; i++) {
+            double best = Double.POSITIVE_INFINITY;
+            for(int edge = graph.getEdgeStart(path[i - 1]); edge < graph.getEdgeEnd(path[i - 1]); edge++) {
+                if(graph.getTarget(edge) == path[i]) {
+                    best = Math.min(best, graph.getWeight(edge));
+                }
+            }
+            length += best;
+        }
+        return length;
+    }
+}
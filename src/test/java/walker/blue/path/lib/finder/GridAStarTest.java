@@ -0,0 +1,400 @@
+package walker.blue.path.lib.finder;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.GridPath;
+import walker.blue.path.lib.grid.Heuristic;
+import walker.blue.path.lib.grid.SearchGrid;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridFixtures;
+import walker.blue.path.lib.util.GridGenerator;
+import walker.blue.path.lib.util.SearchState;
+
+/**
+ * Unit tests for GridAStar class
+ */
+public class GridAStarTest {
+
+    private static final char[][] WEIGHTED_GRID = {
+            {'O', 'O', 'O', 'O', 'O'},
+            {'O', '9', '9', '9', 'O'},
+            {'X', 'X', 'X', 'X', 'X'}};
+
+    private GridAStar gridAStar;
+
+    @Before
+    public void classSetup() {
+        this.gridAStar = new GridAStar();
+    }
+
+    @Test
+    public void testFindPathGridMapMatchesNodes() {
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(GridFixtures.searchAreaGrid());
+        GridMap map = GridGenerator.genMap(GridFixtures.searchAreaGrid());
+        List<GridNode> nodePath =
+                gridAStar.findPath(searchArea, searchArea.get(2).get(5), searchArea.get(6).get(1));
+        int[] mapPath = gridAStar.findPath(map, map.getId(5, 2), map.getId(1, 6));
+        Assert.assertNotNull(mapPath);
+        Assert.assertEquals(nodePath.size(), mapPath.length);
+        for(int i = 0; i < mapPath.length; i++) {
+            Assert.assertEquals(nodePath.get(i).getLocation().getX(), map.getX(mapPath[i]));
+            Assert.assertEquals(nodePath.get(i).getLocation().getY(), map.getY(mapPath[i]));
+        }
+    }
+
+    @Test
+    public void testFindGridPath() throws IOException {
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(GridFixtures.searchAreaGrid());
+        GridMap map = GridGenerator.genMap(GridFixtures.searchAreaGrid());
+        GridPath path = gridAStar.findGridPath(map, map.getId(5, 2), map.getId(1, 6));
+        Assert.assertNotNull(path);
+        Assert.assertArrayEquals(gridAStar.findPath(map, map.getId(5, 2), map.getId(1, 6)),
+                path.toArray());
+        Assert.assertEquals(map.getId(5, 2), path.getStart());
+        Assert.assertEquals(map.getId(1, 6), path.getDest());
+        Assert.assertEquals(gridAStar.findPath(searchArea, searchArea.get(2).get(5),
+                searchArea.get(6).get(1)), path.toNodes(searchArea));
+
+        int cost = 0;
+        for(int i = 1; i < path.size(); i++) {
+            boolean diagonal = path.getX(i) != path.getX(i - 1) && path.getY(i) != path.getY(i - 1);
+            cost += diagonal ? 14 : 10;
+        }
+        Assert.assertEquals(cost, path.getCost(), 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        path.writeTo(new DataOutputStream(bytes));
+        GridPath read = GridPath.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(path, read);
+        Assert.assertEquals(path.hashCode(), read.hashCode());
+
+        Assert.assertNull(gridAStar.findGridPath(map, map.getId(0, 0), map.getId(0, 6)));
+    }
+
+    @Test
+    public void testWeightedCellsAreAvoided() {
+        GridMap map = GridGenerator.genMap(WEIGHTED_GRID);
+        GridPath path = gridAStar.findGridPath(map, map.getId(0, 1), map.getId(4, 1));
+        Assert.assertNotNull(path);
+        for(int i = 0; i < path.size(); i++) {
+            Assert.assertEquals(1, map.getCost(path.getCell(i)));
+        }
+        // Up a diagonal, along the top row and down a diagonal.
+        Assert.assertEquals(48, path.getCost(), 0);
+
+        map.setCost(1, 1, 1);
+        map.setCost(2, 1, 1);
+        map.setCost(3, 1, 1);
+        path = gridAStar.findGridPath(map, map.getId(0, 1), map.getId(4, 1));
+        Assert.assertEquals(40, path.getCost(), 0);
+        Assert.assertEquals(map.getId(2, 1), path.getCell(2));
+        Assert.assertFalse(map.hasUniformCost());
+    }
+
+    @Test
+    public void testHeuristics() {
+        GridMap map = GridGenerator.genMap(openGrid(24, 16));
+        int start = map.getId(1, 2);
+        int dest = map.getId(22, 13);
+        // Eleven diagonal moves and ten straight ones.
+        int shortest = 11 * 14 + 10 * 10;
+        Assert.assertEquals(shortest, Heuristic.OCTILE.estimate(1, 2, 22, 13));
+        Assert.assertEquals(210, Heuristic.CHEBYSHEV.estimate(1, 2, 22, 13));
+        Assert.assertEquals(237, Heuristic.EUCLIDEAN.estimate(1, 2, 22, 13));
+        Assert.assertEquals(320, Heuristic.MANHATTAN.estimate(22, 13, 1, 2));
+
+        CountingAStar counting = new CountingAStar();
+        int[] expanded = new int[Heuristic.values().length];
+        for(Heuristic heuristic : Heuristic.values()) {
+            counting.setHeuristic(heuristic);
+            counting.expanded = 0;
+            GridPath path = counting.findGridPath(map, start, dest);
+            Assert.assertNotNull(path);
+            if(heuristic != Heuristic.MANHATTAN) {
+                Assert.assertEquals(shortest, path.getCost(), 0);
+            }
+            expanded[heuristic.ordinal()] = counting.expanded;
+        }
+        Assert.assertTrue(expanded[Heuristic.OCTILE.ordinal()] < expanded[Heuristic.EUCLIDEAN.ordinal()]);
+        Assert.assertTrue(expanded[Heuristic.EUCLIDEAN.ordinal()] < expanded[Heuristic.CHEBYSHEV.ordinal()]);
+    }
+
+    @Test
+    public void testPreferLargerG() {
+        GridMap map = GridGenerator.genMap(openGrid(32, 32));
+        int start = map.getId(0, 0);
+        int dest = map.getId(31, 20);
+        CountingAStar counting = new CountingAStar();
+        counting.setHeuristic(Heuristic.OCTILE);
+        GridPath path = counting.findGridPath(map, start, dest);
+        int expanded = counting.expanded;
+
+        counting.setPreferLargerG(true);
+        counting.expanded = 0;
+        GridPath tieBroken = counting.findGridPath(map, start, dest);
+        Assert.assertEquals(path.getCost(), tieBroken.getCost(), 0);
+        Assert.assertTrue(counting.expanded < expanded);
+        // Only the cells on the path are expanded.
+        Assert.assertEquals(tieBroken.size(), counting.expanded);
+    }
+
+    @Test
+    public void testHeuristicWeight() {
+        GridMap map = GridGenerator.genMap(GridFixtures.searchAreaGrid());
+        gridAStar.setHeuristic(Heuristic.OCTILE);
+        GridPath shortest = gridAStar.findGridPath(map, map.getId(5, 2), map.getId(1, 6));
+        gridAStar.setHeuristicWeight(3.0);
+        Assert.assertEquals(3.0, gridAStar.getHeuristicWeight(), 0);
+        GridPath weighted = gridAStar.findGridPath(map, map.getId(5, 2), map.getId(1, 6));
+        Assert.assertNotNull(weighted);
+        Assert.assertTrue(weighted.getCost() >= shortest.getCost());
+        Assert.assertTrue(weighted.getCost() <= 3.0 * shortest.getCost());
+        try {
+            gridAStar.setHeuristicWeight(0.5);
+            Assert.fail("Expected IllegalArgumentException");
+        }
+        catch(IllegalArgumentException e) {
+            Assert.assertEquals(3.0, gridAStar.getHeuristicWeight(), 0);
+        }
+    }
+
+    @Test
+    public void testBudget() {
+        GridMap map = GridGenerator.genMap(openGrid(32, 8));
+        int start = map.getId(0, 4);
+        int dest = map.getId(31, 4);
+        SearchResult complete = gridAStar.findPath(map, start, dest, SearchBudget.UNLIMITED);
+        Assert.assertEquals(SearchResult.Status.COMPLETE, complete.getStatus());
+        Assert.assertEquals(32, complete.getPath().size());
+
+        SearchResult partial = gridAStar.findPath(map, start, dest, SearchBudget.expansions(10));
+        Assert.assertEquals(SearchResult.Status.PARTIAL, partial.getStatus());
+        Assert.assertEquals(start, partial.getPath().getStart());
+        Assert.assertTrue(partial.getPath().size() > 1);
+        Assert.assertTrue(map.getX(partial.getPath().getDest()) < 31);
+
+        SearchResult closest = gridAStar.findPath(map, start, dest,
+                SearchBudget.expansions(10).withFallback(SearchBudget.Fallback.LOWEST_H));
+        Assert.assertEquals(SearchResult.Status.PARTIAL, closest.getStatus());
+        Assert.assertEquals(SearchBudget.Fallback.LOWEST_H, SearchBudget.expansions(10)
+                .withFallback(SearchBudget.Fallback.LOWEST_H).getFallback());
+
+        // The wall time is checked on the first expansion.
+        SearchResult timedOut = gridAStar.findPath(map, start, dest,
+                SearchBudget.timeout(1, TimeUnit.NANOSECONDS));
+        Assert.assertEquals(SearchResult.Status.PARTIAL, timedOut.getStatus());
+        Assert.assertEquals(1, timedOut.getPath().size());
+    }
+
+    @Test
+    public void testBudgetBound() {
+        GridMap map = GridGenerator.genMap(openGrid(16, 16));
+        int start = map.getId(0, 0);
+        int dest = map.getId(15, 9);
+        // Manhattan overestimates diagonal moves, so nothing bounds the path.
+        Assert.assertEquals(Heuristic.MANHATTAN, gridAStar.getHeuristic());
+        Assert.assertEquals(Connectivity.EIGHT, gridAStar.getConnectivity());
+        SearchResult result = gridAStar.findPath(map, start, dest, SearchBudget.UNLIMITED);
+        Assert.assertEquals(SearchResult.Status.COMPLETE, result.getStatus());
+        Assert.assertEquals(Double.POSITIVE_INFINITY, result.getBound(), 0);
+
+        gridAStar.setHeuristic(Heuristic.OCTILE);
+        gridAStar.setHeuristicWeight(2.0);
+        Assert.assertEquals(2.0, gridAStar.findPath(map, start, dest, SearchBudget.UNLIMITED).getBound(), 0);
+
+        GridAStar fourWay = new GridAStar(Connectivity.FOUR);
+        Assert.assertEquals(1.0, fourWay.findPath(map, start, dest, SearchBudget.UNLIMITED).getBound(), 0);
+        Assert.assertEquals(1.0, new GridDijkstra().findPath(map, start, dest, SearchBudget.UNLIMITED).getBound(), 0);
+    }
+
+    @Test
+    public void testBudgetNoPath() {
+        char[][] walledGrid = {
+                {'O', 'O', 'X', 'O'},
+                {'O', 'O', 'X', 'O'}};
+        GridMap map = GridGenerator.genMap(walledGrid);
+        SearchResult result = gridAStar.findPath(map, map.getId(0, 0), map.getId(3, 1), SearchBudget.expansions(100));
+        Assert.assertEquals(SearchResult.Status.NO_PATH, result.getStatus());
+        Assert.assertNull(result.getPath());
+    }
+
+    @Test
+    public void testFindPathNoPath() {
+        char[][] walledGrid = {
+                {'O', 'O', 'X', 'O'},
+                {'O', 'O', 'X', 'O'},
+                {'O', 'O', 'X', 'O'}};
+        GridMap map = GridGenerator.genMap(walledGrid);
+        Assert.assertNull(gridAStar.findPath(map, map.getId(0, 0), map.getId(3, 2)));
+    }
+
+    @Test
+    public void testFindPathConnectivity() {
+        char[][] cornerGrid = {
+                {'O', 'X'},
+                {'X', 'O'}};
+        GridMap map = GridGenerator.genMap(cornerGrid);
+        int start = map.getId(0, 0);
+        int dest = map.getId(1, 1);
+        Assert.assertEquals(2, gridAStar.findPath(map, start, dest).length);
+        Assert.assertNull(new GridAStar(Connectivity.EIGHT_NO_SQUEEZING).findPath(map, start, dest));
+        Assert.assertNull(new GridAStar(Connectivity.FOUR).findPath(map, start, dest));
+
+        map.setTraversable(1, 0, true);
+        Assert.assertEquals(2,
+                new GridAStar(Connectivity.EIGHT_NO_SQUEEZING).findPath(map, start, dest).length);
+        Assert.assertEquals(3,
+                new GridAStar(Connectivity.EIGHT_NO_CORNER_CUTTING).findPath(map, start, dest).length);
+        Assert.assertEquals(3, new GridAStar(Connectivity.FOUR).findPath(map, start, dest).length);
+    }
+
+    @Test
+    public void testConcurrentSearchesOnSharedArea() throws Exception {
+        final List<List<GridNode>> searchArea = GridGenerator.gen2D(GridFixtures.searchAreaGrid());
+        final List<GridNode[]> queries = new ArrayList<GridNode[]>();
+        for(List<GridNode> startRow : searchArea) {
+            for(GridNode start : startRow) {
+                for(List<GridNode> destRow : searchArea) {
+                    for(GridNode dest : destRow) {
+                        if(start.isTraversable() && dest.isTraversable()) {
+                            queries.add(new GridNode[] {start, dest});
+                        }
+                    }
+                }
+            }
+        }
+        List<List<GridNode>> expected = new ArrayList<List<GridNode>>();
+        for(GridNode[] query : queries) {
+            expected.add(gridAStar.findPath(searchArea, query[0], query[1]));
+        }
+        // Mark the search values of every node to detect any write to them.
+        for(List<GridNode> row : searchArea) {
+            for(GridNode node : row) {
+                node.setG(-1);
+                node.setH(-1);
+                node.setParent(null);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<List<GridNode>>>> futures = new ArrayList<Future<List<List<GridNode>>>>();
+            for(int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(new Callable<List<List<GridNode>>>() {
+                    @Override
+                    public List<List<GridNode>> call() {
+                        List<List<GridNode>> paths = new ArrayList<List<GridNode>>();
+                        for(int repeat = 0; repeat < 5; repeat++) {
+                            paths.clear();
+                            for(GridNode[] query : queries) {
+                                paths.add(gridAStar.findPath(searchArea, query[0], query[1]));
+                            }
+                        }
+                        return paths;
+                    }
+                }));
+            }
+            for(Future<List<List<GridNode>>> future : futures) {
+                Assert.assertEquals(expected, future.get());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+        for(List<GridNode> row : searchArea) {
+            for(GridNode node : row) {
+                Assert.assertEquals(-1, node.getG(), 0);
+                Assert.assertEquals(-1, node.getH(), 0);
+                Assert.assertNull(node.getParent());
+            }
+        }
+    }
+
+    @Test
+    public void testNestedSearchOnSameThread() {
+        GridMap map = GridGenerator.genMap(GridFixtures.searchAreaGrid());
+        int start = map.getId(5, 2);
+        int dest = map.getId(1, 6);
+        int[] expected = gridAStar.findPath(map, start, dest);
+        NestingAStar nesting = new NestingAStar(map.getId(0, 0), map.getId(6, 6));
+        Assert.assertArrayEquals(expected, nesting.findPath(map, start, dest));
+        // The nested query got its own state and did not disturb the outer one.
+        Assert.assertArrayEquals(gridAStar.findPath(map, map.getId(0, 0), map.getId(6, 6)), nesting.nestedPath);
+
+        SearchState outer = SearchState.acquire(map.size());
+        SearchState inner = SearchState.acquire(map.size());
+        Assert.assertNotSame(outer, inner);
+        inner.release();
+        outer.release();
+        Assert.assertSame(outer, SearchState.acquire(map.size()));
+        outer.release();
+    }
+
+    private static char[][] openGrid(int width, int height) {
+        char[][] grid = new char[height][width];
+        for(char[] row : grid) {
+            Arrays.fill(row, 'O');
+        }
+        return grid;
+    }
+
+    /**
+     * GridAStar counting the cells it expands.
+     */
+    private static class CountingAStar extends GridAStar {
+
+        private int expanded;
+
+        @Override
+        protected void prepareNode(SearchGrid grid, SearchState state, int node) {
+            this.expanded++;
+        }
+    }
+
+    /**
+     * GridAStar running a second query from inside its first expansion.
+     */
+    private static class NestingAStar extends GridAStar {
+
+        private final int nestedStart;
+
+        private final int nestedDest;
+
+        private int[] nestedPath;
+
+        private boolean nesting;
+
+        private NestingAStar(int nestedStart, int nestedDest) {
+            this.nestedStart = nestedStart;
+            this.nestedDest = nestedDest;
+        }
+
+        @Override
+        protected void prepareNode(SearchGrid grid, SearchState state, int node) {
+            if(!this.nesting && this.nestedPath == null) {
+                this.nesting = true;
+                this.nestedPath = findPath(grid, this.nestedStart, this.nestedDest);
+                this.nesting = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package walker.blue.path.lib.finder;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.DistanceField;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.GridPath;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridFixtures;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Unit tests for GridDijkstra class
+ */
+public class GridDijkstraTest {
+
+    private GridDijkstra gridDijkstra;
+
+    @Before
+    public void classSetup() {
+        this.gridDijkstra = new GridDijkstra();
+    }
+
+    @Test
+    public void testDistanceFieldMatchesSinglePaths() {
+        GridMap map = GridGenerator.genMap(GridFixtures.searchAreaGrid());
+        int source = map.getId(0, 0);
+        DistanceField field = gridDijkstra.computeDistanceField(map, source);
+        Assert.assertEquals(0.0f, field.getDistance(source), 0.0f);
+        Assert.assertNull(field.getPath(map.getId(6, 0)));
+        Assert.assertFalse(field.isReachable(map.getId(6, 0)));
+        for(int dest = 0; dest < map.size(); dest++) {
+            GridPath single = gridDijkstra.findGridPath(map, source, dest);
+            int[] path = field.getPath(dest);
+            if(single == null) {
+                Assert.assertNull(path);
+                continue;
+            }
+            Assert.assertEquals(source, path[0]);
+            Assert.assertEquals(dest, path[path.length - 1]);
+            Assert.assertEquals(single.getCost(), field.getDistance(dest), 0.0f);
+            Assert.assertEquals(single.getCost(), GridFixtures.checkPath(map, path, Connectivity.EIGHT).getCost(), 0);
+        }
+    }
+
+    @Test
+    public void testDistanceFieldNodes() {
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(GridFixtures.searchAreaGrid());
+        GridNode source = searchArea.get(0).get(0);
+        GridNode dest = searchArea.get(6).get(1);
+        DistanceField field = gridDijkstra.computeDistanceField(searchArea, source);
+        List<GridNode> path = field.getPath(searchArea, dest);
+        Assert.assertNotNull(path);
+        Assert.assertEquals(source, path.get(0));
+        Assert.assertEquals(dest, path.get(path.size() - 1));
+        Assert.assertEquals(field.getPath(6 * field.getWidth() + 1).length, path.size());
+        Assert.assertTrue(field.isReachable(6 * field.getWidth() + 1));
+    }
+}
@@ -0,0 +1,81 @@
+package walker.blue.path.lib.finder;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.GridPath;
+import walker.blue.path.lib.util.GridFixtures;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Unit tests for GridPathCache class
+ */
+public class GridPathCacheTest {
+
+    private GridMap map;
+
+    @Before
+    public void classSetup() {
+        this.map = GridGenerator.genMap(GridFixtures.searchAreaGrid());
+    }
+
+    @Test
+    public void testHitsReturnSamePath() {
+        GridAStar gridAStar = new GridAStar();
+        GridPathCache cache = new GridPathCache(gridAStar);
+        int start = map.getId(0, 0);
+        int dest = map.getId(6, 6);
+
+        GridPath first = cache.findGridPath(map, start, dest);
+        Assert.assertEquals(gridAStar.findGridPath(map, start, dest), first);
+        Assert.assertSame(first, cache.findGridPath(map, start, dest));
+        // Paths with the same cells on another map are cached apart.
+        Assert.assertEquals(first, cache.findGridPath(GridGenerator.genMap(GridFixtures.searchAreaGrid()), start, dest));
+        Assert.assertNull(cache.findGridPath(map, start, map.getId(6, 0)));
+        Assert.assertNull(cache.findGridPath(map, start, map.getId(6, 0)));
+        Assert.assertEquals(2, cache.getCache().getHitCount());
+        Assert.assertEquals(3, cache.getCache().getMissCount());
+        Assert.assertEquals(3, cache.getCache().size());
+    }
+
+    @Test
+    public void testVersionChangeInvalidates() {
+        GridPathCache cache = new GridPathCache(new GridAStar());
+
+        GridPath before = cache.findGridPath(map, map.getId(0, 0), map.getId(6, 6));
+        Assert.assertSame(before, cache.findGridPath(map, map.getId(0, 0), map.getId(6, 6)));
+
+        map.setTraversable(5, 5, false);
+        GridPath after = cache.findGridPath(map, map.getId(0, 0), map.getId(6, 6));
+        Assert.assertNotSame(before, after);
+        for(int cell : after.toArray()) {
+            Assert.assertFalse(cell == map.getId(5, 5));
+        }
+        Assert.assertEquals(1, cache.getCache().getHitCount());
+        Assert.assertEquals(2, cache.getCache().getMissCount());
+        Assert.assertEquals(1, cache.getCache().size());
+
+        cache.invalidate();
+        Assert.assertEquals(0, cache.getCache().size());
+    }
+
+    @Test
+    public void testEviction() {
+        GridPathCache cache = new GridPathCache(new GridAStar(), 2, 1);
+
+        cache.findGridPath(map, map.getId(0, 0), map.getId(6, 6));
+        cache.findGridPath(map, map.getId(0, 0), map.getId(4, 4));
+        cache.findGridPath(map, map.getId(0, 0), map.getId(6, 6));
+        cache.findGridPath(map, map.getId(0, 0), map.getId(2, 2));
+        Assert.assertEquals(2, cache.getCache().size());
+        Assert.assertEquals(1, cache.getCache().getEvictionCount());
+
+        // (4, 4) was the least recently used and has been evicted.
+        cache.findGridPath(map, map.getId(0, 0), map.getId(6, 6));
+        cache.findGridPath(map, map.getId(0, 0), map.getId(4, 4));
+        Assert.assertEquals(2, cache.getCache().getHitCount());
+        Assert.assertEquals(4, cache.getCache().getMissCount());
+    }
+}
@@ -0,0 +1,105 @@
+package walker.blue.path.lib.finder;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.GridPath;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridFixtures;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Unit tests for JumpPointSearch class
+ */
+public class JumpPointSearchTest {
+
+    /**
+     * Moves jump point search makes, which never cut corners.
+     */
+    private static final Connectivity CONNECTIVITY = Connectivity.EIGHT_NO_CORNER_CUTTING;
+
+    private JumpPointSearch jumpPointSearch;
+
+    @Before
+    public void classSetup() {
+        this.jumpPointSearch = new JumpPointSearch();
+    }
+
+    @Test
+    public void testFindPath2D() {
+        char[][] searchAreaGrid = GridFixtures.searchAreaGrid();
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(searchAreaGrid);
+        GridNode startNode = searchArea.get(0).get(0);
+        GridNode endNode = searchArea.get(6).get(1);
+        List<GridNode> resPath = jumpPointSearch.findPath(searchArea, startNode, endNode);
+        Assert.assertEquals(startNode, resPath.get(0));
+        Assert.assertEquals(endNode, resPath.get(resPath.size() - 1));
+        GridMap map = GridGenerator.genMap(searchAreaGrid);
+        GridPath expected = new GridDijkstra(CONNECTIVITY).findGridPath(map, map.getId(0, 0), map.getId(1, 6));
+        Assert.assertEquals(expected.getCost(),
+                GridFixtures.checkPath(map, toIds(resPath, map.getWidth()), CONNECTIVITY).getCost(), 0);
+    }
+
+    @Test
+    public void testFallsBackOnWeightedGrid() {
+        char[][] searchAreaGrid = {
+                {'O', 'O', 'O', 'O', 'O'},
+                {'O', '9', '9', '9', 'O'},
+                {'O', 'O', 'O', 'O', 'O'}};
+        GridMap map = GridGenerator.genMap(searchAreaGrid);
+        JumpPointSearch jumpPointSearch = new JumpPointSearch();
+        GridPath path = jumpPointSearch.findGridPath(map, map.getId(0, 1), map.getId(4, 1));
+        Assert.assertNotNull(path);
+        Assert.assertEquals(5, path.size());
+        Assert.assertEquals(48, path.getCost(), 0);
+    }
+
+    @Test
+    public void testOptimalCostOnRandomMaps() {
+        Random random = new Random(42);
+        for(int trial = 0; trial < 50; trial++) {
+            int width = 12 + random.nextInt(20);
+            int height = 12 + random.nextInt(20);
+            GridMap map = new GridMap(width, height);
+            for(int y = 0; y < height; y++) {
+                for(int x = 0; x < width; x++) {
+                    map.setTraversable(x, y, random.nextInt(100) >= 25);
+                }
+            }
+            int start = map.getId(0, 0);
+            int dest = map.getId(width - 1, height - 1);
+            map.setTraversable(0, 0, true);
+            map.setTraversable(width - 1, height - 1, true);
+
+            GridPath expected = new GridDijkstra(CONNECTIVITY).findGridPath(map, start, dest);
+            GridPath path = jumpPointSearch.findGridPath(map, start, dest);
+            if(expected == null) {
+                Assert.assertNull(path);
+            }
+            else {
+                Assert.assertNotNull(path);
+                Assert.assertEquals(start, path.getStart());
+                Assert.assertEquals(dest, path.getDest());
+                Assert.assertEquals(expected.getCost(), path.getCost(), 0);
+                Assert.assertEquals(path, GridFixtures.checkPath(map, path.toArray(), CONNECTIVITY));
+            }
+        }
+    }
+
+    /**
+     * Returns the cell ids of a path of nodes.
+     */
+    private static int[] toIds(List<GridNode> path, int width) {
+        int[] ids = new int[path.size()];
+        for(int i = 0; i < ids.length; i++) {
+            ids[i] = path.get(i).getLocation().getY() * width + path.get(i).getLocation().getX();
+        }
+        return ids;
+    }
+}
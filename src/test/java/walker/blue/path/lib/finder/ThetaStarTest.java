@@ -6,8 +6,12 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.GridPath;
 import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridFixtures;
 import walker.blue.path.lib.util.GridGenerator;
 
 /**
@@ -24,23 +28,146 @@ public class ThetaStarTest {
 
     @Test
     public void testFindPath2D() {
-        char[][] searchAreaGrid = {
-                {'O', 'O', 'O', 'O', 'X', 'X', 'X'},
-                {'O', 'O', 'O', 'X', 'O', 'O', 'O'},
-                {'O', 'O', 'O', 'O', 'O', 'X', 'X'},
-                {'X', 'X', 'O', 'O', 'O', 'X', 'O'},
-                {'O', 'O', 'O', 'O', 'O', 'O', 'O'},
-                {'X', 'X', 'X', 'X', 'O', 'O', 'O'},
-                {'X', 'O', 'O', 'O', 'O', 'O', 'O'}};
-        List<List<GridNode>> searchArea = GridGenerator.gen2D(searchAreaGrid);
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(GridFixtures.searchAreaGrid());
         GridNode startNode = searchArea.get(2).get(5);
         GridNode endNode = searchArea.get(6).get(1);
         List<GridNode> expectedPath = new ArrayList<>();
         expectedPath.add(startNode);
-        expectedPath.add(searchArea.get(4).get(3));
-        expectedPath.add(searchArea.get(6).get(4));
+        expectedPath.add(searchArea.get(3).get(4));
+        expectedPath.add(searchArea.get(5).get(4));
+        expectedPath.add(searchArea.get(6).get(3));
         expectedPath.add(endNode);
         List<GridNode> resPath = thetaStar.findPath(searchArea, startNode, endNode);
         Assert.assertEquals(expectedPath, resPath);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFindPathWithLineOfSightCache() {
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(GridFixtures.searchAreaGrid());
+        GridNode startNode = searchArea.get(2).get(5);
+        GridNode endNode = searchArea.get(6).get(1);
+        List<GridNode> expectedPath = thetaStar.findPath(searchArea, startNode, endNode);
+        thetaStar.setLineOfSightCacheSize(16);
+        Assert.assertEquals(expectedPath, thetaStar.findPath(searchArea, startNode, endNode));
+        Assert.assertEquals(expectedPath, thetaStar.findPath(searchArea, startNode, endNode));
+    }
+
+    @Test
+    public void testWeightedSegments() {
+        char[][] searchAreaGrid = {
+                {'O', 'O', 'O', 'O', 'O', 'O', 'O'},
+                {'O', 'O', 'O', 'O', 'O', 'O', 'O'},
+                {'O', 'O', '9', '9', '9', 'O', 'O'},
+                {'O', 'O', 'O', 'O', 'O', 'O', 'O'}};
+        GridMap map = GridGenerator.genMap(searchAreaGrid);
+        int start = map.getId(0, 2);
+        int dest = map.getId(6, 2);
+        GridMap uniform = GridGenerator.genMap(new char[][] {
+                {'O', 'O', 'O', 'O', 'O', 'O', 'O'},
+                {'O', 'O', 'O', 'O', 'O', 'O', 'O'},
+                {'O', 'O', 'O', 'O', 'O', 'O', 'O'},
+                {'O', 'O', 'O', 'O', 'O', 'O', 'O'}});
+        Assert.assertEquals(2, thetaStar.findGridPath(uniform, start, dest).size());
+
+        for(boolean lazy : new boolean[] {false, true}) {
+            thetaStar.setLazy(lazy);
+            GridPath path = thetaStar.findGridPath(map, start, dest);
+            Assert.assertNotNull(path);
+            Assert.assertTrue(path.size() > 2);
+            Assert.assertTrue(path.getCost() < thetaStar.moveCost(map, start, dest));
+            for(int i = 1; i < path.size(); i++) {
+                Assert.assertTrue(thetaStar.checkLineOfSight(map, path.getCell(i - 1), path.getCell(i)));
+            }
+        }
+        // A segment through the slow cells costs its length times their average cost.
+        Assert.assertEquals(thetaStar.distanceBetweenNodes(0, 2, 6, 2) * 30 / 6,
+                thetaStar.moveCost(map, start, dest));
+    }
+
+    @Test
+    public void testSegmentCostUsesLineOfSightCells() {
+        Random random = new Random(4);
+        GridMap map = new GridMap(6, 5);
+        for(int id = 0; id < map.size(); id++) {
+            map.setTraversable(map.getX(id), map.getY(id), true);
+            map.setCost(map.getX(id), map.getY(id), 1 + random.nextInt(9));
+        }
+        for(int from = 0; from < map.size(); from++) {
+            for(int to = 0; to < map.size(); to++) {
+                int dx = Math.abs(map.getX(to) - map.getX(from));
+                int dy = Math.abs(map.getY(to) - map.getY(from));
+                if(Math.max(dx, dy) <= 1) {
+                    continue;
+                }
+                // The cells seen by the line of sight check are the ones whose
+                // removal hides the destination. The segment enters all of
+                // them but the start, and always enters the destination.
+                long total = map.getCost(to);
+                int cells = 1;
+                for(int id = 0; id < map.size(); id++) {
+                    if(id == from || id == to) {
+                        continue;
+                    }
+                    map.setTraversable(map.getX(id), map.getY(id), false);
+                    if(!thetaStar.lineOfSight(map, map.getX(from), map.getY(from), map.getX(to), map.getY(to))) {
+                        total += map.getCost(id);
+                        cells++;
+                    }
+                    map.setTraversable(map.getX(id), map.getY(id), true);
+                }
+                Assert.assertEquals(Math.max(dx, dy), cells);
+                int distance = thetaStar.distanceBetweenNodes(map.getX(from), map.getY(from),
+                        map.getX(to), map.getY(to));
+                Assert.assertEquals(distance * total / cells, thetaStar.moveCost(map, from, to));
+            }
+        }
+        Assert.assertEquals(14, thetaStar.distanceBetweenNodes(0, 0, 1, 1));
+        Assert.assertEquals(50, thetaStar.distanceBetweenNodes(0, 0, 3, 4));
+    }
+
+    @Test
+    public void testTransposedSegmentsCostTheSame() {
+        Random random = new Random(9);
+        GridMap map = new GridMap(6, 5);
+        GridMap transposed = new GridMap(5, 6);
+        for(int x = 0; x < 6; x++) {
+            for(int y = 0; y < 5; y++) {
+                int cost = 1 + random.nextInt(9);
+                map.setTraversable(x, y, true);
+                map.setCost(x, y, cost);
+                transposed.setTraversable(y, x, true);
+                transposed.setCost(y, x, cost);
+            }
+        }
+        for(int from = 0; from < map.size(); from++) {
+            for(int to = 0; to < map.size(); to++) {
+                int transposedFrom = transposed.getId(map.getY(from), map.getX(from));
+                int transposedTo = transposed.getId(map.getY(to), map.getX(to));
+                Assert.assertEquals(thetaStar.moveCost(map, from, to),
+                        thetaStar.moveCost(transposed, transposedFrom, transposedTo));
+            }
+        }
+        // A shallow segment is charged for the cell it ends in.
+        map.setCost(5, 1, 9);
+        int shallow = thetaStar.moveCost(map, map.getId(0, 0), map.getId(5, 1));
+        map.setCost(5, 1, 1);
+        Assert.assertTrue(shallow > thetaStar.moveCost(map, map.getId(0, 0), map.getId(5, 1)));
+    }
+
+    @Test
+    public void testFindPathLazy() {
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(GridFixtures.searchAreaGrid());
+        GridNode startNode = searchArea.get(2).get(5);
+        GridNode endNode = searchArea.get(6).get(1);
+        thetaStar.setLazy(true);
+        List<GridNode> resPath = thetaStar.findPath(searchArea, startNode, endNode);
+        Assert.assertEquals(startNode, resPath.get(0));
+        Assert.assertEquals(endNode, resPath.get(resPath.size() - 1));
+        for(int i = 1; i < resPath.size(); i++) {
+            GridNode node = resPath.get(i);
+            List<List<String>> visibility = thetaStar.getVisibilityGraph(searchArea, resPath.get(i - 1));
+            Assert.assertEquals("V",
+                    visibility.get(node.getLocation().getY()).get(node.getLocation().getX()));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package walker.blue.path.lib.floor;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.grid.MappedGridMap;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Unit tests for BuildingFile class
+ */
+public class BuildingFileTest {
+
+    private static final char[][][] BUILDING = {
+            {
+                    {'S', 'O', 'O', 'O', 'O', 'O', 'O'},
+                    {'O', 'X', 'X', 'X', 'X', 'X', 'O'},
+                    {'O', 'O', 'O', 'O', 'O', 'X', 'O'},
+                    {'E', 'O', '4', 'X', 'O', '9', 'O'}},
+            {
+                    {'S', 'O', 'O', 'X', 'O'},
+                    {'O', 'X', 'O', 'X', 'O'},
+                    {'E', 'O', 'O', 'O', 'O'}}};
+
+    private Path file;
+
+    private List<GridMap> floors;
+
+    private List<FloorConnector> connectors;
+
+    @Before
+    public void classSetup() throws IOException {
+        this.file = Files.createTempFile("building", ".bin");
+        this.floors = GridGenerator.genMap3D(BUILDING);
+        this.connectors = new ArrayList<FloorConnector>();
+        this.connectors.add(new FloorConnector(0, 0, 0, false, FloorConnector.Type.STAIRS));
+        this.connectors.add(new FloorConnector(0, 3, 0, false, FloorConnector.Type.ELEVATOR));
+        this.connectors.add(new FloorConnector(0, 0, 1, false, FloorConnector.Type.STAIRS));
+        this.connectors.add(new FloorConnector(0, 2, 1, false, FloorConnector.Type.ELEVATOR));
+        for(int i = 0; i < connectors.size(); i++) {
+            connectors.get(i).setIndex(i);
+        }
+        connectors.get(0).addConnection(connectors.get(2));
+        connectors.get(2).addConnection(connectors.get(0));
+        connectors.get(1).addConnection(connectors.get(3));
+        connectors.get(3).addConnection(connectors.get(1));
+    }
+
+    @After
+    public void classTeardown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        BuildingFile.write(file, floors, connectors);
+        BuildingFile building = BuildingFile.open(file);
+
+        Assert.assertEquals(floors.size(), building.getFloorCount());
+        for(int z = 0; z < floors.size(); z++) {
+            assertSameCells(floors.get(z), building.getFloor(z));
+        }
+
+        Assert.assertEquals(connectors.size(), building.getConnectorCount());
+        List<FloorConnector> read = building.createFloorConnectors();
+        for(int i = 0; i < connectors.size(); i++) {
+            FloorConnector expected = connectors.get(i);
+            FloorConnector actual = read.get(i);
+            Assert.assertEquals(expected, actual);
+            Assert.assertEquals(i, actual.getIndex());
+            Assert.assertEquals(expected.getType(), actual.getType());
+            Assert.assertEquals(expected.getConnections().size(), actual.getConnections().size());
+            for(int k = 0; k < expected.getConnections().size(); k++) {
+                Assert.assertEquals(expected.getConnections().get(k).getIndex(),
+                        actual.getConnections().get(k).getIndex());
+            }
+        }
+        Assert.assertArrayEquals(new int[] {2}, building.getConnections(0));
+    }
+
+    @Test
+    public void testLargeFloorSearch() throws IOException {
+        Random random = new Random(11);
+        GridMap large = new GridMap(1000, 601, 0);
+        for(int y = 0; y < large.getHeight(); y++) {
+            for(int x = 0; x < large.getWidth(); x++) {
+                large.setTraversable(x, y, random.nextInt(4) != 0);
+            }
+        }
+        large.setTraversable(0, 0, true);
+        large.setTraversable(999, 600, true);
+        List<GridMap> building = new ArrayList<GridMap>();
+        building.add(large);
+        BuildingFile.write(file, building, new ArrayList<FloorConnector>());
+
+        MappedGridMap mapped = BuildingFile.open(file).getFloor(0);
+        assertSameCells(large, mapped);
+        for(int y = 0; y < large.getHeight(); y += 37) {
+            Assert.assertEquals(large.isRowTraversable(y, 3, 130), mapped.isRowTraversable(y, 3, 130));
+        }
+        GridAStar gridAStar = new GridAStar();
+        Assert.assertArrayEquals(gridAStar.findPath(large, 0, large.getId(999, 600)),
+                gridAStar.findPath(mapped, 0, mapped.getId(999, 600)));
+        Assert.assertEquals(large.toString(), mapped.toGridMap().toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        Files.write(file, new byte[64]);
+        BuildingFile.open(file);
+    }
+
+    private static void assertSameCells(GridMap expected, MappedGridMap actual) {
+        Assert.assertEquals(expected.getWidth(), actual.getWidth());
+        Assert.assertEquals(expected.getHeight(), actual.getHeight());
+        Assert.assertEquals(expected.getFloor(), actual.getFloor());
+        for(int y = -1; y <= expected.getHeight(); y++) {
+            for(int x = -1; x <= expected.getWidth(); x++) {
+                Assert.assertEquals(expected.isTraversable(x, y), actual.isTraversable(x, y));
+            }
+        }
+        Assert.assertEquals(expected.hasUniformCost(), actual.hasUniformCost());
+        for(int y = 0; y < expected.getHeight(); y++) {
+            for(int x = 0; x < expected.getWidth(); x++) {
+                Assert.assertEquals(expected.getCost(x, y), actual.getCost(x, y));
+            }
+        }
+    }
+}
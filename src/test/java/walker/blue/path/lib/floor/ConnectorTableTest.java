@@ -0,0 +1,106 @@
+package walker.blue.path.lib.floor;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridFixtures;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Unit tests for ConnectorTable class
+ */
+public class ConnectorTableTest {
+
+    private static final char[][] FLOOR = {
+            {'S', 'O', 'O', 'O', 'O', 'O', 'O'},
+            {'O', 'X', 'X', 'X', 'X', 'X', 'O'},
+            {'O', 'O', 'O', 'S', 'O', 'X', 'O'},
+            {'X', 'X', 'X', 'X', 'O', 'X', 'O'},
+            {'E', 'O', 'O', 'O', 'O', 'O', 'O'},
+            {'X', 'X', 'X', 'X', 'X', 'X', 'X'},
+            {'E', 'O', 'O', 'X', 'O', 'O', 'S'}};
+
+    private List<List<List<GridNode>>> searchArea;
+
+    private List<FloorConnector> connectors;
+
+    @Before
+    public void classSetup() {
+        this.searchArea = new ArrayList<List<List<GridNode>>>();
+        this.searchArea.add(GridGenerator.gen2D(FLOOR, 0));
+        this.connectors = new ArrayList<FloorConnector>();
+        for(List<GridNode> row : searchArea.get(0)) {
+            for(GridNode node : row) {
+                if(node instanceof FloorConnector) {
+                    FloorConnector connector = (FloorConnector) node;
+                    connector.setIndex(connectors.size());
+                    connectors.add(connector);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStoredPathsMatchDistances() {
+        ConnectorTable searched = new ConnectorTable(searchArea, connectors, Connectivity.EIGHT, false);
+        ConnectorTable stored = new ConnectorTable(searchArea, connectors, Connectivity.EIGHT, true);
+        Assert.assertEquals(connectors.size(), stored.getConnectors(0).length);
+        for(int a = 0; a < connectors.size(); a++) {
+            for(int b = 0; b < connectors.size(); b++) {
+                int distance = stored.getDistance(a, b);
+                Assert.assertEquals(distance, searched.getDistance(a, b));
+                Assert.assertEquals(distance, stored.getDistance(b, a));
+                if(distance == ConnectorTable.UNREACHABLE) {
+                    Assert.assertNull(stored.getPath(a, b));
+                    Assert.assertNull(searched.getPath(a, b));
+                    continue;
+                }
+                Assert.assertEquals(distance, pathCost(stored.getPath(a, b)), 0);
+                Assert.assertEquals(distance, pathCost(searched.getPath(a, b)), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testUnreachable() {
+        ConnectorTable table = new ConnectorTable(searchArea, connectors, Connectivity.EIGHT, true);
+        // The bottom row is split by a wall and cut off from the rest.
+        int elevator = connectors.size() - 2;
+        int stairs = connectors.size() - 1;
+        Assert.assertEquals(ConnectorTable.UNREACHABLE, table.getDistance(0, stairs));
+        Assert.assertEquals(ConnectorTable.UNREACHABLE, table.getDistance(elevator, stairs));
+        Assert.assertEquals(0, table.getDistance(stairs, stairs));
+    }
+
+    @Test
+    public void testCompressNarrowFloor() {
+        // On a floor two cells wide a move right and a move down-left both
+        // add 1 to the cell id, yet the path turns between them.
+        int width = 2;
+        int[] path = {0, 1, 2, 4, 6, 7};
+        int[] turns = ConnectorTable.compress(path, width);
+        Assert.assertArrayEquals(new int[] {0, 1, 2, 6, 7}, turns);
+        Assert.assertArrayEquals(path, ConnectorTable.expand(turns, width));
+
+        int[] diagonal = {1, 2, 4, 5};
+        Assert.assertArrayEquals(diagonal, ConnectorTable.expand(ConnectorTable.compress(diagonal, width), width));
+    }
+
+    /**
+     * Returns the cost of a path of cell ids, checking every move. Floor
+     * connectors are walked through like open cells.
+     */
+    private static double pathCost(int[] path) {
+        char[][] open = new char[FLOOR.length][];
+        for(int y = 0; y < FLOOR.length; y++) {
+            open[y] = new String(FLOOR[y]).replaceAll("[SE]", "O").toCharArray();
+        }
+        return GridFixtures.checkPath(GridGenerator.genMap(open), path, Connectivity.EIGHT).getCost();
+    }
+}
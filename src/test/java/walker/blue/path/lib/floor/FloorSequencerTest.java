@@ -0,0 +1,263 @@
+package walker.blue.path.lib.floor;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Unit tests for FloorSequencer class
+ */
+public class FloorSequencerTest {
+
+    // Stairs in the top left corner of every floor and an elevator in the
+    // bottom right corner, with a wall splitting the middle floor.
+    private static final char[][][] BUILDING = {
+            {
+                    {'S', 'O', 'O', 'O', 'O', 'O'},
+                    {'O', 'O', 'O', 'O', 'O', 'O'},
+                    {'O', 'O', 'O', 'O', 'O', 'O'},
+                    {'O', 'O', 'O', 'O', 'O', 'E'}},
+            {
+                    {'S', 'O', 'O', 'X', 'O', 'O'},
+                    {'O', 'O', 'O', 'X', 'O', 'O'},
+                    {'O', 'O', 'O', 'X', 'O', 'O'},
+                    {'O', 'O', 'O', 'X', 'O', 'E'}},
+            {
+                    {'S', 'O', 'O', 'O', 'O', 'O'},
+                    {'O', 'O', 'O', 'O', 'O', 'O'},
+                    {'O', 'O', 'O', 'O', 'O', 'O'},
+                    {'O', 'O', 'O', 'O', 'O', 'E'}}};
+
+    private List<List<List<GridNode>>> searchArea;
+
+    private List<FloorConnector> connectors;
+
+    private FloorSequencer sequencer;
+
+    @Before
+    public void classSetup() {
+        this.searchArea = GridGenerator.gen3D(BUILDING);
+        this.connectors = new ArrayList<FloorConnector>();
+        linkShaft(0, 0);
+        linkShaft(5, 3);
+        this.sequencer = new FloorSequencer(new GridAStar(), searchArea, connectors);
+    }
+
+    @Test
+    public void testTakesCheaperConnector() {
+        // Start and destination sit next to the stairs, but the elevator
+        // wins once the stairs cost more than the walk to the elevator.
+        GridNode start = searchArea.get(0).get(1).get(1);
+        GridNode dest = searchArea.get(2).get(1).get(1);
+        List<GridNode> path = sequencer.findPath(start, dest);
+        assertValidPath(path, start, dest);
+        Assert.assertEquals(FloorConnector.Type.STAIRS, connectorTaken(path));
+        Assert.assertEquals(14 + 2 * 50 + 14, pathCost(path));
+
+        sequencer.setFloorCost(FloorConnector.Type.STAIRS, 200);
+        path = sequencer.findPath(start, dest);
+        assertValidPath(path, start, dest);
+        Assert.assertEquals(FloorConnector.Type.ELEVATOR, connectorTaken(path));
+        Assert.assertEquals(2 * (2 * 14 + 2 * 10) + 2 * 30, pathCost(path));
+    }
+
+    @Test
+    public void testSameFloorThroughOtherFloor() {
+        // The wall on the middle floor can only be passed by going up or down.
+        GridNode start = searchArea.get(1).get(0).get(1);
+        GridNode dest = searchArea.get(1).get(0).get(5);
+        List<GridNode> path = sequencer.findPath(start, dest);
+        assertValidPath(path, start, dest);
+        Assert.assertNotNull(connectorTaken(path));
+    }
+
+    @Test
+    public void testNoPath() {
+        for(FloorConnector connector : connectors) {
+            connector.getConnections().clear();
+        }
+        GridNode start = searchArea.get(0).get(1).get(1);
+        GridNode dest = searchArea.get(2).get(1).get(1);
+        Assert.assertNull(sequencer.findPath(start, dest));
+    }
+
+    @Test
+    public void testConnectorTableMatchesFullSearch() {
+        for(boolean storePaths : new boolean[] {false, true}) {
+            FloorSequencer tableSequencer = new FloorSequencer(new GridAStar(), searchArea, connectors);
+            tableSequencer.precompute(storePaths);
+            for(GridNode start : allNodes()) {
+                for(GridNode dest : allNodes()) {
+                    List<GridNode> expected = sequencer.findPath(start, dest);
+                    List<GridNode> path = tableSequencer.findPath(start, dest);
+                    if(expected == null) {
+                        Assert.assertNull(path);
+                        continue;
+                    }
+                    assertValidPath(path, start, dest);
+                    Assert.assertEquals(pathCost(expected), pathCost(path));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testExecutorMatchesSerial() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            FloorSequencer parallel = new FloorSequencer(new GridAStar(), searchArea, connectors);
+            parallel.setExecutor(executor);
+            parallel.precompute(false);
+            for(int floor = 0; floor < searchArea.size(); floor++) {
+                Assert.assertTrue(parallel.getConnectorTable().isValid(floor));
+            }
+            for(GridNode start : allNodes()) {
+                for(GridNode dest : allNodes()) {
+                    List<GridNode> expected = sequencer.findPath(start, dest);
+                    List<GridNode> path = parallel.findPath(start, dest);
+                    if(expected == null) {
+                        Assert.assertNull(path);
+                        continue;
+                    }
+                    assertValidPath(path, start, dest);
+                    Assert.assertEquals(pathCost(expected), pathCost(path));
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidateFloor() {
+        sequencer.precompute(false);
+        GridNode start = searchArea.get(0).get(1).get(1);
+        GridNode dest = searchArea.get(2).get(1).get(1);
+        Assert.assertEquals(FloorConnector.Type.STAIRS, connectorTaken(sequencer.findPath(start, dest)));
+
+        // Walling in the stairs on the top floor leaves only the elevator.
+        List<List<GridNode>> top = searchArea.get(2);
+        top.get(0).set(1, new GridNode(1, 0, 2, false));
+        top.get(1).set(0, new GridNode(0, 1, 2, false));
+        top.get(1).set(1, new GridNode(1, 1, 2, false));
+        dest = top.get(2).get(2);
+        sequencer.invalidateFloor(2);
+        Assert.assertFalse(sequencer.getConnectorTable().isValid(2));
+        try {
+            sequencer.findPath(start, dest);
+            Assert.fail("A query must not rebuild invalidated floors");
+        }
+        catch(IllegalStateException e) {
+            Assert.assertFalse(sequencer.getConnectorTable().isValid(2));
+        }
+        sequencer.update();
+        List<GridNode> path = sequencer.findPath(start, dest);
+        assertValidPath(path, start, dest);
+        Assert.assertEquals(FloorConnector.Type.ELEVATOR, connectorTaken(path));
+        Assert.assertTrue(sequencer.getConnectorTable().isValid(2));
+    }
+
+    /**
+     * Returns every node of the building that a path may start or end at.
+     */
+    private List<GridNode> allNodes() {
+        List<GridNode> nodes = new ArrayList<GridNode>();
+        for(List<List<GridNode>> floor : searchArea) {
+            for(List<GridNode> row : floor) {
+                for(GridNode node : row) {
+                    if(node.isTraversable() || node instanceof FloorConnector) {
+                        nodes.add(node);
+                    }
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Links the connectors at the same cell of every floor to the ones
+     * directly above and below them.
+     */
+    private void linkShaft(int x, int y) {
+        FloorConnector below = null;
+        for(List<List<GridNode>> floor : searchArea) {
+            FloorConnector connector = (FloorConnector) floor.get(y).get(x);
+            connector.setIndex(connectors.size());
+            connectors.add(connector);
+            if(below != null) {
+                below.addConnection(connector);
+                connector.addConnection(below);
+            }
+            below = connector;
+        }
+    }
+
+    /**
+     * Checks that every step of a path is a move to a neighboring cell on
+     * the same floor or a move between two linked connectors.
+     */
+    private static void assertValidPath(List<GridNode> path, GridNode start, GridNode dest) {
+        Assert.assertNotNull(path);
+        Assert.assertEquals(start, path.get(0));
+        Assert.assertEquals(dest, path.get(path.size() - 1));
+        for(int i = 1; i < path.size(); i++) {
+            GridNode a = path.get(i - 1);
+            GridNode b = path.get(i);
+            if(a.getLocation().getZ() != b.getLocation().getZ()) {
+                Assert.assertTrue(((FloorConnector) a).getConnections().contains(b));
+            }
+            else {
+                Assert.assertTrue(b.isTraversable() || b instanceof FloorConnector);
+                Assert.assertTrue(Math.abs(a.getLocation().getX() - b.getLocation().getX()) <= 1);
+                Assert.assertTrue(Math.abs(a.getLocation().getY() - b.getLocation().getY()) <= 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the type of the first connector used to change floors, or
+     * null if the path stays on one floor.
+     */
+    private static FloorConnector.Type connectorTaken(List<GridNode> path) {
+        for(int i = 1; i < path.size(); i++) {
+            if(path.get(i - 1).getLocation().getZ() != path.get(i).getLocation().getZ()) {
+                return ((FloorConnector) path.get(i - 1)).getType();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the cost of a path with the default connector costs, or the
+     * stairs cost set by the test.
+     */
+    private int pathCost(List<GridNode> path) {
+        int cost = 0;
+        for(int i = 1; i < path.size(); i++) {
+            GridNode a = path.get(i - 1);
+            GridNode b = path.get(i);
+            int dz = Math.abs(a.getLocation().getZ() - b.getLocation().getZ());
+            if(dz != 0) {
+                cost += dz * sequencer.getFloorCost(((FloorConnector) a).getType());
+            }
+            else if(a.getLocation().getX() != b.getLocation().getX()
+                    && a.getLocation().getY() != b.getLocation().getY()) {
+                cost += 14;
+            }
+            else {
+                cost += 10;
+            }
+        }
+        return cost;
+    }
+}
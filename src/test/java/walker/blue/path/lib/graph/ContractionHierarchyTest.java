@@ -0,0 +1,103 @@
+package walker.blue.path.lib.graph;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import walker.blue.path.lib.finder.GraphDijkstra;
+import walker.blue.path.lib.node.GraphNode;
+
+/**
+ * Unit tests for ContractionHierarchy class
+ */
+public class ContractionHierarchyTest {
+
+    private CsrGraph graph;
+
+    private ContractionHierarchy hierarchy;
+
+    @Before
+    public void classSetup() {
+        // A 20x20 lattice with random weights, a few one-way streets and a few missing edges.
+        Random random = new Random(5);
+        int side = 20;
+        List<GraphNode> nodes = new ArrayList<GraphNode>();
+        for(int i = 0; i < side * side; i++) {
+            nodes.add(new GraphNode(10 * (i % side), 10 * (i / side), 0, i));
+        }
+        CsrGraph.Builder builder = new CsrGraph.Builder(nodes);
+        for(int i = 0; i < side * side; i++) {
+            int[] neighbors = {i % side < side - 1 ? i + 1 : -1, i / side < side - 1 ? i + side : -1};
+            for(int neighbor : neighbors) {
+                if(neighbor == -1 || random.nextInt(10) == 0) {
+                    continue;
+                }
+                float weight = 10 + random.nextInt(20);
+                builder.addEdge(i, neighbor, weight);
+                if(random.nextInt(8) != 0) {
+                    builder.addEdge(neighbor, i, weight);
+                }
+            }
+        }
+        this.graph = builder.build();
+        this.hierarchy = new ContractionHierarchyBuilder().build(graph);
+    }
+
+    @Test
+    public void testMatchesDijkstra() {
+        GraphDijkstra dijkstra = new GraphDijkstra();
+        Random random = new Random(9);
+        for(int query = 0; query < 10; query++) {
+            int start = random.nextInt(graph.getNodeCount());
+            float[] distances = dijkstra.computeDistances(graph, start);
+            for(int dest = 0; dest < graph.getNodeCount(); dest++) {
+                int[] path = hierarchy.findPath(start, dest);
+                if(distances[dest] == Float.POSITIVE_INFINITY) {
+                    Assert.assertNull(path);
+                    continue;
+                }
+                Assert.assertEquals(distances[dest], hierarchy.findDistance(start, dest), 1e-2);
+                Assert.assertEquals(start, path[0]);
+                Assert.assertEquals(dest, path[path.length - 1]);
+                Assert.assertEquals(distances[dest], pathLength(path), 1e-2);
+            }
+        }
+    }
+
+    @Test
+    public void testSerialization() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        hierarchy.write(new DataOutputStream(bytes));
+        ContractionHierarchy copy = ContractionHierarchy.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(hierarchy.getNodeCount(), copy.getNodeCount());
+        Assert.assertEquals(hierarchy.getShortcutCount(), copy.getShortcutCount());
+        for(int dest = 0; dest < graph.getNodeCount(); dest += 7) {
+            Assert.assertEquals(hierarchy.findDistance(3, dest), copy.findDistance(3, dest), 0.0);
+        }
+    }
+
+    private double pathLength(int[] path) {
+        double length = 0;
+        for(int i = 1; i < path.length; i++) {
+            double best = Double.POSITIVE_INFINITY;
+            for(int edge = graph.getEdgeStart(path[i - 1]); edge < graph.getEdgeEnd(path[i - 1]); edge++) {
+                if(graph.getTarget(edge) == path[i]) {
+                    best = Math.min(best, graph.getWeight(edge));
+                }
+            }
+            Assert.assertTrue(best < Double.POSITIVE_INFINITY);
+            length += best;
+        }
+        return length;
+    }
+}
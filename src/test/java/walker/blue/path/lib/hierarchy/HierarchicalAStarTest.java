@@ -0,0 +1,221 @@
+package walker.blue.path.lib.hierarchy;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import walker.blue.path.lib.finder.GridDijkstra;
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.DistanceField;
+import walker.blue.path.lib.grid.GridMap;
+import walker.blue.path.lib.node.GridNode;
+import walker.blue.path.lib.util.GridFixtures;
+import walker.blue.path.lib.util.GridGenerator;
+
+/**
+ * Unit tests for HierarchicalAStar class
+ */
+public class HierarchicalAStarTest {
+
+    private static final int SIZE = 50;
+
+    private Random random;
+
+    @Before
+    public void classSetup() {
+        this.random = new Random(11);
+    }
+
+    @Test
+    public void testPathsMatchReachability() {
+        for(Connectivity connectivity : Connectivity.values()) {
+            GridMap map = randomMap();
+            ClusterMap clusterMap = new ClusterMap(map, 8, connectivity);
+            HierarchicalAStar finder = new HierarchicalAStar(clusterMap);
+            for(int query = 0; query < 40; query++) {
+                assertQuery(map, finder, connectivity, randomOpenCell(map), randomOpenCell(map));
+            }
+        }
+    }
+
+    @Test
+    public void testCellChanged() {
+        GridMap map = randomMap();
+        ClusterMap clusterMap = new ClusterMap(map, 8, Connectivity.EIGHT_NO_CORNER_CUTTING);
+        HierarchicalAStar finder = new HierarchicalAStar(clusterMap);
+        int start = randomOpenCell(map);
+        int dest = randomOpenCell(map);
+        for(int round = 0; round < 30; round++) {
+            int[] path = finder.findPath(start, dest);
+            if(path != null && path.length > 2) {
+                // Block a cell on the current path and make sure the next path avoids it.
+                int blocked = path[path.length / 2];
+                map.setTraversable(map.getX(blocked), map.getY(blocked), false);
+                clusterMap.cellChanged(map.getX(blocked), map.getY(blocked));
+            }
+            else {
+                int x = random.nextInt(SIZE);
+                int y = random.nextInt(SIZE);
+                map.setTraversable(x, y, true);
+                clusterMap.cellChanged(x, y);
+            }
+            clusterMap.update();
+            assertQuery(map, finder, Connectivity.EIGHT_NO_CORNER_CUTTING, start, dest);
+        }
+    }
+
+    @Test
+    public void testQueryNeedsUpdate() {
+        char[][] grid = new char[16][16];
+        for(char[] row : grid) {
+            Arrays.fill(row, 'O');
+        }
+        GridMap map = GridGenerator.genMap(grid);
+        ClusterMap clusterMap = new ClusterMap(map, 8, Connectivity.EIGHT);
+        HierarchicalAStar finder = new HierarchicalAStar(clusterMap);
+        int start = map.getId(0, 0);
+        int dest = map.getId(15, 0);
+        Assert.assertNotNull(finder.findPath(start, dest));
+        for(int y = 0; y < 16; y++) {
+            map.setTraversable(8, y, false);
+            clusterMap.cellChanged(8, y);
+        }
+        try {
+            finder.findPath(start, dest);
+            Assert.fail("A query on a changed cluster map must not rebuild it");
+        }
+        catch(IllegalStateException e) {
+            Assert.assertTrue(clusterMap.needsUpdate());
+        }
+        clusterMap.update();
+        Assert.assertFalse(clusterMap.needsUpdate());
+        Assert.assertNull(finder.findPath(start, dest));
+    }
+
+    @Test
+    public void testWeightedMap() {
+        for(Connectivity connectivity : Connectivity.values()) {
+            GridMap map = randomMap();
+            for(int id = 0; id < map.size(); id++) {
+                map.setCost(map.getX(id), map.getY(id), 1 + random.nextInt(4));
+            }
+            HierarchicalAStar finder = new HierarchicalAStar(new ClusterMap(map, 8, connectivity));
+            for(int query = 0; query < 40; query++) {
+                assertQuery(map, finder, connectivity, randomOpenCell(map), randomOpenCell(map), 4);
+            }
+        }
+    }
+
+    @Test
+    public void testCostChanged() {
+        // A slow wall across the middle of an open map, fast next to the bottom clusters.
+        GridMap map = new GridMap(32, 32);
+        for(int y = 0; y < 32; y++) {
+            for(int x = 0; x < 32; x++) {
+                map.setTraversable(x, y, true);
+            }
+            map.setCost(16, y, y < 24 ? 9 : 1);
+        }
+        ClusterMap clusterMap = new ClusterMap(map, 8, Connectivity.EIGHT);
+        HierarchicalAStar finder = new HierarchicalAStar(clusterMap);
+        int start = map.getId(2, 20);
+        int dest = map.getId(29, 20);
+        Assert.assertEquals(0, slowCells(map, finder.findPath(start, dest)));
+        assertQuery(map, finder, Connectivity.EIGHT, start, dest, 9);
+
+        // Moving the fast part to the top must be noticed even without cellChanged.
+        for(int y = 0; y < 32; y++) {
+            map.setCost(16, y, y < 8 ? 1 : 9);
+        }
+        Assert.assertTrue(clusterMap.needsUpdate());
+        try {
+            finder.findPath(start, dest);
+            Assert.fail("Queries must not run on a stale cluster map");
+        }
+        catch(IllegalStateException e) {
+            Assert.assertTrue(clusterMap.needsUpdate());
+        }
+        clusterMap.update();
+        Assert.assertFalse(clusterMap.needsUpdate());
+        // The detour to the top costs more than crossing the wall once.
+        Assert.assertEquals(1, slowCells(map, finder.findPath(start, dest)));
+        assertQuery(map, finder, Connectivity.EIGHT, start, dest, 9);
+    }
+
+    @Test
+    public void testFindPathNodes() {
+        char[][] grid = new char[20][20];
+        for(int y = 0; y < 20; y++) {
+            for(int x = 0; x < 20; x++) {
+                grid[y][x] = x == 10 && y != 17 ? 'X' : 'O';
+            }
+        }
+        List<List<GridNode>> searchArea = GridGenerator.gen2D(grid);
+        HierarchicalAStar finder = new HierarchicalAStar(new ClusterMap(searchArea));
+        List<GridNode> path = finder.findPath(searchArea.get(0).get(0), searchArea.get(0).get(19));
+        Assert.assertNotNull(path);
+        Assert.assertEquals(searchArea.get(0).get(0), path.get(0));
+        Assert.assertEquals(searchArea.get(0).get(19), path.get(path.size() - 1));
+        Assert.assertTrue(path.contains(searchArea.get(17).get(10)));
+    }
+
+    private void assertQuery(GridMap map, HierarchicalAStar finder, Connectivity connectivity,
+                             int start, int dest) {
+        assertQuery(map, finder, connectivity, start, dest, 1);
+    }
+
+    /**
+     * Checks a query against a Dijkstra flood, allowing a detour that grows
+     * with the largest cell cost of the map.
+     */
+    private void assertQuery(GridMap map, HierarchicalAStar finder, Connectivity connectivity,
+                             int start, int dest, int maxCost) {
+        DistanceField field = new GridDijkstra(connectivity).computeDistanceField(map, start);
+        int[] path = finder.findPath(start, dest);
+        if(!field.isReachable(dest)) {
+            Assert.assertNull(path);
+            return;
+        }
+        Assert.assertNotNull(path);
+        Assert.assertEquals(start, path[0]);
+        Assert.assertEquals(dest, path[path.length - 1]);
+        double cost = GridFixtures.checkPath(map, path, connectivity).getCost();
+        Assert.assertTrue(cost >= field.getDistance(dest));
+        Assert.assertTrue(cost <= 1.5 * field.getDistance(dest) + 40 * maxCost);
+    }
+
+    /**
+     * Returns the number of cells of a path that cost more than 1.
+     */
+    private static int slowCells(GridMap map, int[] path) {
+        int count = 0;
+        for(int cell : path) {
+            if(map.getCost(cell) > 1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int randomOpenCell(GridMap map) {
+        int cell;
+        do {
+            cell = random.nextInt(map.size());
+        } while(!map.isTraversable(cell));
+        return cell;
+    }
+
+    private GridMap randomMap() {
+        GridMap map = new GridMap(SIZE, SIZE);
+        for(int y = 0; y < SIZE; y++) {
+            for(int x = 0; x < SIZE; x++) {
+                map.setTraversable(x, y, random.nextDouble() > 0.3);
+            }
+        }
+        return map;
+    }
+}
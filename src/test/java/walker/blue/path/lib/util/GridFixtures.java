@@ -0,0 +1,90 @@
+package walker.blue.path.lib.util;
+
+import org.junit.Assert;
+
+import walker.blue.path.lib.finder.GridAStar;
+import walker.blue.path.lib.grid.Connectivity;
+import walker.blue.path.lib.grid.GridPath;
+import walker.blue.path.lib.grid.SearchGrid;
+
+/**
+ * Search areas and path checks shared by the unit tests of the pathfinders
+ */
+public final class GridFixtures {
+
+    /**
+     * Layout of the small floor most pathfinder tests search.
+     */
+    private static final char[][] SEARCH_AREA_GRID = {
+            {'O', 'O', 'O', 'O', 'X', 'X', 'X'},
+            {'O', 'O', 'O', 'X', 'O', 'O', 'O'},
+            {'O', 'O', 'O', 'O', 'O', 'X', 'X'},
+            {'X', 'X', 'O', 'O', 'O', 'X', 'O'},
+            {'O', 'O', 'O', 'O', 'O', 'O', 'O'},
+            {'X', 'X', 'X', 'X', 'O', 'O', 'O'},
+            {'X', 'O', 'O', 'O', 'O', 'O', 'O'}};
+
+    /**
+     * Class constructor, hidden since the class only has static members.
+     */
+    private GridFixtures() {}
+
+    /**
+     * Returns a copy of the 7x7 search area, which a test may change freely.
+     *
+     * @return char values indicating the type of each cell
+     */
+    public static char[][] searchAreaGrid() {
+        char[][] grid = new char[SEARCH_AREA_GRID.length][];
+        for(int y = 0; y < grid.length; y++) {
+            grid[y] = SEARCH_AREA_GRID[y].clone();
+        }
+        return grid;
+    }
+
+    /**
+     * Checks that every move of a path of cell ids enters a traversable
+     * neighbor allowed by the connectivity, and returns the path with its
+     * cost added up the way GridAStar does.
+     *
+     * @param grid         the search area
+     * @param cells        the cell ids of the path
+     * @param connectivity the moves the path may make
+     * @return             the path
+     */
+    public static GridPath checkPath(SearchGrid grid, int[] cells, Connectivity connectivity) {
+        int width = grid.getWidth();
+        for(int i = 1; i < cells.length; i++) {
+            int x = cells[i - 1] % width;
+            int y = cells[i - 1] / width;
+            int dx = cells[i] % width - x;
+            int dy = cells[i] / width - y;
+            Assert.assertTrue(Math.abs(dx) <= 1 && Math.abs(dy) <= 1 && (dx != 0 || dy != 0));
+            Assert.assertTrue(grid.isTraversable(x + dx, y + dy));
+            if(dx != 0 && dy != 0) {
+                boolean first = grid.isTraversable(x + dx, y);
+                boolean second = grid.isTraversable(x, y + dy);
+                Assert.assertFalse(connectivity == Connectivity.FOUR);
+                Assert.assertFalse(connectivity == Connectivity.EIGHT_NO_SQUEEZING && !first && !second);
+                Assert.assertFalse(connectivity == Connectivity.EIGHT_NO_CORNER_CUTTING && !(first && second));
+            }
+        }
+        return PathCoster.INSTANCE.toGridPath(grid, cells);
+    }
+
+    /**
+     * GridAStar giving access to the way it adds up the cost of a path.
+     */
+    private static class PathCoster extends GridAStar {
+
+        /**
+         * Shared instance, which holds no state.
+         */
+        private static final PathCoster INSTANCE = new PathCoster();
+
+        @Override
+        protected GridPath toGridPath(SearchGrid grid, int[] cells) {
+            return super.toGridPath(grid, cells);
+        }
+    }
+}
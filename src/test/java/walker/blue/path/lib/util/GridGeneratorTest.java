@@ -6,6 +6,7 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.List;
 
+import walker.blue.path.lib.grid.GridMap;
 import walker.blue.path.lib.node.GridNode;
 
 /**
@@ -26,6 +27,33 @@ public class GridGeneratorTest {
         Assert.assertEquals(expectedGrid, grid);
     }
 
+    @Test
+    public void testGenMapCosts() {
+        char[][] charGrid = {{'O', '1', '5'},
+                {'X', '9', 'S'}};
+        GridMap map = GridGenerator.genMap(charGrid);
+        Assert.assertTrue(map.isTraversable(1, 0));
+        Assert.assertTrue(map.isTraversable(2, 0));
+        Assert.assertTrue(map.isTraversable(1, 1));
+        Assert.assertFalse(map.isTraversable(0, 1));
+        Assert.assertFalse(map.isTraversable(2, 1));
+        Assert.assertEquals(1, map.getCost(0, 0));
+        Assert.assertEquals(1, map.getCost(1, 0));
+        Assert.assertEquals(5, map.getCost(2, 0));
+        Assert.assertEquals(9, map.getCost(1, 1));
+        Assert.assertFalse(map.hasUniformCost());
+        Assert.assertTrue(GridGenerator.genMap(new char[][] {{'O', '1', 'X'}}).hasUniformCost());
+    }
+
+    @Test
+    public void testGen2DCostDigits() {
+        List<GridNode> row = GridGenerator.gen2D(new char[][] {{'O', '1', '5'}}).get(0);
+        Assert.assertTrue(row.get(0).isTraversable());
+        Assert.assertTrue(row.get(1).isTraversable());
+        // Only genMap supports weighted cells.
+        Assert.assertFalse(row.get(2).isTraversable());
+    }
+
     private List<List<GridNode>> setup2DExpectedNode() {
         List<List<GridNode>> expectedGrid = new ArrayList<>();
         List<GridNode> row0 = new ArrayList<>();
@@ -0,0 +1,71 @@
+package walker.blue.path.lib.util;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for IndexedMinHeap class
+ */
+public class IndexedMinHeapTest {
+
+    private IndexedMinHeap heap;
+
+    @Before
+    public void classSetup() {
+        this.heap = new IndexedMinHeap(10);
+    }
+
+    @Test
+    public void testRemoveOrder() {
+        heap.add(3, 30.0);
+        heap.add(7, 10.0);
+        heap.add(1, 20.0);
+        heap.add(9, 5.0);
+        Assert.assertEquals(4, heap.size());
+        Assert.assertEquals(9, heap.remove());
+        Assert.assertEquals(7, heap.remove());
+        Assert.assertEquals(1, heap.remove());
+        Assert.assertEquals(3, heap.remove());
+        Assert.assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testDecreaseKey() {
+        heap.add(2, 50.0);
+        heap.add(4, 40.0);
+        heap.add(6, 30.0);
+        Assert.assertTrue(heap.contains(2));
+        heap.addOrDecrease(2, 10.0);
+        Assert.assertEquals(10.0, heap.getKey(2), 0.0);
+        Assert.assertEquals(2, heap.remove());
+        Assert.assertFalse(heap.contains(2));
+        Assert.assertEquals(6, heap.remove());
+    }
+
+    @Test
+    public void testClear() {
+        heap.add(0, 1.0);
+        heap.add(5, 2.0);
+        heap.clear();
+        Assert.assertTrue(heap.isEmpty());
+        Assert.assertFalse(heap.contains(0));
+        Assert.assertFalse(heap.contains(5));
+        heap.add(5, 3.0);
+        Assert.assertEquals(5, heap.remove());
+    }
+
+    @Test
+    public void testGrowsPastInitialLength() {
+        IndexedMinHeap large = new IndexedMinHeap(1000);
+        for(int id = 0; id < 1000; id++) {
+            large.add(id, 1000 - id);
+        }
+        Assert.assertEquals(1000, large.size());
+        Assert.assertEquals(1000, large.capacity());
+        for(int id = 999; id >= 0; id--) {
+            Assert.assertEquals(id, large.remove());
+        }
+        Assert.assertTrue(large.isEmpty());
+    }
+}
@@ -0,0 +1,55 @@
+package walker.blue.path.lib.util;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for LogHistogram class
+ */
+public class LogHistogramTest {
+
+    private LogHistogram histogram;
+
+    @Before
+    public void classSetup() {
+        this.histogram = new LogHistogram();
+    }
+
+    @Test
+    public void testBuckets() {
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(5);
+        histogram.record(7);
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-1);
+        Assert.assertEquals(5, histogram.getCount());
+        Assert.assertEquals(1, histogram.getBucketCount(0));
+        Assert.assertEquals(1, histogram.getBucketCount(1));
+        // 5 and 7 both fall in [4, 8).
+        Assert.assertEquals(2, histogram.getBucketCount(3));
+        Assert.assertEquals(1, histogram.getBucketCount(LogHistogram.BUCKETS - 1));
+        Assert.assertEquals(4, LogHistogram.getBucketLowerBound(3));
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getMax());
+    }
+
+    @Test
+    public void testPercentiles() {
+        Assert.assertEquals(0, histogram.getPercentile(0.5));
+        for(int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(5050, histogram.getSum());
+        Assert.assertEquals(50.5, histogram.getMean(), 1e-9);
+        // The 50th value lies in [32, 64), the 99th in [64, 128).
+        Assert.assertEquals(63, histogram.getPercentile(0.5));
+        Assert.assertEquals(100, histogram.getPercentile(0.99));
+        Assert.assertEquals(1, histogram.getPercentile(0));
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMax());
+        Assert.assertEquals(0, histogram.getPercentile(0.99));
+    }
+}
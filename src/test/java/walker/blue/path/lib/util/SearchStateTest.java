@@ -0,0 +1,54 @@
+package walker.blue.path.lib.util;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for SearchState class
+ */
+public class SearchStateTest {
+
+    @After
+    public void classTeardown() {
+        SearchState.setMaxPooledCapacity(Integer.MAX_VALUE);
+        SearchState.clearPool();
+    }
+
+    @Test
+    public void testPooledPerThread() {
+        SearchState state = SearchState.acquire(100);
+        state.release();
+        Assert.assertSame(state, SearchState.acquire(50));
+        state.release();
+        SearchState.clearPool();
+        SearchState fresh = SearchState.acquire(50);
+        Assert.assertNotSame(state, fresh);
+        Assert.assertEquals(50, fresh.capacity());
+        fresh.release();
+    }
+
+    @Test
+    public void testMaxPooledCapacity() {
+        SearchState small = SearchState.acquire(100);
+        small.release();
+        SearchState.setMaxPooledCapacity(1000);
+        SearchState large = SearchState.acquire(2000);
+        large.release();
+        // The large state was not pooled, so the small one is still there.
+        Assert.assertSame(small, SearchState.acquire(100));
+        small.release();
+
+        SearchState.setMaxPooledCapacity(50);
+        SearchState after = SearchState.acquire(40);
+        Assert.assertNotSame(small, after);
+        after.release();
+        Assert.assertSame(after, SearchState.acquire(40));
+        after.release();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMaxPooledCapacity() {
+        SearchState.setMaxPooledCapacity(-1);
+    }
+}